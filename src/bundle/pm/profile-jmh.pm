@@ -0,0 +1,58 @@
+<profile>
+	<id>env-jmh</id>
+	<!-- JMH benchmarks from src/jmh/java, run with: mvn -P env-jmh test-compile exec:exec -->
+	<properties>
+		<pm.version.jmh>1.19</pm.version.jmh>
+		<pm.version.build-helper-maven-plugin>3.0.0</pm.version.build-helper-maven-plugin>
+		<pm.version.exec-maven-plugin>1.6.0</pm.version.exec-maven-plugin>
+		<jmh.include>.*</jmh.include>
+		<jmh.args>-prof gc -rf json -rff ${project.build.directory}/jmh-result.json</jmh.args>
+	</properties>
+	<dependencies>
+		<dependency>
+			<groupId>org.openjdk.jmh</groupId>
+			<artifactId>jmh-core</artifactId>
+			<version>${pm.version.jmh}</version>
+			<scope>test</scope>
+		</dependency>
+		<dependency>
+			<groupId>org.openjdk.jmh</groupId>
+			<artifactId>jmh-generator-annprocess</artifactId>
+			<version>${pm.version.jmh}</version>
+			<scope>test</scope>
+		</dependency>
+	</dependencies>
+	<build>
+		<plugins>
+			<plugin>
+				<groupId>org.codehaus.mojo</groupId>
+				<artifactId>build-helper-maven-plugin</artifactId>
+				<version>${pm.version.build-helper-maven-plugin}</version>
+				<executions>
+					<execution>
+						<id>add-jmh-source</id>
+						<phase>generate-test-sources</phase>
+						<goals>
+							<goal>add-test-source</goal>
+						</goals>
+						<configuration>
+							<sources>
+								<source>src/jmh/java</source>
+							</sources>
+						</configuration>
+					</execution>
+				</executions>
+			</plugin>
+			<plugin>
+				<groupId>org.codehaus.mojo</groupId>
+				<artifactId>exec-maven-plugin</artifactId>
+				<version>${pm.version.exec-maven-plugin}</version>
+				<configuration>
+					<executable>java</executable>
+					<classpathScope>test</classpathScope>
+					<commandlineArgs>-classpath %classpath org.openjdk.jmh.Main ${jmh.include} ${jmh.args}</commandlineArgs>
+				</configuration>
+			</plugin>
+		</plugins>
+	</build>
+</profile>
@@ -0,0 +1,86 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.vandermeer.skb.mvn.pm.model;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.vandermeer.skb.mvn.PmConstants;
+
+/**
+ * Benchmarks for parsing dependency versions and setting them on the model context.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class Bench_DependencyVersions {
+
+	/** Number of entries in the dependency version properties. */
+	@Param({"50", "1000"})
+	public int size;
+
+	/** The dependency version properties. */
+	protected Properties dependencyVersions;
+
+	/**
+	 * Creates the dependency version properties.
+	 */
+	@Setup
+	public void setup(){
+		this.dependencyVersions = new Properties();
+		for(int i=0; i<this.size; i++){
+			this.dependencyVersions.setProperty("ext" + i, "org.ext" + i + " lib" + i + " 1." + i);
+		}
+	}
+
+	/**
+	 * Parses a single dependency version.
+	 * @return the parsed dependency version
+	 */
+	@Benchmark
+	public Ctxt_DependencyVersion parse(){
+		return new Ctxt_DependencyVersion("commons-lang3", "org.apache.commons commons-lang3 3.4");
+	}
+
+	/**
+	 * Sets all dependency versions on a new model context.
+	 * @return the model context
+	 */
+	@Benchmark
+	public PM_Context setDependencyVersions(){
+		PM_Context mc = new PM_Context(PmConstants.PROJECT_PM_PATH);
+		mc.setDependencyVersions(this.dependencyVersions);
+		return mc;
+	}
+}
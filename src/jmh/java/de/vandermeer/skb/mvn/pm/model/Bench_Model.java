@@ -0,0 +1,108 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.vandermeer.skb.mvn.pm.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import de.vandermeer.skb.mvn.ProjectFiles;
+import de.vandermeer.skb.mvn.pm.SyntheticWorkspace;
+
+/**
+ * Benchmarks for loading managed projects and resolving their dependencies.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class Bench_Model {
+
+	/** Number of projects in the workspace. */
+	@Param({"10", "100"})
+	public int size;
+
+	/** The workspace. */
+	protected SyntheticWorkspace ws;
+
+	/** A model context with dependency and plugin versions. */
+	protected PM_Context mc;
+
+	/** A fully loaded model. */
+	protected PM_Model model;
+
+	/**
+	 * Creates the workspace and loads the model.
+	 * @throws IOException if the workspace could not be created
+	 */
+	@Setup
+	public void setup() throws IOException{
+		this.ws = SyntheticWorkspace.temporary(this.size).create();
+		this.mc = this.ws.createContext();
+		this.model = this.ws.createModel();
+	}
+
+	/**
+	 * Removes the workspace.
+	 */
+	@TearDown
+	public void tearDown(){
+		this.ws.delete();
+	}
+
+	/**
+	 * Constructs all managed projects of the workspace.
+	 * @param bh black hole for the projects
+	 * @throws IOException if a project could not be read
+	 */
+	@Benchmark
+	public void constructProjects(Blackhole bh) throws IOException{
+		for(File baseDir : this.ws.getProjects()){
+			File pmDir = new File(baseDir + File.separator + this.mc.getProjectPmDir());
+			bh.consume(new Model_ManagedProject(this.mc, baseDir, pmDir, new File(pmDir + File.separator + ProjectFiles.MANAGED_PROJECT_PROPERTIES.getFileName())));
+		}
+	}
+
+	/**
+	 * Resolves the dependencies of all managed projects.
+	 * @param bh black hole for the errors
+	 */
+	@Benchmark
+	public void updateDependencies(Blackhole bh){
+		for(Model_ManagedProject mp : this.model.getManagedProjects()){
+			bh.consume(mp.updateDependencies());
+		}
+	}
+}
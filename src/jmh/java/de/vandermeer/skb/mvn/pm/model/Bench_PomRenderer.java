@@ -0,0 +1,110 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.mvn.pm.model;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.output.NullWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.vandermeer.skb.mvn.pm.SyntheticWorkspace;
+
+/**
+ * Benchmarks comparing the POM renderers: all projects of a workspace are rendered, with fragments created before, without any IO.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class Bench_PomRenderer {
+
+	/** Name of the renderer. */
+	@Param({StPomRenderer.NAME, DirectPomRenderer.NAME})
+	public String renderer;
+
+	/** Number of projects in the workspace. */
+	@Param({"100"})
+	public int projects;
+
+	/** The workspace. */
+	protected SyntheticWorkspace ws;
+
+	/** The loaded renderer. */
+	protected PomRenderer pr;
+
+	/** The projects to render. */
+	protected List<Model_ManagedProject> mps = new ArrayList<>();
+
+	/** The fragments of each project, in the order of the projects. */
+	protected List<Map<String, List<String>>> fragments = new ArrayList<>();
+
+	/**
+	 * Creates the workspace, loads the model and the renderer, and creates all fragments.
+	 * @throws IOException if the workspace could not be created
+	 */
+	@Setup
+	public void setup() throws IOException{
+		this.ws = SyntheticWorkspace.temporary(this.projects).create();
+		PomWriter pw = new PomWriter();
+		for(Model_ManagedProject mp : this.ws.createModel().getManagedProjects()){
+			this.mps.add(mp);
+			this.fragments.add(pw.createFragments(mp));
+		}
+		this.pr = PomWriter.createRenderer(this.renderer);
+		this.pr.load();
+	}
+
+	/**
+	 * Removes the workspace.
+	 */
+	@TearDown
+	public void tearDown(){
+		this.ws.delete();
+	}
+
+	/**
+	 * Renders the POM files of all projects.
+	 * @throws IOException if rendering failed
+	 */
+	@Benchmark
+	public void renderAll() throws IOException{
+		NullWriter out = new NullWriter();
+		for(int i=0; i<this.mps.size(); i++){
+			this.pr.render(this.mps.get(i), this.fragments.get(i), out);
+		}
+	}
+}
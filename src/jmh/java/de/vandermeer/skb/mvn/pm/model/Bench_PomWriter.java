@@ -0,0 +1,156 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.vandermeer.skb.mvn.pm.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.output.NullWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.vandermeer.skb.mvn.PmConstants;
+import de.vandermeer.skb.mvn.pm.SyntheticWorkspace;
+
+/**
+ * Benchmarks for rendering POM files and for the compare/write step of the POM writer, all for a single project and for each renderer.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class Bench_PomWriter {
+
+	/** Name of the renderer. */
+	@Param({StPomRenderer.NAME, DirectPomRenderer.NAME})
+	public String renderer;
+
+	/** The workspace. */
+	protected SyntheticWorkspace ws;
+
+	/** The project to render. */
+	protected Model_ManagedProject mp;
+
+	/** The writer, set up as for a run. */
+	protected PomWriter pw;
+
+	/** The generated POM file. */
+	protected File out;
+
+	/** An existing POM file identical to the rendered one. */
+	protected File pomFile;
+
+	/** A POM file that does not exist. */
+	protected File missingPomFile;
+
+	/** A digest index that knows the existing POM file. */
+	protected PomDigests knownDigests;
+
+	/** A digest index file that does not exist, so every index created from it is empty. */
+	protected File emptyDigests;
+
+	/**
+	 * Creates the workspace, loads the model, and writes an existing POM file for the benchmarked project.
+	 * @throws IOException if the workspace could not be created
+	 */
+	@Setup
+	public void setup() throws IOException{
+		this.ws = SyntheticWorkspace.temporary(10).create();
+		this.mp = this.ws.createModel().getManagedProject("p9");
+
+		this.pw = new PomWriter();
+		this.pw.setRenderer(PomWriter.createRenderer(this.renderer));
+		this.pw.renderer.load();
+		this.pw.gpf = new File(this.ws.getRoot(), "generated");
+		this.pw.gpf.mkdirs();
+
+		this.out = new File(this.pw.gpf, this.mp.getPmId() + ".pom");
+		this.pomFile = new File(this.mp.getBaseDir(), "pom.xml");
+		this.missingPomFile = new File(this.ws.getRoot(), "missing" + File.separator + "pom.xml");
+		this.emptyDigests = new File(this.ws.getRoot(), "missing" + File.separator + PmConstants.POM_DIGEST_FILE);
+
+		this.knownDigests = new PomDigests(this.emptyDigests);
+		this.pw.digests = this.knownDigests;
+		String digest = this.pw.writeAndCompare(this.mp, this.pomFile, this.missingPomFile);
+		this.knownDigests.record(this.mp.getPmId(), this.pomFile, digest);
+	}
+
+	/**
+	 * Removes the workspace.
+	 */
+	@TearDown
+	public void tearDown(){
+		this.ws.delete();
+	}
+
+	/**
+	 * Creates the fragments and renders the POM, without any IO.
+	 * @throws IOException if rendering failed
+	 */
+	@Benchmark
+	public void render() throws IOException{
+		this.pw.renderer.render(this.mp, this.pw.createFragments(this.mp), new NullWriter());
+	}
+
+	/**
+	 * Renders and writes the generated POM file, comparing it on the fly with an identical existing POM file.
+	 * @return the digest, null as the POM file did not change
+	 * @throws IOException if any file could not be read or written
+	 */
+	@Benchmark
+	public String compareUnchanged() throws IOException{
+		this.pw.digests = new PomDigests(this.emptyDigests);
+		return this.pw.writeAndCompare(this.mp, this.out, this.pomFile);
+	}
+
+	/**
+	 * Renders and writes the generated POM file, the existing POM file is known by the digest index and not read.
+	 * @return the digest, null as the POM file did not change
+	 * @throws IOException if any file could not be read or written
+	 */
+	@Benchmark
+	public String digestUnchanged() throws IOException{
+		this.pw.digests = this.knownDigests;
+		return this.pw.writeAndCompare(this.mp, this.out, this.pomFile);
+	}
+
+	/**
+	 * Renders and writes the generated POM file, there is no existing POM file.
+	 * @return the digest of the new POM file
+	 * @throws IOException if any file could not be read or written
+	 */
+	@Benchmark
+	public String writeNew() throws IOException{
+		this.pw.digests = this.knownDigests;
+		return this.pw.writeAndCompare(this.mp, this.out, this.missingPomFile);
+	}
+}
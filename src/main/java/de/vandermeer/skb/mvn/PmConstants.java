@@ -64,6 +64,62 @@ commons-lang3=org.apache.commons commons-lang3 3.4
 	 */
 	public static final String PROJECT_PM_PATH = "src/pm";
 
+	/**
+	 * Default work directory of the project manager, relative to the current directory (or to the execution root of a Maven session).
+	 * All generated files (manifests, snapshots, reports, build logs) are stored in here.
+	 */
+	public static final String WORK_DIR = "target/project-manager";
+
+	/**
+	 * The fingerprint manifest for incremental generation, stored in the {@link #WORK_DIR}.
+	 * The file is essentially a Java property file, mapping a project's PM identifier to the fingerprint of all its inputs.
+	 */
+	public static final String FINGERPRINT_FILE = "fingerprints.pm";
+
+	/**
+	 * The sidecar index with the content digest of every POM file as last written, stored in the {@link #WORK_DIR}.
+	 * The file is essentially a Java property file, mapping a project's PM identifier to digest, size, and modification time of its POM file.
+	 */
+	public static final String POM_DIGEST_FILE = "pom-digests.pm";
+
+	/**
+	 * The metrics report (JSON) with time, CPU, allocation, and IO per phase and per project, stored in the {@link #WORK_DIR}.
+	 */
+	public static final String METRICS_FILE = "metrics.json";
+
+	/**
+	 * The binary model snapshot, stored in the {@link #WORK_DIR}.
+	 * The snapshot is only used if all project inputs are unchanged, see {@link de.vandermeer.skb.mvn.pm.model.ModelSnapshot}.
+	 */
+	public static final String MODEL_SNAPSHOT_FILE = "model-snapshot.bin";
+
+	/**
+	 * The dependency and plugin versions of the last selective run, stored in the {@link #WORK_DIR}.
+	 * The file is essentially a Java property file, see {@link de.vandermeer.skb.mvn.pm.model.VersionTables}.
+	 */
+	public static final String VERSION_TABLES_FILE = "version-tables.pm";
+
+	/**
+	 * The index of all directories walked to discover managed projects, stored in the {@link #WORK_DIR}.
+	 * The index is only used if the discovery configuration is unchanged, see {@link de.vandermeer.skb.mvn.pm.model.ProjectDiscovery}.
+	 */
+	public static final String DISCOVERY_INDEX_FILE = "discovery-index.bin";
+
+	/**
+	 * Directory for build logs of the build orchestrator, one log file per project, in the work directory.
+	 */
+	public static final String BUILD_LOG_DIR = "build-logs";
+
+	/**
+	 * Filename of the StringTemplate group file used to generate POM files.
+	 */
+	public static final String POM_TEMPLATE_FILE = "pom.stg";
+
+	/**
+	 * Filename of the built-in version strings for stamping source files, in the format of the Ant macro properties <code>set-versions.macro.properties</code>.
+	 */
+	public static final String SET_VERSIONS_FILE = "set-versions.properties";
+
 	/**
 	 * Filename of a file containing plugin definition for a Jar plugin.
 	 */
@@ -139,6 +139,9 @@ public enum ProjectProperties {
 	/** Property description. */
 	String description;
 
+	/** Flag for flag properties (prefix <code>pm.use.</code> or <code>pm.do.</code>), which are set if they exist, whatever their value. */
+	boolean flag;
+
 	/**
 	 * Creates a new project property.
 	 * @param propName the name of the property (as used in a property file)
@@ -151,6 +154,7 @@ public enum ProjectProperties {
 		this.required = required;
 		this.defaultValue = defaultValue;
 		this.description = description;
+		this.flag = propName.startsWith("pm.use.") || propName.startsWith("pm.do.");
 	}
 
 	/**
@@ -180,6 +184,14 @@ public enum ProjectProperties {
 		return this.required;
 	}
 
+	/**
+	 * Returns the flag flag of the property, flags are set if they exist in a property file, whatever their value.
+	 * @return true if the property is a flag (prefix <code>pm.use.</code> or <code>pm.do.</code>), false otherwise
+	 */
+	public boolean isFlag(){
+		return this.flag;
+	}
+
 	/**
 	 * Returns the default value of the property.
 	 * @return property default value
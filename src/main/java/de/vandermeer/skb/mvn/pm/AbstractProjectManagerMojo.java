@@ -0,0 +1,259 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.mvn.pm;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+import de.vandermeer.skb.mvn.PmConstants;
+import de.vandermeer.skb.mvn.pm.model.ProjectDiscovery;
+
+/**
+ * Base for all Maven goals of the {@link ProjectManager}, with the common parameters.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+public abstract class AbstractProjectManagerMojo extends AbstractMojo {
+
+	/** The configuration directory, home of all files with properties. */
+	@Parameter (defaultValue = PmConstants.PROJECT_PM_PATH)
+	protected File configDir;
+
+	/** The directory where the projects store their properties and configurations. */
+	@Parameter (defaultValue = PmConstants.PROJECT_PM_PATH)
+	protected String projectPmDir;
+
+	/** Number of threads to use for processing managed projects, 1 for sequential processing. */
+	@Parameter (property = "pm.threads", defaultValue = "1")
+	protected int threads;
+
+	/** Flag for incremental generation, projects whose inputs did not change since the last run are skipped. */
+	@Parameter (property = "pm.incremental", defaultValue = "false")
+	protected boolean incremental;
+
+	/** Flag for syncing new POM files to disk before they replace existing POM files, done in one batch at the end of a run. */
+	@Parameter (property = "pm.fsync", defaultValue = "false")
+	protected boolean fsync;
+
+	/** Renderer for POM files: st for the POM template, direct for direct rendering without template interpretation, both create the same POM files. */
+	@Parameter (property = "pm.renderer", defaultValue = "st")
+	protected String renderer;
+
+	/** Flag for using a binary model snapshot, the model is restored from it if no project input changed. */
+	@Parameter (property = "pm.snapshot", defaultValue = "false")
+	protected boolean snapshot;
+
+	/** Flag for selective regeneration, only projects affected by changed dependency versions are written if no project input changed (implies the snapshot). */
+	@Parameter (property = "pm.selective", defaultValue = "false")
+	protected boolean selective;
+
+	/** Memory bound in MB of the cache for project, plugin and profile files, least recently used files are evicted first. */
+	@Parameter (property = "pm.fragments.cache", defaultValue = "64")
+	protected int fragmentCache;
+
+	/** Root directories to discover managed projects in, separated by comma; empty to read managed projects from the projects file. */
+	@Parameter (property = "pm.discover.roots")
+	protected String discoverRoots;
+
+	/** Prune patterns for discovery, separated by comma: patterns with a slash (other than a trailing one) match paths relative to a root, all others match directory names. */
+	@Parameter (property = "pm.discover.prune", defaultValue = ProjectDiscovery.DEFAULT_PRUNE)
+	protected String discoverPrune;
+
+	/** Work directory for manifests, snapshots, reports, and build logs; default is {@link PmConstants#WORK_DIR} in the execution root. */
+	@Parameter (property = "pm.workDir")
+	protected File workDir;
+
+	/** Flag for aggregation, only the execution root of a reactor does the work and all other modules skip the goal. */
+	@Parameter (property = "pm.aggregate", defaultValue = "false")
+	protected boolean aggregate;
+
+	/** The current Maven project. */
+	@Parameter(property = "project", required = true, readonly = true)
+	protected MavenProject project;
+
+	/** Directory Maven was started in, the execution root of the reactor. */
+	@Parameter(defaultValue = "${session.executionRootDirectory}", readonly = true)
+	protected File executionRootDir;
+
+	/** Start time of the current Maven session, scope of the {@link SessionCache}. */
+	@Parameter(defaultValue = "${session.startTime}", readonly = true)
+	protected Date sessionStart;
+
+	/**
+	 * Creates a new project manager using the configured parameters.
+	 * @return new project manager
+	 * @throws MojoFailureException if the project manager could not be created
+	 */
+	protected ProjectManager createProjectManager() throws MojoFailureException {
+		try{
+			ProjectManager pm = new ProjectManager(this.configDir, this.projectPmDir, this.createDiscovery());
+			this.configure(pm);
+			return pm;
+		}
+		catch(Exception ex){
+			getLog().error("- " + ex.getMessage());
+			throw new MojoFailureException(ex.getMessage());
+		}
+	}
+
+	/**
+	 * Creates the discovery of managed projects using the configured parameters, with its index in the work directory.
+	 * @return new discovery, null if no discovery roots are configured
+	 */
+	protected ProjectDiscovery createDiscovery(){
+		if(StringUtils.isBlank(this.discoverRoots)){
+			return null;
+		}
+		List<File> roots = new ArrayList<>();
+		for(String root : StringUtils.split(this.discoverRoots, ',')){
+			if(!StringUtils.isBlank(root)){
+				roots.add(new File(root.trim()));
+			}
+		}
+		ProjectDiscovery ret = new ProjectDiscovery(roots, this.discoverPrune);
+		ret.setThreads(this.threads);
+		ret.setIndexFile(new File(this.getWorkDir(), PmConstants.DISCOVERY_INDEX_FILE));
+		return ret;
+	}
+
+	/**
+	 * Sets the configured parameters on a project manager.
+	 * @param pm the project manager
+	 * @throws IllegalArgumentException if any parameter was not valid
+	 */
+	protected void configure(ProjectManager pm){
+		pm.setWorkDir(this.getWorkDir());
+		pm.setThreads(this.threads);
+		pm.setIncremental(this.incremental);
+		pm.setFsync(this.fsync);
+		pm.setRenderer(this.renderer);
+		pm.setSnapshot(this.snapshot);
+		pm.setSelective(this.selective);
+		pm.setFragmentCacheSize(this.fragmentCache * 1024L * 1024L);
+	}
+
+	/**
+	 * Returns the work directory, the configured one or the default in the execution root.
+	 * @return work directory, relative to the current directory if neither configured nor in a Maven session
+	 */
+	protected File getWorkDir(){
+		if(this.workDir!=null){
+			return this.workDir;
+		}
+		if(this.executionRootDir!=null){
+			return new File(this.executionRootDir, PmConstants.WORK_DIR);
+		}
+		return new File(PmConstants.WORK_DIR);
+	}
+
+	/**
+	 * Logs the problems of the last model load that did not fail it.
+	 * @param pm the project manager
+	 */
+	protected void logWarnings(ProjectManager pm){
+		this.logWarnings(pm, 0);
+	}
+
+	/**
+	 * Logs the problems that did not fail an operation, starting with a given warning, for instance all warnings added by writing POM files.
+	 * @param pm the project manager
+	 * @param from index of the first warning to log
+	 */
+	protected void logWarnings(ProjectManager pm, int from){
+		List<String> warnings = pm.getWarnings();
+		for(int i=from; i<warnings.size(); i++){
+			getLog().warn("- " + warnings.get(i));
+		}
+	}
+
+	/**
+	 * Tests if this execution is skipped because of aggregation, that is aggregation is set and the current project is not the execution root.
+	 * @return true if the execution should do nothing, false otherwise
+	 */
+	protected boolean isAggregated(){
+		if(this.aggregate && !this.isExecutionRoot()){
+			getLog().info("aggregate: skipping " + ((this.project!=null)?this.project.getArtifactId():"module") + ", done in execution root");
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Tests if the current project is the execution root of the reactor.
+	 * @return true if the current project is the execution root or there is no current project, false otherwise
+	 */
+	protected boolean isExecutionRoot(){
+		return this.project==null || this.project.isExecutionRoot();
+	}
+
+	/**
+	 * Returns the session cache entry for the configured directories, to be synchronized on while it is used.
+	 * @return session cache entry, a new entry not shared with other executions if there is no Maven session
+	 */
+	protected SessionCache.Entry getSessionEntry(){
+		if(this.sessionStart==null){
+			return new SessionCache.Entry();
+		}
+		return SessionCache.get(this.sessionStart.getTime(), this.configDir, this.projectPmDir);
+	}
+
+	/**
+	 * Returns a project manager with a loaded model, reused from the session cache if no input changed since it was loaded.
+	 * In streaming mode the project manager has only a project index, which is not cached.
+	 * The caller must hold the lock of the entry.
+	 * @param entry the session cache entry
+	 * @return project manager with loaded model
+	 * @throws MojoFailureException if the project manager could not be created or the model could not be loaded
+	 */
+	protected ProjectManager loadProjectManager(SessionCache.Entry entry) throws MojoFailureException {
+		ProjectManager pm = entry.get();
+		if(pm!=null){
+			try{
+				this.configure(pm);
+			}
+			catch(Exception ex){
+				getLog().error("- " + ex.getMessage());
+				throw new MojoFailureException(ex.getMessage());
+			}
+			getLog().info("model reused from session cache, no input changed");
+			return pm;
+		}
+
+		pm = this.createProjectManager();
+		try{
+			pm.loadModel();
+			if(pm.getModel()!=null){
+				entry.set(pm);
+			}
+		}
+		catch(Exception ex){
+			getLog().error("- " + ex.getMessage());
+			throw new MojoFailureException(ex.getMessage());
+		}
+		this.logWarnings(pm);
+		return pm;
+	}
+}
@@ -0,0 +1,363 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.mvn.pm;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.text.StrBuilder;
+import org.apache.maven.plugin.logging.Log;
+
+import de.vandermeer.skb.mvn.pm.model.Model_ManagedProject;
+import de.vandermeer.skb.mvn.pm.model.PM_DependencyGraph;
+import de.vandermeer.skb.mvn.pm.model.PM_Metrics;
+
+/**
+ * Builds all managed projects with a build command (for instance <code>mvn install</code>), in topological waves of the dependency graph.
+ *
+ * All projects of a wave (level) only depend on projects of lower waves, they are built concurrently by a configurable number of workers.
+ * Each build runs in the project base directory, its output is written to a log file per project.
+ * With fail-fast, the first failed build cancels all running builds and no further build is started.
+ * Otherwise (keep-going), all projects are built except those depending (directly or transitively) on a project that did not build.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+public class BuildOrchestrator {
+
+	/** Project stage for metrics, the build of a project. */
+	public static final String STAGE_BUILD = "build";
+
+	/** The status of a project build. */
+	public enum Status {
+		/** Build finished with exit code 0. */
+		SUCCESS,
+		/** Build could not be started or finished with an exit code other than 0. */
+		FAILED,
+		/** Build was cancelled after another build failed (fail-fast). */
+		CANCELLED,
+		/** Build was not started, because a dependency did not build or a build failed (fail-fast). */
+		SKIPPED;
+	}
+
+	/** The dependency graph of all projects to build. */
+	protected final PM_DependencyGraph graph;
+
+	/** The build command, run in each project base directory. */
+	protected final List<String> command;
+
+	/** Directory for log files, one per project. */
+	protected final File logDir;
+
+	/** Logger for reporting. */
+	protected final Log log;
+
+	/** Metrics to record project builds in. */
+	protected final PM_Metrics metrics;
+
+	/** Number of concurrent builds. */
+	protected int workers = 1;
+
+	/** Flag for fail-fast, false to keep going. */
+	protected boolean failFast = true;
+
+	/** Running builds. */
+	protected final Set<Process> running = Collections.newSetFromMap(new ConcurrentHashMap<Process, Boolean>());
+
+	/** Flag set once a build failed in fail-fast mode. */
+	protected volatile boolean stopped;
+
+	/** Build time in nanoseconds of all started projects, mapped by PM identifier. */
+	protected final Map<String, Long> times = new ConcurrentHashMap<>();
+
+	/** Status of all projects, in build order. */
+	protected final Map<Model_ManagedProject, Status> status = Collections.synchronizedMap(new LinkedHashMap<Model_ManagedProject, Status>());
+
+	/**
+	 * Creates a new build orchestrator.
+	 * @param graph the dependency graph of all projects to build
+	 * @param command the build command, for instance <code>mvn -B install</code>
+	 * @param logDir directory for log files, one per project
+	 * @param log logger for reporting
+	 * @param metrics metrics to record project builds in
+	 * @throws NullPointerException if any argument was null
+	 * @throws IllegalArgumentException if the command was empty
+	 */
+	public BuildOrchestrator(PM_DependencyGraph graph, List<String> command, File logDir, Log log, PM_Metrics metrics){
+		Validate.notNull(graph);
+		Validate.notEmpty(command);
+		Validate.noNullElements(command);
+		Validate.notNull(logDir);
+		Validate.notNull(log);
+		Validate.notNull(metrics);
+		this.graph = graph;
+		this.command = new ArrayList<>(command);
+		this.logDir = logDir;
+		this.log = log;
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Sets the number of concurrent builds.
+	 * @param workers number of workers, 1 or less to build one project at a time
+	 */
+	public void setWorkers(int workers){
+		this.workers = workers;
+	}
+
+	/**
+	 * Sets the failure policy.
+	 * @param failFast true to stop at the first failed build, false to keep going with all projects that do not depend on a failed build
+	 */
+	public void setFailFast(boolean failFast){
+		this.failFast = failFast;
+	}
+
+	/**
+	 * Builds all projects.
+	 * @return status of all projects, in build order
+	 * @throws IllegalArgumentException if the dependency graph has cycles or the log directory could not be created
+	 * @throws InterruptedException if interrupted while waiting for builds, running builds are cancelled
+	 */
+	public Map<Model_ManagedProject, Status> build() throws InterruptedException{
+		List<List<Model_ManagedProject>> waves = this.graph.getLevels();
+		this.logDir.mkdirs();
+		if(!this.logDir.isDirectory()){
+			throw new IllegalArgumentException("build orchestrator: could not create log directory <" + this.logDir + ">");
+		}
+
+		this.status.clear();
+		this.times.clear();
+		this.stopped = false;
+		int size = 0;
+		for(List<Model_ManagedProject> wave : waves){
+			size = Math.max(size, wave.size());
+		}
+		ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(this.workers, size)));
+		try{
+			for(int w=0; w<waves.size(); w++){
+				List<Model_ManagedProject> todo = new ArrayList<>();
+				for(Model_ManagedProject mp : waves.get(w)){
+					if(this.stopped || !this.dependenciesBuilt(mp)){
+						this.status.put(mp, Status.SKIPPED);
+					}
+					else{
+						todo.add(mp);
+					}
+				}
+				if(todo.size()>0){
+					this.log.info("wave " + (w + 1) + " of " + waves.size() + ": building " + todo.size() + " project(s)");
+				}
+
+				List<Future<Status>> futures = new ArrayList<>();
+				for(final Model_ManagedProject mp : todo){
+					futures.add(pool.submit(new Callable<Status>() {
+						@Override
+						public Status call() throws Exception {
+							return build(mp);
+						}
+					}));
+				}
+				for(int i=0; i<futures.size(); i++){
+					Status s;
+					try{
+						s = futures.get(i).get();
+					}
+					catch(ExecutionException eex){
+						this.log.error("- " + todo.get(i).getPmId() + ": " + eex.getCause().getMessage());
+						s = Status.FAILED;
+					}
+					this.status.put(todo.get(i), s);
+				}
+			}
+		}
+		catch(InterruptedException iex){
+			this.cancel();
+			throw iex;
+		}
+		finally{
+			pool.shutdownNow();
+		}
+		return new LinkedHashMap<>(this.status);
+	}
+
+	/**
+	 * Tests if all managed dependencies of a project were built.
+	 * @param mp the project
+	 * @return true if all dependencies were built successfully, false otherwise
+	 */
+	protected boolean dependenciesBuilt(Model_ManagedProject mp){
+		for(int dep : this.graph.getDependencies(this.graph.getOrdinal(mp.getPmId()))){
+			if(this.status.get(this.graph.getProject(dep))!=Status.SUCCESS){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Builds a single project, writing all output to its log file.
+	 * @param mp the project
+	 * @return status of the build
+	 * @throws InterruptedException if interrupted while waiting for the build
+	 */
+	protected Status build(Model_ManagedProject mp) throws InterruptedException{
+		if(this.stopped){
+			return Status.SKIPPED;
+		}
+
+		File logFile = this.getLogFile(mp);
+		PM_Metrics.Span span = this.metrics.startProject(STAGE_BUILD, mp.getPmId());
+		long start = System.nanoTime();
+		Process process = null;
+		try{
+			ProcessBuilder pb = new ProcessBuilder(this.command);
+			pb.directory(mp.getBaseDir());
+			pb.redirectErrorStream(true);
+			pb.redirectOutput(logFile);
+			process = pb.start();
+			this.running.add(process);
+			if(this.stopped){
+				process.destroy();
+			}
+			int exit = process.waitFor();
+
+			if(exit==0){
+				this.log.info(" --> " + mp.getPmId() + ": success, log in " + logFile);
+				return Status.SUCCESS;
+			}
+			if(this.stopped){
+				this.log.info(" --> " + mp.getPmId() + ": cancelled");
+				return Status.CANCELLED;
+			}
+			this.log.error("- " + mp.getPmId() + ": failed with exit code " + exit + ", see " + logFile);
+		}
+		catch(IOException ioex){
+			this.log.error("- " + mp.getPmId() + ": could not start build, got IOException <" + ioex.getMessage() + ">");
+			this.writeLog(logFile, "could not start build <" + StringUtils.join(this.command, ' ') + "> in <" + mp.getBaseDir() + ">, got IOException <" + ioex.getMessage() + ">");
+		}
+		finally{
+			if(process!=null){
+				this.running.remove(process);
+			}
+			this.times.put(mp.getPmId(), System.nanoTime() - start);
+			span.stop();
+		}
+
+		if(this.failFast){
+			this.cancel();
+		}
+		return Status.FAILED;
+	}
+
+	/**
+	 * Cancels all running builds and stops starting new builds.
+	 */
+	protected void cancel(){
+		this.stopped = true;
+		for(Process p : this.running){
+			p.destroy();
+		}
+	}
+
+	/**
+	 * Returns the log file of a project.
+	 * @param mp the project
+	 * @return log file
+	 */
+	public File getLogFile(Model_ManagedProject mp){
+		return new File(this.logDir, mp.getPmId() + ".log");
+	}
+
+	/**
+	 * Writes a message to a log file, replacing its content.
+	 * @param logFile the log file
+	 * @param message the message
+	 */
+	protected void writeLog(File logFile, String message){
+		try(Writer writer = new OutputStreamWriter(new FileOutputStream(logFile), StandardCharsets.UTF_8)){
+			writer.write(message);
+			writer.write(System.lineSeparator());
+		}
+		catch(IOException ioex){
+			this.log.error("- could not write log file <" + logFile + ">, got IOException <" + ioex.getMessage() + ">");
+		}
+	}
+
+	/**
+	 * Returns a summary of the last run: one line per project with status and build time, and the number of projects per status.
+	 * @return summary
+	 */
+	public String getSummary(){
+		StrBuilder ret = new StrBuilder();
+		Map<Status, Integer> counts = new LinkedHashMap<>();
+		for(Status s : Status.values()){
+			counts.put(s, 0);
+		}
+		synchronized(this.status){
+			for(Entry<Model_ManagedProject, Status> e : this.status.entrySet()){
+				counts.put(e.getValue(), counts.get(e.getValue()) + 1);
+				Long time = this.times.get(e.getKey().getPmId());
+				ret.append(String.format("%-40s %-10s", e.getKey().getPmId(), e.getValue()));
+				if(time!=null && e.getValue()!=Status.SKIPPED){
+					ret.append(String.format(" %8.1f s", time / 1e9));
+				}
+				ret.appendNewLine();
+			}
+		}
+		boolean first = true;
+		for(Entry<Status, Integer> e : counts.entrySet()){
+			ret.append((first)?"":", ").append(e.getValue()).append(' ').append(e.getKey().name().toLowerCase());
+			first = false;
+		}
+		return ret.toString();
+	}
+
+	/**
+	 * Tests if all projects of the last run were built successfully.
+	 * @return true if all builds succeeded, false otherwise
+	 */
+	public boolean isSuccess(){
+		synchronized(this.status){
+			for(Status s : this.status.values()){
+				if(s!=Status.SUCCESS){
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,70 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.mvn.pm;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.text.StrBuilder;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * A writer collecting text and logging it on every flush, so that every flushed text becomes one log entry.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+class LogWriter extends Writer {
+
+	/** The log. */
+	private final Log log;
+
+	/** Text logged before the collected text. */
+	private final String title;
+
+	/** Text written since the last flush. */
+	private final StrBuilder buffer = new StrBuilder();
+
+	/**
+	 * Creates a new log writer.
+	 * @param log the log
+	 * @param title text logged before the collected text, empty for none
+	 */
+	LogWriter(Log log, String title){
+		this.log = log;
+		this.title = title;
+	}
+
+	@Override
+	public void write(char[] cbuf, int off, int len) throws IOException {
+		this.buffer.append(cbuf, off, len);
+	}
+
+	@Override
+	public void flush() throws IOException {
+		if(this.buffer.length()>0){
+			this.log.info(this.title + StringUtils.chomp(this.buffer.toString()));
+			this.buffer.clear();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.flush();
+	}
+}
@@ -0,0 +1,108 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.mvn.pm;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+import de.vandermeer.skb.mvn.PmConstants;
+
+/**
+ * Maven wrapper for the {@link BuildOrchestrator}, building all managed projects concurrently in topological waves.
+ * Replaces walking all modules one after another (<code>skb-bin/build</code>, <code>bin/modules</code>).
+ * The goal is an aggregator: in a reactor it runs once, in the execution root, and not once per module.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+@Mojo(
+		name = "build",
+		requiresProject = true,
+		aggregator = true
+)
+public class MvnBuildOrchestrator extends AbstractProjectManagerMojo {
+
+	/** The Maven executable used to build each project, for instance <code>mvn.cmd</code> on Windows. */
+	@Parameter (property = "pm.build.mvn", defaultValue = "mvn")
+	private String mvn;
+
+	/** The goals to build each project with, separated by whitespace. */
+	@Parameter (property = "pm.build.goals", defaultValue = "install")
+	private String goals;
+
+	/** Additional arguments for each build, separated by whitespace, for instance <code>-DskipTests</code>. */
+	@Parameter (property = "pm.build.args", defaultValue = "-B")
+	private String args;
+
+	/** Number of concurrent builds, 0 for the number of available processors. */
+	@Parameter (property = "pm.build.workers", defaultValue = "0")
+	private int workers;
+
+	/** Flag for keep-going, build all projects that do not depend on a failed build, instead of stopping at the first failed build. */
+	@Parameter (property = "pm.build.keepGoing", defaultValue = "false")
+	private boolean keepGoing;
+
+	@Override
+	public void execute() throws MojoExecutionException, MojoFailureException {
+		ProjectManager pm = this.createProjectManager();
+		try{
+			pm.loadModel();
+		}
+		catch(Exception ex){
+			getLog().error("- " + ex.getMessage());
+			throw new MojoFailureException(ex.getMessage());
+		}
+		this.logWarnings(pm);
+
+		List<String> command = new ArrayList<>();
+		command.add(this.mvn);
+		command.addAll(Arrays.asList(StringUtils.split(StringUtils.defaultString(this.args))));
+		command.addAll(Arrays.asList(StringUtils.split(StringUtils.defaultString(this.goals))));
+		int w = (this.workers>0)?this.workers:Runtime.getRuntime().availableProcessors();
+
+		File logDir = new File(this.getWorkDir(), PmConstants.BUILD_LOG_DIR);
+		BuildOrchestrator bo = new BuildOrchestrator(pm.getModel().getDependencyGraph(), command, logDir, getLog(), pm.getMetrics());
+		bo.setWorkers(w);
+		bo.setFailFast(!this.keepGoing);
+		getLog().info("building " + pm.getModel().getManagedProjects().size() + " project(s) with <" + StringUtils.join(command, ' ') + ">, " + w + " worker(s), " + ((this.keepGoing)?"keep-going":"fail-fast"));
+
+		try{
+			bo.build();
+		}
+		catch(InterruptedException iex){
+			Thread.currentThread().interrupt();
+			throw new MojoExecutionException("build interrupted, running builds cancelled");
+		}
+		catch(IllegalArgumentException ex){
+			getLog().error("- " + ex.getMessage());
+			throw new MojoFailureException(ex.getMessage());
+		}
+
+		getLog().info("build summary, logs in " + logDir + "\n" + bo.getSummary());
+		if(!bo.isSuccess()){
+			throw new MojoFailureException("one or more projects did not build, see summary and logs in " + logDir);
+		}
+	}
+}
@@ -0,0 +1,104 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.mvn.pm;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.apache.commons.lang3.text.StrBuilder;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+/**
+ * Checks that all POM files are up-to-date without touching them, for instance <code>mvn pm:check</code> as a gate in continuous integration.
+ * POM files are rendered in memory, unified diffs of stale POM files are written to the log or to a patch file.
+ * The build fails if any POM file is stale.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+@Mojo(
+		name = "check",
+		requiresProject = true,
+		threadSafe = true
+)
+public class MvnCheck extends AbstractProjectManagerMojo {
+
+	/** Patch file for the diffs of stale POM files, if not set diffs are written to the log. */
+	@Parameter (property = "pm.check.patch")
+	private File patch;
+
+	@Override
+	public void execute() throws MojoExecutionException, MojoFailureException {
+		if(this.isAggregated()){
+			return;
+		}
+
+		List<File> stale;
+		int size;
+		SessionCache.Entry entry = this.getSessionEntry();
+		synchronized(entry){
+			ProjectManager pm = this.loadProjectManager(entry);
+			int warnings = pm.getWarnings().size();
+			try(Writer diffs = (this.patch!=null)?this.openPatch():new LogWriter(getLog(), "stale POM file, diff below\n")){
+				stale = pm.checkModel(diffs);
+			}
+			catch(Exception ex){
+				getLog().error("- " + ex.getMessage());
+				throw new MojoFailureException(ex.getMessage());
+			}
+			this.logWarnings(pm, warnings);
+			size = pm.getModel().getManagedProjects().size();
+		}
+
+		if(stale.size()==0){
+			getLog().info("all " + size + " POM file(s) are up-to-date");
+			return;
+		}
+		StrBuilder files = new StrBuilder();
+		for(File f : stale){
+			files.append("  -> ").append(f).appendNewLine();
+		}
+		if(this.patch!=null){
+			getLog().info("diffs written to patch file " + this.patch);
+		}
+		String msg = stale.size() + " of " + size + " POM file(s) are stale";
+		getLog().error("- " + msg + ", see below\n" + files.toString());
+		throw new MojoFailureException(msg);
+	}
+
+	/**
+	 * Opens the patch file, creating parent directories if required.
+	 * @return writer for the patch file
+	 * @throws IOException if the file could not be opened
+	 */
+	private Writer openPatch() throws IOException{
+		File parent = this.patch.getAbsoluteFile().getParentFile();
+		if(parent!=null){
+			parent.mkdirs();
+		}
+		return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(this.patch), StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,105 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.mvn.pm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.text.StrBuilder;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+import de.vandermeer.skb.mvn.pm.model.Model_ManagedProject;
+import de.vandermeer.skb.mvn.pm.model.PM_ImpactIndex;
+
+/**
+ * Lists the managed projects affected by a change of one or more dependency identifiers, for instance <code>mvn pm:impact -Dkey=commons-lang3</code>.
+ * Identifiers are keys of the dependency versions file or PM identifiers of managed projects.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+@Mojo(
+		name = "impact",
+		requiresProject = true,
+		threadSafe = true
+)
+public class MvnImpact extends AbstractProjectManagerMojo {
+
+	/** The dependency identifiers, separated by comma or whitespace. */
+	@Parameter (property = "key", required = true)
+	private String key;
+
+	@Override
+	public void execute() throws MojoExecutionException, MojoFailureException {
+		if(this.isAggregated()){
+			return;
+		}
+
+		SessionCache.Entry entry = this.getSessionEntry();
+		synchronized(entry){
+			this.execute(this.loadProjectManager(entry));
+		}
+	}
+
+	/**
+	 * Lists the affected projects.
+	 * @param pm project manager with loaded model
+	 */
+	private void execute(ProjectManager pm){
+		PM_ImpactIndex index = pm.getModel().getImpactIndex();
+		List<String> keys = Arrays.asList(StringUtils.split(this.key, ", \t"));
+		for(String k : keys){
+			if(pm.getModel().getModelContext().getDependencyVersions().get(k)==null){
+				getLog().warn("- unknown dependency identifier <" + k + ">");
+				continue;
+			}
+			List<Model_ManagedProject> users = index.getUsers(k);
+			List<Model_ManagedProject> impact = index.getImpact(k);
+			getLog().info("<" + k + ">: used by " + users.size() + " project(s), affects " + impact.size() + " project(s), see below\n" + this.toString(users, impact));
+		}
+		if(keys.size()>1){
+			List<Model_ManagedProject> users = new ArrayList<>();
+			for(String k : keys){
+				users.addAll(index.getUsers(k));
+			}
+			List<Model_ManagedProject> impact = index.getImpact(keys);
+			getLog().info("all identifiers: affect " + impact.size() + " project(s), see below\n" + this.toString(users, impact));
+		}
+	}
+
+	/**
+	 * Returns a list of affected projects for logging, marking projects that use an identifier directly.
+	 * @param users projects using an identifier directly
+	 * @param impact all affected projects
+	 * @return list, one project per line
+	 */
+	private String toString(List<Model_ManagedProject> users, List<Model_ManagedProject> impact){
+		Set<Model_ManagedProject> direct = new HashSet<>(users);
+		StrBuilder ret = new StrBuilder();
+		for(Model_ManagedProject mp : impact){
+			ret.append((direct.contains(mp))?" --> ":"  -> ").append(mp.getPmId()).append(" (").append(mp.getBaseDir()).append(')').appendNewLine();
+		}
+		return ret.toString();
+	}
+}
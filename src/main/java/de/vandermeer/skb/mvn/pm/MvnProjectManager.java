@@ -17,16 +17,17 @@ package de.vandermeer.skb.mvn.pm;
 
 import java.io.File;
 
-import org.apache.maven.plugin.AbstractMojo;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
-import org.apache.maven.plugins.annotations.ResolutionScope;
-import org.apache.maven.project.MavenProject;
 
 import de.vandermeer.skb.mvn.PmConstants;
+import de.vandermeer.skb.mvn.pm.model.FragmentCache;
+import de.vandermeer.skb.mvn.pm.model.FragmentRegistry;
+import de.vandermeer.skb.mvn.pm.model.ProjectDiscovery;
 
 /**
  * Maven wrapper for the {@link ProjectManager} creating a maven plugin.
@@ -38,54 +39,103 @@ import de.vandermeer.skb.mvn.PmConstants;
 @Mojo(
 		name = "project-manager",
 		defaultPhase = LifecyclePhase.INITIALIZE,
-		requiresDependencyResolution = ResolutionScope.COMPILE,
-		requiresProject = true
+		requiresProject = true,
+		threadSafe = true
 )
-public class MvnProjectManager extends AbstractMojo {
+public class MvnProjectManager extends AbstractProjectManagerMojo {
 
-	/** The configuration directory, home of all files with properties. */
-	@Parameter (defaultValue = PmConstants.PROJECT_PM_PATH)
-	private File configDir;
+	/** Number of slowest projects to list in the metrics summary. */
+	@Parameter (property = "pm.metrics.slowest", defaultValue = "5")
+	private int slowest;
 
-	/** The directory where the projects store their properties and configurations. */
-	@Parameter (defaultValue = PmConstants.PROJECT_PM_PATH)
-	private String projectPmDir;
+	/** Flag for streaming mode: projects are indexed, then loaded, written, and released one at a time, so memory does not grow with the number of projects (use with pm.aggregate in a reactor). */
+	@Parameter (property = "pm.streaming", defaultValue = "false")
+	private boolean streaming;
 
-	/** The current Maven project. */
-	@Parameter(property = "project", required = true, readonly = true)
-	protected MavenProject project;
+	@Override
+	protected void configure(ProjectManager pm){
+		super.configure(pm);
+		pm.setStreaming(this.streaming);
+	}
 
 	@Override
 	public void execute() throws MojoExecutionException, MojoFailureException {
-
-		ProjectManager pm = null;
-		try{
-			pm = new ProjectManager(this.configDir, this.projectPmDir);
+		if(this.isAggregated()){
+			return;
 		}
-		catch(Exception ex){
-			getLog().error("- " + ex.getMessage());
-			throw new MojoFailureException(ex.getMessage());
+
+		if(StringUtils.isBlank(this.discoverRoots)){
+			getLog().info("projectes file: " + this.configDir.toString() + File.separator + PmConstants.PROJECTS_FILE);
 		}
 
-		getLog().info("projectes file: " + this.configDir.toString() + File.separator + PmConstants.PROJECTS_FILE);
+		//all executions of a session with the same configuration share one model, and only the first one writes POM files
+		SessionCache.Entry entry = this.getSessionEntry();
+		synchronized(entry){
+			//load the model, i.e. see what projects we manage and then load each project
+			ProjectManager pm = this.loadProjectManager(entry);
+			getLog().info("standard PM dir: " + projectPmDir);
+			ProjectDiscovery pd = pm.getDiscovery();
+			if(pd!=null){
+				getLog().info("discovery: " + pm.projects.size() + " project(s) in " + pd.getRoots() + ", " + pd.getListed() + " director(ies) listed, " + pd.getRevalidated() + " revalidated by modification time");
+			}
+			if(entry.isWritten()){
+				getLog().info("POM files already written in this session, no input changed");
+				return;
+			}
+			if(pm.getIndex()!=null){
+				this.executeStreaming(pm);
+				return;
+			}
+			if(pm.isRestored()){
+				getLog().info("model restored from snapshot, no project input changed");
+			}
+			if(pm.getModel().getDependencyGraph().hasCycles()){
+				getLog().warn("- managed projects have dependency cycles, see below\n" + pm.getModel().getDependencyGraph().getCycleDescription());
+			}
 
-		//load the model, i.e. see what projects we manage and then load each project
-		try{
-			pm.loadModel();
-		}
-		catch(Exception ex){
-			getLog().error("- " + ex.getMessage());
-			throw new MojoFailureException(ex.getMessage());
-		}
-		getLog().info("standard PM dir: " + projectPmDir);
+//			getLog().info("## : " + projects.keySet().toString());
+//			getLog().info("@@ : " + projects.values().toString());
 
-//		getLog().info("## : " + projects.keySet().toString());
-//		getLog().info("@@ : " + projects.values().toString());
+			int warnings = pm.getWarnings().size();
+			try{
+				String written = pm.writeModel();
+				entry.setWritten();
+				this.logWarnings(pm, warnings);
+				if(pm.getSelected()>=0){
+					getLog().info("selective: " + pm.getSelected() + " of " + pm.getModel().getManagedProjects().size() + " project(s) affected by changed versions");
+				}
+				if(written.length()>0){
+					getLog().info("did write POM file(s), see below\n" + written);
+				}
+				else{
+					getLog().info("created POM files do not differ from existing, nothing changed");
+				}
+				getLog().debug("built-in fragments: " + FragmentRegistry.size() + " loaded, " + FragmentRegistry.getHits() + " hits, " + FragmentRegistry.getMisses() + " misses");
+				FragmentCache fc = pm.getFragmentCache();
+				getLog().debug("fragment cache: " + fc.size() + " files, " + fc.getContentCount() + " contents, " + fc.getBytes() + " bytes, " + fc.getHits() + " hits, " + fc.getMisses() + " misses, " + fc.getEvictions() + " evictions");
+			}
+			catch(Exception ex){
+				getLog().error("- " + ex.getMessage());
+				throw new MojoFailureException(ex.getMessage());
+			}
 
+			this.logMetrics(pm);
+		}
+	}
+
+	/**
+	 * Writes all POM files in streaming mode, written POM files are logged as they are written.
+	 * @param pm the project manager with a project index
+	 * @throws MojoFailureException if POM files could not be written
+	 */
+	private void executeStreaming(ProjectManager pm) throws MojoFailureException {
+		getLog().info("streaming: " + pm.getIndex().size() + " project(s) indexed, loading and writing one at a time");
+		int warnings = pm.getWarnings().size();
 		try{
-			String written = pm.writeModel();
-			if(written.length()>0){
-				getLog().info("did write POM file(s), see below\n" + written);
+			int written = pm.writeModel(new LogWriter(getLog(), ""));
+			this.logWarnings(pm, warnings);
+			if(written>0){
+				getLog().info("did write " + written + " POM file(s)");
 			}
 			else{
 				getLog().info("created POM files do not differ from existing, nothing changed");
@@ -95,5 +145,20 @@ public class MvnProjectManager extends AbstractMojo {
 			getLog().error("- " + ex.getMessage());
 			throw new MojoFailureException(ex.getMessage());
 		}
+		this.logMetrics(pm);
+	}
+
+	/**
+	 * Writes the metrics report and logs the metrics summary.
+	 * @param pm the project manager
+	 */
+	private void logMetrics(ProjectManager pm){
+		try{
+			File report = pm.writeMetrics();
+			getLog().info("metrics, full report in " + report + "\n" + pm.getMetrics().getSummary(this.slowest));
+		}
+		catch(Exception ex){
+			getLog().warn("- " + ex.getMessage());
+		}
 	}
 }
@@ -0,0 +1,72 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.mvn.pm;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+/**
+ * Maven wrapper for the {@link ProjectWatcher}, regenerating affected POM files whenever project configurations change.
+ * Runs until the build is interrupted.
+ * With discovery roots, projects are discovered on start and on full reloads only, the roots are not watched.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+@Mojo(
+		name = "watch",
+		requiresProject = true
+)
+public class MvnProjectWatcher extends AbstractProjectManagerMojo {
+
+	/** Time in milliseconds without further changes before a batch of changes is processed. */
+	@Parameter (property = "pm.watch.debounce", defaultValue = "50")
+	private long debounce;
+
+	@Override
+	public void execute() throws MojoExecutionException, MojoFailureException {
+		getLog().info("watching configuration directory: " + this.configDir + ", standard PM dir: " + this.projectPmDir);
+		if(!StringUtils.isBlank(this.discoverRoots)){
+			getLog().warn("- the watcher does not rediscover projects, projects added to or removed from " + this.discoverRoots + " are only picked up by a restart or a full reload");
+		}
+
+		ProjectWatcher watcher = new ProjectWatcher(this.configDir, new Callable<ProjectManager>() {
+			@Override
+			public ProjectManager call() throws Exception {
+				return createProjectManager();
+			}
+		}, this.debounce, getLog());
+
+		try{
+			watcher.watch();
+		}
+		catch(InterruptedException iex){
+			Thread.currentThread().interrupt();
+			getLog().info("watch interrupted");
+		}
+		catch(IOException ioex){
+			getLog().error("- " + ioex.getMessage());
+			throw new MojoExecutionException("could not watch project directories, got IOException <" + ioex.getMessage() + ">", ioex);
+		}
+	}
+}
@@ -0,0 +1,122 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.mvn.pm;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.commons.lang3.text.StrBuilder;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+/**
+ * Maven wrapper for the {@link VersionStamper}, setting the version string in all source files of a module.
+ * Replaces the task <code>set-versions.sh</code> with its Ant macro.
+ * Works on a single module without the project manager configuration, so it uses none of the project manager parameters other than the number of threads.
+ * Fails if a placeholder of the version file has no value, for instance the target version if <code>maven.compiler.target</code> is not set.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+@Mojo(
+		name = "set-versions",
+		requiresProject = true
+)
+public class MvnSetVersions extends AbstractMojo {
+
+	/** Number of threads to use for stamping files, 1 for sequential processing. */
+	@Parameter (property = "pm.threads", defaultValue = "1")
+	private int threads;
+
+	/** The module directory, all files under its <code>src</code> directory are stamped. */
+	@Parameter (property = "pm.version.dir", defaultValue = "${project.basedir}")
+	private File moduleDir;
+
+	/** The module version. */
+	@Parameter (property = "pm.version.module", defaultValue = "${project.version}")
+	private String moduleVersion;
+
+	/** The target Java version. */
+	@Parameter (property = "pm.version.target", defaultValue = "${maven.compiler.target}")
+	private String targetVersion;
+
+	/** The build date as <code>yyMMdd</code>, empty for today. */
+	@Parameter (property = "pm.version.date")
+	private String buildDate;
+
+	/** File with version strings in the format of <code>set-versions.macro.properties</code>, empty for the built-in version strings. */
+	@Parameter (property = "pm.version.file")
+	private File versionFile;
+
+	/** Encoding of all source files. */
+	@Parameter (property = "project.build.sourceEncoding", defaultValue = "UTF-8")
+	private String encoding;
+
+	@Override
+	public void execute() throws MojoExecutionException, MojoFailureException {
+		Date date = new Date();
+		if(this.buildDate!=null && this.buildDate.length()>0){
+			try{
+				date = VersionStamper.parseDate(this.buildDate);
+			}
+			catch(IllegalArgumentException ex){
+				getLog().error("- " + ex.getMessage());
+				throw new MojoFailureException(ex.getMessage());
+			}
+		}
+
+		Map<String, String> values = new HashMap<>();
+		values.put(VersionStamper.MODULE_VERSION, this.moduleVersion);
+		values.put(VersionStamper.TARGET_VERSION, this.targetVersion);
+		values.put(VersionStamper.BUILT_6D, new SimpleDateFormat("yyMMdd", Locale.ENGLISH).format(date));
+		values.put(VersionStamper.BUILT_2D3C4D, new SimpleDateFormat("dd-MMM-yy", Locale.ENGLISH).format(date));
+
+		try{
+			VersionStamper stamper = new VersionStamper(VersionStamper.loadVersions(this.versionFile, values), Charset.forName(this.encoding));
+			stamper.setThreads(this.threads);
+			List<File> changed = stamper.stamp(this.moduleDir);
+
+			for(File f : stamper.getSkipped()){
+				getLog().warn("- could not decode file as " + this.encoding + ", skipped: " + f);
+			}
+			if(changed.size()>0){
+				StrBuilder sb = new StrBuilder();
+				for(File f : changed){
+					sb.append(" --> ").append(f).appendNewLine();
+				}
+				getLog().info("stamped " + changed.size() + " of " + stamper.getScanned().size() + " file(s), see below\n" + sb.toString());
+			}
+			else{
+				getLog().info("all " + stamper.getScanned().size() + " file(s) have the current version, nothing changed");
+			}
+		}
+		catch(IOException | IllegalArgumentException ex){
+			getLog().error("- " + ex.getMessage());
+			throw new MojoFailureException(ex.getMessage());
+		}
+	}
+}
@@ -17,16 +17,33 @@ package de.vandermeer.skb.mvn.pm;
 
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Properties;
+import java.util.Set;
+import java.util.SortedSet;
 
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
 
 import de.vandermeer.skb.mvn.PmConstants;
+import de.vandermeer.skb.mvn.pm.model.DirectPomRenderer;
+import de.vandermeer.skb.mvn.pm.model.FragmentCache;
+import de.vandermeer.skb.mvn.pm.model.ModelIndex;
+import de.vandermeer.skb.mvn.pm.model.ModelSnapshot;
+import de.vandermeer.skb.mvn.pm.model.Model_ManagedProject;
 import de.vandermeer.skb.mvn.pm.model.PM_Context;
+import de.vandermeer.skb.mvn.pm.model.PM_Metrics;
 import de.vandermeer.skb.mvn.pm.model.PM_Model;
 import de.vandermeer.skb.mvn.pm.model.PomWriter;
+import de.vandermeer.skb.mvn.pm.model.ProjectDiscovery;
+import de.vandermeer.skb.mvn.pm.model.StPomRenderer;
+import de.vandermeer.skb.mvn.pm.model.VersionTables;
 
 /**
  * Manages MVN projects.
@@ -46,12 +63,57 @@ public class ProjectManager {
 	/** Model context, everything the model needs to know. */
 	protected final PM_Context mc;
 
-	/** The projects found in the main projects file. */
+	/** The projects found in the main projects file or by discovery. */
 	Properties projects;
 
+	/** The discovery of managed projects, null if the projects file is used. */
+	protected final ProjectDiscovery discovery;
+
 	/** The PM model. */
 	protected PM_Model model;
 
+	/** Number of threads to use for processing managed projects, 1 for sequential processing. */
+	protected int threads = 1;
+
+	/** Flag for incremental generation, only projects with changed inputs are rendered. */
+	protected boolean incremental = false;
+
+	/** Flag for syncing new POM files to disk at the end of a run. */
+	protected boolean fsync = false;
+
+	/** Flag for using a binary model snapshot, restoring the model if no input changed. */
+	protected boolean snapshot = false;
+
+	/** Name of the renderer for POM files. */
+	protected String renderer = StPomRenderer.NAME;
+
+	/** Flag for streaming mode, projects are indexed and then loaded and written one at a time. */
+	protected boolean streaming = false;
+
+	/** The project index of the last load in streaming mode, null otherwise. */
+	protected ModelIndex index;
+
+	/** Flag set if the model was restored from a snapshot. */
+	protected boolean restored = false;
+
+	/** Flag for selective regeneration, only projects affected by changed versions are written if no project input changed. */
+	protected boolean selective = false;
+
+	/** The model snapshot of the last load, null if snapshots are not used. */
+	protected ModelSnapshot modelSnapshot;
+
+	/** Number of projects selected by the last selective write, -1 if all projects were written. */
+	protected int selected = -1;
+
+	/** Cache for project, plugin and profile files, shared by all POM writes of this project manager. */
+	protected FragmentCache fragments = new FragmentCache();
+
+	/** The work directory for manifests, snapshots, and reports. */
+	protected File workDir = new File(PmConstants.WORK_DIR);
+
+	/** Problems of the last load that did not fail it, for instance an unusable snapshot. */
+	protected final List<String> warnings = new ArrayList<>();
+
 	/**
 	 * Creates a new project manager.
 	 * @param configDir the project manager configuration directory
@@ -60,17 +122,168 @@ public class ProjectManager {
 	 * @throws IllegalArgumentException if any argument was blank or if any load operation did run into illegal arguments
 	 */
 	public ProjectManager(File configDir, String projectPmDir){
+		this(configDir, projectPmDir, null);
+	}
+
+	/**
+	 * Creates a new project manager, with managed projects discovered in root directories instead of read from the projects file.
+	 * @param configDir the project manager configuration directory
+	 * @param projectPmDir the standard directory for project configurations
+	 * @param discovery the discovery of managed projects, null to read them from the projects file
+	 * @throws NullPointerException if configDir or projectPmDir was null or if any load operation did run into null pointers
+	 * @throws IllegalArgumentException if projectPmDir was blank or if any load operation did run into illegal arguments
+	 */
+	public ProjectManager(File configDir, String projectPmDir, ProjectDiscovery discovery){
 		Validate.notNull(configDir);
 		Validate.notBlank(projectPmDir);
 
 		this.configDir = configDir;
 		this.projectPmDir = projectPmDir;
+		this.discovery = discovery;
 
-		this.testConfigDir();
-		this.projects = this.loadProjectDirectories();
 		this.mc = new PM_Context(this.projectPmDir);
-		this.loadDependencyVersions();
-		this.loadPluginVersions();
+		PM_Metrics.Span span = this.mc.getMetrics().startPhase(PM_Metrics.PHASE_CONFIGURATION);
+		try{
+			this.testConfigDir();
+			this.projects = (this.discovery==null)?this.loadProjectDirectories():this.discoverProjectDirectories();
+			this.loadDependencyVersions();
+			this.loadPluginVersions();
+		}
+		finally{
+			span.stop();
+		}
+	}
+
+	/**
+	 * Sets the number of threads to use for processing managed projects.
+	 * @param threads number of threads, 1 or less for sequential processing
+	 */
+	public void setThreads(int threads){
+		this.threads = threads;
+	}
+
+	/**
+	 * Sets the flag for incremental generation.
+	 * @param incremental true to only render projects with changed inputs, false to render all projects
+	 */
+	public void setIncremental(boolean incremental){
+		this.incremental = incremental;
+	}
+
+	/**
+	 * Sets the flag for syncing new POM files to disk, done in one batch at the end of a run.
+	 * @param fsync true to sync new POM files, false otherwise
+	 */
+	public void setFsync(boolean fsync){
+		this.fsync = fsync;
+	}
+
+	/**
+	 * Sets the renderer for POM files, all renderers create the same POM files.
+	 * @param renderer the renderer name, {@link StPomRenderer#NAME} for the POM template or {@link DirectPomRenderer#NAME} for direct rendering
+	 * @throws IllegalArgumentException if the name was not a known renderer name
+	 */
+	public void setRenderer(String renderer){
+		PomWriter.createRenderer(renderer);
+		this.renderer = renderer;
+	}
+
+	/**
+	 * Sets the flag for streaming mode, for workspaces too large to keep all projects in memory.
+	 * In streaming mode {@link #loadModel()} only creates a {@link ModelIndex} (no model), {@link #writeModel(Writer)} then loads, writes, and releases one project at a time.
+	 * Snapshots and selective regeneration need the full model, they are not used in streaming mode.
+	 * @param streaming true for streaming mode, false to load the full model
+	 */
+	public void setStreaming(boolean streaming){
+		this.streaming = streaming;
+	}
+
+	/**
+	 * Returns the flag for streaming mode.
+	 * @return true if in streaming mode, false otherwise
+	 */
+	public boolean isStreaming(){
+		return this.streaming;
+	}
+
+	/**
+	 * Sets the work directory for manifests, snapshots, and reports.
+	 * @param workDir the work directory, the default is {@link PmConstants#WORK_DIR} relative to the current directory
+	 * @throws NullPointerException if the argument was null
+	 */
+	public void setWorkDir(File workDir){
+		Validate.notNull(workDir);
+		this.workDir = workDir;
+	}
+
+	/**
+	 * Returns the work directory.
+	 * @return work directory
+	 */
+	public File getWorkDir(){
+		return this.workDir;
+	}
+
+	/**
+	 * Sets the flag for using a binary model snapshot in the work directory.
+	 * @param snapshot true to restore the model from a valid snapshot and to write a new snapshot after loading, false otherwise
+	 */
+	public void setSnapshot(boolean snapshot){
+		this.snapshot = snapshot;
+	}
+
+	/**
+	 * Sets the memory bound of the cache for project, plugin and profile files.
+	 * The current cache is only replaced if its bound differs, so a reused project manager keeps its cached files.
+	 * @param maxBytes memory bound in bytes, 0 to not cache any file
+	 * @throws IllegalArgumentException if the bound is negative
+	 */
+	public void setFragmentCacheSize(long maxBytes){
+		if(this.fragments.getMaxBytes()!=maxBytes){
+			this.fragments = new FragmentCache(maxBytes);
+		}
+	}
+
+	/**
+	 * Returns the cache for project, plugin and profile files.
+	 * @return fragment cache
+	 */
+	public FragmentCache getFragmentCache(){
+		return this.fragments;
+	}
+
+	/**
+	 * Sets the flag for selective regeneration, which implies using a model snapshot.
+	 * If the model was restored from a snapshot, only projects using a dependency version that changed since the last selective run are written.
+	 * Any change of plugin versions selects all projects, since every POM file contains all plugin versions.
+	 * @param selective true for selective regeneration, false to write all projects
+	 */
+	public void setSelective(boolean selective){
+		this.selective = selective;
+	}
+
+	/**
+	 * Returns the number of projects selected by the last selective write.
+	 * @return number of selected projects, -1 if all projects were written
+	 */
+	public int getSelected(){
+		return this.selected;
+	}
+
+	/**
+	 * Returns the problems of the last {@link #loadModel()} and of writing or checking POM files since that did not fail them, for instance a snapshot that could not be read or written, a discovery index that could not be written, or a fragment file that could not be read.
+	 * @return warnings, empty if there were none
+	 */
+	public List<String> getWarnings(){
+		return this.warnings;
+	}
+
+	/**
+	 * Returns the flag for a model restored from a snapshot.
+	 * @return true if the last {@link #loadModel()} restored the model from a snapshot, false otherwise
+	 */
+	public boolean isRestored(){
+		return this.restored;
 	}
 
 	/**
@@ -96,8 +309,8 @@ public class ProjectManager {
 		//check for the main configure file
 		File projectsFile = new File(this.configDir.toString() + File.separator + PmConstants.PROJECTS_FILE);
 		this.projects = new Properties();
-		try {
-			projects.load(new FileReader(projectsFile));
+		try(Reader reader = this.mc.getMetrics().newReader(projectsFile)){
+			projects.load(reader);
 		}
 		catch (FileNotFoundException e) {
 			throw new IllegalArgumentException("did not find projects file, tried <" + projectsFile + ">");
@@ -108,31 +321,45 @@ public class ProjectManager {
 		if(projects.isEmpty()){
 			throw new IllegalArgumentException("empty projects file <" + projectsFile + ">");
 		}
-
 		return projects;
 	}
 
+	/**
+	 * Discovers project directories in the discovery roots, using and updating the discovery index.
+	 * @return the discovered project directories, keyed and valued by directory
+	 * @throws IllegalArgumentException if the discovery failed or did not find any project
+	 */
+	protected Properties discoverProjectDirectories(){
+		SortedSet<File> dirs;
+		try{
+			dirs = this.discovery.discover(this.projectPmDir);
+		}
+		catch(IOException ioex){
+			throw new IllegalArgumentException("could not discover projects, got IOException <" + ioex.getMessage() + ">");
+		}
+		if(dirs.isEmpty()){
+			throw new IllegalArgumentException("no projects discovered in " + this.discovery.getRoots());
+		}
+
+		Properties ret = new Properties();
+		for(File dir : dirs){
+			ret.put(dir.getPath(), dir.getPath());
+		}
+		return ret;
+	}
+
 	/**
 	 * Loads the dependency version file of the main project.
 	 * @throws IllegalArgumentException if any load operation failed (for instance file not found, IO error)
 	 */
 	protected void loadDependencyVersions(){
 		//if dependency versions are defined, load them
-		File dependencyVersionFile = new File(this.configDir.toString() + File.separator + PmConstants.DEPENDENCY_VERSIONS_FILE);
+		Properties dependencyVersions = this.readVersionFile(PmConstants.DEPENDENCY_VERSIONS_FILE, "dependency-versions");
 		try {
-			Properties dependencyVersions = new Properties();
-//			getLog().info("dependency versions file: " + dependencyVersionFile);
-			dependencyVersions.load(new FileReader(dependencyVersionFile));
 			if(dependencyVersions.size()>0){
 				this.mc.setDependencyVersions(dependencyVersions);
 			}
 		}
-		catch (FileNotFoundException e) {
-//			getLog().warn("- cannot do dependency coordination, dependency-versions file does not exist: <" + dependencyVersionFile + ">");
-		}
-		catch (IOException ioex) {
-			throw new IllegalArgumentException("could not read existing dependency-versions file, got IOException <" + ioex.getMessage() + ">");
-		}
 		catch(Exception ex){
 			throw new IllegalArgumentException(ex.getMessage());
 		}
@@ -144,23 +371,69 @@ public class ProjectManager {
 	 */
 	protected void loadPluginVersions(){
 		//if plugin versions are defined, load them
-		File pluginVersionFile = new File(this.configDir.toString() + File.separator + PmConstants.PLUGIN_VERSIONS_FILE);
+		Properties pluginVersions = this.readVersionFile(PmConstants.PLUGIN_VERSIONS_FILE, "plugin-versions");
 		try {
-			Properties pluginVersions = new Properties();
-//			getLog().info("plugin versions file: " + pluginVersionFile);
-			pluginVersions.load(new FileReader(pluginVersionFile));
 			if(pluginVersions.size()>0){
 				this.mc.setPluginVersions(pluginVersions);
 			}
 		}
+		catch(Exception ex){
+			throw new IllegalArgumentException(ex.getMessage());
+		}
+	}
+
+	/**
+	 * Reads a version file (dependency or plugin versions) from the configuration directory.
+	 * @param fileName the file name
+	 * @param name the name of the file for error messages
+	 * @return properties of the file, empty if the file does not exist
+	 * @throws IllegalArgumentException if the file exists but could not be read
+	 */
+	protected Properties readVersionFile(String fileName, String name){
+		File versionFile = new File(this.configDir.toString() + File.separator + fileName);
+		Properties ret = new Properties();
+		try(Reader reader = this.mc.getMetrics().newReader(versionFile)){
+			ret.load(reader);
+		}
 		catch (FileNotFoundException e) {
-//			getLog().warn("- cannot do plugin coordination, plugin-versions file does not exist: <" + pluginVersionFile + ">");
+			//no file, no coordination
 		}
 		catch (IOException ioex) {
-			throw new IllegalArgumentException("could not read existing plugin-versions file, got IOException <" + ioex.getMessage() + ">");
+			throw new IllegalArgumentException("could not read existing " + name + " file, got IOException <" + ioex.getMessage() + ">");
 		}
-		catch(Exception ex){
-			throw new IllegalArgumentException(ex.getMessage());
+		return ret;
+	}
+
+	/**
+	 * Reloads the dependency version file of the main project and updates the model context.
+	 * @return identifiers of all dependency versions that have been added, removed, or changed; empty if nothing changed
+	 * @throws IllegalArgumentException if any load operation failed
+	 */
+	public Set<String> reloadDependencyVersions(){
+		return this.mc.updateDependencyVersions(this.readVersionFile(PmConstants.DEPENDENCY_VERSIONS_FILE, "dependency-versions"));
+	}
+
+	/**
+	 * Reloads the plugin version file of the main project and updates the model context.
+	 * @return true if any plugin version was added, removed, or changed; false otherwise
+	 * @throws IllegalArgumentException if any load operation failed
+	 */
+	public boolean reloadPluginVersions(){
+		return this.mc.updatePluginVersions(this.readVersionFile(PmConstants.PLUGIN_VERSIONS_FILE, "plugin-versions"));
+	}
+
+	/**
+	 * Reloads a single managed project of the loaded model, dependencies of the project are not updated.
+	 * @param baseDir the project base directory
+	 * @return the reloaded project
+	 * @throws IllegalArgumentException if the project could not be loaded
+	 */
+	public Model_ManagedProject reloadProject(File baseDir){
+		try{
+			return this.model.reloadProject(baseDir);
+		}
+		catch(IOException ioex){
+			throw new IllegalArgumentException("could not reload project <" + baseDir + ">, got IOException <" + ioex.getMessage() + ">");
 		}
 	}
 
@@ -170,16 +443,163 @@ public class ProjectManager {
 	 * @throws IllegalArgumentException if any load operation failed (for instance file not found, IO error)
 	 */
 	public void loadModel(){
-		this.model = new PM_Model(this.mc);
+		this.restored = false;
+		this.index = null;
+		this.warnings.clear();
+		if(this.discovery!=null && this.discovery.getWarning()!=null){
+			this.warnings.add(this.discovery.getWarning());
+		}
+		if(this.streaming){
+			this.model = null;
+			this.modelSnapshot = null;
+			try{
+				ModelIndex mi = new ModelIndex(this.mc);
+				mi.index(projects.values());
+				this.index = mi;
+			}
+			catch(Exception ex){
+				throw new IllegalArgumentException(ex.getMessage());
+			}
+			return;
+		}
+
+		ModelSnapshot ms = new ModelSnapshot(new File(this.workDir, PmConstants.MODEL_SNAPSHOT_FILE));
+		this.modelSnapshot = (this.snapshot || this.selective)?ms:null;
+		if(this.modelSnapshot!=null){
+			this.model = this.readSnapshot(ms);
+			this.restored = (this.model!=null);
+		}
 
 		try{
-			this.model.loadModel(projects.values());
+			if(!this.restored){
+				this.model = new PM_Model(this.mc);
+				this.model.setLoadThreads(this.threads);
+				this.model.loadModel(projects.values());
+			}
 			this.model.updateProjectDependencies();
 		}
 		catch(Exception ex){
 			ex.printStackTrace();
 			throw new IllegalArgumentException(ex.getMessage());
 		}
+
+		if(this.modelSnapshot!=null && !this.restored){
+			PM_Metrics.Span span = this.mc.getMetrics().startPhase(PM_Metrics.PHASE_SNAPSHOT);
+			try{
+				this.mc.getMetrics().written(ms.write(this.model, this.configDir, this.projects.values()));
+			}
+			catch(IOException ioex){
+				//a missing snapshot only costs time in the next run
+				this.warnings.add("could not write model snapshot <" + ms.getFile() + ">, got IOException <" + ioex.getMessage() + ">");
+			}
+			finally{
+				span.stop();
+			}
+		}
+	}
+
+	/**
+	 * Restores the model from a snapshot.
+	 * @param ms the snapshot
+	 * @return restored model, null if the snapshot was not usable
+	 */
+	protected PM_Model readSnapshot(ModelSnapshot ms){
+		PM_Metrics.Span span = this.mc.getMetrics().startPhase(PM_Metrics.PHASE_SNAPSHOT);
+		try{
+			PM_Model ret = ms.read(this.mc, this.configDir, this.projects.values());
+			if(ret!=null){
+				this.mc.getMetrics().read(ms.getFile().length());
+			}
+			return ret;
+		}
+		catch(IOException | RuntimeException ex){
+			//unreadable snapshot, load the model from files
+			this.warnings.add("could not read model snapshot <" + ms.getFile() + ">, got " + ex.getClass().getSimpleName() + " <" + ex.getMessage() + ">, loaded model from files");
+			return null;
+		}
+		finally{
+			span.stop();
+		}
+	}
+
+	/**
+	 * Returns a fingerprint of all inputs of the loaded model, to test cheaply if the model is still current.
+	 * @return fingerprint from size and modification time of all inputs and version files
+	 * @throws IllegalArgumentException if the attributes of any input could not be read
+	 * @throws NullPointerException if no model is loaded
+	 */
+	public long getInputFingerprint(){
+		Validate.notNull(this.model);
+		try{
+			return ModelSnapshot.getFingerprint(this.model, this.configDir);
+		}
+		catch(IOException ioex){
+			throw new IllegalArgumentException("could not fingerprint model inputs, got IOException <" + ioex.getMessage() + ">");
+		}
+	}
+
+	/**
+	 * Returns the configuration directory.
+	 * @return configuration directory
+	 */
+	public File getConfigDir(){
+		return this.configDir;
+	}
+
+	/**
+	 * Returns the discovery of managed projects.
+	 * @return discovery, null if the projects file is used
+	 */
+	public ProjectDiscovery getDiscovery(){
+		return this.discovery;
+	}
+
+	/**
+	 * Returns the directory where the projects store their properties and configurations.
+	 * @return project PM directory
+	 */
+	public String getProjectPmDir(){
+		return this.projectPmDir;
+	}
+
+	/**
+	 * Returns the metrics of all phases and projects processed so far.
+	 * @return metrics
+	 */
+	public PM_Metrics getMetrics(){
+		return this.mc.getMetrics();
+	}
+
+	/**
+	 * Writes the metrics as JSON report to {@link PmConstants#METRICS_FILE} in the work directory.
+	 * @return the report file
+	 * @throws IllegalArgumentException if the report could not be written
+	 */
+	public File writeMetrics(){
+		File ret = new File(this.workDir, PmConstants.METRICS_FILE);
+		try{
+			this.mc.getMetrics().save(ret);
+		}
+		catch(IOException ioex){
+			throw new IllegalArgumentException("could not write metrics file <" + ret + ">, got IOException <" + ioex.getMessage() + ">");
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns the loaded model.
+	 * @return loaded model, null if {@link #loadModel()} was not yet called or in streaming mode
+	 */
+	public PM_Model getModel(){
+		return this.model;
+	}
+
+	/**
+	 * Returns the project index of streaming mode.
+	 * @return project index, null if {@link #loadModel()} was not yet called or not in streaming mode
+	 */
+	public ModelIndex getIndex(){
+		return this.index;
 	}
 
 	/**
@@ -189,12 +609,131 @@ public class ProjectManager {
 	 * @throws IllegalArgumentException if any problems happened with creating, writing, copying POM files
 	 */
 	public String writeModel(){
+		if(this.index!=null){
+			StringWriter ret = new StringWriter();
+			this.writeModel(ret);
+			return ret.toString();
+		}
+		if(!this.selective){
+			return this.writeProjects(this.model.getManagedProjects());
+		}
+
+		File tablesFile = new File(this.workDir, PmConstants.VERSION_TABLES_FILE);
+		VersionTables current = new VersionTables(this.mc);
+		Collection<Model_ManagedProject> mps = this.selectProjects(VersionTables.load(tablesFile), current);
+		this.selected = (mps==null)?-1:mps.size();
+		String ret = this.writeProjects((mps==null)?this.model.getManagedProjects():mps);
+
+		//only now all POM files reflect the current tables
+		if(this.modelSnapshot.getChecksum()!=0){
+			current.save(tablesFile, this.modelSnapshot.getChecksum());
+		}
+		return ret;
+	}
+
+	/**
+	 * Writes the model to generated POM files, then checks if the actual POM file needs an update.
+	 * In streaming mode, projects are loaded, written, and released one at a time, and the information is written as soon as it is available.
+	 * @param report writer for information about what POM files where written, nothing is written if no POM file was written
+	 * @return number of written POM files
+	 * @throws NullPointerException if any null pointer happened
+	 * @throws IllegalArgumentException if any problems happened with creating, writing, copying POM files, or writing the report
+	 */
+	public int writeModel(Writer report){
+		Validate.notNull(report);
+		if(this.index==null){
+			String written = this.writeModel();
+			try{
+				report.write(written);
+				report.flush();
+			}
+			catch(IOException ioex){
+				throw new IllegalArgumentException("could not write report, got IOException <" + ioex.getMessage() + ">");
+			}
+			return StringUtils.countMatches(written, '\n');
+		}
+		PomWriter pw = this.createPomWriter();
+		try{
+			return pw.writePoms(this.index, report);
+		}
+		catch(Exception ex){
+			throw new IllegalArgumentException(ex.getMessage());
+		}
+		finally{
+			this.warnings.addAll(pw.getWarnings());
+		}
+	}
+
+	/**
+	 * Selects the projects affected by a key-level diff of the version tables.
+	 * @param previous the tables of the last selective run, null if none
+	 * @param current the current tables
+	 * @return the projects using a changed dependency, null if all projects need to be written
+	 */
+	protected Collection<Model_ManagedProject> selectProjects(VersionTables previous, VersionTables current){
+		if(!this.restored || previous==null || previous.getSnapshot()!=this.modelSnapshot.getChecksum()){
+			//project inputs changed or unknown state of POM files
+			return null;
+		}
+		if(current.getChangedPlugins(previous).size()>0){
+			return null;
+		}
+		return this.model.getImpactIndex().getUsers(current.getChangedDependencies(previous));
+	}
+
+	/**
+	 * Writes some projects of the model to generated POM files, then checks if the actual POM file needs an update.
+	 * @param mps the projects to write
+	 * @return information about what POM files where written, empty if none where written
+	 * @throws NullPointerException if any null pointer happened
+	 * @throws IllegalArgumentException if any problems happened with creating, writing, copying POM files
+	 */
+	public String writeProjects(Collection<Model_ManagedProject> mps){
+		PomWriter pw = this.createPomWriter();
 		try{
-			PomWriter pw = new PomWriter();
-			return pw.writePoms(this.model.getManagedProjects());
+			return pw.writePoms(mps);
 		}
 		catch(Exception ex){
 			throw new IllegalArgumentException(ex.getMessage());
 		}
+		finally{
+			this.warnings.addAll(pw.getWarnings());
+		}
+	}
+
+	/**
+	 * Checks the POM files of all projects of the model without writing anything, for instance as a gate in continuous integration.
+	 * @param diffs writer for unified diffs of stale POM files
+	 * @return the stale POM files, empty if all POM files are up-to-date
+	 * @throws NullPointerException if any null pointer happened
+	 * @throws IllegalArgumentException if any problems happened with creating POM files or writing diffs
+	 */
+	public List<File> checkModel(Writer diffs){
+		PomWriter pw = this.createPomWriter();
+		try{
+			return pw.checkPoms(this.model.getManagedProjects(), diffs);
+		}
+		catch(Exception ex){
+			throw new IllegalArgumentException(ex.getMessage());
+		}
+		finally{
+			this.warnings.addAll(pw.getWarnings());
+		}
+	}
+
+	/**
+	 * Creates a POM writer with the settings of this manager.
+	 * @return new POM writer
+	 */
+	protected PomWriter createPomWriter(){
+		PomWriter pw = new PomWriter();
+		pw.setMetrics(this.mc.getMetrics());
+		pw.setWorkDir(this.workDir);
+		pw.setThreads(this.threads);
+		pw.setIncremental(this.incremental);
+		pw.setFsync(this.fsync);
+		pw.setRenderer(PomWriter.createRenderer(this.renderer));
+		pw.setFragmentCache(this.fragments);
+		return pw;
 	}
 }
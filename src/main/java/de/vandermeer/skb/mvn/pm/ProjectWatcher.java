@@ -0,0 +1,410 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.mvn.pm;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.Validate;
+import org.apache.maven.plugin.logging.Log;
+
+import de.vandermeer.skb.mvn.PmConstants;
+import de.vandermeer.skb.mvn.pm.model.Model_ManagedProject;
+import de.vandermeer.skb.mvn.pm.model.PomWriter;
+
+/**
+ * Watches the configuration directory and all project PM directories, regenerating only POM files affected by a change.
+ *
+ * <ul>
+ * 	<li>changes to the projects file reload the whole model,</li>
+ * 	<li>changes to the dependency versions file re-resolve only projects that use a changed key,</li>
+ * 	<li>changes to the plugin versions file re-resolve all projects (every POM contains all plugin versions),</li>
+ * 	<li>changes in a project PM directory reload that project, plus projects depending on it if its coordinates changed,</li>
+ * 	<li>changes to plugin or profile files outside a project PM directory re-resolve the projects using them.</li>
+ * </ul>
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+public class ProjectWatcher {
+
+	/** The configuration directory, normalized. */
+	protected final Path configDir;
+
+	/** Factory for project managers, used for the initial load and for full reloads. */
+	protected final Callable<ProjectManager> factory;
+
+	/** Time in milliseconds without further changes before a batch of changes is processed. */
+	protected final long debounce;
+
+	/** Logger for reporting. */
+	protected final Log log;
+
+	/** The current project manager, null if the last full load failed. */
+	protected ProjectManager pm;
+
+	/** The watch service. */
+	protected WatchService ws;
+
+	/** Registered directories with their watch keys. */
+	protected final Map<Path, WatchKey> keys;
+
+	/** Managed projects mapped by normalized PM directory, updated with every registration. */
+	protected final Map<Path, Model_ManagedProject> pmDirs;
+
+	/** Managed projects mapped by the normalized plugin and profile files they use, updated with every registration. */
+	protected final Map<Path, Set<Model_ManagedProject>> usedFiles;
+
+	/** PM identifiers of projects whose dependencies could not be resolved in the last cycle. */
+	protected final Set<String> failed;
+
+	/** Flag for a full reload, set if the projects file changed or events have been lost. */
+	protected boolean fullReload;
+
+	/**
+	 * Creates a new watcher.
+	 * @param configDir the configuration directory, must be the one used by the project managers created by the factory
+	 * @param factory factory for project managers, called for the initial load and for every full reload
+	 * @param debounce time in milliseconds without further changes before a batch of changes is processed
+	 * @param log logger for reporting
+	 * @throws NullPointerException if any argument was null
+	 * @throws IllegalArgumentException if debounce was negative
+	 */
+	public ProjectWatcher(File configDir, Callable<ProjectManager> factory, long debounce, Log log){
+		Validate.notNull(configDir);
+		Validate.notNull(factory);
+		Validate.notNull(log);
+		Validate.isTrue(debounce>=0, "debounce must not be negative");
+
+		this.configDir = this.normalize(configDir);
+		this.factory = factory;
+		this.debounce = debounce;
+		this.log = log;
+		this.keys = new HashMap<>();
+		this.pmDirs = new HashMap<>();
+		this.usedFiles = new HashMap<>();
+		this.failed = new TreeSet<>();
+	}
+
+	/**
+	 * Loads the model, writes all POM files, and then watches for changes until the thread is interrupted.
+	 * @throws IOException if the watch service could not be created
+	 * @throws InterruptedException if the thread was interrupted while waiting for changes
+	 */
+	public void watch() throws IOException, InterruptedException {
+		try{
+			this.ws = FileSystems.getDefault().newWatchService();
+			this.fullReload = true;
+			this.process(Collections.<Path>emptySet());
+
+			while(true){
+				Set<Path> changed = new LinkedHashSet<>();
+				this.collect(this.ws.take(), changed);
+				WatchKey key;
+				while((key = this.ws.poll(this.debounce, TimeUnit.MILLISECONDS))!=null){
+					this.collect(key, changed);
+				}
+				if(changed.size()>0 || this.fullReload){
+					this.process(changed);
+				}
+			}
+		}
+		finally{
+			if(this.ws!=null){
+				this.ws.close();
+			}
+			this.keys.clear();
+		}
+	}
+
+	/**
+	 * Collects all changed files from a watch key and resets the key.
+	 * @param key the watch key
+	 * @param changed set to add changed files to
+	 */
+	protected void collect(WatchKey key, Set<Path> changed){
+		Path dir = (Path)key.watchable();
+		for(WatchEvent<?> event : key.pollEvents()){
+			if(event.kind()==StandardWatchEventKinds.OVERFLOW){
+				this.fullReload = true;
+				continue;
+			}
+			Path file = dir.resolve((Path)event.context());
+			String name = file.getFileName().toString();
+			if("pom.xml".equals(name) || name.endsWith(PomWriter.TMP_SUFFIX)){
+				continue;
+			}
+			changed.add(file);
+		}
+		if(!key.reset()){
+			this.keys.remove(dir);
+		}
+	}
+
+	/**
+	 * Processes a batch of changed files and writes all affected POM files.
+	 * @param changed the changed files
+	 */
+	protected void process(Set<Path> changed){
+		long start = System.currentTimeMillis();
+		try{
+			Set<Model_ManagedProject> affected = this.fullReload ? this.reloadAll() : this.reloadChanged(changed);
+			if(affected==null){
+				return;
+			}
+			List<Model_ManagedProject> resolved = this.resolve(affected);
+			int warnings = this.pm.getWarnings().size();
+			String written = this.pm.writeProjects(resolved);
+			for(String warning : this.pm.getWarnings().subList(warnings, this.pm.getWarnings().size())){
+				this.log.warn("- " + warning);
+			}
+			if(written.length()>0){
+				this.log.info("did write POM file(s), see below\n" + written);
+			}
+			this.log.info("processed " + resolved.size() + " of " + this.pm.getModel().getManagedProjects().size() + " project(s) in " + (System.currentTimeMillis() - start) + " ms");
+		}
+		catch(Exception ex){
+			this.log.error("- " + ex.getMessage());
+		}
+		finally{
+			this.register();
+		}
+	}
+
+	/**
+	 * Creates a new project manager and loads the full model.
+	 * @return all projects, null if the model could not be loaded
+	 */
+	protected Set<Model_ManagedProject> reloadAll(){
+		this.fullReload = false;
+		this.failed.clear();
+		try{
+			ProjectManager pm = this.factory.call();
+			pm.loadModel();
+			this.pm = pm;
+		}
+		catch(Exception ex){
+			this.pm = null;
+			this.log.error("- " + ex.getMessage());
+			this.log.error("- could not load model, waiting for changes");
+			this.registerDirectory(this.configDir);
+			return null;
+		}
+		this.log.info("loaded " + this.pm.getModel().getManagedProjects().size() + " managed project(s)");
+		for(String warning : this.pm.getWarnings()){
+			this.log.warn("- " + warning);
+		}
+		if(this.pm.getModel().getDependencyGraph().hasCycles()){
+			this.log.warn("- managed projects have dependency cycles, see below\n" + this.pm.getModel().getDependencyGraph().getCycleDescription());
+		}
+		return new LinkedHashSet<>(this.pm.getModel().getManagedProjects());
+	}
+
+	/**
+	 * Reloads configuration for changed files and collects all projects affected by the change.
+	 * @param changed the changed files
+	 * @return all affected projects, null if a full reload failed
+	 */
+	protected Set<Model_ManagedProject> reloadChanged(Set<Path> changed){
+		if(this.pm==null){
+			return this.reloadAll();
+		}
+
+		for(Path file : changed){
+			if(file.equals(this.configDir.resolve(PmConstants.PROJECTS_FILE))){
+				this.log.info("projects file changed, reloading model");
+				return this.reloadAll();
+			}
+		}
+
+		Set<Model_ManagedProject> ret = new LinkedHashSet<>();
+		Set<String> changedIds = new TreeSet<>();
+		for(Path file : changed){
+			if(file.equals(this.configDir.resolve(PmConstants.DEPENDENCY_VERSIONS_FILE))){
+				Set<String> ids = this.pm.reloadDependencyVersions();
+				this.log.info("dependency versions changed for " + ids);
+				changedIds.addAll(ids);
+			}
+			else if(file.equals(this.configDir.resolve(PmConstants.PLUGIN_VERSIONS_FILE))){
+				if(this.pm.reloadPluginVersions()){
+					this.log.info("plugin versions changed, all projects affected");
+					ret.addAll(this.pm.getModel().getManagedProjects());
+				}
+			}
+		}
+
+		//reload projects with changes in their PM directory, keep the ones using changed files outside PM directories
+		Map<Model_ManagedProject, Path> reload = new LinkedHashMap<>();
+		for(Path file : changed){
+			Model_ManagedProject mp = this.pmDirs.get(file.getParent());
+			if(mp!=null){
+				reload.put(mp, file);
+			}
+			if(this.usedFiles.containsKey(file)){
+				ret.addAll(this.usedFiles.get(file));
+			}
+		}
+		for(Model_ManagedProject old : reload.keySet()){
+			String oldCoordinates = this.getCoordinates(old);
+			Model_ManagedProject mp;
+			try{
+				mp = this.pm.reloadProject(old.getBaseDir());
+			}
+			catch(Exception ex){
+				this.log.error("- " + ex.getMessage());
+				continue;
+			}
+			this.log.info("project <" + mp.getPmId() + "> changed: " + reload.get(old).getFileName());
+			ret.remove(old);
+			ret.add(mp);
+			if(!oldCoordinates.equals(this.getCoordinates(mp))){
+				changedIds.add(old.getPmId());
+				changedIds.add(mp.getPmId());
+			}
+		}
+
+		if(changedIds.size()>0){
+			for(Model_ManagedProject mp : this.pm.getModel().getManagedProjects()){
+				if(!Collections.disjoint(mp.getDependencyIds(), changedIds)){
+					ret.add(mp);
+				}
+			}
+		}
+
+		//projects that failed before might be fixed now
+		for(String pmId : this.failed){
+			Model_ManagedProject mp = this.pm.getModel().getManagedProject(pmId);
+			if(mp!=null){
+				ret.add(mp);
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Re-resolves the dependencies of projects, each project on its own so that errors do not block other projects.
+	 * @param mps the projects to resolve
+	 * @return all projects that have been resolved without errors
+	 */
+	protected List<Model_ManagedProject> resolve(Set<Model_ManagedProject> mps){
+		List<Model_ManagedProject> ret = new ArrayList<>();
+		for(Model_ManagedProject mp : mps){
+			//the project might have been replaced by a reload in the same cycle
+			if(this.pm.getModel().getManagedProject(mp.getPmId())!=mp){
+				continue;
+			}
+			try{
+				this.pm.getModel().updateProjectDependencies(Collections.singleton(mp));
+				this.failed.remove(mp.getPmId());
+				ret.add(mp);
+			}
+			catch(Exception ex){
+				this.failed.add(mp.getPmId());
+				this.log.error("- " + ex.getMessage());
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Registers the configuration directory, all project PM directories, and all directories with plugin or profile files.
+	 * Also maps PM directories and used plugin and profile files to their projects, so that changed files are looked up without scanning all projects.
+	 */
+	protected void register(){
+		this.pmDirs.clear();
+		this.usedFiles.clear();
+		this.registerDirectory(this.configDir);
+		if(this.pm==null){
+			return;
+		}
+		for(Model_ManagedProject mp : this.pm.getModel().getManagedProjects()){
+			Path pmDir = this.normalize(mp.getPmDir());
+			this.pmDirs.put(pmDir, mp);
+			this.registerDirectory(pmDir);
+			for(File f : mp.getPlugins()){
+				this.registerUsed(mp, this.normalize(f));
+			}
+			for(File f : mp.getProfiles()){
+				this.registerUsed(mp, this.normalize(f));
+			}
+		}
+	}
+
+	/**
+	 * Maps a used plugin or profile file to a project and registers its directory.
+	 * @param mp the project
+	 * @param file the normalized file
+	 */
+	protected void registerUsed(Model_ManagedProject mp, Path file){
+		if(!this.usedFiles.containsKey(file)){
+			this.usedFiles.put(file, new LinkedHashSet<Model_ManagedProject>());
+			this.registerDirectory(file.getParent());
+		}
+		this.usedFiles.get(file).add(mp);
+	}
+
+	/**
+	 * Registers a directory with the watch service, if not already registered.
+	 * @param dir the directory
+	 */
+	protected void registerDirectory(Path dir){
+		if(this.keys.containsKey(dir) || !dir.toFile().isDirectory()){
+			return;
+		}
+		try{
+			this.keys.put(dir, dir.register(this.ws, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE));
+		}
+		catch(IOException ioex){
+			this.log.error("- could not watch directory <" + dir + ">, got IOException <" + ioex.getMessage() + ">");
+		}
+	}
+
+	/**
+	 * Returns the identifier and Maven coordinates of a project, as used by other projects depending on it.
+	 * @param mp the project
+	 * @return identifier and coordinates
+	 */
+	protected String getCoordinates(Model_ManagedProject mp){
+		return mp.getPmId() + " " + mp.getMvnGroupId() + " " + mp.getMvnArtifactId() + " " + mp.getMvnVersion();
+	}
+
+	/**
+	 * Returns the normalized absolute path for a file.
+	 * @param file the file
+	 * @return normalized absolute path
+	 */
+	protected Path normalize(File file){
+		return file.getAbsoluteFile().toPath().normalize();
+	}
+}
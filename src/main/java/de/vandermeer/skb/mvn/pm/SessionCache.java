@@ -0,0 +1,157 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.mvn.pm;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Loaded project managers of the current Maven session, so that all executions in a reactor (also with <code>mvn -T</code>) share one loaded model.
+ * Entries are keyed by configuration directory and project PM directory, all entries are dropped when a new session starts.
+ * A cached model is only used while the fingerprint of its inputs is unchanged.
+ * Executions using the same entry must synchronize on it.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+public final class SessionCache {
+
+	/** Entries of the current session. */
+	private static final Map<String, Entry> ENTRIES = new HashMap<>();
+
+	/** Start time of the current session, -1 if none was seen yet. */
+	private static long session = -1;
+
+	/**
+	 * Class is not to be instantiated.
+	 */
+	private SessionCache(){}
+
+	/**
+	 * Returns the cache entry for a configuration, creating it if required.
+	 * @param sessionStart start time of the Maven session in milliseconds
+	 * @param configDir the configuration directory
+	 * @param projectPmDir the project PM directory
+	 * @return cache entry, to be synchronized on while used
+	 * @throws NullPointerException if any argument was null
+	 */
+	public static Entry get(long sessionStart, File configDir, String projectPmDir){
+		Validate.notNull(configDir);
+		Validate.notNull(projectPmDir);
+		String key = configDir.getAbsolutePath() + File.pathSeparator + projectPmDir;
+		synchronized(ENTRIES){
+			if(sessionStart!=session){
+				ENTRIES.clear();
+				session = sessionStart;
+			}
+			Entry ret = ENTRIES.get(key);
+			if(ret==null){
+				ret = new Entry();
+				ENTRIES.put(key, ret);
+			}
+			return ret;
+		}
+	}
+
+	/**
+	 * Returns the number of entries of the current session.
+	 * @return number of entries
+	 */
+	public static int size(){
+		synchronized(ENTRIES){
+			return ENTRIES.size();
+		}
+	}
+
+	/**
+	 * A cached project manager with a loaded model.
+	 */
+	public static final class Entry {
+
+		/** The project manager, null if none is cached. */
+		private ProjectManager pm;
+
+		/** Fingerprint of the model inputs when the model was loaded. */
+		private long fingerprint;
+
+		/** Flag for POM files of the model being written in this session. */
+		private boolean written;
+
+		/**
+		 * Creates a new empty entry.
+		 */
+		Entry(){}
+
+		/**
+		 * Returns the cached project manager if its model is still current.
+		 * @return cached project manager, null if none is cached or any input changed since the model was loaded
+		 */
+		public ProjectManager get(){
+			if(this.pm!=null){
+				try{
+					if(this.pm.getInputFingerprint()==this.fingerprint){
+						return this.pm;
+					}
+				}
+				catch(IllegalArgumentException ignore){
+					//inputs not readable anymore, load again
+				}
+				this.clear();
+			}
+			return null;
+		}
+
+		/**
+		 * Caches a project manager with a loaded model.
+		 * @param pm the project manager
+		 * @throws NullPointerException if pm was null or has no loaded model
+		 * @throws IllegalArgumentException if the model inputs could not be fingerprinted
+		 */
+		public void set(ProjectManager pm){
+			Validate.notNull(pm);
+			this.fingerprint = pm.getInputFingerprint();
+			this.pm = pm;
+			this.written = false;
+		}
+
+		/**
+		 * Removes the cached project manager.
+		 */
+		public void clear(){
+			this.pm = null;
+			this.written = false;
+		}
+
+		/**
+		 * Tests if POM files of the cached model were written in this session.
+		 * @return true if written, false otherwise
+		 */
+		public boolean isWritten(){
+			return this.written;
+		}
+
+		/**
+		 * Marks POM files of the cached model as written in this session.
+		 */
+		public void setWritten(){
+			this.written = true;
+		}
+	}
+}
@@ -0,0 +1,437 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.mvn.pm;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.text.StrLookup;
+import org.apache.commons.lang3.text.StrSubstitutor;
+
+import de.vandermeer.skb.mvn.PmConstants;
+
+/**
+ * Sets the version string in all source files of a module, replacing the Ant macro <code>push-version</code> (<code>set-versions.macro.xml</code>).
+ *
+ * All files under <code>src/</code> are stamped in one (optionally parallel) pass, with the same patterns as the Ant macro:
+ * <ul>
+ * 	<li>the <code>&#64;version</code> tag of a comment block in <code>.java</code>, <code>.stg</code>, <code>.g</code>, <code>.g4</code>, <code>.php5</code>, and <code>.tpl</code> files,</li>
+ * 	<li>the value of the constant <code>APP_VERSION</code> in <code>.java</code> files,</li>
+ * 	<li>the <code>&#64;version</code> tag of a <code>//</code> comment in <code>.json</code> files,</li>
+ * 	<li>the <code>&#64;version</code> tag of a <code>#</code> comment in <code>.properties</code> files,</li>
+ * 	<li>the <code>&#64;version</code> tag of a <code>##</code> comment in <code>.sh</code> files, except <code>tasks/set-versions.sh</code>.</li>
+ * </ul>
+ * As with the Ant macro, only the first match of each pattern in a file is replaced.
+ * Files are read memory-mapped and only written if their content changes, so unchanged files keep their modification time.
+ * Files that cannot be decoded with the source encoding are skipped.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+public class VersionStamper {
+
+	/** Prefix of all version strings in a version file, followed by the file type (java, stg, g, json, properties, sh, php). */
+	public static final String VERSION_KEY_PREFIX = "skb.version.long.";
+
+	/** Placeholder for the module version in a version file. */
+	public static final String MODULE_VERSION = "module.version";
+
+	/** Placeholder for the target (Java) version in a version file. */
+	public static final String TARGET_VERSION = "target.version";
+
+	/** Placeholder for the build date as <code>yyMMdd</code> in a version file. */
+	public static final String BUILT_6D = "skb.built.6d";
+
+	/** Placeholder for the build date as <code>dd-MMM-yy</code> in a version file. */
+	public static final String BUILT_2D3C4D = "skb.built.2d3c4d";
+
+	/** Stamping rules per file extension, applied in order. */
+	protected final Map<String, List<Rule>> rules;
+
+	/** Encoding of all source files. */
+	protected final Charset charset;
+
+	/** Number of threads, 1 or less for sequential processing. */
+	protected int threads = 1;
+
+	/** Files that were scanned in the last run. */
+	protected final List<File> scanned;
+
+	/** Files that were skipped in the last run, because they could not be decoded. */
+	protected final List<File> skipped;
+
+	/**
+	 * Creates a new version stamper.
+	 * @param versions the version strings, using the keys of the Ant macro ({@link #VERSION_KEY_PREFIX} followed by the file type), missing keys disable their patterns
+	 * @param charset the encoding of all source files
+	 * @throws NullPointerException if any argument was null
+	 */
+	public VersionStamper(Properties versions, Charset charset){
+		Validate.notNull(versions);
+		Validate.notNull(charset);
+		this.charset = charset;
+		this.scanned = Collections.synchronizedList(new ArrayList<File>());
+		this.skipped = Collections.synchronizedList(new ArrayList<File>());
+
+		this.rules = new HashMap<>();
+		this.addRule(versions, "java", " \\* @version(.*)", " * @version    ", "", "java");
+		//escaped space, so that this file does not match the pattern itself
+		this.addRule(versions, "java", "public final static String APP_VERSION =\u0020(.*)", "public final static String APP_VERSION =\u0020\"", "\";", "java");
+		this.addRule(versions, "stg", " \\* @version(.*)", " * @version    ", "", "stg");
+		this.addRule(versions, "g", " \\* @version(.*)", " * @version    ", "", "g", "g4");
+		this.addRule(versions, "json", "// @version(.*)", "// @version    ", "", "json");
+		this.addRule(versions, "properties", " # @version(.*)", " # @version    ", "", "properties");
+		this.addRule(versions, "sh", "## @version(.*)", "## @version    ", "", "sh");
+		this.addRule(versions, "php", " \\* @version(.*)", " * @version    ", "", "php5", "tpl");
+	}
+
+	/**
+	 * Adds a stamping rule if the version file has a version string for it.
+	 * @param versions the version strings
+	 * @param type the file type of the version string
+	 * @param regex pattern to replace
+	 * @param prefix replacement text before the version string
+	 * @param suffix replacement text after the version string
+	 * @param extensions the file extensions the rule applies to
+	 */
+	protected void addRule(Properties versions, String type, String regex, String prefix, String suffix, String ... extensions){
+		String version = versions.getProperty(VERSION_KEY_PREFIX + type);
+		if(version==null){
+			return;
+		}
+		Rule rule = new Rule(Pattern.compile(regex), prefix + version + suffix);
+		for(String ext : extensions){
+			if(!this.rules.containsKey(ext)){
+				this.rules.put(ext, new ArrayList<Rule>());
+			}
+			this.rules.get(ext).add(rule);
+		}
+	}
+
+	/**
+	 * Loads version strings from a file in the format of the Ant macro properties (<code>set-versions.macro.properties</code>) and replaces all placeholders.
+	 * @param file the version file, null for the built-in file {@link PmConstants#SET_VERSIONS_FILE}
+	 * @param values the placeholder values, for instance for {@link #MODULE_VERSION}, {@link #TARGET_VERSION}, {@link #BUILT_6D}, {@link #BUILT_2D3C4D}
+	 * @return version strings with placeholders replaced
+	 * @throws NullPointerException if values were null
+	 * @throws IllegalArgumentException if any placeholder used in the file has no value, for instance a target version without <code>maven.compiler.target</code>
+	 * @throws IOException if the file could not be read
+	 */
+	public static Properties loadVersions(File file, final Map<String, String> values) throws IOException{
+		Validate.notNull(values);
+
+		Properties raw = new Properties();
+		InputStream in = (file==null)
+				?VersionStamper.class.getResourceAsStream("/de/vandermeer/skb/mvn/pm/" + PmConstants.SET_VERSIONS_FILE)
+				:new FileInputStream(file);
+		try(Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)){
+			raw.load(reader);
+		}
+
+		//a placeholder without value would be stamped literally, so it is collected and reported
+		final Set<String> missing = new TreeSet<>();
+		StrSubstitutor sub = new StrSubstitutor(new StrLookup<String>(){
+			@Override
+			public String lookup(String key){
+				String ret = values.get(key);
+				if(ret==null){
+					missing.add(key);
+				}
+				return ret;
+			}
+		});
+		Properties ret = new Properties();
+		for(String key : raw.stringPropertyNames()){
+			ret.setProperty(key, sub.replace(raw.getProperty(key)));
+		}
+		if(missing.size()>0){
+			throw new IllegalArgumentException("no value for placeholder(s) " + missing + " in version file <" + ((file==null)?PmConstants.SET_VERSIONS_FILE:file) + ">");
+		}
+		return ret;
+	}
+
+	/**
+	 * Parses a build date strictly, as used for {@link #BUILT_6D}.
+	 * @param date the date as <code>yyMMdd</code>
+	 * @return the parsed date
+	 * @throws NullPointerException if argument was null
+	 * @throws IllegalArgumentException if the argument was not a valid date as <code>yyMMdd</code>, for instance with trailing characters or month 13
+	 */
+	public static Date parseDate(String date){
+		Validate.notNull(date);
+		if(date.length()!=6 || !StringUtils.isNumeric(date)){
+			throw new IllegalArgumentException("build date must be yyMMdd, got <" + date + ">");
+		}
+		SimpleDateFormat format = new SimpleDateFormat("yyMMdd", Locale.ENGLISH);
+		format.setLenient(false);
+		ParsePosition pos = new ParsePosition(0);
+		Date ret = format.parse(date, pos);
+		if(ret==null || pos.getIndex()!=date.length()){
+			throw new IllegalArgumentException("build date must be yyMMdd, got <" + date + ">");
+		}
+		return ret;
+	}
+
+	/**
+	 * Sets the number of threads.
+	 * @param threads number of threads, 1 or less for sequential processing
+	 */
+	public void setThreads(int threads){
+		this.threads = threads;
+	}
+
+	/**
+	 * Stamps all source files of a module, that is all files with a known extension under <code>src/</code>.
+	 * @param moduleDir the module directory
+	 * @return all files that were changed, in directory order
+	 * @throws NullPointerException if argument was null
+	 * @throws IOException if the source tree could not be read or a file could not be written
+	 */
+	public List<File> stamp(File moduleDir) throws IOException{
+		Validate.notNull(moduleDir);
+		this.scanned.clear();
+		this.skipped.clear();
+
+		Path src = moduleDir.toPath().resolve("src");
+		if(!Files.isDirectory(src)){
+			return new ArrayList<>();
+		}
+		final List<Path> files = this.collect(src);
+
+		List<File> ret = new ArrayList<>();
+		if(this.threads<=1 || files.size()<=1){
+			for(Path p : files){
+				if(this.stamp(p)){
+					ret.add(p.toFile());
+				}
+			}
+			return ret;
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(Math.min(this.threads, files.size()));
+		try{
+			List<Future<Boolean>> futures = new ArrayList<>();
+			for(final Path p : files){
+				futures.add(pool.submit(new Callable<Boolean>() {
+					@Override
+					public Boolean call() throws Exception {
+						return stamp(p);
+					}
+				}));
+			}
+			for(int i=0; i<futures.size(); i++){
+				if(futures.get(i).get()){
+					ret.add(files.get(i).toFile());
+				}
+			}
+		}
+		catch(InterruptedException iex){
+			Thread.currentThread().interrupt();
+			throw new IOException("version stamper: interrupted");
+		}
+		catch(ExecutionException eex){
+			Throwable cause = eex.getCause();
+			if(cause instanceof IOException){
+				throw (IOException)cause;
+			}
+			if(cause instanceof RuntimeException){
+				throw (RuntimeException)cause;
+			}
+			throw new IOException(cause);
+		}
+		finally{
+			pool.shutdownNow();
+		}
+		return ret;
+	}
+
+	/**
+	 * Collects all files with a known extension in a source tree.
+	 * @param src the source tree
+	 * @return all files to stamp, in directory order
+	 * @throws IOException if the tree could not be read
+	 */
+	protected List<Path> collect(Path src) throws IOException{
+		final List<Path> ret = new ArrayList<>();
+		Files.walkFileTree(src, new SimpleFileVisitor<Path>(){
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				if(attrs.isRegularFile() && rules.containsKey(getExtension(file)) && !isExcluded(file)){
+					ret.add(file);
+				}
+				return FileVisitResult.CONTINUE;
+			}
+		});
+		return ret;
+	}
+
+	/**
+	 * Returns the extension of a file.
+	 * @param file the file
+	 * @return extension without dot, empty if the file has none
+	 */
+	protected static String getExtension(Path file){
+		String name = file.getFileName().toString();
+		int dot = name.lastIndexOf('.');
+		return (dot<0)?"":name.substring(dot + 1);
+	}
+
+	/**
+	 * Tests if a file is excluded from stamping, as the Ant macro excludes <code>**&#47;tasks/set-versions.sh</code>.
+	 * @param file the file
+	 * @return true if excluded, false otherwise
+	 */
+	protected static boolean isExcluded(Path file){
+		Path parent = file.getParent();
+		return "set-versions.sh".equals(file.getFileName().toString())
+				&& parent!=null && parent.getFileName()!=null
+				&& "tasks".equals(parent.getFileName().toString());
+	}
+
+	/**
+	 * Stamps a single file, writing it only if its content changes.
+	 * @param file the file
+	 * @return true if the file was changed, false otherwise
+	 * @throws IOException if the file could not be read or written
+	 */
+	protected boolean stamp(Path file) throws IOException{
+		this.scanned.add(file.toFile());
+
+		String text;
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+			long size = channel.size();
+			if(size==0){
+				return false;
+			}
+			MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			CharBuffer chars = this.charset.newDecoder()
+					.onMalformedInput(CodingErrorAction.REPORT)
+					.onUnmappableCharacter(CodingErrorAction.REPORT)
+					.decode(buf);
+			text = chars.toString();
+		}
+		catch(CharacterCodingException ccex){
+			this.skipped.add(file.toFile());
+			return false;
+		}
+
+		String stamped = this.apply(getExtension(file), text);
+		if(stamped.equals(text)){
+			return false;
+		}
+		//write in place to keep file permissions (for instance of scripts)
+		Files.write(file, stamped.getBytes(this.charset));
+		return true;
+	}
+
+	/**
+	 * Applies all rules of an extension to a text, each rule replaces its first match.
+	 * @param extension the file extension
+	 * @param text the text
+	 * @return stamped text, the same text if no rule matched
+	 */
+	protected String apply(String extension, String text){
+		List<Rule> list = this.rules.get(extension);
+		if(list==null){
+			return text;
+		}
+		String ret = text;
+		for(Rule rule : list){
+			Matcher m = rule.pattern.matcher(ret);
+			if(m.find()){
+				ret = ret.substring(0, m.start()) + rule.replacement + ret.substring(m.end());
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns all files scanned in the last run.
+	 * @return scanned files, in processing order
+	 */
+	public List<File> getScanned(){
+		return this.scanned;
+	}
+
+	/**
+	 * Returns all files skipped in the last run, because they could not be decoded with the source encoding.
+	 * @return skipped files
+	 */
+	public List<File> getSkipped(){
+		return this.skipped;
+	}
+
+	/**
+	 * A stamping rule: a pattern and the text replacing its first match.
+	 */
+	protected static class Rule {
+
+		/** The pattern. */
+		final Pattern pattern;
+
+		/** The replacement, used literally. */
+		final String replacement;
+
+		/**
+		 * Creates a new rule.
+		 * @param pattern the pattern
+		 * @param replacement the replacement, used literally
+		 */
+		Rule(Pattern pattern, String replacement){
+			this.pattern = pattern;
+			this.replacement = replacement;
+		}
+	}
+}
@@ -0,0 +1,220 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.mvn.pm.model;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * A writer that forwards all output to a target writer while comparing it on the fly with existing content.
+ * The comparison ignores line endings the same way {@code FileUtils.contentEqualsIgnoreEOL} does: CR, LF, and CRLF are all the same, and a missing final line terminator does not count as a difference.
+ * Once a difference is found, the existing content is not read any further.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+public class ComparingWriter extends Writer {
+
+	/** The target writer. */
+	protected final Writer out;
+
+	/** The existing content, null if there is none. */
+	protected Reader existing;
+
+	/** Flag for a difference found. */
+	protected boolean differs;
+
+	/** The last character written (normalized), -1 if none was written yet. */
+	protected int lastOut = -1;
+
+	/** Flag for the last character written being a CR, so that a following LF is part of the same line terminator. */
+	protected boolean lastOutCr;
+
+	/** Look-ahead character of the existing content, -2 if none is buffered. */
+	protected int lookAhead = -2;
+
+	/** The last character read from the existing content (normalized), -1 if none was read yet. */
+	protected int lastExisting = -1;
+
+	/** Flag for the existing content being exhausted while output continued. */
+	protected boolean existingEnded;
+
+	/** Output written after the existing content was exhausted, only a single line terminator is tolerated. */
+	protected int extraOut;
+
+	/** Flag for line endings being normalized (or a final line terminator being tolerated) during comparison. */
+	protected boolean normalized;
+
+	/** Flag for the writer being finished. */
+	protected boolean finished;
+
+	/**
+	 * Creates a new comparing writer.
+	 * @param out the target writer for all output
+	 * @param existing the existing content to compare with, null if there is no existing content (which always is a difference)
+	 * @throws NullPointerException if out was null
+	 */
+	public ComparingWriter(Writer out, Reader existing){
+		Validate.notNull(out);
+		this.out = out;
+		this.existing = existing;
+		this.differs = (existing==null);
+	}
+
+	@Override
+	public void write(char[] cbuf, int off, int len) throws IOException {
+		this.out.write(cbuf, off, len);
+		if(this.differs){
+			return;
+		}
+		for(int i=off; i<off+len && !this.differs; i++){
+			char c = cbuf[i];
+			if(c=='\n' && this.lastOutCr){
+				//LF of a CRLF, the CR did the comparison
+				this.lastOutCr = false;
+				continue;
+			}
+			this.lastOutCr = (c=='\r');
+			if(this.lastOutCr){
+				//normalize CR and CRLF to LF, as for the existing content
+				this.normalized = true;
+				c = '\n';
+			}
+			this.compare(c);
+			this.lastOut = c;
+		}
+	}
+
+	/**
+	 * Compares a single (normalized) output character with the next character of the existing content.
+	 * @param c output character
+	 * @throws IOException if reading existing content failed
+	 */
+	protected void compare(char c) throws IOException{
+		if(this.existingEnded){
+			this.extraOut++;
+			this.normalized = true;
+			if(c!='\n' || this.extraOut>1 || this.lastExisting=='\n'){
+				this.setDiffers();
+			}
+			return;
+		}
+
+		int e = this.nextExisting();
+		if(e==-1){
+			this.existingEnded = true;
+			this.compare(c);
+		}
+		else if(e!=c){
+			this.setDiffers();
+		}
+	}
+
+	/**
+	 * Reads the next character of the existing content, normalizing CR and CRLF to LF.
+	 * @return next character, -1 at the end of the existing content
+	 * @throws IOException if reading existing content failed
+	 */
+	protected int nextExisting() throws IOException{
+		int c = (this.lookAhead!=-2)?this.lookAhead:this.existing.read();
+		this.lookAhead = -2;
+		if(c=='\r'){
+			this.normalized = true;
+			int n = this.existing.read();
+			if(n!='\n'){
+				this.lookAhead = n;
+			}
+			c = '\n';
+		}
+		if(c!=-1){
+			this.lastExisting = c;
+		}
+		return c;
+	}
+
+	/**
+	 * Marks the output as different from the existing content and stops reading existing content.
+	 * @throws IOException if closing the existing content failed
+	 */
+	protected void setDiffers() throws IOException{
+		this.differs = true;
+		if(this.existing!=null){
+			this.existing.close();
+			this.existing = null;
+		}
+	}
+
+	/**
+	 * Finishes the comparison, should be called once all output is written.
+	 * @return true if the output differs from the existing content, false otherwise
+	 * @throws IOException if reading existing content failed
+	 */
+	public boolean finish() throws IOException{
+		if(!this.finished){
+			this.finished = true;
+			if(!this.differs && !this.existingEnded){
+				//the existing content may have a single final line terminator the output has not
+				int e = this.nextExisting();
+				if(e!=-1){
+					this.normalized = true;
+					if(e!='\n' || this.lastOut=='\n' || this.nextExisting()!=-1){
+						this.setDiffers();
+					}
+				}
+			}
+			if(this.existing!=null){
+				this.existing.close();
+				this.existing = null;
+			}
+		}
+		return this.differs;
+	}
+
+	/**
+	 * Returns the difference flag, only final after {@link #finish()} was called.
+	 * @return true if a difference was found, false otherwise
+	 */
+	public boolean differs(){
+		return this.differs;
+	}
+
+	/**
+	 * Tests if output and existing content are identical character by character, only final after {@link #finish()} was called.
+	 * @return true if no difference was found and no line ending had to be normalized, false otherwise
+	 */
+	public boolean isIdentical(){
+		return this.finished && !this.differs && !this.normalized;
+	}
+
+	@Override
+	public void flush() throws IOException {
+		this.out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		try{
+			this.finish();
+		}
+		finally{
+			this.out.close();
+		}
+	}
+}
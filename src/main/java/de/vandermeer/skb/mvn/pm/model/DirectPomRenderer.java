@@ -0,0 +1,502 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.mvn.pm.model;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Renders POM files directly from the managed project, without template interpretation or reflection.
+ * The POM structure is written line by line as in the POM template, fragments are spliced in verbatim.
+ *
+ * The output is identical, byte by byte, to the output of {@link StPomRenderer}.
+ * The writer mimics the rules of StringTemplate and its auto-indent writer:
+ * CR characters are dropped and LF is written as the line separator of the platform;
+ * indentation of a template line applies only to the first element of the line (text, expression, or if tag) and is written only before other characters, so empty lines have no indentation;
+ * a template line break is only written if something was written on the line, it follows another line break, or the line is an empty template line;
+ * lines with only an if or endif tag do not exist;
+ * a condition is true for any value but null, false, and empty collections (an empty string is true).
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+public class DirectPomRenderer implements PomRenderer {
+
+	/** Name of the renderer. */
+	public static final String NAME = "direct";
+
+	@Override
+	public String getName(){
+		return NAME;
+	}
+
+	@Override
+	public void load(){
+		//nothing to load, fragments are given with every project
+	}
+
+	@Override
+	public void render(Model_ManagedProject mp, Map<String, List<String>> fragments, Writer out) throws IOException{
+		Output o = new Output(out);
+
+		//the template starts with an empty line, never written since nothing was written before
+		o.newline();
+		o.line("", "<project xmlns=\"http://maven.apache.org/POM/4.0.0\"");
+		o.line("         ", "xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"");
+		o.line("         ", "xsi:schemaLocation=\"http://maven.apache.org/POM/4.0.0");
+		o.line("                             ", "http://maven.apache.org/xsd/maven-4.0.0.xsd\">");
+		o.newline();
+		o.line("    ", "<modelVersion>4.0.0</modelVersion>");
+		o.newline();
+		this.comment(o, "This file is automatically created");
+		o.newline();
+		this.comment(o, "Basic POM definitions");
+		o.line("    ", "<groupId>", mp.getMvnGroupId(), "</groupId>");
+		o.line("    ", "<artifactId>", mp.getMvnArtifactId(), "</artifactId>");
+		o.line("    ", "<version>", mp.getMvnVersion(), "</version>");
+		o.line("    ", "<packaging>", mp.getMvnPackaging(), "</packaging>");
+		o.newline();
+		this.comment(o, "More project information");
+		o.optional("    ", "name", mp.getMvnName());
+		o.optional("    ", "description", mp.getMvnDescription());
+		o.optional("    ", "url", mp.getMvnUrl());
+		o.optional("    ", "inceptionYear", mp.getMvnInceptionYear());
+		o.newline();
+		this.comment(o, "Pre-requisites");
+		o.line("    ", "<prerequisites>");
+		o.line("        ", "<maven>3.0.0</maven>");
+		o.line("    ", "</prerequisites>");
+		o.newline();
+		this.comment(o, "Licenses");
+		o.line("    ", "<licenses>");
+		o.fragments("        ", fragments.get("licenses"), "\n");
+		o.line("    ", "</licenses>");
+		o.newline();
+		this.comment(o, "Properties");
+		o.line("    ", "<properties>");
+		o.optional("        ", "maven.compiler.source", mp.getMvnCompilerSource());
+		o.optional("        ", "maven.compiler.target", mp.getMvnCompilerTarget());
+		String encoding = mp.getMvnEncoding();
+		if(o.test(encoding)){
+			o.line("        ", "<project.build.sourceEncoding>", encoding, "</project.build.sourceEncoding>");
+			o.line("        ", "<project.resources.sourceEncoding>", encoding, "</project.resources.sourceEncoding>");
+			o.line("        ", "<encoding>", encoding, "</encoding>");
+			o.line("        ", "<file.encoding>", encoding, "</file.encoding>");
+		}
+		List<Map<String, String>> pluginVersions = mp.getModelContext().getPluginVersions();
+		if(o.test(pluginVersions)){
+			o.pluginVersions("\t\t", pluginVersions);
+		}
+		o.fragments("\t\t", fragments.get("properties"), "\n");
+		o.line("\t\t", "<mp.project.url>", mp.getMvnUrl(), "</mp.project.url>");
+		o.line("    ", "</properties>");
+		o.newline();
+		String orgName = mp.getMvnOrgName();
+		String orgUrl = mp.getMvnOrgUrl();
+		if(o.test(orgName) && Output.isTrue(orgUrl)){
+			this.comment(o, "Organization");
+			o.line("    ", "<organization>");
+			o.line("        ", "<name>", orgName, "</name>");
+			o.line("        ", "<url>", orgUrl, "</url>");
+			o.line("    ", "</organization>");
+		}
+		o.newline();
+		this.comment(o, "Developers");
+		o.line("    ", "<developers>");
+		o.fragments("        ", fragments.get("developers"), "\n");
+		o.line("    ", "</developers>");
+		o.newline();
+		if(o.test(fragments.get("contributors"))){
+			this.comment(o, "Contributors");
+			o.line("    ", "<contributors>");
+			o.fragments("        ", fragments.get("contributors"), "\n");
+			o.line("    ", "</contributors>");
+		}
+		o.newline();
+		Collection<Model_Dependency> dependencies = mp.getDependencies();
+		if(o.test(dependencies) || Output.isTrue(fragments.get("dependencies"))){
+			o.line("    ", "<dependencies>");
+			if(o.test(dependencies)){
+				o.dependencies("        ", dependencies);
+			}
+			if(o.test(fragments.get("dependencies"))){
+				o.fragments("        ", fragments.get("dependencies"), "\n");
+			}
+			o.line("    ", "</dependencies>");
+		}
+		o.newline();
+		o.line("", "<!--");
+		o.line("", "<dependencyManagement>...</dependencyManagement>");
+		o.line("", "-->");
+		o.newline();
+		if(o.test(fragments.get("modules"))){
+			this.comment(o, "Modules");
+			o.line("    ", "<modules>");
+			o.fragments("        ", fragments.get("modules"), "\n\n");
+			o.line("    ", "</modules>");
+		}
+		o.newline();
+		this.comment(o, "Build and Plugins");
+		o.line("    ", "<build>");
+		o.line("        ", "<plugins>");
+		o.newline();
+		if(o.test(fragments.get("plugins"))){
+			o.fragments("            ", fragments.get("plugins"), "\n\n");
+		}
+		o.newline();
+		o.line("        ", "</plugins>");
+		o.line("    ", "</build>");
+		o.newline();
+		if(o.test(fragments.get("profiles"))){
+			this.comment(o, "Profiles");
+			o.line("    ", "<profiles>");
+			o.fragments("        ", fragments.get("profiles"), "\n\n");
+			o.line("    ", "</profiles>");
+		}
+		o.newline();
+		if(o.test(fragments.get("reporting"))){
+			o.line("    ", "<reporting>");
+			o.fragments("        ", fragments.get("reporting"), "\n\n");
+			o.line("    ", "</reporting>");
+		}
+		o.newline();
+		o.line("    ", "<!-- Environment Settings -->");
+		o.line("    ", "<issueManagement>");
+		o.line("        ", "<system>", mp.getMvnIssueMgmtSystem(), "</system>");
+		o.line("        ", "<url>", mp.getMvnIssueMgmtUrl(), "</url>");
+		o.line("    ", "</issueManagement>");
+		o.newline();
+		o.line("", "<!--");
+		o.line("", "<ciManagement>...</ciManagement>");
+		o.line("", "<mailingLists>...</mailingLists>");
+		o.line("", "-->");
+		o.newline();
+		this.comment(o, "SCM");
+		o.line("    ", "<scm>");
+		o.line("        ", "<connection>", mp.getMvnScmConnection(), "</connection>");
+		o.line("        ", "<developerConnection>", mp.getMvnScmDeveloperConnection(), "</developerConnection>");
+		o.line("        ", "<tag>HEAD</tag>");
+		o.line("        ", "<url>", mp.getMvnScmUrl(), "</url>");
+		o.line("    ", "</scm>");
+		o.newline();
+		o.line("", "<!--");
+		o.line("", "<repositories>...</repositories>");
+		o.line("", "<pluginRepositories>...</pluginRepositories>");
+		o.line("", "<distributionManagement>...</distributionManagement>");
+		o.line("", "-->");
+		o.newline();
+		o.line("", "</project>");
+	}
+
+	/**
+	 * Writes a section comment.
+	 * @param o the output
+	 * @param text the comment text
+	 * @throws IOException if writing failed
+	 */
+	protected void comment(Output o, String text) throws IOException{
+		o.line("    ", "<!--");
+		o.line("      ", text);
+		o.line("      ", "-->");
+	}
+
+	/**
+	 * Output with the line and indentation rules of StringTemplate and its auto-indent writer.
+	 */
+	protected static class Output {
+
+		/** Line separator, as used by StringTemplate. */
+		static final String NEWLINE = System.getProperty("line.separator");
+
+		/** The target writer. */
+		final Writer out;
+
+		/** Stack of indentations, all written at the start of a line. */
+		final List<String> indents = new ArrayList<>();
+
+		/** Flag for being at the start of a line, where the indentation is still to be written. */
+		boolean atStartOfLine = true;
+
+		/** Number of characters written since the last template line break. */
+		int written;
+
+		/** Flag for the last operation being a template line break or an indentation. */
+		boolean afterNewline;
+
+		/**
+		 * Creates a new output.
+		 * @param out the target writer
+		 */
+		Output(Writer out){
+			this.out = out;
+		}
+
+		/**
+		 * Tests a condition as StringTemplate does.
+		 * @param value the value of the condition
+		 * @return false for null, false, and empty collections or maps, true otherwise
+		 */
+		static boolean isTrue(Object value){
+			if(value==null){
+				return false;
+			}
+			if(value instanceof Boolean){
+				return (Boolean)value;
+			}
+			if(value instanceof List){
+				//a single fragment is added as a single value, more fragments as a list
+				List<?> list = (List<?>)value;
+				return (list.size()==1)?list.get(0)!=null:list.size()>0;
+			}
+			if(value instanceof Collection){
+				return ((Collection<?>)value).size()>0;
+			}
+			if(value instanceof Map){
+				return ((Map<?, ?>)value).size()>0;
+			}
+			return true;
+		}
+
+		/**
+		 * Tests a condition of an if tag.
+		 * @param value the value of the condition
+		 * @return true if the condition is true
+		 */
+		boolean test(Object value){
+			this.afterNewline = false;
+			return isTrue(value);
+		}
+
+		/**
+		 * Writes text, drops CR, translates LF to the line separator, and indents before the first other character of a line.
+		 * @param s the text, nothing is written for null
+		 * @return number of characters written, including indentation and line separators
+		 * @throws IOException if writing failed
+		 */
+		int write(String s) throws IOException{
+			if(s==null){
+				return 0;
+			}
+			int n = 0;
+			int start = 0;
+			int length = s.length();
+			for(int i=0; i<length; i++){
+				char c = s.charAt(i);
+				if(c=='\r' || c=='\n'){
+					if(i>start){
+						this.out.write(s, start, i - start);
+					}
+					start = i + 1;
+					if(c=='\n'){
+						this.out.write(NEWLINE);
+						n += NEWLINE.length();
+						this.atStartOfLine = true;
+					}
+				}
+				else{
+					if(this.atStartOfLine){
+						for(String indent : this.indents){
+							this.out.write(indent);
+							n += indent.length();
+						}
+						this.atStartOfLine = false;
+					}
+					n++;
+				}
+			}
+			if(length>start){
+				this.out.write(s, start, length - start);
+			}
+			return n;
+		}
+
+		/**
+		 * Writes template text or the value of an expression.
+		 * @param s the text or value
+		 * @throws IOException if writing failed
+		 */
+		void text(String s) throws IOException{
+			this.written += this.write(s);
+			this.afterNewline = false;
+		}
+
+		/**
+		 * Writes a template line break, only if anything was written on the line or the line is empty.
+		 * @throws IOException if writing failed
+		 */
+		void newline() throws IOException{
+			if(this.afterNewline || this.written>0){
+				this.write("\n");
+			}
+			this.written = 0;
+			this.afterNewline = true;
+		}
+
+		/**
+		 * Starts an indented template line.
+		 * @param indent the indentation, empty for none
+		 */
+		void indent(String indent){
+			if(indent.length()>0){
+				this.indents.add(indent);
+				this.afterNewline = true;
+			}
+		}
+
+		/**
+		 * Ends an indented template line.
+		 * @param indent the indentation, empty for none
+		 */
+		void dedent(String indent){
+			if(indent.length()>0){
+				this.indents.remove(this.indents.size() - 1);
+				this.afterNewline = false;
+			}
+		}
+
+		/**
+		 * Writes a template line, the indentation applies only to the leading text.
+		 * @param indent the indentation of the line, empty for none
+		 * @param parts template text and expression values in turn, starting with text
+		 * @throws IOException if writing failed
+		 */
+		void line(String indent, String ... parts) throws IOException{
+			this.indent(indent);
+			this.text(parts[0]);
+			this.dedent(indent);
+			for(int i=1; i<parts.length; i++){
+				this.text(parts[i]);
+			}
+			this.newline();
+		}
+
+		/**
+		 * Writes a template line with an element that only exists if its value is not null, the indentation applies to the whole element.
+		 * @param indent the indentation of the line
+		 * @param element the element name
+		 * @param value the element value
+		 * @throws IOException if writing failed
+		 */
+		void optional(String indent, String element, String value) throws IOException{
+			this.indent(indent);
+			if(this.test(value)){
+				this.text("<" + element + ">");
+				this.text(value);
+				this.text("</" + element + ">");
+			}
+			this.dedent(indent);
+			this.newline();
+		}
+
+		/**
+		 * Writes a template line with fragments, a separator is written between fragments if anything was written before.
+		 * @param indent the indentation of the line
+		 * @param fragments the fragments, null if there are none
+		 * @param separator the separator
+		 * @throws IOException if writing failed
+		 */
+		void fragments(String indent, List<String> fragments, String separator) throws IOException{
+			this.indent(indent);
+			if(fragments!=null){
+				boolean seen = false;
+				for(String fragment : fragments){
+					if(seen && fragment!=null){
+						this.written += this.write(separator);
+					}
+					int n = this.write(fragment);
+					this.written += n;
+					seen |= n>0;
+				}
+			}
+			this.afterNewline = false;
+			this.dedent(indent);
+			this.newline();
+		}
+
+		/**
+		 * Writes a template line with the plugin version properties, separated by line breaks.
+		 * @param indent the indentation of the line
+		 * @param versions the plugin versions, each a map with key and value
+		 * @throws IOException if writing failed
+		 */
+		void pluginVersions(String indent, List<Map<String, String>> versions) throws IOException{
+			this.indent(indent);
+			boolean seen = false;
+			for(Map<String, String> version : versions){
+				if(seen && version!=null){
+					this.written += this.write("\n");
+				}
+				if(version!=null){
+					String key = version.get("key");
+					int n = this.write("<") + this.write(key) + this.write(">") + this.write(version.get("value")) + this.write("</") + this.write(key) + this.write(">");
+					this.written += n;
+					seen |= n>0;
+				}
+			}
+			this.afterNewline = false;
+			this.dedent(indent);
+			this.newline();
+		}
+
+		/**
+		 * Writes a template line with the coordinated dependencies, separated by line breaks.
+		 * @param indent the indentation of the line
+		 * @param dependencies the dependencies
+		 * @throws IOException if writing failed
+		 */
+		void dependencies(String indent, Collection<Model_Dependency> dependencies) throws IOException{
+			this.indent(indent);
+			boolean seen = false;
+			for(Model_Dependency dep : dependencies){
+				if(seen && dep!=null){
+					this.written += this.write("\n");
+				}
+				if(dep!=null){
+					int n = this.write("<dependency>") + this.write("\n");
+					n += this.element("groupId", dep.getGroupId());
+					n += this.element("artifactId", dep.getArtifactId());
+					n += this.element("version", dep.getVersion());
+					n += this.element("scope", dep.getScope());
+					n += this.write("</dependency>");
+					this.written += n;
+					seen |= n>0;
+				}
+			}
+			this.afterNewline = false;
+			this.dedent(indent);
+			this.newline();
+		}
+
+		/**
+		 * Writes an indented element line of the dependency template.
+		 * @param element the element name
+		 * @param value the element value
+		 * @return number of characters written
+		 * @throws IOException if writing failed
+		 */
+		int element(String element, String value) throws IOException{
+			this.indents.add("    ");
+			int n = this.write("<" + element + ">");
+			this.indents.remove(this.indents.size() - 1);
+			return n + this.write(value) + this.write("</" + element + ">") + this.write("\n");
+		}
+	}
+}
@@ -0,0 +1,250 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.mvn.pm.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Content-addressed cache for fragment files of managed projects (project files, plugin and profile files).
+ *
+ * Files are keyed by canonical path, modification time and size, so a shared fragment (for instance {@code ../../common/plugins.pm}) is read once for all projects that use it,
+ * and a changed file is read again.
+ * Contents are stored by their digest, files with the same content share one string.
+ * The cache is bounded by the memory of its contents (two bytes per character), least recently used files are evicted first.
+ * All methods are thread-safe.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+public class FragmentCache {
+
+	/** Default memory bound in bytes. */
+	public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+	/** Memory bound in bytes. */
+	protected final long maxBytes;
+
+	/** Files in least recently used order, mapping the file key to the digest of its content. */
+	protected final LinkedHashMap<String, String> files;
+
+	/** Contents by digest. */
+	protected final Map<String, Content> contents;
+
+	/** Memory used by all contents in bytes. */
+	protected long bytes;
+
+	/** Number of requests served from the cache. */
+	protected long hits;
+
+	/** Number of requests that had to read a file. */
+	protected long misses;
+
+	/** Number of files evicted. */
+	protected long evictions;
+
+	/**
+	 * Creates a new cache with the default memory bound.
+	 */
+	public FragmentCache(){
+		this(DEFAULT_MAX_BYTES);
+	}
+
+	/**
+	 * Creates a new cache.
+	 * @param maxBytes memory bound in bytes, a file larger than the bound is read but not cached
+	 * @throws IllegalArgumentException if the bound is negative
+	 */
+	public FragmentCache(long maxBytes){
+		Validate.isTrue(maxBytes>=0, "fragment cache: memory bound must not be negative, got <" + maxBytes + ">");
+		this.maxBytes = maxBytes;
+		this.files = new LinkedHashMap<>(64, 0.75f, true);
+		this.contents = new HashMap<>();
+	}
+
+	/**
+	 * Returns the content of a fragment file, read as UTF-8.
+	 * @param file the file
+	 * @param metrics metrics of the caller to record bytes read from the file in, null for none
+	 * @return file content
+	 * @throws NullPointerException if file was null
+	 * @throws IOException if the file does not exist or could not be read
+	 */
+	public String get(File file, PM_Metrics metrics) throws IOException{
+		Validate.notNull(file);
+
+		Path path = file.toPath().toRealPath();
+		BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+		String key = path.toString() + '\0' + attrs.lastModifiedTime().toMillis() + '\0' + attrs.size();
+
+		synchronized(this){
+			String digest = this.files.get(key);
+			if(digest!=null){
+				this.hits++;
+				return this.contents.get(digest).text;
+			}
+			this.misses++;
+		}
+
+		//read outside the lock, so other threads are not blocked by IO
+		byte[] b = Files.readAllBytes(path);
+		if(metrics!=null){
+			metrics.read(b.length);
+		}
+		String digest = PomFingerprints.toHex(PomFingerprints.newDigest().digest(b));
+		String text = new String(b, StandardCharsets.UTF_8);
+
+		synchronized(this){
+			Content content = this.contents.get(digest);
+			if(content!=null){
+				text = content.text;
+			}
+			if(this.files.containsKey(key)){
+				//another thread read the same file meanwhile
+				return text;
+			}
+
+			long size = 2L * text.length();
+			if(content==null){
+				if(size>this.maxBytes){
+					return text;
+				}
+				content = new Content(text);
+				this.contents.put(digest, content);
+				this.bytes += size;
+			}
+			content.references++;
+			this.files.put(key, digest);
+			this.evict();
+			return text;
+		}
+	}
+
+	/**
+	 * Evicts least recently used files until the memory bound is met.
+	 */
+	protected void evict(){
+		Iterator<Entry<String, String>> it = this.files.entrySet().iterator();
+		while(this.bytes>this.maxBytes && it.hasNext()){
+			String digest = it.next().getValue();
+			it.remove();
+			this.evictions++;
+			Content content = this.contents.get(digest);
+			content.references--;
+			if(content.references==0){
+				this.contents.remove(digest);
+				this.bytes -= 2L * content.text.length();
+			}
+		}
+	}
+
+	/**
+	 * Removes all files from the cache.
+	 */
+	public synchronized void clear(){
+		this.files.clear();
+		this.contents.clear();
+		this.bytes = 0;
+	}
+
+	/**
+	 * Returns the memory bound.
+	 * @return memory bound in bytes
+	 */
+	public long getMaxBytes(){
+		return this.maxBytes;
+	}
+
+	/**
+	 * Returns the memory used by all cached contents.
+	 * @return memory in bytes
+	 */
+	public synchronized long getBytes(){
+		return this.bytes;
+	}
+
+	/**
+	 * Returns the number of cached files.
+	 * @return number of files
+	 */
+	public synchronized int size(){
+		return this.files.size();
+	}
+
+	/**
+	 * Returns the number of distinct cached contents.
+	 * @return number of contents
+	 */
+	public synchronized int getContentCount(){
+		return this.contents.size();
+	}
+
+	/**
+	 * Returns the number of requests served from the cache.
+	 * @return hit count
+	 */
+	public synchronized long getHits(){
+		return this.hits;
+	}
+
+	/**
+	 * Returns the number of requests that had to read a file.
+	 * @return miss count
+	 */
+	public synchronized long getMisses(){
+		return this.misses;
+	}
+
+	/**
+	 * Returns the number of evicted files.
+	 * @return eviction count
+	 */
+	public synchronized long getEvictions(){
+		return this.evictions;
+	}
+
+	/**
+	 * A cached content with the number of files referencing it.
+	 */
+	protected static class Content {
+
+		/** The content. */
+		final String text;
+
+		/** Number of files with this content. */
+		int references;
+
+		/**
+		 * Creates a new content.
+		 * @param text the content
+		 */
+		Content(String text){
+			this.text = text;
+		}
+	}
+}
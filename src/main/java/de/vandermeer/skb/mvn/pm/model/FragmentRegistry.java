@@ -0,0 +1,138 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.mvn.pm.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.Validate;
+
+import de.vandermeer.skb.mvn.Licenses;
+import de.vandermeer.skb.mvn.PmConstants;
+
+/**
+ * Registry for the built-in fragments (plugins, profiles, licenses) shipped with the project manager.
+ * Each resource is read once per JVM and then served as an immutable string to all projects.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+public abstract class FragmentRegistry {
+
+	/** Resource path of all built-in fragments. */
+	public static final String RESOURCE_PATH = "/de/vandermeer/skb/mvn/pm/";
+
+	/** Resource path of all license fragments, relative to {@link #RESOURCE_PATH}. */
+	public static final String LICENSE_PATH = "licenses/";
+
+	/** Loaded fragments, mapping resource name to content. */
+	private static final ConcurrentMap<String, String> FRAGMENTS = new ConcurrentHashMap<>();
+
+	/** Number of requests served from loaded fragments. */
+	private static final AtomicLong HITS = new AtomicLong();
+
+	/** Number of requests that had to load a fragment. */
+	private static final AtomicLong MISSES = new AtomicLong();
+
+	/**
+	 * Returns a built-in fragment, loading it on first access.
+	 * @param name the resource name relative to {@link #RESOURCE_PATH}, for instance {@link PmConstants#JAR_PLUGIN_FILE}
+	 * @return fragment content
+	 * @throws NullPointerException if argument was null
+	 * @throws IllegalArgumentException if argument was blank or the resource could not be read
+	 */
+	public static String get(String name){
+		Validate.notBlank(name);
+
+		String ret = FRAGMENTS.get(name);
+		if(ret!=null){
+			HITS.incrementAndGet();
+			return ret;
+		}
+
+		String loaded = load(name);
+		ret = FRAGMENTS.putIfAbsent(name, loaded);
+		if(ret!=null){
+			HITS.incrementAndGet();
+			return ret;
+		}
+		MISSES.incrementAndGet();
+		return loaded;
+	}
+
+	/**
+	 * Returns the fragment for a license.
+	 * @param license the license
+	 * @return license fragment
+	 * @throws NullPointerException if argument was null
+	 * @throws IllegalArgumentException if the license resource could not be read
+	 */
+	public static String get(Licenses license){
+		Validate.notNull(license);
+		return get(LICENSE_PATH + license.getFileName());
+	}
+
+	/**
+	 * Loads a built-in fragment from the class path.
+	 * @param name the resource name relative to {@link #RESOURCE_PATH}
+	 * @return fragment content
+	 * @throws IllegalArgumentException if the resource does not exist or could not be read
+	 */
+	private static String load(String name){
+		InputStream in = FragmentRegistry.class.getResourceAsStream(RESOURCE_PATH + name);
+		if(in==null){
+			throw new IllegalArgumentException("fragment registry: built-in fragment not found <" + RESOURCE_PATH + name + ">");
+		}
+		try{
+			return IOUtils.toString(in, "UTF-8");
+		}
+		catch(IOException ioex){
+			throw new IllegalArgumentException("fragment registry: could not read built-in fragment <" + RESOURCE_PATH + name + ">, got IOException <" + ioex.getMessage() + ">");
+		}
+		finally{
+			IOUtils.closeQuietly(in);
+		}
+	}
+
+	/**
+	 * Returns the number of requests served from already loaded fragments.
+	 * @return hit count
+	 */
+	public static long getHits(){
+		return HITS.get();
+	}
+
+	/**
+	 * Returns the number of requests that had to load a fragment.
+	 * @return miss count
+	 */
+	public static long getMisses(){
+		return MISSES.get();
+	}
+
+	/**
+	 * Returns the number of loaded fragments.
+	 * @return number of loaded fragments
+	 */
+	public static int size(){
+		return FRAGMENTS.size();
+	}
+}
@@ -0,0 +1,207 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.mvn.pm.model;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.text.StrBuilder;
+
+/**
+ * A manifest file in the project manager work directory, essentially a Java property file with string entries.
+ * Entries can be read and changed concurrently, the file is written sorted by key.
+ * The file is encoded in UTF-8, keys and values are escaped as in Java property files, so any string is read back as it was written.
+ * The file is replaced atomically: it is written to a temporary file next to it and then renamed.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+public class ManifestFile {
+
+	/** The manifest file. */
+	protected final File file;
+
+	/** A header written as comment at the start of the file. */
+	protected final String header;
+
+	/** Manifest entries. */
+	protected final Map<String, String> entries;
+
+	/**
+	 * Creates a new manifest, loading existing entries from the file if it exists.
+	 * @param file the manifest file
+	 * @param header a header for the file, written as a comment
+	 * @throws NullPointerException if any argument was null
+	 * @throws IllegalArgumentException if an existing file could not be read
+	 */
+	public ManifestFile(File file, String header){
+		Validate.notNull(file);
+		Validate.notNull(header);
+		this.file = file;
+		this.header = header;
+		this.entries = new ConcurrentHashMap<>();
+
+		if(this.file.exists()){
+			Properties p = new Properties();
+			Reader in = null;
+			try{
+				in = new InputStreamReader(new FileInputStream(this.file), StandardCharsets.UTF_8);
+				p.load(in);
+			}
+			catch(IOException ioex){
+				throw new IllegalArgumentException("manifest: could not read file <" + this.file + ">, got IOException <" + ioex.getMessage() + ">");
+			}
+			finally{
+				IOUtils.closeQuietly(in);
+			}
+			for(Entry<Object, Object> e : p.entrySet()){
+				this.entries.put(e.getKey().toString(), e.getValue().toString());
+			}
+		}
+	}
+
+	/**
+	 * Returns an entry.
+	 * @param key the entry key
+	 * @return entry value, null if not set
+	 */
+	public String get(String key){
+		return this.entries.get(key);
+	}
+
+	/**
+	 * Sets an entry, removes it if the value is null.
+	 * @param key the entry key
+	 * @param value the entry value, null to remove the entry
+	 */
+	public void put(String key, String value){
+		if(value==null){
+			this.entries.remove(key);
+		}
+		else{
+			this.entries.put(key, value);
+		}
+	}
+
+	/**
+	 * Returns all entry keys.
+	 * @return keys, a copy
+	 */
+	public Set<String> getKeys(){
+		return new TreeSet<>(this.entries.keySet());
+	}
+
+	/**
+	 * Returns the manifest file.
+	 * @return manifest file
+	 */
+	public File getFile(){
+		return this.file;
+	}
+
+	/**
+	 * Saves the manifest, entries are sorted by key.
+	 * @throws IllegalArgumentException if the file could not be written
+	 */
+	public void save(){
+		StrBuilder sb = new StrBuilder();
+		sb.append("## ").append(this.header).appendNewLine();
+		for(Entry<String, String> e : new TreeMap<>(this.entries).entrySet()){
+			sb.append(escape(e.getKey(), true)).append('=').append(escape(e.getValue(), false)).appendNewLine();
+		}
+
+		File tmp = new File(this.file.getPath() + ".tmp");
+		try{
+			this.file.getAbsoluteFile().getParentFile().mkdirs();
+			Files.write(tmp.toPath(), sb.toString().getBytes(StandardCharsets.UTF_8));
+			try{
+				Files.move(tmp.toPath(), this.file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			}
+			catch(AtomicMoveNotSupportedException ex){
+				Files.move(tmp.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+		catch(IOException ioex){
+			FileUtils.deleteQuietly(tmp);
+			throw new IllegalArgumentException("manifest: could not write file <" + this.file + ">, got IOException <" + ioex.getMessage() + ">");
+		}
+	}
+
+	/**
+	 * Escapes a key or value for a property file, as {@link Properties#store(java.io.Writer, String)} does.
+	 * Line terminators, tabs, form feeds, backslashes, and the separator and comment characters are escaped, as are spaces in a key and a leading space in a value.
+	 * Other characters are kept, the file is encoded in UTF-8.
+	 * @param s the key or value
+	 * @param key true for a key, false for a value
+	 * @return escaped string
+	 */
+	protected static String escape(String s, boolean key){
+		StrBuilder ret = new StrBuilder(s.length() + 16);
+		for(int i=0; i<s.length(); i++){
+			char c = s.charAt(i);
+			switch(c){
+				case '\\':
+					ret.append("\\\\");
+					break;
+				case '\t':
+					ret.append("\\t");
+					break;
+				case '\n':
+					ret.append("\\n");
+					break;
+				case '\r':
+					ret.append("\\r");
+					break;
+				case '\f':
+					ret.append("\\f");
+					break;
+				case '=':
+				case ':':
+				case '#':
+				case '!':
+					ret.append('\\').append(c);
+					break;
+				case ' ':
+					if(key || i==0){
+						ret.append('\\');
+					}
+					ret.append(c);
+					break;
+				default:
+					ret.append(c);
+			}
+		}
+		return ret.toString();
+	}
+}
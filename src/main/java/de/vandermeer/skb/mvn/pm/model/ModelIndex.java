@@ -0,0 +1,239 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.mvn.pm.model;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.text.StrBuilder;
+import org.apache.commons.lang3.tuple.Pair;
+
+import de.vandermeer.skb.mvn.ProjectFiles;
+import de.vandermeer.skb.mvn.ProjectProperties;
+
+/**
+ * Index of managed projects for streaming mode, the alternative to a {@link PM_Model} for very large workspaces.
+ *
+ * Indexing is the first pass: the PM directory of every project is tested, but of its property file only identifier, coordinates, and dependencies are read ({@link #INDEX_KEYS}), no project is created.
+ * The coordinates are registered in the model context, the index only keeps the PM identifier and base directory of each project, plus requested dependencies that were not known when they were read.
+ * All dependencies are tested once all projects are registered, so missing keys and unknown dependencies are reported before any POM file is written.
+ * All other problems of a project (for instance an unknown license) are only reported when it is loaded in the second pass.
+ *
+ * The second pass loads one project at a time ({@link #load(String)}), with resolved dependencies, to be rendered, written, and released.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+public class ModelIndex {
+
+	/** The project properties read by the index, all of them required. */
+	public static final ProjectProperties[] INDEX_KEYS = new ProjectProperties[]{
+			ProjectProperties.PM_ID, ProjectProperties.MVN_GROUP_ID, ProjectProperties.MVN_ARTIFACT_ID, ProjectProperties.MVN_VERSION
+	};
+
+	/** Model context, everything the model needs to know. */
+	protected final PM_Context mc;
+
+	/** Mapping of identifier to project base directory, sorted as the projects of a model. */
+	protected final Map<String, File> projects;
+
+	/**
+	 * Creates a new empty index.
+	 * @param mc model context
+	 * @throws NullPointerException if argument was null
+	 */
+	public ModelIndex(PM_Context mc){
+		Validate.notNull(mc);
+		this.mc = mc;
+
+		this.projects = new TreeMap<>();
+	}
+
+	/**
+	 * Indexes all projects of a collection of project folders.
+	 * @param folders collection of project folders
+	 * @throws IOException if read on a property file failed
+	 * @throws FileNotFoundException if a property file was not found
+	 * @throws NullPointerException if the collection or any member was null
+	 * @throws IllegalArgumentException if any project directory was not valid, if any project misses an index key, or if any project uses an unknown dependency
+	 */
+	public void index(Collection<Object> folders) throws FileNotFoundException, IOException{
+		ModelLoader loader;
+		PM_Metrics.Span span = this.mc.getMetrics().startPhase(PM_Metrics.PHASE_CHECK);
+		try{
+			loader = new ModelLoader(this.mc, folders, false);
+		}
+		finally{
+			span.stop();
+		}
+
+		//requested dependencies not known when read, as pairs of project and dependency
+		List<Pair<String, String>> unresolved = new ArrayList<>();
+		span = this.mc.getMetrics().startPhase(PM_Metrics.PHASE_INDEX);
+		try{
+			for(Entry<File, Pair<File, File>> e : loader.getProjectFiles().entrySet()){
+				this.index(e.getKey(), e.getValue().getValue(), unresolved);
+			}
+		}
+		finally{
+			span.stop();
+		}
+
+		StrBuilder error = new StrBuilder();
+		for(Pair<String, String> p : unresolved){
+			if(!this.isKnown(p.getValue())){
+				error.appendSeparator('\n');
+				error.append(Model_ManagedProject.unknownDependency(p.getKey(), p.getValue()));
+			}
+		}
+		if(error.size()>0){
+			throw new IllegalArgumentException("problems updating dependencies, see below\n" + error.toString());
+		}
+	}
+
+	/**
+	 * Indexes a single project, reading only the index keys and the dependencies from its property file.
+	 * @param baseDir project base directory
+	 * @param propertyFile the project property file
+	 * @param unresolved list to add requested dependencies to that are not known yet, as pairs of project and dependency
+	 * @throws IOException if read on the property file failed
+	 * @throws FileNotFoundException if the property file was not found
+	 * @throws IllegalArgumentException if any index key does not exist or is blank
+	 */
+	protected void index(File baseDir, File propertyFile, List<Pair<String, String>> unresolved) throws FileNotFoundException, IOException{
+		Properties properties = new Properties();
+		try(Reader reader = this.mc.getMetrics().newReader(propertyFile)){
+			properties.load(reader);
+		}
+		for(ProjectProperties pp : INDEX_KEYS){
+			Validate.notBlank(properties.getProperty(pp.getPropName()), "<" + propertyFile + "> -> required property does not exist or is blank: <" + pp.getPropName() + ">");
+		}
+
+		String pmId = properties.getProperty(ProjectProperties.PM_ID.getPropName());
+		this.mc.registerManagedProject(new Ctxt_DependencyVersion(pmId,
+				properties.getProperty(ProjectProperties.MVN_GROUP_ID.getPropName()) + " "
+				+ properties.getProperty(ProjectProperties.MVN_ARTIFACT_ID.getPropName()) + " "
+				+ properties.getProperty(ProjectProperties.MVN_VERSION.getPropName())
+		));
+		this.projects.put(pmId, baseDir);
+
+		String deps = properties.getProperty(ProjectProperties.PM_DEPENDENCIES.getPropName());
+		if(deps!=null){
+			for(String dep : StringUtils.split(deps)){
+				if(!this.isKnown(dep)){
+					unresolved.add(Pair.of(pmId, dep));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Tests if a requested dependency has a version definition.
+	 * @param dep the requested dependency, identifier with optional scope
+	 * @return true if a version is defined, false otherwise
+	 */
+	protected boolean isKnown(String dep){
+		return this.mc.getDependencyVersions().get(StringUtils.split(dep, "/")[0])!=null;
+	}
+
+	/**
+	 * Loads a single indexed project with resolved dependencies, measured as project stages {@link PM_Metrics#PHASE_LOAD} and {@link PM_Metrics#PHASE_RESOLVE}.
+	 * The index does not keep the project.
+	 * @param pmId the PM identifier of the project
+	 * @return the loaded project
+	 * @throws IOException if read on the property file failed
+	 * @throws FileNotFoundException if the property file was not found
+	 * @throws IllegalArgumentException if the project is not indexed, or could not be loaded or resolved (for instance if it changed since it was indexed)
+	 */
+	public Model_ManagedProject load(String pmId) throws FileNotFoundException, IOException{
+		File baseDir = this.projects.get(pmId);
+		Validate.isTrue(baseDir!=null, "project <" + pmId + "> is not indexed");
+		File pmDir = new File(baseDir + File.separator + this.mc.getProjectPmDir());
+
+		Model_ManagedProject ret;
+		PM_Metrics.Span span = this.mc.getMetrics().startProject(PM_Metrics.PHASE_LOAD, pmId);
+		try{
+			ret = new Model_ManagedProject(this.mc, baseDir, pmDir, new File(pmDir + File.separator + ProjectFiles.MANAGED_PROJECT_PROPERTIES.getFileName()));
+		}
+		finally{
+			span.stop();
+		}
+		Validate.isTrue(pmId.equals(ret.getPmId()), "project <" + pmId + "> changed its identifier to <" + ret.getPmId() + "> since it was indexed");
+
+		span = this.mc.getMetrics().startProject(PM_Metrics.PHASE_RESOLVE, pmId);
+		StrBuilder error;
+		try{
+			error = ret.updateDependencies();
+		}
+		finally{
+			span.stop();
+		}
+		if(error.size()>0){
+			throw new IllegalArgumentException("problems updating dependencies, see below\n" + error.toString());
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns the identifiers of all indexed projects, in the order of the projects of a model.
+	 * @return project identifiers
+	 */
+	public Set<String> getPmIds(){
+		return Collections.unmodifiableSet(this.projects.keySet());
+	}
+
+	/**
+	 * Returns the POM file of an indexed project, without loading the project.
+	 * @param pmId the PM identifier of the project
+	 * @return POM file in the project base directory
+	 * @throws IllegalArgumentException if the project is not indexed
+	 */
+	public File getPomFile(String pmId){
+		File baseDir = this.projects.get(pmId);
+		Validate.isTrue(baseDir!=null, "project <" + pmId + "> is not indexed");
+		return new File(baseDir + File.separator + "pom.xml");
+	}
+
+	/**
+	 * Returns the number of indexed projects.
+	 * @return number of projects
+	 */
+	public int size(){
+		return this.projects.size();
+	}
+
+	/**
+	 * Returns the model context.
+	 * @return model context
+	 */
+	public PM_Context getModelContext(){
+		return this.mc;
+	}
+}
@@ -16,7 +16,13 @@
 package de.vandermeer.skb.mvn.pm.model;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -41,18 +47,35 @@ public class ModelLoader {
 	/** The loaded (checked) map of project directory to a pair with project PM directory and main configuration file. */
 	protected final Map<File, Pair<File, File>> projectFiles;
 
+	/** The listing of the PM directory for each loaded (checked) project directory. */
+	protected final Map<File, PmDirectoryListing> listings;
+
 	/**
 	 * Creates a new model loader.
+	 * Every PM directory is listed once, all further tests are done against the listing.
 	 * @param mc model context
 	 * @param folders collection of project folders
 	 * @throws NullPointerException if the collection or any member was null
 	 * @throws IllegalArgumentException if any collection member resulted in a was a blank string or pointed to an unreadable/unwritable directory
 	 */
 	public ModelLoader(PM_Context mc, Collection<Object> folders){
+		this(mc, folders, true);
+	}
+
+	/**
+	 * Creates a new model loader, optionally without keeping the listings of the PM directories (for instance for a {@link ModelIndex}).
+	 * @param mc model context
+	 * @param folders collection of project folders
+	 * @param keepListings true to keep the listing of every PM directory, false to only test the directories
+	 * @throws NullPointerException if the collection or any member was null
+	 * @throws IllegalArgumentException if any collection member resulted in a was a blank string or pointed to an unreadable/unwritable directory
+	 */
+	public ModelLoader(PM_Context mc, Collection<Object> folders, boolean keepListings){
 		Validate.notNull(mc);
 		this.mc = mc;
 
 		this.projectFiles = new LinkedHashMap<>();
+		this.listings = new HashMap<>();
 
 		StrBuilder errors = new StrBuilder();
 		StrBuilder _err;
@@ -70,11 +93,15 @@ public class ModelLoader {
 			_err = this.testProjectDirectory(prjDir);
 			errors.append(_err);
 			if(_err.size()==0){
-				_err = this.testProjectPmDirectory(this.projectFiles.get(prjDir).getKey());
+				_err = new StrBuilder();
+				PmDirectoryListing listing = this.listProjectPmDirectory(this.projectFiles.get(prjDir).getKey(), _err);
 				errors.append(_err);
-				if(_err.size()==0){
-					_err = this.testProjectPmFiles(this.projectFiles.get(prjDir).getValue());
+				if(listing!=null){
+					_err = this.testProjectPmFiles(listing, this.projectFiles.get(prjDir).getValue());
 					errors.append(_err);
+					if(keepListings){
+						this.listings.put(prjDir, listing);
+					}
 				}
 			}
 		}
@@ -92,17 +119,25 @@ public class ModelLoader {
 	protected StrBuilder testProjectDirectory(File prjDir){
 		StrBuilder errors = new StrBuilder();
 
-		//do individual texts to provide specific error messages (is there are better way to do that?)
-		if(!prjDir.exists()){
+		//one stat for existence and type, access tests only for an existing directory
+		BasicFileAttributes attrs;
+		try{
+			attrs = Files.readAttributes(prjDir.toPath(), BasicFileAttributes.class);
+		}
+		catch(IOException ex){
+			attrs = null;
+		}
+
+		if(attrs==null){
 			errors.append("project directory does not exist: <").append(prjDir).append('>').appendNewLine();
 		}
-		else if(!prjDir.isDirectory()){
+		else if(!attrs.isDirectory()){
 			errors.append("project directory is not a directory: <").append(prjDir).append('>').appendNewLine();
 		}
-		else if(!prjDir.canRead()){
+		else if(!Files.isReadable(prjDir.toPath())){
 			errors.append("project directory not readable: <").append(prjDir).append('>').appendNewLine();
 		}
-		else if(!prjDir.canWrite()){
+		else if(!Files.isWritable(prjDir.toPath())){
 			errors.append("project directory not writable: <").append(prjDir).append('>').appendNewLine();
 		}
 
@@ -110,45 +145,55 @@ public class ModelLoader {
 	}
 
 	/**
-	 * Tests the PM directory in the project.
-	 * @param pmDir PM directory to test
-	 * @return errors if any occurred, empty if all was ok
+	 * Lists the PM directory in the project, which also tests it.
+	 * @param pmDir PM directory to list
+	 * @param errors errors, appended if the directory could not be listed
+	 * @return the listing, null if the directory could not be listed
 	 */
-	protected StrBuilder testProjectPmDirectory(File pmDir){
-		StrBuilder errors = new StrBuilder();
-
-		//do individual texts to provide specific error messages (is there are better way to do that?)
-		if(!pmDir.exists()){
+	protected PmDirectoryListing listProjectPmDirectory(File pmDir, StrBuilder errors){
+		try{
+			return new PmDirectoryListing(pmDir);
+		}
+		catch(NoSuchFileException ex){
 			errors.append("PM directory does not exist: <").append(pmDir).append('>').appendNewLine();
 		}
-		else if(!pmDir.isDirectory()){
+		catch(NotDirectoryException ex){
 			errors.append("PM directory is not a directory: <").append(pmDir).append('>').appendNewLine();
 		}
-		else if(!pmDir.canRead()){
+		catch(IOException ex){
 			errors.append("PM directory not readable: <").append(pmDir).append('>').appendNewLine();
 		}
-
-		return errors;
+		return null;
 	}
 
 	/**
 	 * Tests a PM project property file.
+	 * @param listing the listing of the PM directory
 	 * @param pp the file to test
 	 * @return errors if any occurred, empty if all was ok
 	 */
-	protected StrBuilder testProjectPmFiles(File pp){
+	protected StrBuilder testProjectPmFiles(PmDirectoryListing listing, File pp){
 		StrBuilder errors = new StrBuilder();
 
-		if(!pp.exists()){
+		if(!listing.isFile(pp.getName())){
 			errors.append("project property file does not exist: <").append(pp).append('>').appendNewLine();
 		}
-		else if(!pp.canRead()){
+		else if(!Files.isReadable(pp.toPath())){
 			errors.append("cannot read project property file: <").append(pp).append('>').appendNewLine();
 		}
 
 		return errors;
 	}
 
+	/**
+	 * Returns the listing of the PM directory of a loaded project.
+	 * @param prjDir the project directory
+	 * @return listing, null if the project directory was not loaded or listings are not kept
+	 */
+	public PmDirectoryListing getListing(File prjDir){
+		return this.listings.get(prjDir);
+	}
+
 	/**
 	 * Returns the map of loaded project files
 	 * @return loaded project files map
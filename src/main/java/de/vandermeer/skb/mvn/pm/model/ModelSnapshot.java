@@ -0,0 +1,424 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.mvn.pm.model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.text.StrBuilder;
+
+import de.vandermeer.skb.mvn.Licenses;
+import de.vandermeer.skb.mvn.PmConstants;
+import de.vandermeer.skb.mvn.ProjectFiles;
+import de.vandermeer.skb.mvn.ProjectProperties;
+
+/**
+ * A binary snapshot of all loaded managed projects, to restore a model without reading every project's files again.
+ *
+ * The snapshot records size, modification time, and a content hash of every input: the projects file, each project's PM directory, property file, other project files, plugin and profile files.
+ * Inputs are compared by size and modification time, the content hash is only tested for inputs modified within {@link #RACY_WINDOW} before the snapshot was written,
+ * since a change in the same timestamp tick (or in the resolution of the file system) does not change the modification time.
+ * The version files are not inputs, since the snapshot does not store any version information.
+ * It is only used if all inputs are unchanged, the configuration (configuration directory, PM directory, project folders) is the same,
+ * and the property/file/license definitions of the project manager did not change.
+ * The snapshot content is protected by a CRC32 checksum, and it is read through a memory-mapped buffer.
+ * Dependencies are not stored, they are resolved again after a restore (in memory, no files are read).
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+public class ModelSnapshot {
+
+	/** Magic number at the start of a snapshot file ("PMS1"). */
+	protected static final int MAGIC = 0x504d5331;
+
+	/** Version of the snapshot format. */
+	protected static final int VERSION = 2;
+
+	/** Time in milliseconds before writing a snapshot in which inputs are racy, their content hash is tested on restore; covers timestamp resolutions up to 2 seconds. */
+	public static final long RACY_WINDOW = 2000;
+
+	/** Header size: magic, version, checksum, payload length. */
+	protected static final int HEADER_SIZE = 4 + 4 + 8 + 4;
+
+	/** The snapshot file. */
+	protected final File file;
+
+	/** Checksum of the snapshot last read or written, 0 if none. */
+	protected long checksum;
+
+	/**
+	 * Creates a new snapshot for a file.
+	 * @param file the snapshot file
+	 * @throws NullPointerException if argument was null
+	 */
+	public ModelSnapshot(File file){
+		Validate.notNull(file);
+		this.file = file;
+	}
+
+	/**
+	 * Returns the snapshot file.
+	 * @return snapshot file
+	 */
+	public File getFile(){
+		return this.file;
+	}
+
+	/**
+	 * Returns the checksum of the snapshot last restored or written, identifying the state of all project inputs.
+	 * @return checksum, 0 if no snapshot was restored or written
+	 */
+	public long getChecksum(){
+		return this.checksum;
+	}
+
+	/**
+	 * Returns the schema of the snapshot, all definitions stored by name or ordinal.
+	 * @return schema
+	 */
+	protected static String getSchema(){
+		StrBuilder ret = new StrBuilder();
+		ret.appendWithSeparators(ProjectProperties.values(), ",").append(';');
+		ret.appendWithSeparators(ProjectFiles.values(), ",").append(';');
+		ret.appendWithSeparators(Licenses.values(), ",");
+		return ret.toString();
+	}
+
+	/**
+	 * Returns all inputs of a model, that is all files and directories that were read to load it.
+	 * @param model the model
+	 * @param configDir the configuration directory
+	 * @return all inputs
+	 */
+	protected static Set<File> getInputs(PM_Model model, File configDir){
+		Set<File> ret = new LinkedHashSet<>();
+		ret.add(new File(configDir, PmConstants.PROJECTS_FILE));
+		for(Model_ManagedProject mp : model.getManagedProjects()){
+			//directory modification time changes if files are added or removed
+			ret.add(mp.getPmDir());
+			ret.add(mp.getProjectPropertyFile());
+			ret.addAll(mp.getOtherProjectFiles().values());
+			ret.addAll(mp.getPlugins());
+			ret.addAll(mp.getProfiles());
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns a fingerprint of all inputs of a loaded model, including the version files, from size and modification time only (no file is read).
+	 * The fingerprint changes if any input or version file was changed, added, or removed.
+	 * @param model the loaded model
+	 * @param configDir the configuration directory
+	 * @return fingerprint of all inputs
+	 * @throws IOException if the attributes of any input could not be read
+	 */
+	public static long getFingerprint(PM_Model model, File configDir) throws IOException{
+		Set<File> inputs = getInputs(model, configDir);
+		inputs.add(new File(configDir, PmConstants.DEPENDENCY_VERSIONS_FILE));
+		inputs.add(new File(configDir, PmConstants.PLUGIN_VERSIONS_FILE));
+
+		CRC32 crc = new CRC32();
+		ByteBuffer buf = ByteBuffer.allocate(16);
+		for(File f : inputs){
+			long[] attrs = getAttributes(f);
+			crc.update(f.getPath().getBytes(StandardCharsets.UTF_8));
+			buf.clear();
+			buf.putLong(attrs[0]).putLong(attrs[1]);
+			crc.update(buf.array());
+		}
+		return crc.getValue();
+	}
+
+	/**
+	 * Returns size and modification time of a file or directory.
+	 * @param f the file or directory
+	 * @return size and modification time in milliseconds, both -1 if the file does not exist
+	 * @throws IOException if the attributes could not be read
+	 */
+	protected static long[] getAttributes(File f) throws IOException{
+		try{
+			BasicFileAttributes attrs = Files.readAttributes(f.toPath(), BasicFileAttributes.class);
+			return new long[]{attrs.size(), attrs.lastModifiedTime().toMillis()};
+		}
+		catch(NoSuchFileException ex){
+			return new long[]{-1, -1};
+		}
+	}
+
+	/**
+	 * Returns a content hash of a file or directory: CRC32 of the file content, or of the sorted names in the directory.
+	 * @param f the file or directory
+	 * @return content hash, -1 if the file does not exist
+	 * @throws IOException if the file or directory could not be read
+	 */
+	protected static long getHash(File f) throws IOException{
+		CRC32 crc = new CRC32();
+		if(f.isDirectory()){
+			String[] names = f.list();
+			if(names==null){
+				throw new IOException("could not list directory <" + f + ">");
+			}
+			Arrays.sort(names);
+			for(String name : names){
+				crc.update(name.getBytes(StandardCharsets.UTF_8));
+				crc.update('/');
+			}
+			return crc.getValue();
+		}
+		try(InputStream in = Files.newInputStream(f.toPath())){
+			byte[] b = new byte[8192];
+			int n;
+			while((n = in.read(b))!=-1){
+				crc.update(b, 0, n);
+			}
+		}
+		catch(NoSuchFileException ex){
+			return -1;
+		}
+		return crc.getValue();
+	}
+
+	/**
+	 * Writes a snapshot of a loaded model, replacing an existing snapshot.
+	 * @param model the loaded model
+	 * @param configDir the configuration directory
+	 * @param folders the project folders as given in the projects file
+	 * @return number of bytes written
+	 * @throws IOException if the snapshot could not be written
+	 */
+	public long write(PM_Model model, File configDir, Collection<Object> folders) throws IOException{
+		long written = System.currentTimeMillis();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+
+		this.writeString(out, getSchema());
+		this.writeString(out, configDir.getAbsolutePath());
+		this.writeString(out, model.getModelContext().getProjectPmDir());
+		out.writeInt(folders.size());
+		for(Object o : folders){
+			this.writeString(out, o.toString());
+		}
+
+		out.writeLong(written);
+		Set<File> inputs = getInputs(model, configDir);
+		out.writeInt(inputs.size());
+		for(File f : inputs){
+			long[] attrs = getAttributes(f);
+			this.writeString(out, f.getPath());
+			out.writeLong(attrs[0]);
+			out.writeLong(attrs[1]);
+			out.writeLong(getHash(f));
+		}
+
+		out.writeInt(model.getManagedProjects().size());
+		for(Model_ManagedProject mp : model.getManagedProjects()){
+			this.writeString(out, mp.getBaseDir().getPath());
+			this.writeString(out, mp.getPmDir().getPath());
+			this.writeString(out, mp.getProjectPropertyFile().getPath());
+			String[] values = mp.properties.getValues();
+			out.writeInt(values.length);
+			for(String value : values){
+				this.writeString(out, value);
+			}
+			long[] flags = mp.properties.getFlags().toLongArray();
+			out.writeInt(flags.length);
+			for(long l : flags){
+				out.writeLong(l);
+			}
+			out.writeInt(mp.getOtherProjectFiles().size());
+			for(ProjectFiles pf : mp.getOtherProjectFiles().keySet()){
+				out.writeInt(pf.ordinal());
+			}
+		}
+		out.flush();
+
+		this.checksum = 0;
+		byte[] payload = bytes.toByteArray();
+		CRC32 crc = new CRC32();
+		crc.update(payload);
+
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.putInt(MAGIC).putInt(VERSION).putLong(crc.getValue()).putInt(payload.length);
+		header.flip();
+
+		this.file.getAbsoluteFile().getParentFile().mkdirs();
+		File tmp = new File(this.file.getPath() + ".tmp");
+		try(FileChannel channel = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)){
+			ByteBuffer body = ByteBuffer.wrap(payload);
+			while(header.hasRemaining() || body.hasRemaining()){
+				channel.write(new ByteBuffer[]{header, body});
+			}
+		}
+		try{
+			Files.move(tmp.toPath(), this.file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch(AtomicMoveNotSupportedException ex){
+			Files.move(tmp.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		this.checksum = crc.getValue();
+		return HEADER_SIZE + payload.length;
+	}
+
+	/**
+	 * Restores a model from the snapshot, if the snapshot exists, is intact, and all inputs are unchanged (racy inputs with the same content hash).
+	 * Restored projects are registered in the model context, their dependencies are not yet resolved.
+	 * @param mc the model context, with dependency and plugin versions loaded
+	 * @param configDir the configuration directory
+	 * @param folders the project folders as given in the projects file
+	 * @return restored model, null if there is no usable snapshot
+	 * @throws IOException if the snapshot exists but could not be read
+	 */
+	public PM_Model read(PM_Context mc, File configDir, Collection<Object> folders) throws IOException{
+		this.checksum = 0;
+		if(!this.file.isFile()){
+			return null;
+		}
+
+		ByteBuffer buf;
+		try(FileChannel channel = FileChannel.open(this.file.toPath(), StandardOpenOption.READ)){
+			if(channel.size()<HEADER_SIZE){
+				return null;
+			}
+			MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			buf = mapped;
+		}
+
+		if(buf.getInt()!=MAGIC || buf.getInt()!=VERSION){
+			return null;
+		}
+		long checksum = buf.getLong();
+		int length = buf.getInt();
+		if(length!=buf.remaining()){
+			return null;
+		}
+		CRC32 crc = new CRC32();
+		crc.update(buf.slice());
+		if(crc.getValue()!=checksum){
+			return null;
+		}
+
+		if(!getSchema().equals(this.readString(buf))
+				|| !configDir.getAbsolutePath().equals(this.readString(buf))
+				|| !mc.getProjectPmDir().equals(this.readString(buf))){
+			return null;
+		}
+		int count = buf.getInt();
+		if(count!=folders.size()){
+			return null;
+		}
+		for(Object o : folders){
+			if(!o.toString().equals(this.readString(buf))){
+				return null;
+			}
+		}
+
+		long written = buf.getLong();
+		count = buf.getInt();
+		for(int i=0; i<count; i++){
+			File f = new File(this.readString(buf));
+			long[] attrs = getAttributes(f);
+			if(attrs[0]!=buf.getLong() || attrs[1]!=buf.getLong()){
+				return null;
+			}
+			long hash = buf.getLong();
+			if(attrs[1]>=written - RACY_WINDOW && getHash(f)!=hash){
+				return null;
+			}
+		}
+
+		//all valid, now restore the projects
+		ProjectFiles[] projectFiles = ProjectFiles.values();
+		PM_Model ret = new PM_Model(mc);
+		count = buf.getInt();
+		for(int i=0; i<count; i++){
+			File baseDir = new File(this.readString(buf));
+			File pmDir = new File(this.readString(buf));
+			File propertyFile = new File(this.readString(buf));
+			String[] values = new String[buf.getInt()];
+			for(int k=0; k<values.length; k++){
+				values[k] = this.readString(buf);
+			}
+			long[] flags = new long[buf.getInt()];
+			for(int k=0; k<flags.length; k++){
+				flags[k] = buf.getLong();
+			}
+			List<ProjectFiles> otherFiles = new ArrayList<>();
+			int others = buf.getInt();
+			for(int k=0; k<others; k++){
+				otherFiles.add(projectFiles[buf.getInt()]);
+			}
+			Model_ManagedProject mp = new Model_ManagedProject(mc, baseDir, pmDir, propertyFile, new Model_ProjectProperties(values, BitSet.valueOf(flags)), otherFiles);
+			ret.add(mp);
+		}
+		this.checksum = checksum;
+		return ret;
+	}
+
+	/**
+	 * Writes a string: length of the UTF-8 encoding (-1 for null) followed by the encoding.
+	 * @param out the output
+	 * @param s the string, can be null
+	 * @throws IOException if writing failed
+	 */
+	protected void writeString(DataOutputStream out, String s) throws IOException{
+		if(s==null){
+			out.writeInt(-1);
+			return;
+		}
+		byte[] b = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(b.length);
+		out.write(b);
+	}
+
+	/**
+	 * Reads a string written by {@link #writeString(DataOutputStream, String)}.
+	 * @param buf the buffer
+	 * @return the string, null if null was written
+	 */
+	protected String readString(ByteBuffer buf){
+		int length = buf.getInt();
+		if(length<0){
+			return null;
+		}
+		byte[] b = new byte[length];
+		buf.get(b);
+		return new String(b, StandardCharsets.UTF_8);
+	}
+}
@@ -17,8 +17,9 @@ package de.vandermeer.skb.mvn.pm.model;
 
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -58,12 +59,15 @@ public class Model_ManagedProject {
 	/** The PM identifier of the project. */
 	protected final String pmId;
 
-	/** THe project properties as read from the PM configuration file. */
-	protected Properties properties;
+	/** The project properties as read from the PM configuration file. */
+	protected Model_ProjectProperties properties;
 
 	/** Set of dependencies that are defined by the project and for which we have found build version definitions. */
 	protected final Set<Model_Dependency> dependencies;
 
+	/** Identifiers of all dependencies (as used in the dependency version map) for which a version definition was found. */
+	protected final Set<String> dependencyIds;
+
 	/** Project licenses. */
 	protected final Set<Licenses> licenses;
 
@@ -77,7 +81,7 @@ public class Model_ManagedProject {
 	protected final Set<File> profiles;
 
 	/**
-	 * Creates a new Managed Project object.
+	 * Creates a new Managed Project object, listing the PM directory.
 	 * @param mc the model context
 	 * @param baseDir project base directory
 	 * @param pmDir the project PM directory
@@ -85,9 +89,57 @@ public class Model_ManagedProject {
 	 * @throws NullPointerException if any argument was null
 	 * @throws IllegalArgumentException if any sub-method experienced an illegal argument
 	 * @throws FileNotFoundException if any file (property file) was not found
-	 * @throws IOException if reading the property file caused an IO exception
+	 * @throws IOException if listing the PM directory or reading the property file caused an IO exception
 	 */
 	Model_ManagedProject(PM_Context mc, File baseDir, File pmDir, File propertyFile) throws FileNotFoundException, IOException{
+		this(mc, baseDir, new PmDirectoryListing(pmDir), propertyFile);
+	}
+
+	/**
+	 * Creates a new Managed Project object, testing all files against a listing of the PM directory.
+	 * @param mc the model context
+	 * @param baseDir project base directory
+	 * @param listing the listing of the project PM directory
+	 * @param propertyFile the project property file
+	 * @throws NullPointerException if any argument was null
+	 * @throws IllegalArgumentException if any sub-method experienced an illegal argument
+	 * @throws FileNotFoundException if any file (property file) was not found
+	 * @throws IOException if reading the property file caused an IO exception
+	 */
+	Model_ManagedProject(PM_Context mc, File baseDir, PmDirectoryListing listing, File propertyFile) throws FileNotFoundException, IOException{
+		this(mc, baseDir, listing.getDir(), listing, propertyFile, null, null);
+	}
+
+	/**
+	 * Creates a new Managed Project object from already loaded properties (for instance from a {@link ModelSnapshot}), files are not tested.
+	 * @param mc the model context
+	 * @param baseDir project base directory
+	 * @param pmDir the project PM directory
+	 * @param propertyFile the project property file
+	 * @param properties the loaded project properties
+	 * @param otherFiles the other project files that exist in the PM directory
+	 * @throws NullPointerException if any argument was null
+	 * @throws IllegalArgumentException if any sub-method experienced an illegal argument
+	 */
+	Model_ManagedProject(PM_Context mc, File baseDir, File pmDir, File propertyFile, Model_ProjectProperties properties, Collection<ProjectFiles> otherFiles) throws FileNotFoundException, IOException{
+		this(mc, baseDir, pmDir, null, propertyFile, Validate.notNull(properties), Validate.notNull(otherFiles));
+	}
+
+	/**
+	 * Creates a new Managed Project object, either loading and testing against a listing or from already loaded properties.
+	 * @param mc the model context
+	 * @param baseDir project base directory
+	 * @param pmDir the project PM directory
+	 * @param listing the listing of the PM directory, null if properties and other files are given
+	 * @param propertyFile the project property file
+	 * @param properties the loaded project properties, only used without listing
+	 * @param otherFiles the other project files that exist in the PM directory, only used without listing
+	 * @throws NullPointerException if any required argument was null
+	 * @throws IllegalArgumentException if any sub-method experienced an illegal argument
+	 * @throws FileNotFoundException if any file (property file) was not found
+	 * @throws IOException if reading the property file caused an IO exception
+	 */
+	private Model_ManagedProject(PM_Context mc, File baseDir, File pmDir, PmDirectoryListing listing, File propertyFile, Model_ProjectProperties properties, Collection<ProjectFiles> otherFiles) throws FileNotFoundException, IOException{
 		Validate.notNull(mc);
 		Validate.notNull(baseDir);
 		Validate.notNull(pmDir);
@@ -98,15 +150,22 @@ public class Model_ManagedProject {
 		this.pmDir = pmDir;
 		this.projectPropertyFile = propertyFile;
 
-		this.loadProperties();
-		this.pmId = this.properties.getProperty(ProjectProperties.PM_ID.getPropName());
+		boolean test = (listing!=null);
+		if(test){
+			this.loadProperties();
+		}
+		else{
+			this.properties = properties;
+		}
+		this.pmId = this.properties.get(ProjectProperties.PM_ID);
 
-		this.mc.getDependencyVersions().put(this.getPmId(), new Ctxt_DependencyVersion(this.pmId, this.getMvnGroupId() + " " + this.getMvnArtifactId() + " " + this.getMvnVersion()));
+		this.mc.registerManagedProject(new Ctxt_DependencyVersion(this.pmId, this.getMvnGroupId() + " " + this.getMvnArtifactId() + " " + this.getMvnVersion()));
 
 		this.dependencies = new LinkedHashSet<>();
+		this.dependencyIds = new LinkedHashSet<>();
 		this.licenses = new LinkedHashSet<>();
-		if(this.properties.getProperty(ProjectProperties.PM_LICENSES.getPropName())!=null){
-			for(String l : StringUtils.split(this.properties.getProperty(ProjectProperties.PM_LICENSES.getPropName()))){
+		if(this.properties.get(ProjectProperties.PM_LICENSES)!=null){
+			for(String l : StringUtils.split(this.properties.get(ProjectProperties.PM_LICENSES))){
 				try{
 					this.licenses.add(Licenses.valueOf(l));
 				}
@@ -118,21 +177,20 @@ public class Model_ManagedProject {
 
 		//get all other files from the pm directory
 		this.otherProjectFiles = new LinkedHashMap<>();
-		for(ProjectFiles pf : ProjectFiles.values()){
+		for(ProjectFiles pf : (test)?Arrays.asList(ProjectFiles.values()):otherFiles){
 			if(pf!=ProjectFiles.MANAGED_PROJECT_PROPERTIES){
-				File f = new File(this.pmDir + File.separator + pf.getFileName());
-				if(f.exists() && f.canRead()){
-					this.otherProjectFiles.put(pf, f);
+				if(!test || listing.isFile(pf.getFileName())){
+					this.otherProjectFiles.put(pf, new File(this.pmDir + File.separator + pf.getFileName()));
 				}
 			}
 		}
 
 		//get all plugin files requires
 		this.plugins = new LinkedHashSet<>();
-		if(this.properties.getProperty(ProjectProperties.PM_PLUGINS.getPropName())!=null){
-			for(String fn : StringUtils.split(this.properties.getProperty(ProjectProperties.PM_PLUGINS.getPropName()))){
+		if(this.properties.get(ProjectProperties.PM_PLUGINS)!=null){
+			for(String fn : StringUtils.split(this.properties.get(ProjectProperties.PM_PLUGINS))){
 				File f = new File(this.pmDir + File.separator + fn);
-				if(f.exists() && f.canRead()){
+				if(!test || listing.isFile(fn)){
 					this.plugins.add(f);
 				}
 				else{
@@ -143,10 +201,10 @@ public class Model_ManagedProject {
 
 		//get all profiles requires
 		this.profiles = new LinkedHashSet<>();
-		if(this.properties.getProperty(ProjectProperties.PM_PROFILES.getPropName())!=null){
-			for(String fn : StringUtils.split(this.properties.getProperty(ProjectProperties.PM_PROFILES.getPropName()))){
+		if(this.properties.get(ProjectProperties.PM_PROFILES)!=null){
+			for(String fn : StringUtils.split(this.properties.get(ProjectProperties.PM_PROFILES))){
 				File f = new File(this.pmDir + File.separator + fn);
-				if(f.exists() && f.canRead()){
+				if(!test || listing.isFile(fn)){
 					this.profiles.add(f);
 				}
 				else{
@@ -164,6 +222,30 @@ public class Model_ManagedProject {
 		return this.pmId;
 	}
 
+	/**
+	 * Returns the project base directory.
+	 * @return project base directory
+	 */
+	public File getBaseDir(){
+		return this.baseDir;
+	}
+
+	/**
+	 * Returns the project property file.
+	 * @return project property file
+	 */
+	public File getProjectPropertyFile(){
+		return this.projectPropertyFile;
+	}
+
+	/**
+	 * Returns the project PM directory.
+	 * @return project PM directory
+	 */
+	public File getPmDir(){
+		return this.pmDir;
+	}
+
 	/**
 	 * Checks a list of properties for containing all required properties
 	 * @return true on success (exceptions on error)
@@ -173,38 +255,55 @@ public class Model_ManagedProject {
 	 * @throws IllegalArgumentException if required property in list but value blank 
 	 */
 	protected boolean loadProperties() throws FileNotFoundException, IOException{
-		this.properties = new Properties();
-		this.properties.load(new FileReader(this.projectPropertyFile));
+		Properties properties = new Properties();
+		try(Reader reader = this.mc.getMetrics().newReader(this.projectPropertyFile)){
+			properties.load(reader);
+		}
 		for(ProjectProperties pp : ProjectProperties.getRequried()){
-			Validate.notBlank(this.properties.getProperty(pp.getPropName()), "<" + this.projectPropertyFile + "> -> required property does not exist or is blank: <" + pp.getPropName() + ">");
+			Validate.notBlank(properties.getProperty(pp.getPropName()), "<" + this.projectPropertyFile + "> -> required property does not exist or is blank: <" + pp.getPropName() + ">");
 		}
+		this.properties = new Model_ProjectProperties(properties);
 		return true;
 	}
 
 	/**
 	 * Updates the dependencies, should be called once all projects are loaded.
+	 * Can be called again, for instance after dependency versions changed.
 	 * @return errors, empty if none occurred
 	 */
 	protected StrBuilder updateDependencies(){
 		StrBuilder ret = new StrBuilder();
-		String deps = this.properties.getProperty(ProjectProperties.PM_DEPENDENCIES.getPropName());
+		this.dependencies.clear();
+		this.dependencyIds.clear();
+		String deps = this.properties.get(ProjectProperties.PM_DEPENDENCIES);
 		if(deps!=null){
 			for(String dep : StringUtils.split(deps)){
 				String[] actual = StringUtils.split(dep, "/");
 				String scope = (actual.length==2)?actual[1]:null;
 				if(this.mc.getDependencyVersions().get(actual[0])==null){
-					ret.append("project <" + this.pmId + "> uses unkown dependency <" + dep + "> - check project's '" + ProjectProperties.PM_DEPENDENCIES.getPropName() + "'");
+					ret.append(Model_ManagedProject.unknownDependency(this.pmId, dep));
 					ret.appendNewLine();
 				}
 				else{
 					Model_Dependency md = new Model_Dependency(this.mc.getDependencyVersions().get(actual[0]), scope);
 					this.dependencies.add(md);
+					this.dependencyIds.add(actual[0]);
 				}
 			}
 		}
 		return ret;
 	}
 
+	/**
+	 * Returns the error for a requested dependency without version definition.
+	 * @param pmId the PM identifier of the project
+	 * @param dep the requested dependency, identifier with optional scope
+	 * @return error message
+	 */
+	protected static String unknownDependency(String pmId, String dep){
+		return "project <" + pmId + "> uses unkown dependency <" + dep + "> - check project's '" + ProjectProperties.PM_DEPENDENCIES.getPropName() + "'";
+	}
+
 	/**
 	 * Returns the model context.
 	 * @return model context
@@ -218,7 +317,7 @@ public class Model_ManagedProject {
 	 * @return MVN groupID
 	 */
 	public String getMvnGroupId(){
-		return this.properties.getProperty(ProjectProperties.MVN_GROUP_ID.getPropName());
+		return this.properties.get(ProjectProperties.MVN_GROUP_ID);
 	}
 
 	/**
@@ -226,7 +325,7 @@ public class Model_ManagedProject {
 	 * @return MVN artifactID
 	 */
 	public String getMvnArtifactId(){
-		return this.properties.getProperty(ProjectProperties.MVN_ARTIFACT_ID.getPropName());
+		return this.properties.get(ProjectProperties.MVN_ARTIFACT_ID);
 	}
 
 	/**
@@ -234,7 +333,7 @@ public class Model_ManagedProject {
 	 * @return MVN version
 	 */
 	public String getMvnVersion(){
-		return this.properties.getProperty(ProjectProperties.MVN_VERSION.getPropName());
+		return this.properties.get(ProjectProperties.MVN_VERSION);
 	}
 
 	/**
@@ -242,7 +341,7 @@ public class Model_ManagedProject {
 	 * @return MVN packaging, default value as defined in {@link ProjectProperties#MVN_PACKAGING}
 	 */
 	public String getMvnPackaging(){
-		return this.properties.getProperty(ProjectProperties.MVN_PACKAGING.getPropName(), ProjectProperties.MVN_PACKAGING.getDefaultValue());
+		return this.properties.get(ProjectProperties.MVN_PACKAGING);
 	}
 
 	/**
@@ -250,7 +349,7 @@ public class Model_ManagedProject {
 	 * @return MVN name
 	 */
 	public String getMvnName(){
-		return this.properties.getProperty(ProjectProperties.MVN_NAME.getPropName());
+		return this.properties.get(ProjectProperties.MVN_NAME);
 	}
 
 	/**
@@ -258,7 +357,7 @@ public class Model_ManagedProject {
 	 * @return MVN description
 	 */
 	public String getMvnDescription(){
-		return this.properties.getProperty(ProjectProperties.MVN_DESCRIPTION.getPropName());
+		return this.properties.get(ProjectProperties.MVN_DESCRIPTION);
 	}
 
 	/**
@@ -266,7 +365,7 @@ public class Model_ManagedProject {
 	 * @return MVN url
 	 */
 	public String getMvnUrl(){
-		return this.properties.getProperty(ProjectProperties.MVN_URL.getPropName());
+		return this.properties.get(ProjectProperties.MVN_URL);
 	}
 
 	/**
@@ -274,7 +373,7 @@ public class Model_ManagedProject {
 	 * @return MVN inceptionYear
 	 */
 	public String getMvnInceptionYear(){
-		return this.properties.getProperty(ProjectProperties.MVN_INCEPTION_YEAR.getPropName());
+		return this.properties.get(ProjectProperties.MVN_INCEPTION_YEAR);
 	}
 
 	/**
@@ -285,12 +384,21 @@ public class Model_ManagedProject {
 		return this.dependencies;
 	}
 
+	/**
+	 * Returns the identifiers of all coordinated dependencies, as used in the dependency version map of the context.
+	 * Identifiers of other managed projects are their PM identifiers.
+	 * @return identifiers of coordinated dependencies, empty if none found or dependencies not yet updated
+	 */
+	public Set<String> getDependencyIds(){
+		return this.dependencyIds;
+	}
+
 	/**
 	 * Returns the MVN organization name
 	 * @return MVN organization name
 	 */
 	public String getMvnOrgName(){
-		return this.properties.getProperty(ProjectProperties.MVN_ORGANIZATION_NAME.getPropName());
+		return this.properties.get(ProjectProperties.MVN_ORGANIZATION_NAME);
 	}
 
 	/**
@@ -298,7 +406,7 @@ public class Model_ManagedProject {
 	 * @return MVN organization url
 	 */
 	public String getMvnOrgUrl(){
-		return this.properties.getProperty(ProjectProperties.MVN_ORGANIZATION_URL.getPropName());
+		return this.properties.get(ProjectProperties.MVN_ORGANIZATION_URL);
 	}
 
 	/**
@@ -306,7 +414,7 @@ public class Model_ManagedProject {
 	 * @return true if the project wants to use bundle-doc profile, false otherwise
 	 */
 	public boolean doesBundleDocs(){
-		return (this.properties.getProperty(ProjectProperties.PM_DO_BUNDLE_DOC.getPropName())!=null)?true:false;
+		return this.properties.is(ProjectProperties.PM_DO_BUNDLE_DOC);
 	}
 
 	/**
@@ -314,7 +422,7 @@ public class Model_ManagedProject {
 	 * @return true if the project wants to use the standard maven site plugin, false otherwise
 	 */
 	public boolean wantsSitePlugin(){
-		return (this.properties.getProperty(ProjectProperties.PM_USE_MAVEN_SITE_PLUGIN.getPropName())!=null)?true:false;
+		return this.properties.is(ProjectProperties.PM_USE_MAVEN_SITE_PLUGIN);
 	}
 
 	/**
@@ -322,7 +430,7 @@ public class Model_ManagedProject {
 	 * @return compiler source property
 	 */
 	public String getMvnCompilerSource(){
-		return this.properties.getProperty(ProjectProperties.MVN_PROPERTIES_COMPILER_SOURCE.getPropName());
+		return this.properties.get(ProjectProperties.MVN_PROPERTIES_COMPILER_SOURCE);
 	}
 
 	/**
@@ -330,7 +438,7 @@ public class Model_ManagedProject {
 	 * @return compiler target property
 	 */
 	public String getMvnCompilerTarget(){
-		return this.properties.getProperty(ProjectProperties.MVN_PROPERTIES_COMPILER_TARGET.getPropName());
+		return this.properties.get(ProjectProperties.MVN_PROPERTIES_COMPILER_TARGET);
 	}
 
 	/**
@@ -338,7 +446,7 @@ public class Model_ManagedProject {
 	 * @return encoding property
 	 */
 	public String getMvnEncoding(){
-		return this.properties.getProperty(ProjectProperties.MVN_PROPERTIES_ENCODING.getPropName());
+		return this.properties.get(ProjectProperties.MVN_PROPERTIES_ENCODING);
 	}
 
 	/**
@@ -378,7 +486,7 @@ public class Model_ManagedProject {
 	 * @return issue management -url
 	 */
 	public String getMvnIssueMgmtUrl(){
-		return this.properties.getProperty(ProjectProperties.MVN_ISSUE_MANAGEMENT_URL.getPropName());
+		return this.properties.get(ProjectProperties.MVN_ISSUE_MANAGEMENT_URL);
 	}
 
 	/**
@@ -386,7 +494,7 @@ public class Model_ManagedProject {
 	 * @return issue management -system
 	 */
 	public String getMvnIssueMgmtSystem(){
-		return this.properties.getProperty(ProjectProperties.MVN_ISSUE_MANAGEMENT_SYSTEM.getPropName());
+		return this.properties.get(ProjectProperties.MVN_ISSUE_MANAGEMENT_SYSTEM);
 	}
 
 	/**
@@ -394,7 +502,7 @@ public class Model_ManagedProject {
 	 * @return SCM developer connection
 	 */
 	public String getMvnScmDeveloperConnection(){
-		return this.properties.getProperty(ProjectProperties.MVN_SCM_DEVELOPER_CONNECTION.getPropName());
+		return this.properties.get(ProjectProperties.MVN_SCM_DEVELOPER_CONNECTION);
 	}
 
 	/**
@@ -402,7 +510,7 @@ public class Model_ManagedProject {
 	 * @return SCM connection
 	 */
 	public String getMvnScmConnection(){
-		return this.properties.getProperty(ProjectProperties.MVN_SCM_CONNECTION.getPropName());
+		return this.properties.get(ProjectProperties.MVN_SCM_CONNECTION);
 	}
 
 	/**
@@ -410,7 +518,7 @@ public class Model_ManagedProject {
 	 * @return SCM url
 	 */
 	public String getMvnScmUrl(){
-		return this.properties.getProperty(ProjectProperties.MVN_SCM_URL.getPropName());
+		return this.properties.get(ProjectProperties.MVN_SCM_URL);
 	}
 
 	/**
@@ -418,7 +526,7 @@ public class Model_ManagedProject {
 	 * @return true if required, false otherwise
 	 */
 	public boolean wantsJarPLugin(){
-		return (this.properties.getProperty(ProjectProperties.PM_USE_JAR_PLUGIN.getPropName())!=null)?true:false;
+		return this.properties.is(ProjectProperties.PM_USE_JAR_PLUGIN);
 	}
 
 	/**
@@ -426,7 +534,7 @@ public class Model_ManagedProject {
 	 * @return true if required, false otherwise
 	 */
 	public boolean wantsSourceProfile(){
-		return (this.properties.getProperty(ProjectProperties.PM_USE_SRC_PROFILE.getPropName())!=null)?true:false;
+		return this.properties.is(ProjectProperties.PM_USE_SRC_PROFILE);
 	}
 
 	/**
@@ -434,7 +542,7 @@ public class Model_ManagedProject {
 	 * @return true if required, false otherwise
 	 */
 	public boolean wantsCompilerPlugin(){
-		return (this.properties.getProperty(ProjectProperties.PM_USE_COMPILER_PLUGIN.getPropName())!=null)?true:false;
+		return this.properties.is(ProjectProperties.PM_USE_COMPILER_PLUGIN);
 	}
 
 	/**
@@ -442,7 +550,7 @@ public class Model_ManagedProject {
 	 * @return true if required, false otherwise
 	 */
 	public boolean wantsJavadocProfile(){
-		return (this.properties.getProperty(ProjectProperties.PM_USE_JAVADOC_PROFILE.getPropName())!=null)?true:false;
+		return this.properties.is(ProjectProperties.PM_USE_JAVADOC_PROFILE);
 	}
 
 	/**
@@ -450,6 +558,6 @@ public class Model_ManagedProject {
 	 * @return true if required, false otherwise
 	 */
 	public boolean wantsJavadocAdocProfile(){
-		return (this.properties.getProperty(ProjectProperties.PM_USE_JAVADOC_ADOC_PROFILE.getPropName())!=null)?true:false;
+		return this.properties.is(ProjectProperties.PM_USE_JAVADOC_ADOC_PROFILE);
 	}
 }
@@ -0,0 +1,117 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.mvn.pm.model;
+
+import java.util.BitSet;
+import java.util.Properties;
+
+import org.apache.commons.lang3.Validate;
+
+import de.vandermeer.skb.mvn.ProjectProperties;
+
+/**
+ * Immutable record of the properties of a managed project, parsed once from the project property file.
+ * Values are stored in an array indexed by {@link ProjectProperties} ordinal, flags in a bit set.
+ * Properties not defined in {@link ProjectProperties} are not kept.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+public final class Model_ProjectProperties {
+
+	/** All project properties, cached since {@link ProjectProperties#values()} creates a new array on every call. */
+	private static final ProjectProperties[] PROPERTIES = ProjectProperties.values();
+
+	/** Values by ordinal, default value if not set, null for flags. */
+	private final String[] values;
+
+	/** Flags by ordinal, set if the flag exists in the property file. */
+	private final BitSet flags;
+
+	/**
+	 * Creates a new record.
+	 * @param properties the properties as loaded from the project property file
+	 * @throws NullPointerException if argument was null
+	 */
+	public Model_ProjectProperties(Properties properties){
+		Validate.notNull(properties);
+
+		this.values = new String[PROPERTIES.length];
+		this.flags = new BitSet(PROPERTIES.length);
+		for(ProjectProperties pp : PROPERTIES){
+			String value = properties.getProperty(pp.getPropName());
+			if(pp.isFlag()){
+				if(value!=null){
+					this.flags.set(pp.ordinal());
+				}
+			}
+			else{
+				this.values[pp.ordinal()] = (value!=null)?value:pp.getDefaultValue();
+			}
+		}
+	}
+
+	/**
+	 * Creates a new record from stored values and flags, for instance from a {@link ModelSnapshot}.
+	 * @param values values by ordinal, must have one entry per project property
+	 * @param flags flags by ordinal
+	 * @throws NullPointerException if any argument was null
+	 * @throws IllegalArgumentException if the number of values does not match the project properties
+	 */
+	Model_ProjectProperties(String[] values, BitSet flags){
+		Validate.notNull(values);
+		Validate.notNull(flags);
+		Validate.isTrue(values.length==PROPERTIES.length, "expected " + PROPERTIES.length + " values, got " + values.length);
+
+		this.values = values;
+		this.flags = flags;
+	}
+
+	/**
+	 * Returns the value of a property.
+	 * @param pp the property
+	 * @return the value, the default value of the property if not set, null for flags or if neither value nor default exist
+	 */
+	public String get(ProjectProperties pp){
+		return this.values[pp.ordinal()];
+	}
+
+	/**
+	 * Tests a flag.
+	 * @param pp the flag property
+	 * @return true if the flag is set, false otherwise (or if the property is not a flag)
+	 */
+	public boolean is(ProjectProperties pp){
+		return this.flags.get(pp.ordinal());
+	}
+
+	/**
+	 * Returns all values, for storing the record.
+	 * @return values by ordinal, must not be changed
+	 */
+	String[] getValues(){
+		return this.values;
+	}
+
+	/**
+	 * Returns all flags, for storing the record.
+	 * @return flags by ordinal, must not be changed
+	 */
+	BitSet getFlags(){
+		return this.flags;
+	}
+}
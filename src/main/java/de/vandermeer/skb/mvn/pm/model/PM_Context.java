@@ -21,7 +21,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 import org.apache.commons.lang3.Validate;
 import org.apache.commons.lang3.text.StrBuilder;
@@ -38,12 +42,18 @@ public class PM_Context {
 	/** The directory where the projects store their properties and configurations. */
 	protected final String projectPmDir;
 
-	/** Mapping of identifiers to dependency versions. */
+	/** Mapping of identifiers to dependency versions, sorted and safe for managed projects registering concurrently. */
 	protected final Map<String, Ctxt_DependencyVersion> dependencyVersions;
 
+	/** Identifiers in the dependency version map that have been registered by managed projects. */
+	protected final Set<String> managedIds;
+
 	/** Mapping of property key to version for plugin versions. */
 	protected final List<Map<String, String>> pluginVersions;
 
+	/** Metrics of all phases and projects. */
+	protected final PM_Metrics metrics;
+
 	/**
 	 * Creates a new project model context.
 	 * @param projectPmDir the standard project configuration directory
@@ -54,8 +64,18 @@ public class PM_Context {
 		Validate.notBlank(projectPmDir, "mc: standard project PM directory names as null");
 		this.projectPmDir = projectPmDir;
 
-		this.dependencyVersions = new TreeMap<>();
+		this.dependencyVersions = new ConcurrentSkipListMap<>();
+		this.managedIds = ConcurrentHashMap.newKeySet();
 		this.pluginVersions = new ArrayList<>();
+		this.metrics = new PM_Metrics();
+	}
+
+	/**
+	 * Returns the metrics of all phases and projects.
+	 * @return metrics
+	 */
+	public PM_Metrics getMetrics(){
+		return this.metrics;
 	}
 
 	/**
@@ -87,6 +107,79 @@ public class PM_Context {
 		}
 	}
 
+	/**
+	 * Updates the dependency version information of the context from a new version of the dependency version properties.
+	 * Entries registered by managed projects are not changed.
+	 * @param dependencyVersions the new dependency version properties
+	 * @return identifiers of all entries that have been added, removed, or changed; empty if nothing changed
+	 * @throws IllegalArgumentException if any argument was problematic, the context is not changed in this case
+	 */
+	public Set<String> updateDependencyVersions(Properties dependencyVersions){
+		StrBuilder errors = new StrBuilder();
+		Map<String, Ctxt_DependencyVersion> update = new TreeMap<>();
+		for(Entry<Object, Object> p : dependencyVersions.entrySet()){
+			try{
+				Ctxt_DependencyVersion bv = new Ctxt_DependencyVersion(p.getKey().toString(), p.getValue().toString());
+				update.put(bv.getId(), bv);
+			}
+			catch(Exception ex){
+				errors.append(ex.getMessage()).appendNewLine();
+			}
+		}
+		if(errors.size()>0){
+			throw new IllegalArgumentException("PM Context, problems loading dependency versions, see below\n" + errors.toString());
+		}
+
+		Set<String> ret = new TreeSet<>();
+		for(String id : this.dependencyVersions.keySet()){
+			if(!this.managedIds.contains(id) && !update.containsKey(id)){
+				this.dependencyVersions.remove(id);
+				ret.add(id);
+			}
+		}
+		for(Ctxt_DependencyVersion bv : update.values()){
+			if(this.managedIds.contains(bv.getId())){
+				continue;
+			}
+			Ctxt_DependencyVersion old = this.dependencyVersions.get(bv.getId());
+			if(old==null || !old.getGroupId().equals(bv.getGroupId()) || !old.getArtifactId().equals(bv.getArtifactId()) || !old.getVersion().equals(bv.getVersion())){
+				this.dependencyVersions.put(bv.getId(), bv);
+				ret.add(bv.getId());
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Registers a managed project in the dependency version map, so other projects can depend on it.
+	 * Managed projects take precedence over entries from dependency version properties with the same identifier.
+	 * Can be called concurrently.
+	 * @param dv the dependency version of the managed project, identifier is the project's PM identifier
+	 */
+	public void registerManagedProject(Ctxt_DependencyVersion dv){
+		this.managedIds.add(dv.getId());
+		this.dependencyVersions.put(dv.getId(), dv);
+	}
+
+	/**
+	 * Removes a managed project from the dependency version map.
+	 * @param pmId the PM identifier of the project
+	 */
+	public void unregisterManagedProject(String pmId){
+		if(this.managedIds.remove(pmId)){
+			this.dependencyVersions.remove(pmId);
+		}
+	}
+
+	/**
+	 * Tests if an identifier in the dependency version map belongs to a managed project.
+	 * @param id the identifier
+	 * @return true if the identifier was registered by a managed project, false otherwise
+	 */
+	public boolean isManagedProject(String id){
+		return this.managedIds.contains(id);
+	}
+
 	/**
 	 * Returns the dependency version map of the context.
 	 * @return dependency version map, empty if none added successfully
@@ -118,6 +211,29 @@ public class PM_Context {
 		}
 	}
 
+	/**
+	 * Updates the plugin version information of the context from a new version of the plugin version properties.
+	 * @param pluginVersions the new plugin version properties
+	 * @return true if any plugin version was added, removed, or changed; false otherwise
+	 * @throws IllegalArgumentException if any argument was problematic
+	 */
+	public boolean updatePluginVersions(Properties pluginVersions){
+		Map<String, String> old = new HashMap<>();
+		for(Map<String, String> version : this.pluginVersions){
+			old.put(version.get("key"), version.get("value"));
+		}
+		Map<String, String> update = new HashMap<>();
+		for(Entry<Object, Object> p : pluginVersions.entrySet()){
+			update.put(p.getKey().toString(), p.getValue().toString());
+		}
+		if(old.equals(update)){
+			return false;
+		}
+		this.pluginVersions.clear();
+		this.setPluginVersions(pluginVersions);
+		return true;
+	}
+
 	/**
 	 * Returns the plugin version map of the context.
 	 * @return plugin version map, empty if none added successfully
@@ -0,0 +1,408 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.mvn.pm.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.text.StrBuilder;
+
+/**
+ * Dependency graph of all managed projects, built from the coordinated dependencies between managed projects.
+ * Projects are nodes, identified by an ordinal (their position in the given collection).
+ * An edge points from a project to a managed project it depends on.
+ * Edges are stored as adjacency arrays (compressed rows) in both directions.
+ * Cycles are detected using Tarjan's strongly connected components algorithm (iterative, linear time).
+ * For an acyclic graph, topological levels are provided: all projects in a level only depend on projects in lower levels and can be built in parallel.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+public class PM_DependencyGraph {
+
+	/** The projects, indexed by ordinal. */
+	protected final Model_ManagedProject[] projects;
+
+	/** Mapping of PM identifier to ordinal. */
+	protected final Map<String, Integer> ordinals;
+
+	/** Start of the dependencies of a project in {@link #deps}, indexed by ordinal, with one extra element for the end. */
+	protected final int[] depStart;
+
+	/** Dependencies (ordinals) of all projects. */
+	protected final int[] deps;
+
+	/** Start of the dependents of a project in {@link #rdeps}, indexed by ordinal, with one extra element for the end. */
+	protected final int[] rdepStart;
+
+	/** Dependents (ordinals) of all projects. */
+	protected final int[] rdeps;
+
+	/** Cycles, each one a strongly connected component with more than one project or a project depending on itself. */
+	protected final List<int[]> cycles;
+
+	/** Topological level of each project, null if the graph has cycles. */
+	protected final int[] levels;
+
+	/** Number of topological levels. */
+	protected final int levelCount;
+
+	/**
+	 * Creates a new dependency graph.
+	 * Dependencies of the projects must be updated before creating the graph.
+	 * @param mps the managed projects, the iteration order defines the ordinals
+	 * @throws NullPointerException if argument was null or had null elements
+	 */
+	public PM_DependencyGraph(Collection<Model_ManagedProject> mps){
+		Validate.notNull(mps);
+		Validate.noNullElements(mps);
+
+		int n = mps.size();
+		this.projects = mps.toArray(new Model_ManagedProject[n]);
+		this.ordinals = new HashMap<>(n * 2);
+		for(int i=0; i<n; i++){
+			this.ordinals.put(this.projects[i].getPmId(), i);
+		}
+
+		//count edges first, then fill the adjacency arrays
+		int[][] adj = new int[n][];
+		int edgeCount = 0;
+		int[] inDegree = new int[n];
+		for(int i=0; i<n; i++){
+			int[] row = new int[this.projects[i].getDependencyIds().size()];
+			int r = 0;
+			for(String id : this.projects[i].getDependencyIds()){
+				Integer target = this.ordinals.get(id);
+				if(target!=null){
+					row[r++] = target;
+					inDegree[target]++;
+				}
+			}
+			adj[i] = Arrays.copyOf(row, r);
+			edgeCount += r;
+		}
+
+		this.depStart = new int[n + 1];
+		this.deps = new int[edgeCount];
+		this.rdepStart = new int[n + 1];
+		this.rdeps = new int[edgeCount];
+		for(int i=0; i<n; i++){
+			this.depStart[i + 1] = this.depStart[i] + adj[i].length;
+			System.arraycopy(adj[i], 0, this.deps, this.depStart[i], adj[i].length);
+			this.rdepStart[i + 1] = this.rdepStart[i] + inDegree[i];
+		}
+		int[] fill = Arrays.copyOf(this.rdepStart, n);
+		for(int i=0; i<n; i++){
+			for(int e=this.depStart[i]; e<this.depStart[i + 1]; e++){
+				this.rdeps[fill[this.deps[e]]++] = i;
+			}
+		}
+
+		this.cycles = this.findCycles();
+		if(this.cycles.isEmpty()){
+			this.levels = new int[n];
+			this.levelCount = this.computeLevels();
+		}
+		else{
+			this.levels = null;
+			this.levelCount = 0;
+		}
+	}
+
+	/**
+	 * Finds all cycles using an iterative version of Tarjan's algorithm.
+	 * @return list of cycles, empty if the graph is acyclic
+	 */
+	protected List<int[]> findCycles(){
+		int n = this.projects.length;
+		List<int[]> ret = new ArrayList<>();
+
+		int[] index = new int[n];
+		Arrays.fill(index, -1);
+		int[] low = new int[n];
+		boolean[] onStack = new boolean[n];
+		int[] stack = new int[n];
+		int sp = 0;
+		int[] callNode = new int[n];
+		int[] callEdge = new int[n];
+		int next = 0;
+
+		for(int root=0; root<n; root++){
+			if(index[root]!=-1){
+				continue;
+			}
+			int cp = 0;
+			callNode[cp] = root;
+			callEdge[cp] = this.depStart[root];
+			index[root] = low[root] = next++;
+			stack[sp++] = root;
+			onStack[root] = true;
+
+			while(cp>=0){
+				int v = callNode[cp];
+				if(callEdge[cp]<this.depStart[v + 1]){
+					int w = this.deps[callEdge[cp]++];
+					if(index[w]==-1){
+						index[w] = low[w] = next++;
+						stack[sp++] = w;
+						onStack[w] = true;
+						cp++;
+						callNode[cp] = w;
+						callEdge[cp] = this.depStart[w];
+					}
+					else if(onStack[w] && index[w]<low[v]){
+						low[v] = index[w];
+					}
+					continue;
+				}
+
+				//all edges of v done: v is the root of a component if low equals index
+				if(low[v]==index[v]){
+					int start = sp;
+					do{
+						start--;
+						onStack[stack[start]] = false;
+					} while(stack[start]!=v);
+					int[] scc = Arrays.copyOfRange(stack, start, sp);
+					sp = start;
+					if(scc.length>1 || this.dependsOn(v, v)){
+						Arrays.sort(scc);
+						ret.add(scc);
+					}
+				}
+				cp--;
+				if(cp>=0 && low[v]<low[callNode[cp]]){
+					low[callNode[cp]] = low[v];
+				}
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Computes the topological levels of an acyclic graph (Kahn's algorithm, processing one level at a time).
+	 * @return number of levels
+	 */
+	protected int computeLevels(){
+		int n = this.projects.length;
+		int[] pending = new int[n];
+		int[] current = new int[n];
+		int[] following = new int[n];
+		int cur = 0;
+		for(int i=0; i<n; i++){
+			pending[i] = this.depStart[i + 1] - this.depStart[i];
+			if(pending[i]==0){
+				current[cur++] = i;
+			}
+		}
+
+		int level = 0;
+		while(cur>0){
+			int fol = 0;
+			for(int c=0; c<cur; c++){
+				int v = current[c];
+				this.levels[v] = level;
+				for(int e=this.rdepStart[v]; e<this.rdepStart[v + 1]; e++){
+					int w = this.rdeps[e];
+					if(--pending[w]==0){
+						following[fol++] = w;
+					}
+				}
+			}
+			int[] swap = current;
+			current = following;
+			following = swap;
+			cur = fol;
+			level++;
+		}
+		return level;
+	}
+
+	/**
+	 * Tests if a project directly depends on another project.
+	 * @param from ordinal of the depending project
+	 * @param to ordinal of the dependency
+	 * @return true if there is an edge, false otherwise
+	 */
+	protected boolean dependsOn(int from, int to){
+		for(int e=this.depStart[from]; e<this.depStart[from + 1]; e++){
+			if(this.deps[e]==to){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the number of projects in the graph.
+	 * @return number of projects
+	 */
+	public int size(){
+		return this.projects.length;
+	}
+
+	/**
+	 * Returns the ordinal of a project.
+	 * @param pmId the PM identifier of the project
+	 * @return ordinal, -1 if the project is not in the graph
+	 */
+	public int getOrdinal(String pmId){
+		Integer ret = this.ordinals.get(pmId);
+		return (ret==null)?-1:ret;
+	}
+
+	/**
+	 * Returns a project.
+	 * @param ordinal the ordinal of the project
+	 * @return the project
+	 */
+	public Model_ManagedProject getProject(int ordinal){
+		return this.projects[ordinal];
+	}
+
+	/**
+	 * Returns the managed projects a project directly depends on.
+	 * @param ordinal the ordinal of the project
+	 * @return ordinals of the dependencies, empty if none
+	 */
+	public int[] getDependencies(int ordinal){
+		return Arrays.copyOfRange(this.deps, this.depStart[ordinal], this.depStart[ordinal + 1]);
+	}
+
+	/**
+	 * Returns the managed projects that directly depend on a project.
+	 * @param ordinal the ordinal of the project
+	 * @return ordinals of the dependents, empty if none
+	 */
+	public int[] getDependents(int ordinal){
+		return Arrays.copyOfRange(this.rdeps, this.rdepStart[ordinal], this.rdepStart[ordinal + 1]);
+	}
+
+	/**
+	 * Returns the number of dependency edges in the graph.
+	 * @return number of edges
+	 */
+	public int getEdgeCount(){
+		return this.deps.length;
+	}
+
+	/**
+	 * Tests if the graph has cycles.
+	 * @return true if at least one cycle exists, false otherwise
+	 */
+	public boolean hasCycles(){
+		return !this.cycles.isEmpty();
+	}
+
+	/**
+	 * Returns all cycles of the graph.
+	 * @return cycles, each one a list of projects (strongly connected component), empty if the graph is acyclic
+	 */
+	public List<List<Model_ManagedProject>> getCycles(){
+		List<List<Model_ManagedProject>> ret = new ArrayList<>();
+		for(int[] scc : this.cycles){
+			ret.add(this.toProjects(scc, scc.length));
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns a printable description of all cycles.
+	 * @return cycle description, one line per cycle, empty if the graph is acyclic
+	 */
+	public String getCycleDescription(){
+		StrBuilder ret = new StrBuilder();
+		for(int[] scc : this.cycles){
+			ret.append("dependency cycle between projects <");
+			for(int i=0; i<scc.length; i++){
+				ret.appendSeparator(", ", i);
+				ret.append(this.projects[scc[i]].getPmId());
+			}
+			ret.append('>').appendNewLine();
+		}
+		return ret.toString();
+	}
+
+	/**
+	 * Returns the topological level of a project.
+	 * @param ordinal the ordinal of the project
+	 * @return level, 0 for projects without managed dependencies
+	 * @throws IllegalArgumentException if the graph has cycles
+	 */
+	public int getLevel(int ordinal){
+		this.testAcyclic();
+		return this.levels[ordinal];
+	}
+
+	/**
+	 * Returns the topological levels of the graph.
+	 * All projects in a level depend only on projects of lower levels, so they can be processed (built) in parallel once all lower levels are done.
+	 * @return levels, starting with projects that have no managed dependencies, projects in a level in ordinal order
+	 * @throws IllegalArgumentException if the graph has cycles
+	 */
+	public List<List<Model_ManagedProject>> getLevels(){
+		this.testAcyclic();
+		int[] count = new int[this.levelCount];
+		for(int l : this.levels){
+			count[l]++;
+		}
+		int[][] byLevel = new int[this.levelCount][];
+		for(int l=0; l<this.levelCount; l++){
+			byLevel[l] = new int[count[l]];
+		}
+		Arrays.fill(count, 0);
+		for(int i=0; i<this.levels.length; i++){
+			byLevel[this.levels[i]][count[this.levels[i]]++] = i;
+		}
+
+		List<List<Model_ManagedProject>> ret = new ArrayList<>(this.levelCount);
+		for(int l=0; l<this.levelCount; l++){
+			ret.add(this.toProjects(byLevel[l], byLevel[l].length));
+		}
+		return ret;
+	}
+
+	/**
+	 * Tests that the graph is acyclic.
+	 * @throws IllegalArgumentException if the graph has cycles
+	 */
+	protected void testAcyclic(){
+		if(this.levels==null){
+			throw new IllegalArgumentException("dependency graph has cycles, see below\n" + this.getCycleDescription());
+		}
+	}
+
+	/**
+	 * Returns the projects for an array of ordinals.
+	 * @param ords the ordinals
+	 * @param length number of ordinals to use
+	 * @return unmodifiable list of projects
+	 */
+	protected List<Model_ManagedProject> toProjects(int[] ords, int length){
+		List<Model_ManagedProject> ret = new ArrayList<>(length);
+		for(int i=0; i<length; i++){
+			ret.add(this.projects[ords[i]]);
+		}
+		return Collections.unmodifiableList(ret);
+	}
+}
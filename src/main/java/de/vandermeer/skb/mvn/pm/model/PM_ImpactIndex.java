@@ -0,0 +1,216 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.mvn.pm.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Reverse-dependency index of a dependency graph, mapping every dependency identifier to the managed projects using it.
+ *
+ * Identifiers are the keys of the dependency version map: keys of external dependencies (for instance <code>commons-lang3</code>) and PM identifiers of managed projects.
+ * The impact of an identifier are all projects using it directly, plus all projects depending on those (transitively, over managed projects).
+ * Impacts are computed on first request per identifier, then served from a cache.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+public class PM_ImpactIndex {
+
+	/** The indexed graph. */
+	protected final PM_DependencyGraph graph;
+
+	/** Ordinals of the projects using a dependency identifier directly, in ordinal order. */
+	protected final Map<String, int[]> users;
+
+	/** Cached impacts by dependency identifier. */
+	protected final Map<String, List<Model_ManagedProject>> impacts;
+
+	/**
+	 * Creates a new index.
+	 * @param graph the dependency graph, with dependencies of all projects updated
+	 * @throws NullPointerException if argument was null
+	 */
+	public PM_ImpactIndex(PM_DependencyGraph graph){
+		Validate.notNull(graph);
+		this.graph = graph;
+
+		Map<String, List<Integer>> collect = new HashMap<>();
+		for(int i=0; i<graph.size(); i++){
+			for(String id : graph.getProject(i).getDependencyIds()){
+				List<Integer> list = collect.get(id);
+				if(list==null){
+					list = new ArrayList<>();
+					collect.put(id, list);
+				}
+				list.add(i);
+			}
+		}
+
+		this.users = new HashMap<>(collect.size() * 2);
+		for(Map.Entry<String, List<Integer>> e : collect.entrySet()){
+			int[] ords = new int[e.getValue().size()];
+			for(int k=0; k<ords.length; k++){
+				ords[k] = e.getValue().get(k);
+			}
+			this.users.put(e.getKey(), ords);
+		}
+		this.impacts = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Returns the indexed graph.
+	 * @return graph
+	 */
+	public PM_DependencyGraph getGraph(){
+		return this.graph;
+	}
+
+	/**
+	 * Returns all dependency identifiers used by at least one project.
+	 * @return identifiers
+	 */
+	public Set<String> getKeys(){
+		return Collections.unmodifiableSet(this.users.keySet());
+	}
+
+	/**
+	 * Returns the projects using a dependency identifier directly.
+	 * @param key the dependency identifier
+	 * @return projects in ordinal order, empty if no project uses the identifier
+	 * @throws NullPointerException if argument was null
+	 */
+	public List<Model_ManagedProject> getUsers(String key){
+		Validate.notNull(key);
+		int[] ords = this.users.get(key);
+		if(ords==null){
+			return Collections.emptyList();
+		}
+		List<Model_ManagedProject> ret = new ArrayList<>(ords.length);
+		for(int o : ords){
+			ret.add(this.graph.getProject(o));
+		}
+		return Collections.unmodifiableList(ret);
+	}
+
+	/**
+	 * Returns the projects using any of the given dependency identifiers directly.
+	 * @param keys the dependency identifiers
+	 * @return projects in ordinal order, empty if no project uses any identifier
+	 * @throws NullPointerException if argument was null or had null elements
+	 */
+	public List<Model_ManagedProject> getUsers(Collection<String> keys){
+		Validate.notNull(keys);
+		Validate.noNullElements(keys);
+		BitSet ords = new BitSet(this.graph.size());
+		for(String key : keys){
+			int[] users = this.users.get(key);
+			if(users!=null){
+				for(int o : users){
+					ords.set(o);
+				}
+			}
+		}
+		return this.toProjects(ords);
+	}
+
+	/**
+	 * Returns all projects affected by a change of a dependency identifier: the projects using it, and all projects depending on them (transitively).
+	 * For the PM identifier of a managed project, the project itself is only included if it is part of a cycle.
+	 * @param key the dependency identifier
+	 * @return affected projects in ordinal order, empty if no project uses the identifier
+	 * @throws NullPointerException if argument was null
+	 */
+	public List<Model_ManagedProject> getImpact(String key){
+		Validate.notNull(key);
+		List<Model_ManagedProject> ret = this.impacts.get(key);
+		if(ret==null){
+			ret = this.toProjects(this.closure(Collections.singleton(key)));
+			this.impacts.put(key, ret);
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns all projects affected by a change of any of the given dependency identifiers.
+	 * @param keys the dependency identifiers
+	 * @return affected projects in ordinal order
+	 * @throws NullPointerException if argument was null or had null elements
+	 */
+	public List<Model_ManagedProject> getImpact(Collection<String> keys){
+		Validate.notNull(keys);
+		Validate.noNullElements(keys);
+		return this.toProjects(this.closure(keys));
+	}
+
+	/**
+	 * Computes the transitive closure over reverse edges, starting with the direct users of identifiers.
+	 * @param keys the dependency identifiers
+	 * @return affected ordinals
+	 */
+	protected BitSet closure(Collection<String> keys){
+		BitSet ret = new BitSet(this.graph.size());
+		int[] queue = new int[this.graph.size()];
+		int tail = 0;
+		for(String key : keys){
+			int[] ords = this.users.get(key);
+			if(ords!=null){
+				for(int o : ords){
+					if(!ret.get(o)){
+						ret.set(o);
+						queue[tail++] = o;
+					}
+				}
+			}
+		}
+		for(int head=0; head<tail; head++){
+			//reverse edges of the graph directly, avoiding a copy per project
+			for(int e=this.graph.rdepStart[queue[head]]; e<this.graph.rdepStart[queue[head] + 1]; e++){
+				int d = this.graph.rdeps[e];
+				if(!ret.get(d)){
+					ret.set(d);
+					queue[tail++] = d;
+				}
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns the projects of a set of ordinals.
+	 * @param ords the ordinals
+	 * @return unmodifiable list of projects, in ordinal order
+	 */
+	protected List<Model_ManagedProject> toProjects(BitSet ords){
+		Model_ManagedProject[] ret = new Model_ManagedProject[ords.cardinality()];
+		int k = 0;
+		for(int o=ords.nextSetBit(0); o>=0; o=ords.nextSetBit(o + 1)){
+			ret[k++] = this.graph.getProject(o);
+		}
+		return Collections.unmodifiableList(Arrays.asList(ret));
+	}
+}
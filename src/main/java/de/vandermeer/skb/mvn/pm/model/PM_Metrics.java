@@ -0,0 +1,585 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.mvn.pm.model;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.input.CountingInputStream;
+import org.apache.commons.lang3.StringEscapeUtils;
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.text.StrBuilder;
+
+/**
+ * Metrics of a project manager run: wall time, CPU time, allocated bytes, bytes read and written, per phase and per project.
+ *
+ * Phases (for instance load, resolve, write) are measured on the thread running them.
+ * Projects are measured per stage (for instance load, render) on the thread processing the project.
+ * Work done for a project on a worker thread is added to the current phase, work on the thread of the phase is already part of the phase.
+ * CPU time and allocation are -1 if the JVM does not support measuring them.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+public class PM_Metrics {
+
+	/** Phase for loading the configuration (projects, dependency versions, plugin versions). */
+	public static final String PHASE_CONFIGURATION = "configuration";
+
+	/** Phase for restoring and writing the model snapshot. */
+	public static final String PHASE_SNAPSHOT = "snapshot";
+
+	/** Phase for checking project directories and files. */
+	public static final String PHASE_CHECK = "check";
+
+	/** Phase and project stage for loading projects. */
+	public static final String PHASE_LOAD = "load";
+
+	/** Phase for indexing projects in streaming mode. */
+	public static final String PHASE_INDEX = "index";
+
+	/** Phase and project stage for resolving dependencies. */
+	public static final String PHASE_RESOLVE = "resolve";
+
+	/** Phase for writing POM files, with the project stages render and replace. */
+	public static final String PHASE_WRITE = "write";
+
+	/** Project stage for rendering a POM file and comparing it with the existing POM file. */
+	public static final String STAGE_RENDER = "render";
+
+	/** Project stage for replacing an existing POM file. */
+	public static final String STAGE_REPLACE = "replace";
+
+	/** Phase for checking POM files without writing them, with the project stages render and diff. */
+	public static final String PHASE_DIFF = "diff";
+
+	/** Project stage for computing the diff of a stale POM file. */
+	public static final String STAGE_DIFF = "diff";
+
+	/** Phase for saving manifests and reports. */
+	public static final String PHASE_MANIFESTS = "manifests";
+
+	/** Thread bean for CPU time. */
+	protected static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+	/** Statistics per phase, in order of first use. */
+	protected final Map<String, Stats> phases;
+
+	/** Statistics per project, per stage in order of first use. */
+	protected final Map<String, Map<String, Stats>> projects;
+
+	/** The innermost open span of each thread. */
+	protected final ThreadLocal<Span> current;
+
+	/** The phase currently running, null if none. */
+	protected volatile Stats currentPhase;
+
+	/**
+	 * Creates new empty metrics.
+	 */
+	public PM_Metrics(){
+		this.phases = Collections.synchronizedMap(new LinkedHashMap<String, Stats>());
+		this.projects = new ConcurrentHashMap<>();
+		this.current = new ThreadLocal<>();
+	}
+
+	/**
+	 * Starts a phase on the current thread.
+	 * @param phase the phase name
+	 * @return open span, must be stopped
+	 */
+	public Span startPhase(String phase){
+		Validate.notBlank(phase);
+		Stats stats;
+		synchronized(this.phases){
+			stats = this.phases.get(phase);
+			if(stats==null){
+				stats = new Stats();
+				this.phases.put(phase, stats);
+			}
+		}
+		this.currentPhase = stats;
+		return new Span(stats);
+	}
+
+	/**
+	 * Starts a project stage on the current thread.
+	 * @param stage the stage name
+	 * @param pmId the PM identifier of the project, null if not yet known (then use {@link Span#stop(String)})
+	 * @return open span, must be stopped
+	 */
+	public Span startProject(String stage, String pmId){
+		Validate.notBlank(stage);
+		return new Span(stage, pmId, this.currentPhase);
+	}
+
+	/**
+	 * Returns the statistics of a project stage, creates them if required.
+	 * @param stage the stage name
+	 * @param pmId the PM identifier of the project
+	 * @return statistics
+	 */
+	protected Stats getStats(String stage, String pmId){
+		Map<String, Stats> stages = this.projects.get(pmId);
+		if(stages==null){
+			this.projects.putIfAbsent(pmId, Collections.synchronizedMap(new LinkedHashMap<String, Stats>()));
+			stages = this.projects.get(pmId);
+		}
+		Stats stats;
+		synchronized(stages){
+			stats = stages.get(stage);
+			if(stats==null){
+				stats = new Stats();
+				stages.put(stage, stats);
+			}
+		}
+		return stats;
+	}
+
+	/**
+	 * Records bytes read by the current thread, added to its innermost open span.
+	 * @param bytes number of bytes read
+	 */
+	public void read(long bytes){
+		Span span = this.current.get();
+		if(span!=null){
+			span.read += bytes;
+		}
+	}
+
+	/**
+	 * Opens a file for reading with the platform encoding (as {@link java.io.FileReader} does), recording the bytes actually read when the reader is closed.
+	 * @param file the file
+	 * @return reader for the file, must be closed on the thread that read it
+	 * @throws FileNotFoundException if the file could not be opened
+	 */
+	public Reader newReader(File file) throws FileNotFoundException{
+		final CountingInputStream in = new CountingInputStream(new FileInputStream(file));
+		return new InputStreamReader(in){
+			@Override
+			public void close() throws IOException{
+				try{
+					super.close();
+				}
+				finally{
+					PM_Metrics.this.read(in.resetByteCount());
+				}
+			}
+		};
+	}
+
+	/**
+	 * Records bytes written by the current thread, added to its innermost open span.
+	 * @param bytes number of bytes written
+	 */
+	public void written(long bytes){
+		Span span = this.current.get();
+		if(span!=null){
+			span.written += bytes;
+		}
+	}
+
+	/**
+	 * Returns the statistics of all phases.
+	 * @return phase statistics, in order of first use
+	 */
+	public Map<String, Stats> getPhases(){
+		synchronized(this.phases){
+			return new LinkedHashMap<>(this.phases);
+		}
+	}
+
+	/**
+	 * Returns the statistics of a project, summed over all stages.
+	 * @param pmId the PM identifier of the project
+	 * @return project statistics, null if the project has no statistics
+	 */
+	public Stats getProject(String pmId){
+		Map<String, Stats> stages = this.projects.get(pmId);
+		if(stages==null){
+			return null;
+		}
+		Stats ret = new Stats();
+		synchronized(stages){
+			for(Stats s : stages.values()){
+				ret.add(s.getWall(), s.getCpu(), s.getAllocated(), s.getRead(), s.getWritten());
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns the PM identifiers of the projects with the longest wall time, summed over all stages.
+	 * @param n maximum number of projects to return
+	 * @return PM identifiers, slowest first
+	 */
+	public List<String> getSlowest(int n){
+		List<String> ret = new ArrayList<>(this.projects.keySet());
+		final Map<String, Long> walls = new LinkedHashMap<>();
+		for(String pmId : ret){
+			walls.put(pmId, this.getProject(pmId).getWall());
+		}
+		Collections.sort(ret, new Comparator<String>() {
+			@Override
+			public int compare(String o1, String o2) {
+				int c = Long.compare(walls.get(o2), walls.get(o1));
+				return (c!=0)?c:o1.compareTo(o2);
+			}
+		});
+		return ret.subList(0, Math.min(Math.max(n, 0), ret.size()));
+	}
+
+	/**
+	 * Returns a summary for logging: one line per phase and the slowest projects.
+	 * @param slowest number of slowest projects to list
+	 * @return summary
+	 */
+	public String getSummary(int slowest){
+		StrBuilder ret = new StrBuilder();
+		ret.append(String.format("%-15s %10s %10s %12s %12s %12s", "phase", "wall ms", "cpu ms", "alloc KB", "read KB", "written KB"));
+		for(Entry<String, Stats> e : this.getPhases().entrySet()){
+			ret.appendNewLine().append(this.summaryLine(e.getKey(), e.getValue()));
+		}
+		List<String> ids = this.getSlowest(slowest);
+		if(ids.size()>0){
+			ret.appendNewLine().append("slowest ").append(ids.size()).append(" project(s)");
+			for(String pmId : ids){
+				ret.appendNewLine().append(this.summaryLine(pmId, this.getProject(pmId)));
+				Map<String, Stats> stages = this.projects.get(pmId);
+				synchronized(stages){
+					ret.append("  (");
+					boolean first = true;
+					for(Entry<String, Stats> e : stages.entrySet()){
+						ret.append((first)?"":", ").append(e.getKey()).append(' ').append(e.getValue().getWall() / 1000000);
+						first = false;
+					}
+					ret.append(" ms)");
+				}
+			}
+		}
+		return ret.toString();
+	}
+
+	/**
+	 * Returns a single summary line.
+	 * @param name the phase or project name
+	 * @param s the statistics
+	 * @return summary line
+	 */
+	protected String summaryLine(String name, Stats s){
+		return String.format("%-15s %10d %10s %12s %12d %12d", name, s.getWall() / 1000000, (s.getCpu()<0)?"-":Long.toString(s.getCpu() / 1000000), (s.getAllocated()<0)?"-":Long.toString(s.getAllocated() / 1024), s.getRead() / 1024, s.getWritten() / 1024);
+	}
+
+	/**
+	 * Returns all metrics as JSON.
+	 * @return JSON report
+	 */
+	public String toJson(){
+		StrBuilder ret = new StrBuilder();
+		ret.append("{").appendNewLine();
+		ret.append("  \"phases\": [");
+		boolean first = true;
+		for(Entry<String, Stats> e : this.getPhases().entrySet()){
+			ret.append((first)?"":",").appendNewLine();
+			ret.append("    {\"name\": \"").append(StringEscapeUtils.escapeJson(e.getKey())).append("\", ");
+			this.appendJson(ret, e.getValue());
+			ret.append('}');
+			first = false;
+		}
+		ret.appendNewLine().append("  ],").appendNewLine();
+
+		ret.append("  \"projects\": [");
+		first = true;
+		for(String pmId : this.getSlowest(Integer.MAX_VALUE)){
+			ret.append((first)?"":",").appendNewLine();
+			ret.append("    {\"pmId\": \"").append(StringEscapeUtils.escapeJson(pmId)).append("\", ");
+			this.appendJson(ret, this.getProject(pmId));
+			ret.append(", \"stages\": {");
+			Map<String, Stats> stages = this.projects.get(pmId);
+			synchronized(stages){
+				boolean firstStage = true;
+				for(Entry<String, Stats> e : stages.entrySet()){
+					ret.append((firstStage)?"":", ").append('"').append(StringEscapeUtils.escapeJson(e.getKey())).append("\": {");
+					this.appendJson(ret, e.getValue());
+					ret.append('}');
+					firstStage = false;
+				}
+			}
+			ret.append("}}");
+			first = false;
+		}
+		ret.appendNewLine().append("  ]").appendNewLine();
+		ret.append("}").appendNewLine();
+		return ret.toString();
+	}
+
+	/**
+	 * Appends the JSON fields of statistics.
+	 * @param sb the builder to append to
+	 * @param s the statistics
+	 */
+	protected void appendJson(StrBuilder sb, Stats s){
+		sb.append("\"wallNanos\": ").append(s.getWall());
+		sb.append(", \"cpuNanos\": ").append(s.getCpu());
+		sb.append(", \"allocatedBytes\": ").append(s.getAllocated());
+		sb.append(", \"bytesRead\": ").append(s.getRead());
+		sb.append(", \"bytesWritten\": ").append(s.getWritten());
+	}
+
+	/**
+	 * Writes the JSON report.
+	 * @param file the report file, parent directories are created
+	 * @throws IOException if the report could not be written
+	 */
+	public void save(File file) throws IOException{
+		FileUtils.writeStringToFile(file, this.toJson(), StandardCharsets.UTF_8.name());
+	}
+
+	/**
+	 * Returns the CPU time of the current thread.
+	 * @return CPU time in nanoseconds, -1 if not supported
+	 */
+	protected static long cpuTime(){
+		return (THREADS.isCurrentThreadCpuTimeSupported())?THREADS.getCurrentThreadCpuTime():-1;
+	}
+
+	/**
+	 * Returns the bytes allocated by the current thread.
+	 * @return allocated bytes, -1 if not supported
+	 */
+	protected static long allocated(){
+		if(THREADS instanceof com.sun.management.ThreadMXBean){
+			com.sun.management.ThreadMXBean tmx = (com.sun.management.ThreadMXBean)THREADS;
+			if(tmx.isThreadAllocatedMemorySupported() && tmx.isThreadAllocatedMemoryEnabled()){
+				return tmx.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Accumulated statistics, safe for concurrent updates.
+	 */
+	public static class Stats {
+
+		/** Wall time in nanoseconds. */
+		protected long wall;
+
+		/** CPU time in nanoseconds, -1 if not supported. */
+		protected long cpu;
+
+		/** Allocated bytes, -1 if not supported. */
+		protected long allocated;
+
+		/** Bytes read. */
+		protected long read;
+
+		/** Bytes written. */
+		protected long written;
+
+		/**
+		 * Adds measurements.
+		 * @param wall wall time in nanoseconds, 0 to not add wall time
+		 * @param cpu CPU time in nanoseconds, -1 if not supported
+		 * @param allocated allocated bytes, -1 if not supported
+		 * @param read bytes read
+		 * @param written bytes written
+		 */
+		protected synchronized void add(long wall, long cpu, long allocated, long read, long written){
+			this.wall += wall;
+			this.cpu = (cpu<0 || this.cpu<0)?-1:this.cpu + cpu;
+			this.allocated = (allocated<0 || this.allocated<0)?-1:this.allocated + allocated;
+			this.read += read;
+			this.written += written;
+		}
+
+		/**
+		 * Returns the wall time.
+		 * @return wall time in nanoseconds
+		 */
+		public synchronized long getWall(){
+			return this.wall;
+		}
+
+		/**
+		 * Returns the CPU time.
+		 * @return CPU time in nanoseconds, -1 if not supported
+		 */
+		public synchronized long getCpu(){
+			return this.cpu;
+		}
+
+		/**
+		 * Returns the allocated bytes.
+		 * @return allocated bytes, -1 if not supported
+		 */
+		public synchronized long getAllocated(){
+			return this.allocated;
+		}
+
+		/**
+		 * Returns the bytes read.
+		 * @return bytes read
+		 */
+		public synchronized long getRead(){
+			return this.read;
+		}
+
+		/**
+		 * Returns the bytes written.
+		 * @return bytes written
+		 */
+		public synchronized long getWritten(){
+			return this.written;
+		}
+	}
+
+	/**
+	 * An open measurement on a single thread.
+	 */
+	public class Span {
+
+		/** The statistics of a phase span, null for a project span. */
+		protected final Stats stats;
+
+		/** The stage of a project span, null for a phase span. */
+		protected final String stage;
+
+		/** The PM identifier of a project span, null if not known at start. */
+		protected final String pmId;
+
+		/** The phase to add project work to, null for a phase span or if no phase was running. */
+		protected final Stats phase;
+
+		/** The span that was open on this thread before, null if none. */
+		protected final Span parent;
+
+		/** Start time. */
+		protected final long startWall;
+
+		/** Start CPU time. */
+		protected final long startCpu;
+
+		/** Start allocation. */
+		protected final long startAllocated;
+
+		/** Bytes read within this span. */
+		protected long read;
+
+		/** Bytes written within this span. */
+		protected long written;
+
+		/**
+		 * Opens a new phase span on the current thread.
+		 * @param stats the statistics of the phase
+		 */
+		Span(Stats stats){
+			this(stats, null, null, null);
+		}
+
+		/**
+		 * Opens a new project span on the current thread.
+		 * @param stage the stage
+		 * @param pmId the PM identifier of the project, null if not known at start
+		 * @param phase the phase to add project work to, null if none
+		 */
+		Span(String stage, String pmId, Stats phase){
+			this(null, stage, pmId, phase);
+		}
+
+		/**
+		 * Opens a new span on the current thread.
+		 * @param stats the statistics of a phase span
+		 * @param stage the stage of a project span
+		 * @param pmId the PM identifier of a project span
+		 * @param phase the phase to add project work to
+		 */
+		private Span(Stats stats, String stage, String pmId, Stats phase){
+			this.stats = stats;
+			this.stage = stage;
+			this.pmId = pmId;
+			this.phase = phase;
+			this.parent = PM_Metrics.this.current.get();
+			PM_Metrics.this.current.set(this);
+			this.startCpu = cpuTime();
+			this.startAllocated = allocated();
+			this.startWall = System.nanoTime();
+		}
+
+		/**
+		 * Closes the span and adds its measurements.
+		 */
+		public void stop(){
+			this.stop(this.pmId);
+		}
+
+		/**
+		 * Closes the span and adds its measurements.
+		 * @param pmId the PM identifier of the project for a project span, ignored for a phase span
+		 */
+		public void stop(String pmId){
+			long wall = System.nanoTime() - this.startWall;
+			long cpu = (this.startCpu<0)?-1:cpuTime() - this.startCpu;
+			long allocated = (this.startAllocated<0)?-1:allocated() - this.startAllocated;
+
+			if(this.parent==null){
+				PM_Metrics.this.current.remove();
+			}
+			else{
+				PM_Metrics.this.current.set(this.parent);
+			}
+
+			if(this.stats!=null){
+				this.stats.add(wall, cpu, allocated, this.read, this.written);
+				return;
+			}
+
+			if(pmId!=null){
+				PM_Metrics.this.getStats(this.stage, pmId).add(wall, cpu, allocated, this.read, this.written);
+			}
+			if(this.phase!=null){
+				//CPU and allocation of a phase thread are measured by the phase span already
+				boolean inPhase = false;
+				for(Span s = this.parent; s!=null; s = s.parent){
+					inPhase = inPhase || s.stats!=null;
+				}
+				if(inPhase){
+					this.phase.add(0, 0, 0, this.read, this.written);
+				}
+				else{
+					this.phase.add(0, cpu, allocated, this.read, this.written);
+				}
+			}
+		}
+	}
+}
@@ -18,10 +18,19 @@ package de.vandermeer.skb.mvn.pm.model;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.lang3.Validate;
 import org.apache.commons.lang3.text.StrBuilder;
@@ -45,6 +54,18 @@ public class PM_Model {
 	/** Mapping of identifier to managed project. */
 	protected final Map<String, Model_ManagedProject> projects;
 
+	/** Mapping of normalized absolute base directory to managed project. */
+	protected final Map<File, Model_ManagedProject> baseDirs;
+
+	/** The dependency graph of the managed projects, created on demand. */
+	protected PM_DependencyGraph graph;
+
+	/** The reverse-dependency index of the dependency graph, created on demand. */
+	protected PM_ImpactIndex impact;
+
+	/** Number of threads used to load managed projects, 1 (the default) loads them sequentially. */
+	protected int loadThreads = 1;
+
 	/**
 	 * Creates a new project model, programmatic access to all managed projects.
 	 * @param mc model context
@@ -55,6 +76,7 @@ public class PM_Model {
 		this.mc = mc;
 
 		this.projects = new TreeMap<>();
+		this.baseDirs = new HashMap<>();
 	}
 
 	/**
@@ -66,13 +88,120 @@ public class PM_Model {
 	 * @throws IllegalArgumentException if any collection member resulted in a was a blank string or pointed to an unreadable/unwritable directory
 	 */
 	public void loadModel(Collection<Object> folders) throws FileNotFoundException, IOException{
-		this.loader = new ModelLoader(mc, folders);
-		for(Entry<File, Pair<File, File>> e : this.loader.getProjectFiles().entrySet()){
-			Model_ManagedProject mp = new Model_ManagedProject(this.mc, e.getKey(), e.getValue().getKey(), e.getValue().getValue());
-			this.projects.put(mp.getPmId(), mp);
+		PM_Metrics.Span span = this.mc.getMetrics().startPhase(PM_Metrics.PHASE_CHECK);
+		try{
+			this.loader = new ModelLoader(mc, folders);
+		}
+		finally{
+			span.stop();
+		}
+
+		this.graph = null;
+		span = this.mc.getMetrics().startPhase(PM_Metrics.PHASE_LOAD);
+		try{
+			if(this.loadThreads<=1 || this.loader.getProjectFiles().size()<=1){
+				for(Entry<File, Pair<File, File>> e : this.loader.getProjectFiles().entrySet()){
+					this.add(this.loadProject(e));
+				}
+			}
+			else{
+				this.loadModelParallel();
+			}
+		}
+		finally{
+			span.stop();
+		}
+	}
+
+	/**
+	 * Loads a single managed project, measured as project stage {@link PM_Metrics#PHASE_LOAD}.
+	 * @param e the loader entry of the project: project directory with PM directory and property file
+	 * @return the loaded project
+	 * @throws IOException if read on the property file failed
+	 * @throws FileNotFoundException if the property file was not found
+	 */
+	protected Model_ManagedProject loadProject(Entry<File, Pair<File, File>> e) throws FileNotFoundException, IOException{
+		PM_Metrics.Span span = this.mc.getMetrics().startProject(PM_Metrics.PHASE_LOAD, null);
+		Model_ManagedProject ret = null;
+		try{
+			ret = new Model_ManagedProject(this.mc, e.getKey(), this.loader.getListing(e.getKey()), e.getValue().getValue());
+			return ret;
+		}
+		finally{
+			span.stop((ret!=null)?ret.getPmId():null);
 		}
 	}
 
+	/**
+	 * Loads all managed projects of the loader using a bounded thread pool.
+	 * Projects are added to the model in loader order, so the result is the same as for a sequential load.
+	 * If any project fails to load, the exception of the first failing project (in loader order) is thrown.
+	 * @throws IOException if read on a property file failed
+	 * @throws FileNotFoundException if a property file was not found
+	 * @throws IllegalArgumentException if any project could not be created
+	 */
+	protected void loadModelParallel() throws FileNotFoundException, IOException{
+		ExecutorService pool = Executors.newFixedThreadPool(Math.min(this.loadThreads, this.loader.getProjectFiles().size()));
+		try{
+			List<Future<Model_ManagedProject>> futures = new ArrayList<>();
+			for(final Entry<File, Pair<File, File>> e : this.loader.getProjectFiles().entrySet()){
+				futures.add(pool.submit(new Callable<Model_ManagedProject>() {
+					@Override
+					public Model_ManagedProject call() throws Exception {
+						return PM_Model.this.loadProject(e);
+					}
+				}));
+			}
+
+			for(Future<Model_ManagedProject> f : futures){
+				this.add(f.get());
+			}
+		}
+		catch(InterruptedException iex){
+			Thread.currentThread().interrupt();
+			throw new IllegalArgumentException("interrupted while loading managed projects");
+		}
+		catch(ExecutionException eex){
+			Throwable cause = eex.getCause();
+			if(cause instanceof IOException){
+				throw (IOException)cause;
+			}
+			if(cause instanceof RuntimeException){
+				throw (RuntimeException)cause;
+			}
+			throw new IllegalArgumentException(cause.getMessage(), cause);
+		}
+		finally{
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Adds a managed project, replacing a project with the same PM identifier or base directory.
+	 * @param mp the project
+	 */
+	protected void add(Model_ManagedProject mp){
+		this.projects.put(mp.getPmId(), mp);
+		this.baseDirs.put(normalize(mp.getBaseDir()), mp);
+	}
+
+	/**
+	 * Returns the normalized absolute path for a file.
+	 * @param file the file
+	 * @return normalized absolute file
+	 */
+	protected static File normalize(File file){
+		return file.getAbsoluteFile().toPath().normalize().toFile();
+	}
+
+	/**
+	 * Sets the number of threads used to load managed projects.
+	 * @param loadThreads number of threads, 1 or less loads all projects sequentially
+	 */
+	public void setLoadThreads(int loadThreads){
+		this.loadThreads = loadThreads;
+	}
+
 	/**
 	 * Returns the model context.
 	 * @return model context
@@ -89,19 +218,106 @@ public class PM_Model {
 		return this.projects.values();
 	}
 
+	/**
+	 * Reloads a single managed project, for instance after its configuration changed.
+	 * The reloaded project replaces the project with the same base directory.
+	 * Dependencies of the reloaded project need to be updated afterwards.
+	 * @param baseDir the project base directory
+	 * @return the reloaded project
+	 * @throws IOException if read on a property file failed
+	 * @throws FileNotFoundException if a property file was not found
+	 * @throws NullPointerException if argument was null
+	 * @throws IllegalArgumentException if the project directory is not valid or the project could not be loaded
+	 */
+	public Model_ManagedProject reloadProject(File baseDir) throws FileNotFoundException, IOException{
+		ModelLoader ml = new ModelLoader(this.mc, Collections.<Object>singletonList(baseDir));
+		Entry<File, Pair<File, File>> e = ml.getProjectFiles().entrySet().iterator().next();
+
+		Model_ManagedProject old = this.getManagedProject(baseDir);
+		Model_ManagedProject mp = new Model_ManagedProject(this.mc, e.getKey(), ml.getListing(e.getKey()), e.getValue().getValue());
+		if(old!=null && !old.getPmId().equals(mp.getPmId())){
+			this.projects.remove(old.getPmId());
+			this.mc.unregisterManagedProject(old.getPmId());
+		}
+		this.add(mp);
+		this.graph = null;
+		return mp;
+	}
+
+	/**
+	 * Returns the managed project for a base directory.
+	 * @param baseDir the project base directory
+	 * @return the managed project, null if none found
+	 */
+	public Model_ManagedProject getManagedProject(File baseDir){
+		return this.baseDirs.get(normalize(baseDir));
+	}
+
+	/**
+	 * Returns the managed project for a PM identifier.
+	 * @param pmId the PM identifier
+	 * @return the managed project, null if none found
+	 */
+	public Model_ManagedProject getManagedProject(String pmId){
+		return this.projects.get(pmId);
+	}
+
 	/**
 	 * Update dependencies for each loaded project.
 	 * Once all projects and the build version dependencies are loaded, we can update the dependencies for each individual project.
 	 * This allows forward definition of dependencies.
 	 */
 	public void updateProjectDependencies(){
+		this.updateProjectDependencies(this.projects.values());
+	}
+
+	/**
+	 * Update dependencies for some loaded projects, for instance after they have been reloaded or dependency versions changed.
+	 * @param mps the projects to update
+	 * @throws IllegalArgumentException if dependencies of any project could not be updated
+	 */
+	public void updateProjectDependencies(Collection<Model_ManagedProject> mps){
+		this.graph = null;
 		StrBuilder error = new StrBuilder();
-		for(Model_ManagedProject mp : this.projects.values()){
-			error.appendSeparator('\n');
-			error.append(mp.updateDependencies());
+		PM_Metrics.Span span = this.mc.getMetrics().startPhase(PM_Metrics.PHASE_RESOLVE);
+		try{
+			for(Model_ManagedProject mp : mps){
+				PM_Metrics.Span ps = this.mc.getMetrics().startProject(PM_Metrics.PHASE_RESOLVE, mp.getPmId());
+				error.appendSeparator('\n');
+				error.append(mp.updateDependencies());
+				ps.stop();
+			}
+		}
+		finally{
+			span.stop();
 		}
 		if(error.size()>0){
 			throw new IllegalArgumentException("problems updating dependencies, see below\n" + error.toString());
 		}
 	}
+
+	/**
+	 * Returns the dependency graph of all managed projects, ordinals follow the (sorted) order of {@link #getManagedProjects()}.
+	 * The graph is created on first access after dependencies have been updated.
+	 * @return dependency graph
+	 */
+	public PM_DependencyGraph getDependencyGraph(){
+		if(this.graph==null){
+			this.graph = new PM_DependencyGraph(this.projects.values());
+		}
+		return this.graph;
+	}
+
+	/**
+	 * Returns the reverse-dependency index of all managed projects, for impact queries.
+	 * The index is created on first access for the current {@link #getDependencyGraph()}.
+	 * @return reverse-dependency index
+	 */
+	public PM_ImpactIndex getImpactIndex(){
+		PM_DependencyGraph current = this.getDependencyGraph();
+		if(this.impact==null || this.impact.getGraph()!=current){
+			this.impact = new PM_ImpactIndex(current);
+		}
+		return this.impact;
+	}
 }
@@ -0,0 +1,129 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.mvn.pm.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * A listing of a project PM directory, read with a single directory stream.
+ *
+ * All tests for files in the PM directory (project files, plugin and profile files) are done against the listing in memory.
+ * File attributes are only read for names that are asked for, once per name.
+ * Names with a path (for instance a plugin file in a sub-directory) are not in the listing, their attributes are read directly.
+ * A listing is not thread-safe, it is meant to be used by the thread loading the project.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+public class PmDirectoryListing {
+
+	/** The listed directory. */
+	protected final File dir;
+
+	/** All names in the directory, mapped to their attributes once read. */
+	protected final Map<String, BasicFileAttributes> entries;
+
+	/**
+	 * Lists a directory.
+	 * @param dir the directory
+	 * @throws NullPointerException if argument was null
+	 * @throws NoSuchFileException if the directory does not exist
+	 * @throws java.nio.file.NotDirectoryException if the argument is not a directory
+	 * @throws java.nio.file.AccessDeniedException if the directory cannot be read
+	 * @throws IOException if any other IO error occurred while listing
+	 */
+	public PmDirectoryListing(File dir) throws IOException{
+		Validate.notNull(dir);
+		this.dir = dir;
+		this.entries = new HashMap<>();
+		try(DirectoryStream<Path> ds = Files.newDirectoryStream(dir.toPath())){
+			for(Path p : ds){
+				this.entries.put(p.getFileName().toString(), null);
+			}
+		}
+	}
+
+	/**
+	 * Returns the listed directory.
+	 * @return directory
+	 */
+	public File getDir(){
+		return this.dir;
+	}
+
+	/**
+	 * Returns a file in the listed directory.
+	 * @param name the file name
+	 * @return file
+	 */
+	public File getFile(String name){
+		return new File(this.dir + File.separator + name);
+	}
+
+	/**
+	 * Tests if the listed directory contains a regular file (or a link to a regular file).
+	 * @param name the file name, relative to the listed directory
+	 * @return true if the file exists and is a regular file, false otherwise
+	 */
+	public boolean isFile(String name){
+		BasicFileAttributes attrs = this.getAttributes(name);
+		return attrs!=null && attrs.isRegularFile();
+	}
+
+	/**
+	 * Returns the attributes of a file in the listed directory.
+	 * @param name the file name, relative to the listed directory
+	 * @return attributes, null if the file does not exist or its attributes could not be read
+	 */
+	public BasicFileAttributes getAttributes(String name){
+		boolean listed = this.entries.containsKey(name);
+		if(listed && this.entries.get(name)!=null){
+			return this.entries.get(name);
+		}
+		if(!listed && name.indexOf('/')<0 && name.indexOf(File.separatorChar)<0){
+			return null;
+		}
+
+		BasicFileAttributes ret = null;
+		try{
+			ret = Files.readAttributes(this.getFile(name).toPath(), BasicFileAttributes.class);
+		}
+		catch(IOException ignore){}
+		if(listed){
+			this.entries.put(name, ret);
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns the number of names in the listed directory.
+	 * @return number of names
+	 */
+	public int size(){
+		return this.entries.size();
+	}
+}
@@ -0,0 +1,93 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.mvn.pm.model;
+
+import java.io.File;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+
+/**
+ * Sidecar index with the content digest of every POM file as last written (or verified) by the project manager.
+ * Each entry also records size and modification time of the POM file, so an index entry is only used while the POM file was not touched by anyone else.
+ * An entry is not used if the POM file was modified within {@link ModelSnapshot#RACY_WINDOW} before the entry was recorded,
+ * since a change in the same timestamp tick does not change the modification time; the POM file is then compared by content.
+ * This allows to test a newly rendered POM against the existing one without reading the existing POM file.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+public class PomDigests {
+
+	/** The index, mapping PM identifier to an entry with digest, POM file size, POM file modification time, and time the entry was recorded. */
+	protected final ManifestFile index;
+
+	/**
+	 * Creates a new digest index, loading existing entries from the index file if it exists.
+	 * @param indexFile the index file
+	 * @throws NullPointerException if argument was null
+	 * @throws IllegalArgumentException if an existing index file could not be read
+	 */
+	public PomDigests(File indexFile){
+		this.index = new ManifestFile(indexFile, "POM digest index of the project manager, do not edit");
+	}
+
+	/**
+	 * Returns the digest of a POM file, if the file was not changed since the digest was recorded.
+	 * @param pmId the PM identifier of the project
+	 * @param pomFile the POM file
+	 * @return the recorded digest, null if none was recorded, the POM file changed since, or it was modified too close to the time the digest was recorded
+	 */
+	public String getDigest(String pmId, File pomFile){
+		String entry = this.index.get(pmId);
+		if(entry==null || !pomFile.isFile()){
+			return null;
+		}
+		String[] split = StringUtils.split(entry);
+		if(split.length!=4 || !split[1].equals(Long.toString(pomFile.length()))){
+			return null;
+		}
+		long modified = pomFile.lastModified();
+		if(!split[2].equals(Long.toString(modified)) || modified>=NumberUtils.toLong(split[3]) - ModelSnapshot.RACY_WINDOW){
+			return null;
+		}
+		return split[0];
+	}
+
+	/**
+	 * Records the digest of a POM file, should be called once the POM file is written.
+	 * @param pmId the PM identifier of the project
+	 * @param pomFile the POM file
+	 * @param digest the digest of the POM file's content, null to remove an existing entry
+	 */
+	public void record(String pmId, File pomFile, String digest){
+		if(digest==null || !pomFile.isFile()){
+			this.index.put(pmId, null);
+		}
+		else{
+			this.index.put(pmId, digest + ' ' + pomFile.length() + ' ' + pomFile.lastModified() + ' ' + System.currentTimeMillis());
+		}
+	}
+
+	/**
+	 * Saves the index, entries are sorted by PM identifier.
+	 * @throws IllegalArgumentException if the index file could not be written
+	 */
+	public void save(){
+		this.index.save();
+	}
+}
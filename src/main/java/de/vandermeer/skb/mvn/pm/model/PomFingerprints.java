@@ -0,0 +1,237 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.mvn.pm.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.math.NumberUtils;
+
+import de.vandermeer.skb.mvn.Licenses;
+import de.vandermeer.skb.mvn.PmConstants;
+import de.vandermeer.skb.mvn.ProjectFiles;
+
+/**
+ * Fingerprint manifest for incremental POM generation.
+ * A fingerprint is a digest over all inputs of a managed project: its property file, its project files, plugin and profile files, its resolved dependencies, the plugin versions of the context, and the built-in template and fragments.
+ * Project files, plugin and profile files are read through the fragment cache, so shared fragments are read once for all projects.
+ * The manifest maps each project's PM identifier to the fingerprint of the last generation run together with size and modification time of the POM file it resulted in, and the time the entry was recorded.
+ * A project is up-to-date if its fingerprint did not change and its POM file was not touched since.
+ * A POM file modified within {@link ModelSnapshot#RACY_WINDOW} before the entry was recorded is not trusted, since a change in the same timestamp tick does not change the modification time; the project is then rendered and compared.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+public class PomFingerprints {
+
+	/** Digest algorithm for fingerprints. */
+	public static final String ALGORITHM = "SHA-256";
+
+	/** Built-in fragments that are part of every fingerprint. */
+	static final String[] BUILTIN_FRAGMENTS = new String[]{
+			PmConstants.POM_TEMPLATE_FILE,
+			PmConstants.JAR_PLUGIN_FILE,
+			PmConstants.JAVADOC_JAR_PROFILE_FILE,
+			PmConstants.JAVADOC_ADOC_JAR_PROFILE_FILE,
+			PmConstants.SRC_JAR_PROFILE_FILE,
+			PmConstants.COMPILER_PLUGIN_FILE,
+			PmConstants.BUNDLEDOC_PROFILE_FILE,
+			PmConstants.SITE_PLUGIN_FILE
+	};
+
+	/** Digest of template and built-in fragments, computed once per JVM. */
+	private static volatile byte[] builtinDigest;
+
+	/** The manifest, mapping PM identifier to an entry with fingerprint, POM file size, POM file modification time, and time the entry was recorded. */
+	protected final ManifestFile manifest;
+
+	/**
+	 * Creates a new fingerprint manifest, loading existing entries from the manifest file if it exists.
+	 * @param manifestFile the manifest file
+	 * @throws NullPointerException if argument was null
+	 * @throws IllegalArgumentException if an existing manifest file could not be read
+	 */
+	public PomFingerprints(File manifestFile){
+		this.manifest = new ManifestFile(manifestFile, "fingerprint manifest of the project manager, do not edit");
+	}
+
+	/**
+	 * Computes the fingerprint of a managed project.
+	 * @param mp the managed project, with updated dependencies
+	 * @param fragments cache to read project files, plugin and profile files through
+	 * @param metrics metrics to record bytes read in, null for none
+	 * @return fingerprint as hex string
+	 * @throws NullPointerException if project or cache was null
+	 * @throws IOException if any input file could not be read
+	 */
+	public String fingerprint(Model_ManagedProject mp, FragmentCache fragments, PM_Metrics metrics) throws IOException{
+		Validate.notNull(mp);
+		Validate.notNull(fragments);
+		MessageDigest md = newDigest();
+		md.update(getBuiltinDigest());
+
+		byte[] properties = Files.readAllBytes(mp.projectPropertyFile.toPath());
+		if(metrics!=null){
+			metrics.read(properties.length);
+		}
+		this.update(md, properties);
+		for(Entry<ProjectFiles, File> pf : mp.getOtherProjectFiles().entrySet()){
+			this.update(md, pf.getKey().name());
+			this.update(md, fragments.get(pf.getValue(), metrics));
+		}
+		for(File f : mp.getPlugins()){
+			this.update(md, "plugin");
+			this.update(md, fragments.get(f, metrics));
+		}
+		for(File f : mp.getProfiles()){
+			this.update(md, "profile");
+			this.update(md, fragments.get(f, metrics));
+		}
+		for(Model_Dependency dep : mp.getDependencies()){
+			this.update(md, dep.getGroupId() + ' ' + dep.getArtifactId() + ' ' + dep.getVersion() + ' ' + dep.getScope());
+		}
+		for(Map<String, String> pv : mp.getModelContext().getPluginVersions()){
+			this.update(md, pv.get("key") + '=' + pv.get("value"));
+		}
+		return toHex(md.digest());
+	}
+
+	/**
+	 * Tests if a project is up-to-date, i.e. the fingerprint is unchanged and the POM file was not changed since it was last generated.
+	 * @param mp the managed project
+	 * @param fingerprint the current fingerprint of the project
+	 * @return true if the project is up-to-date, false otherwise (also if the POM file was modified too close to the time the entry was recorded)
+	 */
+	public boolean isUpToDate(Model_ManagedProject mp, String fingerprint){
+		String entry = this.manifest.get(mp.getPmId());
+		File pomFile = new File(mp.baseDir + File.separator + "pom.xml");
+		if(entry==null || !pomFile.isFile()){
+			return false;
+		}
+		String[] split = StringUtils.split(entry);
+		if(split.length!=4 || !split[0].equals(fingerprint) || !split[1].equals(Long.toString(pomFile.length()))){
+			return false;
+		}
+		long modified = pomFile.lastModified();
+		return split[2].equals(Long.toString(modified)) && modified<NumberUtils.toLong(split[3]) - ModelSnapshot.RACY_WINDOW;
+	}
+
+	/**
+	 * Records the fingerprint of a project, should be called once its POM file is up-to-date.
+	 * @param mp the managed project
+	 * @param fingerprint the fingerprint to record
+	 */
+	public void record(Model_ManagedProject mp, String fingerprint){
+		this.manifest.put(mp.getPmId(), this.entry(mp, fingerprint));
+	}
+
+	/**
+	 * Saves the manifest, entries are sorted by PM identifier.
+	 * @throws IllegalArgumentException if the manifest file could not be written
+	 */
+	public void save(){
+		this.manifest.save();
+	}
+
+	/**
+	 * Creates a manifest entry for a project.
+	 * @param mp the managed project
+	 * @param fingerprint the fingerprint
+	 * @return manifest entry, null if the project has no POM file
+	 */
+	protected String entry(Model_ManagedProject mp, String fingerprint){
+		File pomFile = new File(mp.baseDir + File.separator + "pom.xml");
+		if(!pomFile.isFile()){
+			return null;
+		}
+		return fingerprint + ' ' + pomFile.length() + ' ' + pomFile.lastModified() + ' ' + System.currentTimeMillis();
+	}
+
+	/**
+	 * Adds a string to a digest, prefixed with its length.
+	 * @param md the digest
+	 * @param s the string
+	 */
+	protected void update(MessageDigest md, String s){
+		this.update(md, StringUtils.defaultString(s).getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Adds bytes to a digest, prefixed with their length so that adjacent inputs cannot be confused.
+	 * @param md the digest
+	 * @param bytes the bytes
+	 */
+	protected void update(MessageDigest md, byte[] bytes){
+		int l = bytes.length;
+		md.update(new byte[]{(byte)(l>>>24), (byte)(l>>>16), (byte)(l>>>8), (byte)l});
+		md.update(bytes);
+	}
+
+	/**
+	 * Returns the digest of template and built-in fragments, computing it on first access.
+	 * @return digest of template and built-in fragments
+	 */
+	static byte[] getBuiltinDigest(){
+		if(builtinDigest==null){
+			MessageDigest md = newDigest();
+			for(String fn : BUILTIN_FRAGMENTS){
+				md.update(FragmentRegistry.get(fn).getBytes(StandardCharsets.UTF_8));
+			}
+			for(Licenses l : Licenses.values()){
+				md.update(FragmentRegistry.get(l).getBytes(StandardCharsets.UTF_8));
+			}
+			builtinDigest = md.digest();
+		}
+		return builtinDigest;
+	}
+
+	/**
+	 * Creates a new message digest for fingerprints.
+	 * @return new message digest
+	 */
+	static MessageDigest newDigest(){
+		try{
+			return MessageDigest.getInstance(ALGORITHM);
+		}
+		catch(NoSuchAlgorithmException nsaex){
+			throw new IllegalStateException("fingerprints: digest algorithm not available <" + ALGORITHM + ">");
+		}
+	}
+
+	/**
+	 * Returns a hex string for a byte array.
+	 * @param bytes input bytes
+	 * @return hex string
+	 */
+	static String toHex(byte[] bytes){
+		char[] hex = "0123456789abcdef".toCharArray();
+		char[] ret = new char[bytes.length * 2];
+		for(int i=0; i<bytes.length; i++){
+			ret[i*2] = hex[(bytes[i] >> 4) & 0x0f];
+			ret[i*2+1] = hex[bytes[i] & 0x0f];
+		}
+		return new String(ret);
+	}
+}
@@ -0,0 +1,134 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.mvn.pm.model;
+
+import java.util.Map;
+
+import org.stringtemplate.v4.Interpreter;
+import org.stringtemplate.v4.ModelAdaptor;
+import org.stringtemplate.v4.ST;
+import org.stringtemplate.v4.misc.MapModelAdaptor;
+import org.stringtemplate.v4.misc.ObjectModelAdaptor;
+import org.stringtemplate.v4.misc.STNoSuchPropertyException;
+
+/**
+ * Model adaptor for the POM template, resolving the properties of managed projects, dependencies, the model context, and plugin versions without reflection.
+ * Properties are resolved by a switch over the property names used in the POM template, any other property is resolved by the default adaptors of StringTemplate.
+ * The default object adaptor is synchronized, this adaptor is not and can be used by many threads at the same time.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+public class PomModelAdaptor implements ModelAdaptor {
+
+	/** Adaptor for object properties not known by this adaptor. */
+	protected final ModelAdaptor objects = new ObjectModelAdaptor();
+
+	/** Adaptor for map properties other than key and value. */
+	protected final ModelAdaptor maps = new MapModelAdaptor();
+
+	@Override
+	public Object getProperty(Interpreter interp, ST self, Object o, Object property, String propertyName) throws STNoSuchPropertyException {
+		if(propertyName==null){
+			return this.objects.getProperty(interp, self, o, property, propertyName);
+		}
+		if(o instanceof Model_ManagedProject){
+			Model_ManagedProject mp = (Model_ManagedProject)o;
+			switch(propertyName){
+				case "mvnGroupId":
+					return mp.getMvnGroupId();
+				case "mvnArtifactId":
+					return mp.getMvnArtifactId();
+				case "mvnVersion":
+					return mp.getMvnVersion();
+				case "mvnPackaging":
+					return mp.getMvnPackaging();
+				case "mvnName":
+					return mp.getMvnName();
+				case "mvnDescription":
+					return mp.getMvnDescription();
+				case "mvnUrl":
+					return mp.getMvnUrl();
+				case "mvnInceptionYear":
+					return mp.getMvnInceptionYear();
+				case "mvnCompilerSource":
+					return mp.getMvnCompilerSource();
+				case "mvnCompilerTarget":
+					return mp.getMvnCompilerTarget();
+				case "mvnEncoding":
+					return mp.getMvnEncoding();
+				case "mvnOrgName":
+					return mp.getMvnOrgName();
+				case "mvnOrgUrl":
+					return mp.getMvnOrgUrl();
+				case "mvnIssueMgmtSystem":
+					return mp.getMvnIssueMgmtSystem();
+				case "mvnIssueMgmtUrl":
+					return mp.getMvnIssueMgmtUrl();
+				case "mvnScmConnection":
+					return mp.getMvnScmConnection();
+				case "mvnScmDeveloperConnection":
+					return mp.getMvnScmDeveloperConnection();
+				case "mvnScmUrl":
+					return mp.getMvnScmUrl();
+				case "dependencies":
+					return mp.getDependencies();
+				case "modelContext":
+					return mp.getModelContext();
+				case "pmId":
+					return mp.getPmId();
+				default:
+					break;
+			}
+		}
+		else if(o instanceof Model_Dependency){
+			Model_Dependency dep = (Model_Dependency)o;
+			switch(propertyName){
+				case "groupId":
+					return dep.getGroupId();
+				case "artifactId":
+					return dep.getArtifactId();
+				case "version":
+					return dep.getVersion();
+				case "scope":
+					return dep.getScope();
+				default:
+					break;
+			}
+		}
+		else if(o instanceof PM_Context){
+			if("pluginVersions".equals(propertyName)){
+				return ((PM_Context)o).getPluginVersions();
+			}
+		}
+		else if(o instanceof Map){
+			switch(propertyName){
+				case "key":
+				case "value":
+					Object ret = ((Map<?, ?>)o).get(propertyName);
+					if(ret!=null){
+						return ret;
+					}
+					break;
+				default:
+					break;
+			}
+			return this.maps.getProperty(interp, self, o, property, propertyName);
+		}
+		return this.objects.getProperty(interp, self, o, property, propertyName);
+	}
+}
@@ -0,0 +1,53 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.mvn.pm.model;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A renderer for POM files, creating the POM of a managed project from the project and its fragments.
+ * All renderers create the same output, byte by byte, as the POM template ({@link StPomRenderer}).
+ * Renderers are loaded once per run and then used by many threads at the same time.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+public interface PomRenderer {
+
+	/**
+	 * Returns the name of the renderer, as used to configure it.
+	 * @return renderer name
+	 */
+	String getName();
+
+	/**
+	 * Loads everything the renderer needs, called once before POM files are rendered.
+	 */
+	void load();
+
+	/**
+	 * Renders the POM file of a project.
+	 * @param mp the managed project
+	 * @param fragments fragment texts by template attribute (for instance licenses, plugins, profiles), each in the order they were added
+	 * @param out the writer for the POM, not closed
+	 * @throws IOException if writing failed
+	 */
+	void render(Model_ManagedProject mp, Map<String, List<String>> fragments, Writer out) throws IOException;
+}
@@ -15,17 +15,50 @@
 
 package de.vandermeer.skb.mvn.pm.model;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.Map.Entry;
-import java.util.Scanner;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.input.CountingInputStream;
+import org.apache.commons.io.output.CountingOutputStream;
 import org.apache.commons.lang3.Validate;
 import org.apache.commons.lang3.text.StrBuilder;
-import org.stringtemplate.v4.ST;
-import org.stringtemplate.v4.STGroup;
-import org.stringtemplate.v4.STGroupFile;
 
 import de.vandermeer.skb.mvn.Licenses;
 import de.vandermeer.skb.mvn.PmConstants;
@@ -33,6 +66,13 @@ import de.vandermeer.skb.mvn.ProjectFiles;
 
 /**
  * Writes POM files to target directory and copies to project folder if POM there differs.
+ * POM files are rendered straight into the generated file while being compared with the existing POM file, no POM is built as a string.
+ * If the digest of the existing POM file is known from the digest index ({@link PmConstants#POM_DIGEST_FILE}), the existing POM file is not read at all.
+ * POM files are replaced atomically: the new content is written to a temporary file next to the POM file and then renamed.
+ * In check mode ({@link #checkPoms(Collection, Writer)}) POM files are rendered in memory only, nothing is written.
+ * POM files are rendered by a {@link PomRenderer}, the POM template ({@link StPomRenderer}) unless set otherwise.
+ * In streaming mode ({@link #writePoms(ModelIndex, Writer)}) projects are loaded one at a time from an index, written, and released, the report is written as it is created.
+ * A POM file that cannot be rendered, synced, or renamed is reported as warning ({@link #getWarnings()}) and not in the report, its temporary file is removed and the existing POM file is left as it is.
  *
  * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
  * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
@@ -40,6 +80,51 @@ import de.vandermeer.skb.mvn.ProjectFiles;
  */
 public class PomWriter {
 
+	/** Suffix for temporary POM files, written next to the POM file and then renamed. */
+	public static final String TMP_SUFFIX = ".pm-tmp";
+
+	/** Maximum number of pending POM files in streaming mode, more are synced and renamed in batches of this size. */
+	public static final int PENDING_BATCH = 256;
+
+	/** Number of threads used to render and write POM files, 1 (the default) writes them sequentially. */
+	protected int threads = 1;
+
+	/** Flag for incremental generation, skipping projects whose inputs did not change since the last run. */
+	protected boolean incremental = false;
+
+	/** Flag for syncing new POM files to disk, done in one batch at the end of a run. */
+	protected boolean fsync = false;
+
+	/** The renderer for POM files. */
+	protected PomRenderer renderer = new StPomRenderer();
+
+	/** The work directory for manifests. */
+	protected File workDir = new File(PmConstants.WORK_DIR);
+
+	/** The fingerprint manifest of the current run, null if not in incremental mode. */
+	protected PomFingerprints fingerprints;
+
+	/** The POM digest index of the current run. */
+	protected PomDigests digests;
+
+	/** POM files waiting to be synced and renamed at the end of the current run. */
+	protected final List<PendingPom> pending = Collections.synchronizedList(new ArrayList<PendingPom>());
+
+	/** Metrics for phases and projects. */
+	protected PM_Metrics metrics = new PM_Metrics();
+
+	/** Cache for project, plugin and profile files, shared by all projects. */
+	protected FragmentCache fragments = new FragmentCache();
+
+	/** Problems of the current run that did not fail it. */
+	protected final List<String> warnings = Collections.synchronizedList(new ArrayList<String>());
+
+	/** POM files of the current run that could not be replaced when pending POM files were committed. */
+	protected final Set<File> failed = new HashSet<>();
+
+	/** Report of pending POM files in streaming mode, by POM file in the order of the index, written once the POM files are committed. */
+	protected final Map<File, String> held = new LinkedHashMap<>();
+
 	/**
 	 * Creates a new writer.
 	 */
@@ -49,97 +134,785 @@ public class PomWriter {
 	}
 
 	/**
-	 * Writes POM files to target folder, test difference with original POM files, copies if the files differ
+	 * Sets the number of threads used to render and write POM files.
+	 * @param threads number of threads, 1 or less writes all POM files sequentially
+	 */
+	public void setThreads(int threads){
+		this.threads = threads;
+	}
+
+	/**
+	 * Sets the incremental generation flag.
+	 * In incremental mode, a fingerprint manifest ({@link PmConstants#FINGERPRINT_FILE}) is maintained and projects with unchanged inputs are neither rendered nor compared.
+	 * @param incremental true for incremental generation, false to render all projects
+	 */
+	public void setIncremental(boolean incremental){
+		this.incremental = incremental;
+	}
+
+	/**
+	 * Sets the sync flag.
+	 * If set, new POM files are synced to disk before they replace the existing POM files, all in one batch at the end of a run.
+	 * @param fsync true to sync new POM files to disk, false to leave that to the operating system
+	 */
+	public void setFsync(boolean fsync){
+		this.fsync = fsync;
+	}
+
+	/**
+	 * Sets the work directory for manifests.
+	 * @param workDir the work directory, created when POM files are written
+	 */
+	public void setWorkDir(File workDir){
+		Validate.notNull(workDir);
+		this.workDir = workDir;
+	}
+
+	/**
+	 * Sets the metrics to record phases and projects in.
+	 * @param metrics the metrics
+	 */
+	public void setMetrics(PM_Metrics metrics){
+		Validate.notNull(metrics);
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Sets the renderer for POM files.
+	 * @param renderer the renderer
+	 */
+	public void setRenderer(PomRenderer renderer){
+		Validate.notNull(renderer);
+		this.renderer = renderer;
+	}
+
+	/**
+	 * Creates a renderer for POM files.
+	 * @param name the renderer name, {@link StPomRenderer#NAME} or {@link DirectPomRenderer#NAME}
+	 * @return new renderer, not loaded
+	 * @throws IllegalArgumentException if the name was not a known renderer name
+	 */
+	public static PomRenderer createRenderer(String name){
+		if(StPomRenderer.NAME.equals(name)){
+			return new StPomRenderer();
+		}
+		if(DirectPomRenderer.NAME.equals(name)){
+			return new DirectPomRenderer();
+		}
+		throw new IllegalArgumentException("unknown POM renderer <" + name + ">, use <" + StPomRenderer.NAME + "> or <" + DirectPomRenderer.NAME + ">");
+	}
+
+	/**
+	 * Sets the cache for project, plugin and profile files.
+	 * A cache can be shared by writers, for instance by all runs in watch mode.
+	 * @param fragments the cache
+	 */
+	public void setFragmentCache(FragmentCache fragments){
+		Validate.notNull(fragments);
+		this.fragments = fragments;
+	}
+
+	/**
+	 * Writes POM files to temporary files, test difference with original POM files, replaces them if the files differ
 	 * @param mps the collection of managed projects to process
 	 * @return an empty string if no original POM was written, a string with information about written files otherwise
 	 */
-	@SuppressWarnings("resource")
 	public String writePoms(Collection<Model_ManagedProject> mps){
 		Validate.notNull(mps);
 		Validate.noNullElements(mps);
 
-		File gpf = new File("target/project-manager/generated-pom-files");
-		gpf.mkdirs();
-
+		this.startRun();
 		StrBuilder ret = new StrBuilder();
-		STGroup stg = new STGroupFile("de/vandermeer/skb/mvn/pm/pom.stg");
-		for(Model_ManagedProject mp : mps){
-			ST pom = stg.getInstanceOf("pom");
-			pom.add("mp", mp);
-			if(mp.doesBundleDocs()){
-				pom.add("profiles", new Scanner(PomWriter.class.getResourceAsStream("/de/vandermeer/skb/mvn/pm/" + PmConstants.BUNDLEDOC_PROFILE_FILE), "UTF-8").useDelimiter("\\A").next());
+		PM_Metrics.Span span = this.metrics.startPhase(PM_Metrics.PHASE_WRITE);
+		try{
+			List<String> written;
+			if(this.threads<=1 || mps.size()<=1){
+				written = new ArrayList<>();
+				for(Model_ManagedProject mp : mps){
+					written.add(this.writePom(mp));
+				}
 			}
-			if(mp.wantsJarPLugin()){
-				pom.add("plugins", new Scanner(PomWriter.class.getResourceAsStream("/de/vandermeer/skb/mvn/pm/" + PmConstants.JAR_PLUGIN_FILE), "UTF-8").useDelimiter("\\A").next());
+			else{
+				written = this.writePomsParallel(mps);
+			}
+			this.commitPending();
+
+			//POM files that could not be committed are not reported as written
+			int i = 0;
+			for(Model_ManagedProject mp : mps){
+				if(!this.failed.contains(PomWriter.getPomFile(mp))){
+					ret.append(written.get(i));
+				}
+				i++;
 			}
-			if(mp.wantsSitePlugin()){
-				pom.add("plugins", new Scanner(PomWriter.class.getResourceAsStream("/de/vandermeer/skb/mvn/pm/" + PmConstants.SITE_PLUGIN_FILE), "UTF-8").useDelimiter("\\A").next());
+		}
+		finally{
+			span.stop();
+		}
+		this.finishRun();
+		return ret.toString();
+	}
+
+	/**
+	 * Writes POM files in streaming mode: projects are loaded from the index one at a time, written, and released.
+	 * With several threads, at most twice as many projects as threads are loaded at the same time.
+	 * Pending POM files (sync mode) are synced and renamed in batches of at most {@link #PENDING_BATCH} files.
+	 * @param index the index of the projects to process
+	 * @param report writer for information about written files, flushed after each written file (in the order of the index), in sync mode after each batch of committed files
+	 * @return number of written POM files
+	 * @throws NullPointerException if any argument was null
+	 * @throws IllegalArgumentException if any project could not be loaded or the report could not be written
+	 */
+	public int writePoms(ModelIndex index, Writer report){
+		Validate.notNull(index);
+		Validate.notNull(report);
+
+		this.startRun();
+		int ret;
+		PM_Metrics.Span span = this.metrics.startPhase(PM_Metrics.PHASE_WRITE);
+		try{
+			ret = (this.threads<=1 || index.size()<=1)?this.writePomsStreaming(index, report):this.writePomsStreamingParallel(index, report);
+			this.commitPending();
+			ret += this.flushHeld(report);
+		}
+		catch(IOException ioex){
+			throw new IllegalArgumentException(ioex.getMessage(), ioex);
+		}
+		finally{
+			span.stop();
+		}
+		this.finishRun();
+		return ret;
+	}
+
+	/**
+	 * Starts a run: creates the work directory, loads the renderer and the manifests.
+	 */
+	protected void startRun(){
+		this.workDir.mkdirs();
+		this.loadRenderer();
+
+		this.fingerprints = (this.incremental)?new PomFingerprints(new File(this.workDir, PmConstants.FINGERPRINT_FILE)):null;
+		this.digests = new PomDigests(new File(this.workDir, PmConstants.POM_DIGEST_FILE));
+		this.pending.clear();
+		this.failed.clear();
+		this.held.clear();
+	}
+
+	/**
+	 * Finishes a run: saves the manifests.
+	 */
+	protected void finishRun(){
+		PM_Metrics.Span span = this.metrics.startPhase(PM_Metrics.PHASE_MANIFESTS);
+		try{
+			if(this.fingerprints!=null){
+				this.fingerprints.save();
 			}
-			if(mp.wantsSourceProfile()){
-				pom.add("profiles", new Scanner(PomWriter.class.getResourceAsStream("/de/vandermeer/skb/mvn/pm/" + PmConstants.SRC_JAR_PROFILE_FILE), "UTF-8").useDelimiter("\\A").next());
+			this.digests.save();
+		}
+		finally{
+			span.stop();
+		}
+	}
+
+	/**
+	 * Writes POM files of an index sequentially.
+	 * @param index the index of the projects to process
+	 * @param report writer for information about written files
+	 * @return number of written POM files
+	 * @throws IOException if a project could not be read or the report could not be written
+	 */
+	protected int writePomsStreaming(ModelIndex index, Writer report) throws IOException{
+		int ret = 0;
+		for(String pmId : index.getPmIds()){
+			ret += this.report(this.writePom(index.load(pmId)), index.getPomFile(pmId), report);
+		}
+		return ret;
+	}
+
+	/**
+	 * Writes POM files of an index using a bounded thread pool, with at most twice as many projects in flight as threads.
+	 * @param index the index of the projects to process
+	 * @param report writer for information about written files, in the order of the index
+	 * @return number of written POM files
+	 * @throws IOException if a project could not be read or the report could not be written
+	 */
+	protected int writePomsStreamingParallel(final ModelIndex index, Writer report) throws IOException{
+		int ret = 0;
+		int window = 2 * this.threads;
+		ExecutorService pool = Executors.newFixedThreadPool(Math.min(this.threads, index.size()));
+		try{
+			Deque<Future<String>> futures = new ArrayDeque<>();
+			Deque<String> pmIds = new ArrayDeque<>();
+			for(final String pmId : index.getPmIds()){
+				if(futures.size()>=window){
+					ret += this.report(futures.removeFirst().get(), index.getPomFile(pmIds.removeFirst()), report);
+				}
+				futures.addLast(pool.submit(new Callable<String>() {
+					@Override
+					public String call() throws Exception {
+						return PomWriter.this.writePom(index.load(pmId));
+					}
+				}));
+				pmIds.addLast(pmId);
 			}
-			if(mp.wantsCompilerPlugin()){
-				pom.add("plugins", new Scanner(PomWriter.class.getResourceAsStream("/de/vandermeer/skb/mvn/pm/" + PmConstants.COMPILER_PLUGIN_FILE), "UTF-8").useDelimiter("\\A").next());
+			while(!futures.isEmpty()){
+				ret += this.report(futures.removeFirst().get(), index.getPomFile(pmIds.removeFirst()), report);
 			}
-			if(mp.wantsJavadocProfile()){
-				pom.add("profiles", new Scanner(PomWriter.class.getResourceAsStream("/de/vandermeer/skb/mvn/pm/" + PmConstants.JAVADOC_JAR_PROFILE_FILE), "UTF-8").useDelimiter("\\A").next());
+		}
+		catch(InterruptedException iex){
+			Thread.currentThread().interrupt();
+			throw new IllegalArgumentException("interrupted while writing POM files");
+		}
+		catch(ExecutionException eex){
+			Throwable cause = eex.getCause();
+			if(cause instanceof IOException){
+				throw (IOException)cause;
 			}
-			if(mp.wantsJavadocAdocProfile()){
-				pom.add("profiles", new Scanner(PomWriter.class.getResourceAsStream("/de/vandermeer/skb/mvn/pm/" + PmConstants.JAVADOC_ADOC_JAR_PROFILE_FILE), "UTF-8").useDelimiter("\\A").next());
+			throw new IllegalArgumentException(cause.getMessage(), cause);
+		}
+		finally{
+			pool.shutdownNow();
+		}
+		return ret;
+	}
+
+	/**
+	 * Reports a written POM file in streaming mode.
+	 * In sync mode the information is held until the pending POM files are committed, which happens once a batch is full.
+	 * @param written information about the written file, empty if nothing was written
+	 * @param pomFile the POM file
+	 * @param report writer for the information
+	 * @return number of POM files reported as written
+	 * @throws IOException if the report could not be written
+	 */
+	protected int report(String written, File pomFile, Writer report) throws IOException{
+		if(written.length()>0){
+			this.held.put(pomFile, written);
+		}
+		if(this.fsync && this.pending.size()<PENDING_BATCH){
+			return 0;
+		}
+		this.commitPending();
+		return this.flushHeld(report);
+	}
+
+	/**
+	 * Writes the held report of committed POM files in streaming mode, leaving out POM files that could not be committed.
+	 * @param report writer for the information
+	 * @return number of POM files reported as written
+	 * @throws IOException if the report could not be written
+	 */
+	protected int flushHeld(Writer report) throws IOException{
+		int ret = 0;
+		for(Entry<File, String> e : this.held.entrySet()){
+			if(!this.failed.contains(e.getKey())){
+				report.write(e.getValue());
+				ret++;
 			}
-			if(mp.getLicenses().size()>0){
-				for(Licenses l : mp.getLicenses()){
-					pom.add("licenses", new Scanner(PomWriter.class.getResourceAsStream("/de/vandermeer/skb/mvn/pm/licenses/" + l.getFileName()), "UTF-8").useDelimiter("\\A").next());
+		}
+		this.held.clear();
+		report.flush();
+		return ret;
+	}
+
+	/**
+	 * Loads the renderer for the current run.
+	 */
+	protected void loadRenderer(){
+		this.warnings.clear();
+		this.renderer.load();
+	}
+
+	/**
+	 * Returns the problems of the last run that did not fail it, for instance a fragment file that could not be read.
+	 * @return warnings, empty if there were none
+	 */
+	public List<String> getWarnings(){
+		return this.warnings;
+	}
+
+	/**
+	 * Checks POM files without touching them: renders all POM files in memory and compares them with the existing POM files.
+	 * For every stale POM file a unified diff is written, in the order of the given projects and as soon as it is available.
+	 * Neither POM files nor temporary files nor manifests are written.
+	 * @param mps the collection of managed projects to process
+	 * @param diffs writer for the diffs, flushed after each stale POM file
+	 * @return the stale POM files, empty if all POM files are up-to-date
+	 * @throws IllegalArgumentException if rendering, reading, or writing a diff failed
+	 */
+	public List<File> checkPoms(Collection<Model_ManagedProject> mps, Writer diffs){
+		Validate.notNull(mps);
+		Validate.noNullElements(mps);
+		Validate.notNull(diffs);
+		this.loadRenderer();
+
+		List<File> ret = new ArrayList<>();
+		PM_Metrics.Span span = this.metrics.startPhase(PM_Metrics.PHASE_DIFF);
+		ExecutorService pool = (this.threads>1 && mps.size()>1)?Executors.newFixedThreadPool(Math.min(this.threads, mps.size())):null;
+		try{
+			List<Future<String>> futures = new ArrayList<>();
+			if(pool!=null){
+				for(final Model_ManagedProject mp : mps){
+					futures.add(pool.submit(new Callable<String>() {
+						@Override
+						public String call() throws Exception {
+							return PomWriter.this.checkPom(mp);
+						}
+					}));
 				}
 			}
-			for(Entry<ProjectFiles, File> pf : mp.getOtherProjectFiles().entrySet()){
-				try{
-					pom.add(pf.getKey().getStAttribute(), new Scanner(pf.getValue(), "UTF-8").useDelimiter("\\A").next());
-				}
-				catch(Exception ignore){
-					ignore.printStackTrace();
+
+			int i = 0;
+			for(Model_ManagedProject mp : mps){
+				String diff = (pool!=null)?futures.get(i++).get():this.checkPom(mp);
+				if(diff.length()>0){
+					diffs.write(diff);
+					diffs.flush();
+					ret.add(new File(mp.baseDir + File.separator + "pom.xml"));
 				}
 			}
-			for(File f : mp.getPlugins()){
-				try{
-					pom.add("plugins", new Scanner(f, "UTF-8").useDelimiter("\\A").next());
+		}
+		catch(InterruptedException iex){
+			Thread.currentThread().interrupt();
+			throw new IllegalArgumentException("interrupted while checking POM files");
+		}
+		catch(ExecutionException eex){
+			throw new IllegalArgumentException(eex.getCause().getMessage(), eex.getCause());
+		}
+		catch(IOException ioex){
+			throw new IllegalArgumentException(ioex.getMessage(), ioex);
+		}
+		finally{
+			if(pool!=null){
+				pool.shutdownNow();
+			}
+			span.stop();
+		}
+		return ret;
+	}
+
+	/**
+	 * Renders the POM file for a single project in memory and compares it with the existing POM file.
+	 * Only if the POM files differ, the existing POM file is read as a whole to compute the diff.
+	 * @param mp the managed project to process
+	 * @return an empty string if the existing POM file is up-to-date, a unified diff otherwise
+	 * @throws IOException if reading the existing POM file failed
+	 */
+	protected String checkPom(Model_ManagedProject mp) throws IOException{
+		File pomFile = new File(mp.baseDir + File.separator + "pom.xml");
+		StringWriter rendered = new StringWriter();
+		boolean differs;
+
+		PM_Metrics.Span span = this.metrics.startProject(PM_Metrics.STAGE_RENDER, mp.getPmId());
+		try{
+			CountingInputStream existingIn = (pomFile.isFile())?new CountingInputStream(new FileInputStream(pomFile)):null;
+			Reader existing = (existingIn!=null)?new BufferedReader(new InputStreamReader(existingIn, StandardCharsets.UTF_8)):null;
+			ComparingWriter cw = new ComparingWriter(rendered, existing);
+			try{
+				this.renderer.render(mp, this.createFragments(mp), cw);
+				differs = cw.finish();
+			}
+			finally{
+				cw.close();
+				if(existingIn!=null){
+					this.metrics.read(existingIn.getByteCount());
 				}
-				catch(Exception ignore){
-					ignore.printStackTrace();
+			}
+		}
+		finally{
+			span.stop();
+		}
+		if(!differs){
+			return "";
+		}
+
+		span = this.metrics.startProject(PM_Metrics.STAGE_DIFF, mp.getPmId());
+		try{
+			String old = "";
+			if(pomFile.isFile()){
+				byte[] bytes = Files.readAllBytes(pomFile.toPath());
+				this.metrics.read(bytes.length);
+				old = new String(bytes, StandardCharsets.UTF_8);
+			}
+			UnifiedDiff diff = new UnifiedDiff(old, rendered.toString());
+			String name = PomWriter.getPatchName(pomFile);
+			StringWriter ret = new StringWriter();
+			diff.write(ret, (pomFile.isFile())?"a/" + name:"/dev/null", "b/" + name, UnifiedDiff.DEFAULT_CONTEXT);
+			return ret.toString();
+		}
+		finally{
+			span.stop();
+		}
+	}
+
+	/**
+	 * Returns the name of a POM file for a patch, relative to the working directory if possible so that the patch can be applied with <code>git apply</code> or <code>patch -p1</code>.
+	 * @param pomFile the POM file
+	 * @return relative path with forward slashes, the absolute path if the file is not below the working directory
+	 */
+	protected static String getPatchName(File pomFile){
+		Path path = pomFile.toPath().toAbsolutePath().normalize();
+		Path cwd = new File("").toPath().toAbsolutePath().normalize();
+		if(path.startsWith(cwd)){
+			path = cwd.relativize(path);
+		}
+		return path.toString().replace(File.separatorChar, '/');
+	}
+
+	/**
+	 * Writes POM files using a bounded thread pool.
+	 * @param mps the collection of managed projects to process
+	 * @return information about the written file for each project in the order of the given projects, empty if the POM file was not written
+	 */
+	protected List<String> writePomsParallel(Collection<Model_ManagedProject> mps){
+		List<String> ret = new ArrayList<>();
+		ExecutorService pool = Executors.newFixedThreadPool(Math.min(this.threads, mps.size()));
+		try{
+			List<Future<String>> futures = new ArrayList<>();
+			for(final Model_ManagedProject mp : mps){
+				futures.add(pool.submit(new Callable<String>() {
+					@Override
+					public String call() throws Exception {
+						return PomWriter.this.writePom(mp);
+					}
+				}));
+			}
+
+			//collect in the order of the given projects, so the report is the same as for sequential writing
+			for(Future<String> f : futures){
+				ret.add(f.get());
+			}
+		}
+		catch(InterruptedException iex){
+			Thread.currentThread().interrupt();
+			throw new IllegalArgumentException("interrupted while writing POM files");
+		}
+		catch(ExecutionException eex){
+			throw new IllegalArgumentException(eex.getCause().getMessage(), eex.getCause());
+		}
+		finally{
+			pool.shutdownNow();
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns the POM file of a project.
+	 * @param mp the managed project
+	 * @return POM file in the project base directory
+	 */
+	protected static File getPomFile(Model_ManagedProject mp){
+		return new File(mp.baseDir + File.separator + "pom.xml");
+	}
+
+	/**
+	 * Writes the POM file for a single project to a temporary file next to the original POM file, tests difference with original POM file, replaces it if the files differ.
+	 * A stale temporary file, for instance of an interrupted run, is removed first.
+	 * If the POM file cannot be rendered or replaced, a warning is added and the existing POM file is left as it is.
+	 * @param mp the managed project to process
+	 * @return an empty string if the original POM was not written, a string with information about the written file otherwise (in sync mode the file is replaced when pending POM files are committed)
+	 */
+	protected String writePom(Model_ManagedProject mp){
+		StrBuilder ret = new StrBuilder();
+		File tmp = new File(mp.baseDir + File.separator + "pom.xml" + TMP_SUFFIX);
+		FileUtils.deleteQuietly(tmp);
+		PM_Metrics.Span span = this.metrics.startProject(PM_Metrics.STAGE_RENDER, mp.getPmId());
+
+		String fingerprint = null;
+		if(this.fingerprints!=null){
+			try{
+				fingerprint = this.fingerprints.fingerprint(mp, this.fragments, this.metrics);
+				if(this.fingerprints.isUpToDate(mp, fingerprint)){
+					span.stop();
+					return ret.toString();
 				}
 			}
-			for(File f : mp.getProfiles()){
+			catch(IOException ioex){
+				this.warnings.add("could not compute fingerprint of project <" + mp.getPmId() + ">, got IOException <" + ioex.getMessage() + ">, POM file rendered");
+			}
+		}
+
+		File pomFile = PomWriter.getPomFile(mp);
+		try{
+			String digest;
+			try{
+				digest = this.writeAndCompare(mp, tmp, pomFile);
+			}
+			finally{
+				span.stop();
+			}
+			if(digest!=null){
+				span = this.metrics.startProject(PM_Metrics.STAGE_REPLACE, mp.getPmId());
 				try{
-					pom.add("profiles", new Scanner(f, "UTF-8").useDelimiter("\\A").next());
+					PendingPom pp = new PendingPom(mp, tmp, pomFile, digest, fingerprint);
+					if(this.fsync){
+						this.pending.add(pp);
+					}
+					else{
+						this.commit(pp);
+					}
+				}
+				finally{
+					span.stop();
 				}
-				catch(Exception ignore){
-					ignore.printStackTrace();
+				ret.append("writing new pom file: ");
+				ret.append(pomFile);
+				ret.appendNewLine();
+			}
+			else{
+				FileUtils.deleteQuietly(tmp);
+				if(fingerprint!=null){
+					this.fingerprints.record(mp, fingerprint);
 				}
 			}
+		}
+		catch(Exception ex){
+			FileUtils.deleteQuietly(tmp);
+			this.warnings.add("could not write POM file <" + pomFile + ">, got " + ex.getClass().getSimpleName() + " <" + ex.getMessage() + ">, POM file not changed");
+		}
+		return ret.toString();
+	}
 
-			File out = new File(gpf + File.separator + mp.getPmId() + ".pom");
-			try{
-				FileUtils.write(out, pom.render(), false);
+	/**
+	 * Collects all fragments of a project by template attribute: built-in plugins, profiles and licenses, other project files, plugin and profile files.
+	 * @param mp the managed project
+	 * @return fragment texts by template attribute, each in the order they were added
+	 */
+	protected Map<String, List<String>> createFragments(Model_ManagedProject mp){
+		Map<String, List<String>> ret = new HashMap<>();
+		if(mp.doesBundleDocs()){
+			this.addFragment(ret, "profiles", FragmentRegistry.get(PmConstants.BUNDLEDOC_PROFILE_FILE));
+		}
+		if(mp.wantsJarPLugin()){
+			this.addFragment(ret, "plugins", FragmentRegistry.get(PmConstants.JAR_PLUGIN_FILE));
+		}
+		if(mp.wantsSitePlugin()){
+			this.addFragment(ret, "plugins", FragmentRegistry.get(PmConstants.SITE_PLUGIN_FILE));
+		}
+		if(mp.wantsSourceProfile()){
+			this.addFragment(ret, "profiles", FragmentRegistry.get(PmConstants.SRC_JAR_PROFILE_FILE));
+		}
+		if(mp.wantsCompilerPlugin()){
+			this.addFragment(ret, "plugins", FragmentRegistry.get(PmConstants.COMPILER_PLUGIN_FILE));
+		}
+		if(mp.wantsJavadocProfile()){
+			this.addFragment(ret, "profiles", FragmentRegistry.get(PmConstants.JAVADOC_JAR_PROFILE_FILE));
+		}
+		if(mp.wantsJavadocAdocProfile()){
+			this.addFragment(ret, "profiles", FragmentRegistry.get(PmConstants.JAVADOC_ADOC_JAR_PROFILE_FILE));
+		}
+		if(mp.getLicenses().size()>0){
+			for(Licenses l : mp.getLicenses()){
+				this.addFragment(ret, "licenses", FragmentRegistry.get(l));
+			}
+		}
+		for(Entry<ProjectFiles, File> pf : mp.getOtherProjectFiles().entrySet()){
+			this.addFragment(ret, pf.getKey().getStAttribute(), pf.getValue());
+		}
+		for(File f : mp.getPlugins()){
+			this.addFragment(ret, "plugins", f);
+		}
+		for(File f : mp.getProfiles()){
+			this.addFragment(ret, "profiles", f);
+		}
+		return ret;
+	}
+
+	/**
+	 * Adds a fragment to a template attribute.
+	 * @param fragments fragment texts by template attribute
+	 * @param attribute the template attribute
+	 * @param fragment the fragment
+	 */
+	protected void addFragment(Map<String, List<String>> fragments, String attribute, String fragment){
+		List<String> list = fragments.get(attribute);
+		if(list==null){
+			list = new ArrayList<>();
+			fragments.put(attribute, list);
+		}
+		list.add(fragment);
+	}
+
+	/**
+	 * Adds the content of a fragment file to a template attribute, empty files are not added, unreadable files are reported as warning and not added.
+	 * @param fragments fragment texts by template attribute
+	 * @param attribute the template attribute
+	 * @param f the fragment file
+	 */
+	protected void addFragment(Map<String, List<String>> fragments, String attribute, File f){
+		try{
+			String fragment = this.fragments.get(f, this.metrics);
+			if(fragment.length()>0){
+				this.addFragment(fragments, attribute, fragment);
 			}
-			catch(Exception ignore){
-				ignore.printStackTrace();
+		}
+		catch(IOException ioex){
+			this.warnings.add("could not read fragment <" + f + ">, got IOException <" + ioex.getMessage() + ">, fragment not added");
+		}
+	}
+
+	/**
+	 * Renders a POM file straight to a temporary file and tests it against the existing POM file.
+	 * If the digest index knows the existing POM file, the digests are compared.
+	 * Otherwise the rendered POM is compared on the fly with the existing POM file.
+	 * @param mp the managed project to render
+	 * @param out the temporary POM file to write
+	 * @param pomFile the existing POM file
+	 * @return the digest of the rendered POM if it differs from the existing POM file (or there is no existing POM file), null if the existing POM file is up-to-date
+	 * @throws IOException if writing the temporary or reading the existing POM file failed
+	 */
+	protected String writeAndCompare(Model_ManagedProject mp, File out, File pomFile) throws IOException{
+		String pmId = mp.getPmId();
+		String known = this.digests.getDigest(pmId, pomFile);
+		CountingInputStream existingIn = (known==null && pomFile.isFile())?new CountingInputStream(new FileInputStream(pomFile)):null;
+		Reader existing = (existingIn!=null)?new BufferedReader(new InputStreamReader(existingIn, StandardCharsets.UTF_8)):null;
+
+		MessageDigest md = PomFingerprints.newDigest();
+		CountingOutputStream counter = new CountingOutputStream(new FileOutputStream(out));
+		ComparingWriter cw = new ComparingWriter(new BufferedWriter(new OutputStreamWriter(new DigestOutputStream(counter, md), StandardCharsets.UTF_8)), existing);
+		boolean differs;
+		try{
+			this.renderer.render(mp, this.createFragments(mp), cw);
+			differs = cw.finish();
+		}
+		finally{
+			cw.close();
+			this.metrics.written(counter.getByteCount());
+			if(existingIn!=null){
+				this.metrics.read(existingIn.getByteCount());
+			}
+		}
+		String digest = PomFingerprints.toHex(md.digest());
+
+		if(known!=null){
+			return (known.equals(digest))?null:digest;
+		}
+		if(!differs){
+			if(cw.isIdentical()){
+				this.digests.record(pmId, pomFile, digest);
 			}
+			return null;
+		}
+		return digest;
+	}
 
-			File pomFile = new File(mp.baseDir + File.separator +"pom.xml");
+	/**
+	 * Replaces a POM file with its new version by renaming the temporary file, atomically if the file system supports it.
+	 * @param pp the pending POM file
+	 * @throws IOException if the rename failed
+	 */
+	protected void commit(PendingPom pp) throws IOException{
+		try{
+			Files.move(pp.tmp.toPath(), pp.pomFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch(AtomicMoveNotSupportedException amex){
+			Files.move(pp.tmp.toPath(), pp.pomFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		this.digests.record(pp.mp.getPmId(), pp.pomFile, pp.digest);
+		if(pp.fingerprint!=null){
+			this.fingerprints.record(pp.mp, pp.fingerprint);
+		}
+	}
+
+	/**
+	 * Commits all pending POM files: syncs all temporary files, renames them, then syncs all affected directories.
+	 * A temporary file that cannot be synced is not renamed, a POM file that cannot be synced or renamed is added as warning and to the failed POM files of the run.
+	 * POM files added while committing are left for the next commit.
+	 */
+	protected void commitPending(){
+		List<PendingPom> batch;
+		synchronized(this.pending){
+			batch = new ArrayList<>(this.pending);
+			this.pending.clear();
+		}
+		Set<File> dirs = new LinkedHashSet<>();
+		List<PendingPom> synced = new ArrayList<>(batch.size());
+		for(PendingPom pp : batch){
 			try{
-				if(FileUtils.contentEqualsIgnoreEOL(out, pomFile, "UTF-8")==false){
-					FileUtils.copyFile(out, pomFile);
-					ret.append("writing new pom file: ");
-					ret.append(out);
-					ret.append(" -> ");
-					ret.append(pomFile);
-					ret.appendNewLine();
-				}
+				this.sync(pp.tmp, StandardOpenOption.WRITE);
+				synced.add(pp);
 			}
-			catch(Exception ignore){
-				ignore.printStackTrace();
+			catch(IOException ioex){
+				this.fail(pp, "could not sync POM file <" + pp.tmp + ">, got IOException <" + ioex.getMessage() + ">, POM file <" + pp.pomFile + "> not changed");
 			}
 		}
-		return ret.toString();
+		for(PendingPom pp : synced){
+			try{
+				this.commit(pp);
+				dirs.add(pp.pomFile.getAbsoluteFile().getParentFile());
+			}
+			catch(IOException ioex){
+				this.fail(pp, "could not replace POM file <" + pp.pomFile + ">, got IOException <" + ioex.getMessage() + ">, POM file not changed");
+			}
+		}
+		for(File dir : dirs){
+			try{
+				this.sync(dir, StandardOpenOption.READ);
+			}
+			catch(IOException ignore){
+				//not all platforms allow to sync a directory, the rename is then left to the operating system
+			}
+		}
+	}
+
+	/**
+	 * Records a pending POM file that could not be committed: removes its temporary file, adds a warning, and adds it to the failed POM files of the run.
+	 * @param pp the pending POM file
+	 * @param warning the warning
+	 */
+	protected void fail(PendingPom pp, String warning){
+		FileUtils.deleteQuietly(pp.tmp);
+		this.warnings.add(warning);
+		this.failed.add(pp.pomFile);
+	}
+
+	/**
+	 * Syncs a file or directory to disk.
+	 * @param f the file or directory
+	 * @param option open option, write for files and read for directories
+	 * @throws IOException if the sync failed
+	 */
+	protected void sync(File f, StandardOpenOption option) throws IOException{
+		try(FileChannel ch = FileChannel.open(f.toPath(), option)){
+			ch.force(true);
+		}
+	}
+
+	/**
+	 * A new POM file, waiting to replace an existing POM file.
+	 */
+	protected static class PendingPom {
+
+		/** The managed project. */
+		final Model_ManagedProject mp;
+
+		/** Temporary file with the new POM. */
+		final File tmp;
+
+		/** The POM file to replace. */
+		final File pomFile;
+
+		/** Digest of the new POM. */
+		final String digest;
+
+		/** Fingerprint of the project, null if not in incremental mode. */
+		final String fingerprint;
+
+		/**
+		 * Creates a new pending POM file.
+		 * @param mp the managed project
+		 * @param tmp temporary file with the new POM
+		 * @param pomFile the POM file to replace
+		 * @param digest digest of the new POM
+		 * @param fingerprint fingerprint of the project, null if not in incremental mode
+		 */
+		PendingPom(Model_ManagedProject mp, File tmp, File pomFile, String digest, String fingerprint){
+			this.mp = mp;
+			this.tmp = tmp;
+			this.pomFile = pomFile;
+			this.digest = digest;
+			this.fingerprint = fingerprint;
+		}
 	}
 }
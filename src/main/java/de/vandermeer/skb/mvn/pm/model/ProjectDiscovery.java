@@ -0,0 +1,513 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.mvn.pm.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+
+import de.vandermeer.skb.mvn.ProjectFiles;
+
+/**
+ * Discovers managed projects in one or more root directories, as alternative to listing every project in the projects file.
+ *
+ * Every directory with a project PM directory that contains a project property file is a managed project.
+ * The roots are walked in parallel (fork/join, one task per directory, each listing its directory with {@link Files#walkFileTree}), symbolic links are not followed.
+ * Directories matching a prune pattern are not walked: a pattern with a slash (other than a trailing one) is matched against the path relative to its root, all other patterns against the directory name.
+ *
+ * All walked directories are stored in an index file, with modification time, sub-directories, and a flag for a project property file.
+ * A later discovery only lists directories whose modification time changed (a directory's modification time changes if entries are added, removed, or renamed),
+ * all other directories are revalidated from their modification time alone.
+ * Directories modified shortly before the index was created are listed again, since file systems with coarse time stamps might hide a later change.
+ * An index file that cannot be written does not fail the discovery, the problem is available as {@link #getWarning()}.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+public class ProjectDiscovery {
+
+	/** Default prune patterns: build output, Git metadata, and Node modules. */
+	public static final String DEFAULT_PRUNE = "target/,.git/,node_modules/";
+
+	/** Magic number at the start of an index file ("PMD1"). */
+	protected static final int MAGIC = 0x504d4431;
+
+	/** Version of the index format. */
+	protected static final int VERSION = 1;
+
+	/** Time in milliseconds before the start of a discovery in which a directory modification is not trusted in the next discovery. */
+	protected static final long RACY_MILLIS = 2000;
+
+	/** The root directories. */
+	protected final List<Path> roots;
+
+	/** The prune patterns, as given. */
+	protected final List<String> prune;
+
+	/** Matchers for prune patterns applied to directory names. */
+	protected final List<PathMatcher> nameMatchers;
+
+	/** Matchers for prune patterns applied to paths relative to a root. */
+	protected final List<PathMatcher> pathMatchers;
+
+	/** The index file, null to not use an index. */
+	protected File indexFile;
+
+	/** Number of threads for walking directories. */
+	protected int threads = 1;
+
+	/** Number of directories listed in the last discovery. */
+	protected final AtomicInteger listed = new AtomicInteger();
+
+	/** Number of directories revalidated by modification time in the last discovery. */
+	protected final AtomicInteger revalidated = new AtomicInteger();
+
+	/** Problem of the last discovery that did not fail it, null if there was none. */
+	protected String warning;
+
+	/**
+	 * Creates a new discovery.
+	 * @param roots the root directories, either absolute or relative from the current directory
+	 * @param prune the prune patterns, separated by comma or whitespace, a trailing slash is ignored; null or blank to not prune any directory
+	 * @throws NullPointerException if roots was null or has null elements
+	 * @throws IllegalArgumentException if roots was empty or a prune pattern was not valid
+	 */
+	public ProjectDiscovery(Collection<File> roots, String prune){
+		Validate.notEmpty(roots);
+		Validate.noNullElements(roots);
+
+		this.roots = new ArrayList<>();
+		for(File root : roots){
+			this.roots.add(root.toPath().normalize());
+		}
+
+		this.prune = new ArrayList<>();
+		this.nameMatchers = new ArrayList<>();
+		this.pathMatchers = new ArrayList<>();
+		for(String pattern : StringUtils.split(StringUtils.defaultString(prune), ", \t\r\n")){
+			pattern = StringUtils.removeEnd(pattern, "/");
+			if(pattern.length()==0){
+				continue;
+			}
+			this.prune.add(pattern);
+			PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+			if(pattern.contains("/")){
+				this.pathMatchers.add(matcher);
+			}
+			else{
+				this.nameMatchers.add(matcher);
+			}
+		}
+	}
+
+	/**
+	 * Sets the index file, storing all walked directories for the next discovery.
+	 * @param indexFile the index file, null to not use an index
+	 */
+	public void setIndexFile(File indexFile){
+		this.indexFile = indexFile;
+	}
+
+	/**
+	 * Sets the number of threads for walking directories.
+	 * @param threads number of threads, 1 or less for a single thread
+	 */
+	public void setThreads(int threads){
+		this.threads = threads;
+	}
+
+	/**
+	 * Returns the root directories.
+	 * @return root directories
+	 */
+	public List<Path> getRoots(){
+		return Collections.unmodifiableList(this.roots);
+	}
+
+	/**
+	 * Returns the number of directories listed in the last discovery.
+	 * @return number of listed directories
+	 */
+	public int getListed(){
+		return this.listed.get();
+	}
+
+	/**
+	 * Returns the number of directories revalidated by modification time alone in the last discovery, without listing them.
+	 * @return number of revalidated directories
+	 */
+	public int getRevalidated(){
+		return this.revalidated.get();
+	}
+
+	/**
+	 * Returns the problem of the last discovery that did not fail it, for instance an index file that could not be written.
+	 * @return warning, null if there was none
+	 */
+	public String getWarning(){
+		return this.warning;
+	}
+
+	/**
+	 * Discovers all managed projects in the root directories, updating the index file if anything changed.
+	 * @param projectPmDir the directory where the projects store their properties and configurations
+	 * @return base directories of all discovered projects, sorted
+	 * @throws IOException if a root or any walked directory could not be read
+	 * @throws IllegalArgumentException if projectPmDir was blank or a root is not a directory
+	 */
+	public SortedSet<File> discover(String projectPmDir) throws IOException{
+		Validate.notBlank(projectPmDir);
+		for(Path root : this.roots){
+			if(!Files.isDirectory(root)){
+				throw new IllegalArgumentException("discovery root not a directory - <" + root + ">");
+			}
+		}
+
+		String config = this.getConfiguration(projectPmDir);
+		long[] indexed = new long[1];
+		Map<String, Dir> previous = this.readIndex(config, indexed);
+		long started = System.currentTimeMillis();
+
+		this.listed.set(0);
+		this.revalidated.set(0);
+		this.warning = null;
+		Map<String, Dir> current = new ConcurrentHashMap<>(Math.max(16, previous.size() * 4 / 3));
+		List<Walk> tasks = new ArrayList<>();
+		for(Path root : this.roots){
+			tasks.add(new Walk(root, root, previous, current, indexed[0] - RACY_MILLIS));
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(Math.max(1, this.threads));
+		try{
+			pool.invoke(new RecursiveAction(){
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected void compute(){
+					invokeAll(tasks);
+				}
+			});
+		}
+		catch(UncheckedIOException ex){
+			throw ex.getCause();
+		}
+		finally{
+			pool.shutdownNow();
+		}
+
+		if(this.indexFile!=null && (this.listed.get()>0 || current.size()!=previous.size())){
+			try{
+				this.writeIndex(config, started, current);
+			}
+			catch(IOException ioex){
+				this.warning = "could not write discovery index <" + this.indexFile + ">, got " + ioex.getClass().getSimpleName() + " <" + ioex.getMessage() + ">, next discovery lists all directories";
+			}
+		}
+
+		Path pmPath = Paths.get(projectPmDir).normalize();
+		SortedSet<File> ret = new TreeSet<>();
+		for(Map.Entry<String, Dir> e : current.entrySet()){
+			if(!e.getValue().properties){
+				continue;
+			}
+			Path base = Paths.get(e.getKey());
+			if(!base.endsWith(pmPath)){
+				continue;
+			}
+			for(int i=0; i<pmPath.getNameCount() && base!=null; i++){
+				base = base.getParent();
+			}
+			if(base!=null){
+				ret.add(base.toFile());
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Tests if a directory is pruned.
+	 * @param dir the directory
+	 * @param root the root of the directory
+	 * @return true if any prune pattern matches, false otherwise
+	 */
+	protected boolean isPruned(Path dir, Path root){
+		Path name = dir.getFileName();
+		for(PathMatcher matcher : this.nameMatchers){
+			if(matcher.matches(name)){
+				return true;
+			}
+		}
+		if(this.pathMatchers.size()>0){
+			Path relative = root.relativize(dir);
+			for(PathMatcher matcher : this.pathMatchers){
+				if(matcher.matches(relative)){
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Lists a directory.
+	 * @param dir the directory
+	 * @param root the root of the directory
+	 * @param modified modification time of the directory
+	 * @return the directory with its sub-directories (not pruned) and the flag for a project property file
+	 * @throws IOException if the directory could not be listed
+	 */
+	protected Dir list(final Path dir, final Path root, long modified) throws IOException{
+		final List<String> children = new ArrayList<>();
+		final boolean[] properties = new boolean[1];
+		final String propertyFile = ProjectFiles.MANAGED_PROJECT_PROPERTIES.getFileName();
+		Files.walkFileTree(dir, EnumSet.noneOf(FileVisitOption.class), 1, new SimpleFileVisitor<Path>(){
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs){
+				//with depth 1, entries of the directory are visited as files, sub-directories included
+				if(attrs.isDirectory()){
+					if(!ProjectDiscovery.this.isPruned(file, root)){
+						children.add(file.getFileName().toString());
+					}
+				}
+				else if(attrs.isRegularFile() && propertyFile.equals(file.getFileName().toString())){
+					properties[0] = true;
+				}
+				return FileVisitResult.CONTINUE;
+			}
+		});
+		Collections.sort(children);
+		return new Dir(modified, properties[0], children.toArray(new String[children.size()]));
+	}
+
+	/**
+	 * Returns the configuration of a discovery, an index is only used for the same configuration.
+	 * @param projectPmDir the project PM directory
+	 * @return configuration
+	 */
+	protected String getConfiguration(String projectPmDir){
+		return projectPmDir + '\n' + StringUtils.join(this.prune, ',') + '\n' + StringUtils.join(this.roots, '\n');
+	}
+
+	/**
+	 * Reads the index file.
+	 * @param config the current configuration
+	 * @param indexed returns the start time of the discovery that created the index, 0 if no index was read
+	 * @return directories of the index, empty if there is no index file or it was not usable
+	 */
+	protected Map<String, Dir> readIndex(String config, long[] indexed){
+		Map<String, Dir> ret = new HashMap<>();
+		if(this.indexFile==null || !this.indexFile.isFile()){
+			return ret;
+		}
+		try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(this.indexFile)))){
+			if(in.readInt()!=MAGIC || in.readInt()!=VERSION || !config.equals(in.readUTF())){
+				return ret;
+			}
+			long started = in.readLong();
+			int count = in.readInt();
+			for(int i=0; i<count; i++){
+				String dir = in.readUTF();
+				long modified = in.readLong();
+				boolean properties = in.readBoolean();
+				String[] children = new String[in.readInt()];
+				for(int k=0; k<children.length; k++){
+					children[k] = in.readUTF();
+				}
+				ret.put(dir, new Dir(modified, properties, children));
+			}
+			indexed[0] = started;
+			return ret;
+		}
+		catch(IOException ioex){
+			//unusable index, all directories are listed
+			ret.clear();
+			return ret;
+		}
+	}
+
+	/**
+	 * Writes the index file, replacing an existing index file.
+	 * @param config the current configuration
+	 * @param started start time of the discovery
+	 * @param dirs all walked directories
+	 * @throws IOException if the index file could not be written
+	 */
+	protected void writeIndex(String config, long started, Map<String, Dir> dirs) throws IOException{
+		this.indexFile.getAbsoluteFile().getParentFile().mkdirs();
+		File tmp = new File(this.indexFile.getPath() + ".tmp");
+		try{
+			try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))){
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeUTF(config);
+				out.writeLong(started);
+				out.writeInt(dirs.size());
+				for(Map.Entry<String, Dir> e : dirs.entrySet()){
+					Dir dir = e.getValue();
+					out.writeUTF(e.getKey());
+					out.writeLong(dir.modified);
+					out.writeBoolean(dir.properties);
+					out.writeInt(dir.children.length);
+					for(String child : dir.children){
+						out.writeUTF(child);
+					}
+				}
+			}
+			try{
+				Files.move(tmp.toPath(), this.indexFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			}
+			catch(AtomicMoveNotSupportedException ex){
+				Files.move(tmp.toPath(), this.indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+		finally{
+			//gone after a successful move, a partial index otherwise
+			Files.deleteIfExists(tmp.toPath());
+		}
+	}
+
+	/**
+	 * A walked directory.
+	 */
+	protected static final class Dir {
+
+		/** Modification time of the directory in milliseconds. */
+		protected final long modified;
+
+		/** Flag for a project property file in the directory. */
+		protected final boolean properties;
+
+		/** Names of all sub-directories that are not pruned, sorted. */
+		protected final String[] children;
+
+		/**
+		 * Creates a new directory entry.
+		 * @param modified modification time in milliseconds
+		 * @param properties flag for a project property file
+		 * @param children names of sub-directories
+		 */
+		protected Dir(long modified, boolean properties, String[] children){
+			this.modified = modified;
+			this.properties = properties;
+			this.children = children;
+		}
+	}
+
+	/**
+	 * Task walking a directory and, forking one task per sub-directory, all directories below it.
+	 */
+	protected class Walk extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		/** The directory. */
+		protected final Path dir;
+
+		/** The root of the directory. */
+		protected final Path root;
+
+		/** Directories of the index. */
+		protected final Map<String, Dir> previous;
+
+		/** Directories of this discovery. */
+		protected final Map<String, Dir> current;
+
+		/** Modification times at or after this time are not trusted. */
+		protected final long trusted;
+
+		/**
+		 * Creates a new task.
+		 * @param dir the directory
+		 * @param root the root of the directory
+		 * @param previous directories of the index
+		 * @param current directories of this discovery
+		 * @param trusted modification times at or after this time are not trusted
+		 */
+		protected Walk(Path dir, Path root, Map<String, Dir> previous, Map<String, Dir> current, long trusted){
+			this.dir = dir;
+			this.root = root;
+			this.previous = previous;
+			this.current = current;
+			this.trusted = trusted;
+		}
+
+		@Override
+		protected void compute(){
+			String key = this.dir.toString();
+			Dir entry;
+			try{
+				long modified = Files.getLastModifiedTime(this.dir).toMillis();
+				entry = this.previous.get(key);
+				if(entry!=null && entry.modified==modified && modified<this.trusted){
+					ProjectDiscovery.this.revalidated.incrementAndGet();
+				}
+				else{
+					entry = ProjectDiscovery.this.list(this.dir, this.root, modified);
+					ProjectDiscovery.this.listed.incrementAndGet();
+				}
+			}
+			catch(NoSuchFileException ex){
+				//removed while walking
+				return;
+			}
+			catch(IOException ioex){
+				throw new UncheckedIOException("could not walk directory <" + this.dir + ">, got IOException <" + ioex.getMessage() + ">", ioex);
+			}
+			this.current.put(key, entry);
+
+			List<Walk> tasks = new ArrayList<>(entry.children.length);
+			for(String child : entry.children){
+				tasks.add(new Walk(this.dir.resolve(child), this.root, this.previous, this.current, this.trusted));
+			}
+			invokeAll(tasks);
+		}
+	}
+}
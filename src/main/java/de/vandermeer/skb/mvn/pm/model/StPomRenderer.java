@@ -0,0 +1,106 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.mvn.pm.model;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.commons.lang3.Validate;
+
+import org.stringtemplate.v4.AutoIndentWriter;
+import org.stringtemplate.v4.ST;
+import org.stringtemplate.v4.STGroup;
+import org.stringtemplate.v4.STGroupFile;
+
+import de.vandermeer.skb.mvn.PmConstants;
+
+/**
+ * Renders POM files with the POM template ({@link PmConstants#POM_TEMPLATE_FILE}), the reference for all other renderers.
+ * The template group is compiled once for the lifetime of the JVM (of the plugin class loader) and shared by all renderers, runs, and watch cycles.
+ * Properties of the model are resolved by a {@link PomModelAdaptor}, without reflection.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+public class StPomRenderer implements PomRenderer {
+
+	/** Name of the renderer. */
+	public static final String NAME = "st";
+
+	/** The compiled template group shared by all renderers, null until first loaded. */
+	private static STGroup GROUP;
+
+	/** The (loaded) template group. */
+	protected STGroup stg;
+
+	/**
+	 * Returns the compiled POM template group, loading and compiling it on first use.
+	 * The group is only read after loading, so that it can be used by many threads at the same time.
+	 * @return compiled template group
+	 * @throws IllegalArgumentException if the template could not be loaded
+	 */
+	public static synchronized STGroup getGroup(){
+		if(GROUP==null){
+			STGroup stg = new STGroupFile("de/vandermeer/skb/mvn/pm/" + PmConstants.POM_TEMPLATE_FILE);
+			PomModelAdaptor adaptor = new PomModelAdaptor();
+			stg.registerModelAdaptor(Model_ManagedProject.class, adaptor);
+			stg.registerModelAdaptor(Model_Dependency.class, adaptor);
+			stg.registerModelAdaptor(PM_Context.class, adaptor);
+			stg.registerModelAdaptor(Map.class, adaptor);
+			//load the group now, so that threads only read from it
+			stg.load();
+			Validate.isTrue(stg.isDefined("pom"), "could not load POM template <" + PmConstants.POM_TEMPLATE_FILE + ">");
+			GROUP = stg;
+		}
+		return GROUP;
+	}
+
+	@Override
+	public String getName(){
+		return NAME;
+	}
+
+	@Override
+	public void load(){
+		this.stg = StPomRenderer.getGroup();
+	}
+
+	/**
+	 * Creates the POM template instance for a project, with all fragments added.
+	 * @param mp the managed project
+	 * @param fragments fragment texts by template attribute
+	 * @return POM template instance, ready to render
+	 */
+	public ST createPom(Model_ManagedProject mp, Map<String, List<String>> fragments){
+		ST pom = this.stg.getInstanceOf("pom");
+		pom.add("mp", mp);
+		for(Entry<String, List<String>> entry : fragments.entrySet()){
+			for(String fragment : entry.getValue()){
+				pom.add(entry.getKey(), fragment);
+			}
+		}
+		return pom;
+	}
+
+	@Override
+	public void render(Model_ManagedProject mp, Map<String, List<String>> fragments, Writer out) throws IOException{
+		this.createPom(mp, fragments).write(new AutoIndentWriter(out));
+	}
+}
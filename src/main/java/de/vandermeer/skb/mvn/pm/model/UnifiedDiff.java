@@ -0,0 +1,455 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.mvn.pm.model;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * A line diff of two texts, written in unified format.
+ * The diff is computed with the linear space variant of Myers' algorithm (middle snake, divide and conquer): the edit script is minimal and memory is linear in the number of lines.
+ * Lines are compared without their line terminators, CR, LF, and CRLF are all the same (as for {@link ComparingWriter}).
+ * Different from {@link ComparingWriter}, a last line without terminator differs from the same line with terminator (as for GNU diff), so that the diff can be applied as a patch.
+ * Lines are written with their original line terminators, a last line without terminator is followed by the marker {@link #NO_NEWLINE}.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+public class UnifiedDiff {
+
+	/** Default number of context lines around a change. */
+	public static final int DEFAULT_CONTEXT = 3;
+
+	/** Marker line written after a last line without line terminator, as written by GNU diff. */
+	public static final String NO_NEWLINE = "\\ No newline at end of file";
+
+	/** Lines of the old text. */
+	protected final String[] oldLines;
+
+	/** Lines of the new text. */
+	protected final String[] newLines;
+
+	/** Line terminators of the old text, empty for a last line without terminator. */
+	protected final String[] oldEnds;
+
+	/** Line terminators of the new text, empty for a last line without terminator. */
+	protected final String[] newEnds;
+
+	/** Line identifiers of the old text, equal lines have the same identifier. */
+	protected final int[] a;
+
+	/** Line identifiers of the new text, equal lines have the same identifier. */
+	protected final int[] b;
+
+	/** Flags for deleted lines of the old text. */
+	protected final boolean[] deleted;
+
+	/** Flags for inserted lines of the new text. */
+	protected final boolean[] inserted;
+
+	/** Forward furthest reaching x positions, indexed by diagonal plus offset, reused by all middle snakes. */
+	protected int[] vf;
+
+	/** Backward furthest reaching y positions, indexed by diagonal plus offset, reused by all middle snakes. */
+	protected int[] vb;
+
+	/** Offset for diagonals in the position arrays. */
+	protected int offset;
+
+	/** Points of the edit path, x and y interleaved. */
+	protected int[] path = new int[32];
+
+	/** Number of used entries in the edit path. */
+	protected int pathSize;
+
+	/** Number of deleted and inserted lines. */
+	protected int changes;
+
+	/**
+	 * Creates a new diff.
+	 * @param oldText the old text
+	 * @param newText the new text
+	 * @throws NullPointerException if any argument was null
+	 */
+	public UnifiedDiff(String oldText, String newText){
+		Validate.notNull(oldText);
+		Validate.notNull(newText);
+		List<String> ends = new ArrayList<>();
+		this.oldLines = UnifiedDiff.split(oldText, ends);
+		this.oldEnds = ends.toArray(new String[ends.size()]);
+		ends.clear();
+		this.newLines = UnifiedDiff.split(newText, ends);
+		this.newEnds = ends.toArray(new String[ends.size()]);
+
+		Map<String, Integer> ids = new HashMap<>();
+		this.a = UnifiedDiff.toIds(this.oldLines, this.oldEnds, ids);
+		this.b = UnifiedDiff.toIds(this.newLines, this.newEnds, ids);
+		this.deleted = new boolean[this.a.length];
+		this.inserted = new boolean[this.b.length];
+		this.diff();
+	}
+
+	/**
+	 * Splits a text into lines, a final line terminator does not start another line.
+	 * @param text the text
+	 * @return the lines without line terminators
+	 */
+	public static String[] split(String text){
+		return UnifiedDiff.split(text, null);
+	}
+
+	/**
+	 * Splits a text into lines, a final line terminator does not start another line.
+	 * @param text the text
+	 * @param ends list to add the line terminator of each line to, empty for a last line without terminator, null to ignore terminators
+	 * @return the lines without line terminators
+	 */
+	protected static String[] split(String text, List<String> ends){
+		List<String> ret = new ArrayList<>();
+		int start = 0;
+		int length = text.length();
+		for(int i=0; i<length; i++){
+			char c = text.charAt(i);
+			if(c=='\r' || c=='\n'){
+				ret.add(text.substring(start, i));
+				int end = i;
+				if(c=='\r' && i+1<length && text.charAt(i+1)=='\n'){
+					i++;
+				}
+				if(ends!=null){
+					ends.add(text.substring(end, i + 1));
+				}
+				start = i + 1;
+			}
+		}
+		if(start<length){
+			ret.add(text.substring(start));
+			if(ends!=null){
+				ends.add("");
+			}
+		}
+		return ret.toArray(new String[ret.size()]);
+	}
+
+	/**
+	 * Maps lines to identifiers, so that lines are compared as integers.
+	 * @param lines the lines
+	 * @param ends the line terminators
+	 * @param ids map of known lines to identifiers, new lines are added
+	 * @return identifiers for all lines
+	 */
+	protected static int[] toIds(String[] lines, String[] ends, Map<String, Integer> ids){
+		int[] ret = new int[lines.length];
+		for(int i=0; i<lines.length; i++){
+			//a line never contains LF, so the key of a line without terminator is distinct
+			String key = (ends[i].length()==0)?lines[i] + '\n':lines[i];
+			Integer id = ids.get(key);
+			if(id==null){
+				id = ids.size();
+				ids.put(key, id);
+			}
+			ret[i] = id;
+		}
+		return ret;
+	}
+
+	/**
+	 * Computes the edit script, common prefix and suffix are skipped before the middle snake search.
+	 */
+	protected void diff(){
+		int left = 0;
+		int top = 0;
+		int right = this.a.length;
+		int bottom = this.b.length;
+		while(left<right && top<bottom && this.a[left]==this.b[top]){
+			left++;
+			top++;
+		}
+		while(left<right && top<bottom && this.a[right-1]==this.b[bottom-1]){
+			right--;
+			bottom--;
+		}
+
+		int max = (right - left + bottom - top + 1) / 2;
+		this.offset = max + 1;
+		this.vf = new int[2 * max + 3];
+		this.vb = new int[2 * max + 3];
+		this.pathSize = 0;
+		if(this.findPath(left, top, right, bottom)){
+			this.walkPath();
+		}
+		this.vf = null;
+		this.vb = null;
+		this.path = null;
+	}
+
+	/**
+	 * Finds the edit path through a box recursively, using the middle snake to split the box.
+	 * @param left first line of the old text
+	 * @param top first line of the new text
+	 * @param right end (exclusive) of the old text
+	 * @param bottom end (exclusive) of the new text
+	 * @return true if points were added to the path, false if the box is empty
+	 */
+	protected boolean findPath(int left, int top, int right, int bottom){
+		int[] snake = this.midpoint(left, top, right, bottom);
+		if(snake==null){
+			return false;
+		}
+		if(!this.findPath(left, top, snake[0], snake[1])){
+			this.addPoint(snake[0], snake[1]);
+		}
+		if(!this.findPath(snake[2], snake[3], right, bottom)){
+			this.addPoint(snake[2], snake[3]);
+		}
+		return true;
+	}
+
+	/**
+	 * Adds a point to the edit path.
+	 * @param x position in the old text
+	 * @param y position in the new text
+	 */
+	protected void addPoint(int x, int y){
+		if(this.pathSize+2>this.path.length){
+			int[] grown = new int[this.path.length * 2];
+			System.arraycopy(this.path, 0, grown, 0, this.pathSize);
+			this.path = grown;
+		}
+		this.path[this.pathSize++] = x;
+		this.path[this.pathSize++] = y;
+	}
+
+	/**
+	 * Finds the middle snake of a box, searching forward and backward at the same time until the paths overlap.
+	 * @param left first line of the old text
+	 * @param top first line of the new text
+	 * @param right end (exclusive) of the old text
+	 * @param bottom end (exclusive) of the new text
+	 * @return start and end point of the middle snake (x1, y1, x2, y2), null if the box is empty
+	 */
+	protected int[] midpoint(int left, int top, int right, int bottom){
+		int width = right - left;
+		int height = bottom - top;
+		int size = width + height;
+		if(size==0){
+			return null;
+		}
+		int delta = width - height;
+		boolean odd = (delta & 1)!=0;
+		int max = (size + 1) / 2;
+		int o = this.offset;
+		int[] vf = this.vf;
+		int[] vb = this.vb;
+		vf[o+1] = left;
+		vb[o+1] = bottom;
+
+		for(int d=0; d<=max; d++){
+			for(int k=d; k>=-d; k-=2){
+				int px;
+				int x;
+				if(k==-d || (k!=d && vf[o+k-1]<vf[o+k+1])){
+					px = x = vf[o+k+1];
+				}
+				else{
+					px = vf[o+k-1];
+					x = px + 1;
+				}
+				int y = top + (x - left) - k;
+				int py = (d==0 || x!=px)?y:y-1;
+				while(x<right && y<bottom && this.a[x]==this.b[y]){
+					x++;
+					y++;
+				}
+				vf[o+k] = x;
+				int c = k - delta;
+				if(odd && c>=-(d-1) && c<=d-1 && y>=vb[o+c]){
+					return new int[]{px, py, x, y};
+				}
+			}
+
+			for(int c=d; c>=-d; c-=2){
+				int py;
+				int y;
+				if(c==-d || (c!=d && vb[o+c-1]>vb[o+c+1])){
+					py = y = vb[o+c+1];
+				}
+				else{
+					py = vb[o+c-1];
+					y = py - 1;
+				}
+				int k = c + delta;
+				int x = left + (y - top) + k;
+				int px = (d==0 || y!=py)?x:x+1;
+				while(x>left && y>top && this.a[x-1]==this.b[y-1]){
+					x--;
+					y--;
+				}
+				vb[o+c] = y;
+				if(!odd && k>=-d && k<=d && x<=vf[o+k]){
+					return new int[]{x, y, px, py};
+				}
+			}
+		}
+		throw new IllegalStateException("no middle snake found, should not happen");
+	}
+
+	/**
+	 * Marks deleted and inserted lines along the edit path, consecutive points are connected by at most one edit plus equal lines.
+	 */
+	protected void walkPath(){
+		for(int i=2; i<this.pathSize; i+=2){
+			int x = this.path[i-2];
+			int y = this.path[i-1];
+			int x2 = this.path[i];
+			int y2 = this.path[i+1];
+			while(x<x2 && y<y2 && this.a[x]==this.b[y]){
+				x++;
+				y++;
+			}
+			if(x2-x<y2-y){
+				this.inserted[y] = true;
+				this.changes++;
+			}
+			else if(x2-x>y2-y){
+				this.deleted[x] = true;
+				this.changes++;
+			}
+		}
+	}
+
+	/**
+	 * Tests if the texts have no line differences.
+	 * @return true if no line was deleted or inserted, false otherwise
+	 */
+	public boolean isEmpty(){
+		return this.changes==0;
+	}
+
+	/**
+	 * Returns the number of deleted and inserted lines, which is the minimal edit distance of the two texts.
+	 * @return number of changed lines
+	 */
+	public int getChanges(){
+		return this.changes;
+	}
+
+	/**
+	 * Writes the diff in unified format, nothing is written if there are no differences.
+	 * Hunks closer than twice the context are merged.
+	 * Header lines are terminated with LF, all other lines with their original terminator; a last line without terminator is followed by LF and {@link #NO_NEWLINE}.
+	 * @param out the writer
+	 * @param oldName name of the old file for the header
+	 * @param newName name of the new file for the header
+	 * @param context number of context lines around a change
+	 * @throws IOException if writing failed
+	 * @throws NullPointerException if any argument was null
+	 */
+	public void write(Writer out, String oldName, String newName, int context) throws IOException{
+		Validate.notNull(out);
+		Validate.notNull(oldName);
+		Validate.notNull(newName);
+		if(this.isEmpty()){
+			return;
+		}
+
+		//edit script with deletions before insertions, plus the old and new line before each operation
+		char[] ops = new char[this.a.length + this.b.length];
+		int[] oi = new int[ops.length + 1];
+		int[] ni = new int[ops.length + 1];
+		int n = 0;
+		int i = 0;
+		int j = 0;
+		while(i<this.a.length || j<this.b.length){
+			oi[n] = i;
+			ni[n] = j;
+			if(i<this.a.length && this.deleted[i]){
+				ops[n++] = '-';
+				i++;
+			}
+			else if(j<this.b.length && this.inserted[j]){
+				ops[n++] = '+';
+				j++;
+			}
+			else{
+				ops[n++] = ' ';
+				i++;
+				j++;
+			}
+		}
+		oi[n] = i;
+		ni[n] = j;
+
+		out.write("--- " + oldName + "\n");
+		out.write("+++ " + newName + "\n");
+		int p = 0;
+		while(p<n){
+			while(p<n && ops[p]==' '){
+				p++;
+			}
+			if(p==n){
+				break;
+			}
+			int start = Math.max(0, p - context);
+			int last = p;
+			for(int q=p+1; q<n && q-last<=2*context+1; q++){
+				if(ops[q]!=' '){
+					last = q;
+				}
+			}
+			int end = Math.min(n, last + context + 1);
+
+			out.write("@@ -" + UnifiedDiff.range(oi[start], oi[end] - oi[start]) + " +" + UnifiedDiff.range(ni[start], ni[end] - ni[start]) + " @@\n");
+			for(int q=start; q<end; q++){
+				String eol = (ops[q]=='+')?this.newEnds[ni[q]]:this.oldEnds[oi[q]];
+				out.write(ops[q]);
+				out.write((ops[q]=='+')?this.newLines[ni[q]]:this.oldLines[oi[q]]);
+				if(eol.length()==0){
+					out.write('\n');
+					out.write(NO_NEWLINE);
+					out.write('\n');
+				}
+				else{
+					out.write(eol);
+				}
+			}
+			p = end;
+		}
+	}
+
+	/**
+	 * Returns a line range for a hunk header.
+	 * @param start first line (0 based)
+	 * @param count number of lines
+	 * @return range, as written by GNU diff
+	 */
+	protected static String range(int start, int count){
+		if(count==0){
+			return start + ",0";
+		}
+		if(count==1){
+			return Integer.toString(start + 1);
+		}
+		return (start + 1) + "," + count;
+	}
+}
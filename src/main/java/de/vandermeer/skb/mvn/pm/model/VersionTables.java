@@ -0,0 +1,189 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.mvn.pm.model;
+
+import java.io.File;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * The version tables of a model context (dependency versions and plugin versions), to compute a key-level diff between two runs.
+ *
+ * Tables are persisted as a {@link ManifestFile} together with the checksum of the model snapshot they were applied to.
+ * The diff is only meaningful if the model was restored from that same snapshot, i.e. no project input changed since the tables were saved.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+public class VersionTables {
+
+	/** Manifest key prefix for dependency versions. */
+	protected static final String DEPENDENCY_PREFIX = "dependency.";
+
+	/** Manifest key prefix for plugin versions. */
+	protected static final String PLUGIN_PREFIX = "plugin.";
+
+	/** Manifest key for the snapshot checksum. */
+	protected static final String SNAPSHOT_KEY = "snapshot";
+
+	/** Dependency versions, mapping identifier to coordinates. */
+	protected final Map<String, String> dependencies;
+
+	/** Plugin versions, mapping key to version. */
+	protected final Map<String, String> plugins;
+
+	/** Checksum of the model snapshot the tables were applied to, 0 if unknown. */
+	protected final long snapshot;
+
+	/**
+	 * Creates the version tables of a model context.
+	 * @param mc the model context
+	 * @throws NullPointerException if argument was null
+	 */
+	public VersionTables(PM_Context mc){
+		Validate.notNull(mc);
+		this.dependencies = new TreeMap<>();
+		for(Ctxt_DependencyVersion dv : mc.getDependencyVersions().values()){
+			this.dependencies.put(dv.getId(), dv.getGroupId() + ' ' + dv.getArtifactId() + ' ' + dv.getVersion());
+		}
+		this.plugins = new TreeMap<>();
+		for(Map<String, String> pv : mc.getPluginVersions()){
+			this.plugins.put(pv.get("key"), pv.get("value"));
+		}
+		this.snapshot = 0;
+	}
+
+	/**
+	 * Creates version tables loaded from a manifest.
+	 * @param manifest the manifest
+	 */
+	protected VersionTables(ManifestFile manifest){
+		this.dependencies = new TreeMap<>();
+		this.plugins = new TreeMap<>();
+		long checksum = 0;
+		for(String key : manifest.getKeys()){
+			if(key.startsWith(DEPENDENCY_PREFIX)){
+				this.dependencies.put(key.substring(DEPENDENCY_PREFIX.length()), manifest.get(key));
+			}
+			else if(key.startsWith(PLUGIN_PREFIX)){
+				this.plugins.put(key.substring(PLUGIN_PREFIX.length()), manifest.get(key));
+			}
+			else if(SNAPSHOT_KEY.equals(key)){
+				try{
+					checksum = Long.parseLong(manifest.get(key));
+				}
+				catch(NumberFormatException ignore){}
+			}
+		}
+		this.snapshot = checksum;
+	}
+
+	/**
+	 * Loads version tables saved with {@link #save(File, long)}.
+	 * @param file the tables file
+	 * @return loaded tables, null if the file does not exist
+	 * @throws NullPointerException if argument was null
+	 * @throws IllegalArgumentException if the file could not be read
+	 */
+	public static VersionTables load(File file){
+		Validate.notNull(file);
+		if(!file.isFile()){
+			return null;
+		}
+		return new VersionTables(new ManifestFile(file, ""));
+	}
+
+	/**
+	 * Saves the tables, replacing an existing file.
+	 * @param file the tables file
+	 * @param snapshot checksum of the model snapshot the tables were applied to
+	 * @throws NullPointerException if argument was null
+	 * @throws IllegalArgumentException if the file could not be written
+	 */
+	public void save(File file, long snapshot){
+		Validate.notNull(file);
+		file.getAbsoluteFile().getParentFile().mkdirs();
+		if(file.exists()){
+			file.delete();
+		}
+		ManifestFile manifest = new ManifestFile(file, "version tables of the project manager, do not edit");
+		for(Entry<String, String> e : this.dependencies.entrySet()){
+			manifest.put(DEPENDENCY_PREFIX + e.getKey(), e.getValue());
+		}
+		for(Entry<String, String> e : this.plugins.entrySet()){
+			manifest.put(PLUGIN_PREFIX + e.getKey(), e.getValue());
+		}
+		manifest.put(SNAPSHOT_KEY, Long.toString(snapshot));
+		manifest.save();
+	}
+
+	/**
+	 * Returns the checksum of the model snapshot the tables were applied to.
+	 * @return checksum, 0 if unknown
+	 */
+	public long getSnapshot(){
+		return this.snapshot;
+	}
+
+	/**
+	 * Returns the identifiers of all dependencies that were added, removed, or changed compared to older tables.
+	 * @param previous the older tables
+	 * @return changed identifiers, sorted
+	 * @throws NullPointerException if argument was null
+	 */
+	public Set<String> getChangedDependencies(VersionTables previous){
+		Validate.notNull(previous);
+		return diff(previous.dependencies, this.dependencies);
+	}
+
+	/**
+	 * Returns the keys of all plugin versions that were added, removed, or changed compared to older tables.
+	 * @param previous the older tables
+	 * @return changed keys, sorted
+	 * @throws NullPointerException if argument was null
+	 */
+	public Set<String> getChangedPlugins(VersionTables previous){
+		Validate.notNull(previous);
+		return diff(previous.plugins, this.plugins);
+	}
+
+	/**
+	 * Computes the keys with different values in two maps.
+	 * @param older the older map
+	 * @param newer the newer map
+	 * @return keys that were added, removed, or changed
+	 */
+	protected static Set<String> diff(Map<String, String> older, Map<String, String> newer){
+		Set<String> ret = new TreeSet<>();
+		for(Entry<String, String> e : newer.entrySet()){
+			if(!e.getValue().equals(older.get(e.getKey()))){
+				ret.add(e.getKey());
+			}
+		}
+		for(String key : older.keySet()){
+			if(!newer.containsKey(key)){
+				ret.add(key);
+			}
+		}
+		return ret;
+	}
+}
@@ -0,0 +1,442 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.mvn.pm;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.text.StrBuilder;
+
+import de.vandermeer.skb.mvn.PmConstants;
+import de.vandermeer.skb.mvn.ProjectFiles;
+import de.vandermeer.skb.mvn.ProjectProperties;
+import de.vandermeer.skb.mvn.pm.model.PM_Context;
+import de.vandermeer.skb.mvn.pm.model.PM_Model;
+
+/**
+ * Generator for synthetic workspaces with any number of managed projects, for benchmarks and scaling tests.
+ *
+ * A workspace has a configuration directory with projects, dependency versions, and plugin versions files,
+ * a directory with shared plugin and profile files, and one directory per project with a PM directory.
+ * Every project has a property file, a developers fragment, and (for some projects) more fragments, plugin and profile files.
+ * Generation is deterministic, the same settings create the same workspace.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+public class SyntheticWorkspace {
+
+	/** Name of the directory with shared plugin and profile files. */
+	public static final String COMMON_DIR = "common";
+
+	/** Modes of a project manager created by {@link SyntheticWorkspace#load(File, int, Mode...)}. */
+	public enum Mode {
+
+		/** Incremental generation, see {@link ProjectManager#setIncremental(boolean)}. */
+		INCREMENTAL,
+
+		/** Selective regeneration, see {@link ProjectManager#setSelective(boolean)}. */
+		SELECTIVE,
+
+		/** Streaming mode, see {@link ProjectManager#setStreaming(boolean)}. */
+		STREAMING,
+
+		/** Syncing POM files, see {@link ProjectManager#setFsync(boolean)}. */
+		FSYNC
+	}
+
+	/** The workspace root directory. */
+	protected final File root;
+
+	/** The number of projects. */
+	protected final int size;
+
+	/** Number of external dependencies in the dependency versions file. */
+	protected int externalDependencies = 2000;
+
+	/** Number of external dependencies per project. */
+	protected int externalFanOut = 5;
+
+	/** Maximum number of dependencies per project on other managed projects. */
+	protected int projectFanOut = 3;
+
+	/** Seed for the random generator. */
+	protected long seed = 170404;
+
+	/** The configuration directory. */
+	protected final File configDir;
+
+	/** The project base directories. */
+	protected final List<File> projects;
+
+	/**
+	 * Creates a new workspace generator, call {@link #create()} to write the workspace.
+	 * @param root the workspace root directory, will be created
+	 * @param size number of managed projects
+	 * @throws NullPointerException if root was null
+	 * @throws IllegalArgumentException if size was less than 1
+	 */
+	public SyntheticWorkspace(File root, int size){
+		Validate.notNull(root);
+		Validate.isTrue(size>0, "size must be at least 1");
+
+		this.root = root;
+		this.size = size;
+		this.configDir = new File(root, "config");
+		this.projects = new ArrayList<>();
+	}
+
+	/**
+	 * Creates a new workspace generator in a new temporary directory, call {@link #create()} to write the workspace.
+	 * @param size number of managed projects
+	 * @return new workspace generator
+	 * @throws IOException if the temporary directory could not be created
+	 */
+	public static SyntheticWorkspace temporary(int size) throws IOException{
+		return new SyntheticWorkspace(Files.createTempDirectory("pm-ws").toFile(), size);
+	}
+
+	/**
+	 * Sets the number of external dependencies in the dependency versions file.
+	 * @param externalDependencies number of external dependencies, at least the external fan-out
+	 * @return self to allow chaining
+	 */
+	public SyntheticWorkspace setExternalDependencies(int externalDependencies){
+		this.externalDependencies = externalDependencies;
+		return this;
+	}
+
+	/**
+	 * Sets the dependency fan-out of each project.
+	 * @param external number of external dependencies per project
+	 * @param project maximum number of dependencies on other managed projects per project, only projects created before are used so the graph has no cycles
+	 * @return self to allow chaining
+	 */
+	public SyntheticWorkspace setFanOut(int external, int project){
+		this.externalFanOut = external;
+		this.projectFanOut = project;
+		return this;
+	}
+
+	/**
+	 * Sets the seed for the random generator.
+	 * @param seed the seed
+	 * @return self to allow chaining
+	 */
+	public SyntheticWorkspace setSeed(long seed){
+		this.seed = seed;
+		return this;
+	}
+
+	/**
+	 * Writes the workspace.
+	 * @return self to allow chaining
+	 * @throws IOException if any file could not be written
+	 * @throws IllegalArgumentException if the external fan-out is larger than the number of external dependencies
+	 */
+	public SyntheticWorkspace create() throws IOException{
+		Validate.isTrue(this.externalFanOut<=this.externalDependencies, "external fan-out larger than number of external dependencies");
+		Random random = new Random(this.seed);
+
+		this.configDir.mkdirs();
+		StrBuilder sb = new StrBuilder();
+		for(int i=0; i<this.externalDependencies; i++){
+			sb.append("ext").append(i).append("=org.ext").append(i % 100).append(" lib").append(i).append(" 1.").append(i % 10).append('.').append(i).appendNewLine();
+		}
+		this.write(new File(this.configDir, PmConstants.DEPENDENCY_VERSIONS_FILE), sb.toString());
+
+		sb.clear();
+		sb.append("pm.version.maven-jar-plugin=2.6").appendNewLine();
+		sb.append("pm.version.maven-compiler-plugin=3.2").appendNewLine();
+		sb.append("pm.version.maven-source-plugin=2.4").appendNewLine();
+		sb.append("pm.version.maven-javadoc-plugin=2.10.3").appendNewLine();
+		sb.append("pm.version.maven-site-plugin=3.5").appendNewLine();
+		sb.append("pm.version.asciidoctor-maven-plugin=1.5.3").appendNewLine();
+		sb.append("pm.version.maven-resources-plugin=2.4.3").appendNewLine();
+		this.write(new File(this.configDir, PmConstants.PLUGIN_VERSIONS_FILE), sb.toString());
+
+		File common = new File(this.root, COMMON_DIR);
+		common.mkdirs();
+		this.write(new File(common, "plugins.pm"), this.plugin("shared-plugin"));
+		this.write(new File(common, "profiles.pm"), this.profile("shared-profile"));
+
+		sb.clear();
+		for(int i=0; i<this.size; i++){
+			File baseDir = new File(this.root, "p" + i);
+			this.createProject(baseDir, i, random);
+			this.projects.add(baseDir);
+			sb.append('p').append(i).append('=').append(baseDir.getAbsolutePath().replace('\\', '/')).appendNewLine();
+		}
+		this.write(new File(this.configDir, PmConstants.PROJECTS_FILE), sb.toString());
+		return this;
+	}
+
+	/**
+	 * Writes a single project.
+	 * @param baseDir the project base directory
+	 * @param i the project number
+	 * @param random the random generator
+	 * @throws IOException if any file could not be written
+	 */
+	protected void createProject(File baseDir, int i, Random random) throws IOException{
+		File pmDir = new File(baseDir, PmConstants.PROJECT_PM_PATH);
+		pmDir.mkdirs();
+
+		Set<String> deps = new LinkedHashSet<>();
+		while(deps.size()<this.externalFanOut){
+			deps.add("ext" + random.nextInt(this.externalDependencies));
+		}
+		for(int k=Math.min(i, this.projectFanOut); k>0; k--){
+			String dep = "p" + random.nextInt(i);
+			deps.add((random.nextBoolean()) ? dep : dep + "/test");
+		}
+
+		StrBuilder sb = new StrBuilder();
+		this.property(sb, ProjectProperties.PM_ID, "p" + i);
+		this.property(sb, ProjectProperties.PM_LICENSES, "apache2");
+		this.property(sb, ProjectProperties.PM_DEPENDENCIES, StringUtils.join(deps, ' '));
+		this.property(sb, ProjectProperties.MVN_GROUP_ID, "org.synthetic.g" + (i % 10));
+		this.property(sb, ProjectProperties.MVN_ARTIFACT_ID, "p" + i);
+		this.property(sb, ProjectProperties.MVN_VERSION, "0." + (i % 10) + "." + i);
+		this.property(sb, ProjectProperties.MVN_PROPERTIES_COMPILER_SOURCE, "1.8");
+		this.property(sb, ProjectProperties.MVN_PROPERTIES_COMPILER_TARGET, "1.8");
+		this.property(sb, ProjectProperties.MVN_PROPERTIES_ENCODING, "UTF-8");
+		this.property(sb, ProjectProperties.MVN_NAME, "Synthetic Project " + i);
+		this.property(sb, ProjectProperties.MVN_DESCRIPTION, "A synthetic project, number " + i + ", generated for scaling tests.");
+		this.property(sb, ProjectProperties.MVN_URL, "https://example.org/p" + i);
+		this.property(sb, ProjectProperties.MVN_INCEPTION_YEAR, "2016");
+		this.property(sb, ProjectProperties.MVN_ISSUE_MANAGEMENT_URL, "https://example.org/p" + i + "/issues");
+		this.property(sb, ProjectProperties.MVN_ISSUE_MANAGEMENT_SYSTEM, "GitHub");
+		this.property(sb, ProjectProperties.MVN_SCM_DEVELOPER_CONNECTION, "scm:git:git@example.org:p" + i + ".git");
+		this.property(sb, ProjectProperties.MVN_SCM_CONNECTION, "scm:git:git://example.org/p" + i + ".git");
+		this.property(sb, ProjectProperties.MVN_SCM_URL, "https://example.org/p" + i);
+		if(i%2==0){
+			this.property(sb, ProjectProperties.MVN_ORGANIZATION_NAME, "Example");
+			this.property(sb, ProjectProperties.MVN_ORGANIZATION_URL, "https://example.org");
+		}
+		this.property(sb, ProjectProperties.PM_USE_JAR_PLUGIN, "true");
+		this.property(sb, ProjectProperties.PM_USE_COMPILER_PLUGIN, "true");
+		if(i%2==1){
+			this.property(sb, ProjectProperties.PM_USE_SRC_PROFILE, "true");
+			this.property(sb, ProjectProperties.PM_USE_JAVADOC_PROFILE, "true");
+		}
+		if(i%3==0){
+			this.property(sb, ProjectProperties.PM_DO_BUNDLE_DOC, "true");
+		}
+
+		//shared plugin and profile files, every 5th project with its own plugin and profile file
+		String up = "../../../" + COMMON_DIR + "/";
+		if(i%5==0){
+			this.write(new File(pmDir, "plugin-own.pm"), this.plugin("own-plugin-p" + i));
+			this.write(new File(pmDir, "profile-own.pm"), this.profile("own-profile-p" + i));
+			this.property(sb, ProjectProperties.PM_PLUGINS, up + "plugins.pm plugin-own.pm");
+			this.property(sb, ProjectProperties.PM_PROFILES, up + "profiles.pm profile-own.pm");
+		}
+		else{
+			this.property(sb, ProjectProperties.PM_PLUGINS, up + "plugins.pm");
+			this.property(sb, ProjectProperties.PM_PROFILES, up + "profiles.pm");
+		}
+		this.write(new File(pmDir, ProjectFiles.MANAGED_PROJECT_PROPERTIES.getFileName()), sb.toString());
+
+		//fragments
+		this.write(new File(pmDir, ProjectFiles.DEVELOPERS.getFileName()), "<developer>\n\t<id>dev" + (i % 7) + "</id>\n\t<name>Developer " + (i % 7) + "</name>\n</developer>\n");
+		if(i%4==0){
+			this.write(new File(pmDir, ProjectFiles.DEPENDENCIES.getFileName()), "<dependency>\n\t<groupId>org.extra</groupId>\n\t<artifactId>extra-p" + i + "</artifactId>\n\t<version>1.0</version>\n</dependency>\n");
+			this.write(new File(pmDir, ProjectFiles.PROPERTIES.getFileName()), "<synthetic.number>" + i + "</synthetic.number>\n");
+			this.write(new File(pmDir, ProjectFiles.CONTRIBUTORS.getFileName()), "<contributor>\n\t<name>Contributor " + i + "</name>\n</contributor>\n");
+		}
+	}
+
+	/**
+	 * Appends a property to a property file.
+	 * @param sb the property file content
+	 * @param pp the property
+	 * @param value the value
+	 */
+	protected void property(StrBuilder sb, ProjectProperties pp, String value){
+		sb.append(pp.getPropName()).append('=').append(value).appendNewLine();
+	}
+
+	/**
+	 * Returns a plugin definition.
+	 * @param artifactId the plugin artifact identifier
+	 * @return plugin definition
+	 */
+	protected String plugin(String artifactId){
+		return "<plugin>\n\t<groupId>org.synthetic</groupId>\n\t<artifactId>" + artifactId + "</artifactId>\n\t<version>1.0</version>\n</plugin>\n";
+	}
+
+	/**
+	 * Returns a profile definition.
+	 * @param id the profile identifier
+	 * @return profile definition
+	 */
+	protected String profile(String id){
+		return "<profile>\n\t<id>" + id + "</id>\n</profile>\n";
+	}
+
+	/**
+	 * Writes a file.
+	 * @param f the file
+	 * @param content the content
+	 * @throws IOException if the file could not be written
+	 */
+	protected void write(File f, String content) throws IOException{
+		Files.write(f.toPath(), content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Loads a properties file.
+	 * @param f the file
+	 * @return loaded properties
+	 * @throws IOException if the file could not be read
+	 */
+	protected Properties load(File f) throws IOException{
+		Properties ret = new Properties();
+		try(Reader reader = Files.newBufferedReader(f.toPath(), StandardCharsets.UTF_8)){
+			ret.load(reader);
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns the workspace root directory.
+	 * @return root directory
+	 */
+	public File getRoot(){
+		return this.root;
+	}
+
+	/**
+	 * Returns the configuration directory.
+	 * @return configuration directory
+	 */
+	public File getConfigDir(){
+		return this.configDir;
+	}
+
+	/**
+	 * Returns the project base directories.
+	 * @return project base directories, empty if the workspace is not yet created
+	 */
+	public List<File> getProjects(){
+		return this.projects;
+	}
+
+	/**
+	 * Returns the content of the dependency versions file.
+	 * @return dependency versions
+	 * @throws IOException if the file could not be read
+	 */
+	public Properties getDependencyVersions() throws IOException{
+		return this.load(new File(this.configDir, PmConstants.DEPENDENCY_VERSIONS_FILE));
+	}
+
+	/**
+	 * Replaces the dependencies of a created project, for instance to create cycles or projects without dependencies.
+	 * @param i the project number
+	 * @param dependencies the new dependencies (identifiers with optional scope, separated by blanks), empty for none
+	 * @return self to allow chaining
+	 * @throws IOException if the property file could not be written
+	 */
+	public SyntheticWorkspace setDependencies(int i, String dependencies) throws IOException{
+		StrBuilder sb = new StrBuilder().appendNewLine();
+		this.property(sb, ProjectProperties.PM_DEPENDENCIES, dependencies);
+		File f = new File(this.projects.get(i), PmConstants.PROJECT_PM_PATH + File.separator + ProjectFiles.MANAGED_PROJECT_PROPERTIES.getFileName());
+		Files.write(f.toPath(), sb.toString().getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+		return this;
+	}
+
+	/**
+	 * Creates a model context with dependency and plugin versions, no projects loaded.
+	 * @return new model context
+	 * @throws IOException if any version file could not be read
+	 */
+	public PM_Context createContext() throws IOException{
+		PM_Context ret = new PM_Context(PmConstants.PROJECT_PM_PATH);
+		ret.setDependencyVersions(this.getDependencyVersions());
+		ret.setPluginVersions(this.load(new File(this.configDir, PmConstants.PLUGIN_VERSIONS_FILE)));
+		return ret;
+	}
+
+	/**
+	 * Creates a fully loaded model of all projects in the workspace.
+	 * @return new model with resolved dependencies
+	 * @throws IOException if any file could not be read
+	 */
+	public PM_Model createModel() throws IOException{
+		PM_Model ret = new PM_Model(this.createContext());
+		ret.loadModel(new ArrayList<Object>(this.projects));
+		ret.updateProjectDependencies();
+		return ret;
+	}
+
+	/**
+	 * Creates a project manager for the workspace and loads the model, in streaming mode the project index.
+	 * @param work the work directory
+	 * @param threads number of threads
+	 * @param modes modes set before the model is loaded, all other modes are not set
+	 * @return project manager with loaded model
+	 */
+	public ProjectManager load(File work, int threads, Mode ... modes){
+		List<Mode> set = Arrays.asList(modes);
+		ProjectManager ret = new ProjectManager(this.configDir, PmConstants.PROJECT_PM_PATH);
+		ret.setWorkDir(work);
+		ret.setThreads(threads);
+		ret.setIncremental(set.contains(Mode.INCREMENTAL));
+		ret.setSelective(set.contains(Mode.SELECTIVE));
+		ret.setStreaming(set.contains(Mode.STREAMING));
+		ret.setFsync(set.contains(Mode.FSYNC));
+		ret.loadModel();
+		return ret;
+	}
+
+	/**
+	 * Replaces the first occurrence of a string in a file, for instance to change a project property or a version.
+	 * @param f the file
+	 * @param search the string to search for, not a regular expression
+	 * @param replace the replacement
+	 * @throws IOException if the file could not be read or written
+	 * @throws IllegalArgumentException if the file does not contain the string
+	 */
+	public static void replace(File f, String search, String replace) throws IOException{
+		String content = new String(Files.readAllBytes(f.toPath()), StandardCharsets.UTF_8);
+		Validate.isTrue(content.contains(search), "file <" + f + "> does not contain <" + search + ">");
+		Files.write(f.toPath(), StringUtils.replaceOnce(content, search, replace).getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Removes the workspace.
+	 */
+	public void delete(){
+		FileUtils.deleteQuietly(this.root);
+	}
+}
@@ -0,0 +1,203 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.mvn.pm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Test;
+
+import de.vandermeer.skb.mvn.pm.BuildOrchestrator.Status;
+import de.vandermeer.skb.mvn.pm.model.Model_ManagedProject;
+import de.vandermeer.skb.mvn.pm.model.PM_DependencyGraph;
+import de.vandermeer.skb.mvn.pm.model.PM_Metrics;
+
+/**
+ * Tests for the build orchestrator: wave ordering, fail-fast, and keep-going.
+ *
+ * Each build runs a shell script that fails if a dependency was not built before, fails for projects marked as failing, and marks the project as built otherwise.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+public class Test_BuildOrchestrator_PM {
+
+	/** Build script, run in the project base directory. */
+	static final List<String> COMMAND = Arrays.asList("sh", "-c", "for d in $(cat deps); do [ -f \"$d/built\" ] || exit 2; done; [ -f fail ] && exit 1; touch built");
+
+	@Test
+	public void test_Waves() throws IOException, InterruptedException{
+		assumeTrue(new File("/bin/sh").canExecute());
+		SyntheticWorkspace ws = this.workspace();
+		File work = Files.createTempDirectory("pm-work").toFile();
+		try{
+			PM_DependencyGraph graph = this.graph(ws);
+			BuildOrchestrator bo = new BuildOrchestrator(graph, COMMAND, work, new SystemStreamLog(), new PM_Metrics());
+			bo.setWorkers(4);
+			Map<Model_ManagedProject, Status> status = bo.build();
+
+			assertEquals(this.expected("p0 p5 p7 p1 p2 p6 p3 p4", Status.SUCCESS, "").toString(), this.ids(status).toString());
+			assertTrue(bo.isSuccess());
+			assertTrue(bo.getSummary(), bo.getSummary().endsWith("8 success, 0 failed, 0 cancelled, 0 skipped"));
+			for(Model_ManagedProject mp : status.keySet()){
+				assertTrue(bo.getLogFile(mp).exists());
+			}
+		}
+		finally{
+			ws.delete();
+			FileUtils.deleteQuietly(work);
+		}
+	}
+
+	@Test
+	public void test_FailFast() throws IOException, InterruptedException{
+		assumeTrue(new File("/bin/sh").canExecute());
+		SyntheticWorkspace ws = this.workspace();
+		File work = Files.createTempDirectory("pm-work").toFile();
+		try{
+			PM_DependencyGraph graph = this.graph(ws);
+			this.fail(graph, "p1");
+			BuildOrchestrator bo = new BuildOrchestrator(graph, COMMAND, work, new SystemStreamLog(), new PM_Metrics());
+			bo.setWorkers(1);
+			assertEquals(this.expected("p0 p5 p7 p1 p2 p6 p3 p4", Status.SKIPPED, "p0 p5 p7:SUCCESS p1:FAILED").toString(), this.ids(bo.build()).toString());
+			assertFalse(bo.isSuccess());
+		}
+		finally{
+			ws.delete();
+			FileUtils.deleteQuietly(work);
+		}
+	}
+
+	@Test
+	public void test_KeepGoing() throws IOException, InterruptedException{
+		assumeTrue(new File("/bin/sh").canExecute());
+		SyntheticWorkspace ws = this.workspace();
+		File work = Files.createTempDirectory("pm-work").toFile();
+		try{
+			PM_DependencyGraph graph = this.graph(ws);
+			this.fail(graph, "p1");
+			BuildOrchestrator bo = new BuildOrchestrator(graph, COMMAND, work, new SystemStreamLog(), new PM_Metrics());
+			bo.setWorkers(4);
+			bo.setFailFast(false);
+			assertEquals(this.expected("p0 p5 p7 p1 p2 p6 p3 p4", Status.SUCCESS, "p1:FAILED p3 p4:SKIPPED").toString(), this.ids(bo.build()).toString());
+			assertFalse(bo.isSuccess());
+			assertTrue(bo.getSummary(), bo.getSummary().endsWith("5 success, 1 failed, 0 cancelled, 2 skipped"));
+		}
+		finally{
+			ws.delete();
+			FileUtils.deleteQuietly(work);
+		}
+	}
+
+	/**
+	 * Creates a workspace with three waves and a disconnected component.
+	 * @return workspace
+	 * @throws IOException if the workspace could not be created
+	 */
+	protected SyntheticWorkspace workspace() throws IOException{
+		//waves {p0, p5, p7}, {p1, p2, p6}, {p3}, {p4}
+		SyntheticWorkspace ws = SyntheticWorkspace.temporary(8).setFanOut(1, 0).create();
+		ws.setDependencies(1, "p0");
+		ws.setDependencies(2, "p0");
+		ws.setDependencies(3, "p1 p2");
+		ws.setDependencies(4, "p3");
+		ws.setDependencies(6, "p5");
+		return ws;
+	}
+
+	/**
+	 * Loads the dependency graph of a workspace and writes the base directories of the dependencies of each project for the build script.
+	 * @param ws the workspace
+	 * @return dependency graph
+	 * @throws IOException if the model could not be loaded or a file could not be written
+	 */
+	protected PM_DependencyGraph graph(SyntheticWorkspace ws) throws IOException{
+		PM_DependencyGraph ret = ws.createModel().getDependencyGraph();
+		for(int i=0; i<ret.size(); i++){
+			StringBuilder deps = new StringBuilder();
+			for(int d : ret.getDependencies(i)){
+				deps.append(ret.getProject(d).getBaseDir().getAbsolutePath()).append('\n');
+			}
+			Files.write(new File(ret.getProject(i).getBaseDir(), "deps").toPath(), deps.toString().getBytes(StandardCharsets.UTF_8));
+		}
+		return ret;
+	}
+
+	/**
+	 * Marks a project as failing.
+	 * @param graph the dependency graph
+	 * @param pmId the PM identifier of the project
+	 * @throws IOException if the marker could not be written
+	 */
+	protected void fail(PM_DependencyGraph graph, String pmId) throws IOException{
+		Files.write(new File(graph.getProject(graph.getOrdinal(pmId)).getBaseDir(), "fail").toPath(), new byte[0]);
+	}
+
+	/**
+	 * Returns the expected status of projects.
+	 * @param order all PM identifiers in build order, separated by blanks
+	 * @param fallback status of all projects not listed in the exceptions
+	 * @param exceptions groups of PM identifiers with a status, for instance <code>p0 p1:SUCCESS p2:FAILED</code>
+	 * @return status mapped by PM identifier, in build order
+	 */
+	protected Map<String, Status> expected(String order, Status fallback, String exceptions){
+		Map<String, Status> ret = new LinkedHashMap<>();
+		for(String id : order.split(" ")){
+			ret.put(id, fallback);
+		}
+		String ids = "";
+		for(String token : exceptions.split(" ")){
+			if(token.contains(":")){
+				for(String id : (ids + token.substring(0, token.indexOf(':'))).trim().split(" ")){
+					ret.put(id, Status.valueOf(token.substring(token.indexOf(':') + 1)));
+				}
+				ids = "";
+			}
+			else{
+				ids += token + " ";
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns the status of projects mapped by PM identifier.
+	 * @param status status mapped by project
+	 * @return status mapped by PM identifier, in the same order
+	 */
+	protected Map<String, Status> ids(Map<Model_ManagedProject, Status> status){
+		Map<String, Status> ret = new LinkedHashMap<>();
+		for(Entry<Model_ManagedProject, Status> e : status.entrySet()){
+			ret.put(e.getKey().getPmId(), e.getValue());
+		}
+		return ret;
+	}
+}
@@ -0,0 +1,150 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.mvn.pm;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.text.StrBuilder;
+import org.junit.Test;
+
+import de.vandermeer.skb.mvn.PmConstants;
+import de.vandermeer.skb.mvn.ProjectFiles;
+import de.vandermeer.skb.mvn.ProjectProperties;
+import de.vandermeer.skb.mvn.pm.model.Model_ManagedProject;
+
+/**
+ * Tests for parallel processing: loading and writing with several threads gives the same model, POM files, and report as sequential processing, and the first failure in loader order is thrown.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+public class Test_Parallel_PM {
+
+	@Test
+	public void test_Load() throws IOException{
+		SyntheticWorkspace ws = SyntheticWorkspace.temporary(40).create();
+		File work = Files.createTempDirectory("pm-work").toFile();
+		try{
+			List<String> sequential = this.ids(ws.load(work, 1));
+			assertEquals(40, sequential.size());
+			for(int i=0; i<3; i++){
+				assertEquals(sequential, this.ids(ws.load(work, 4)));
+			}
+
+			//two projects with an unknown license: the parallel load fails with the same project as the sequential load
+			for(int i : new int[]{7, 31}){
+				StrBuilder sb = new StrBuilder().appendNewLine();
+				ws.property(sb, ProjectProperties.PM_LICENSES, "unknown");
+				File pf = new File(ws.getProjects().get(i), PmConstants.PROJECT_PM_PATH + File.separator + ProjectFiles.MANAGED_PROJECT_PROPERTIES.getFileName());
+				Files.write(pf.toPath(), sb.toString().getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+			}
+			String failure = this.failure(ws, work, 1);
+			assertTrue(failure, failure.contains("requires unknown license <unknown>"));
+			for(int i=0; i<3; i++){
+				assertEquals(failure, this.failure(ws, work, 4));
+			}
+		}
+		finally{
+			ws.delete();
+			FileUtils.deleteQuietly(work);
+		}
+	}
+
+	@Test
+	public void test_Write() throws IOException{
+		SyntheticWorkspace ws = SyntheticWorkspace.temporary(40).create();
+		File work = Files.createTempDirectory("pm-work").toFile();
+		try{
+			String sequential = ws.load(work, 1).writeModel();
+			List<byte[]> poms = this.poms(ws);
+			assertEquals(40, StringUtils.countMatches(sequential, "writing new pom file: "));
+
+			//same POM files and the same report, in the same order
+			for(int i=0; i<3; i++){
+				for(File f : ws.getProjects()){
+					FileUtils.deleteQuietly(new File(f, "pom.xml"));
+				}
+				FileUtils.deleteQuietly(work);
+				assertEquals(sequential, ws.load(work, 4).writeModel());
+				List<byte[]> parallel = this.poms(ws);
+				for(int k=0; k<poms.size(); k++){
+					assertArrayEquals(poms.get(k), parallel.get(k));
+				}
+			}
+		}
+		finally{
+			ws.delete();
+			FileUtils.deleteQuietly(work);
+		}
+	}
+
+	/**
+	 * Returns the contents of all POM files of a workspace.
+	 * @param ws the workspace
+	 * @return POM file contents, in the order of the projects
+	 * @throws IOException if a POM file could not be read
+	 */
+	protected List<byte[]> poms(SyntheticWorkspace ws) throws IOException{
+		List<byte[]> ret = new ArrayList<>();
+		for(File f : ws.getProjects()){
+			ret.add(Files.readAllBytes(new File(f, "pom.xml").toPath()));
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns the PM identifiers of all projects of a loaded model.
+	 * @param pm the project manager
+	 * @return PM identifiers in model order
+	 */
+	protected List<String> ids(ProjectManager pm){
+		List<String> ret = new ArrayList<>();
+		for(Model_ManagedProject mp : pm.getModel().getManagedProjects()){
+			ret.add(mp.getPmId());
+		}
+		return ret;
+	}
+
+	/**
+	 * Loads a model and returns the failure.
+	 * @param ws the workspace
+	 * @param work the work directory
+	 * @param threads number of threads
+	 * @return message of the failure, null if the model was loaded
+	 */
+	protected String failure(SyntheticWorkspace ws, File work, int threads){
+		try{
+			ws.load(work, threads);
+			return null;
+		}
+		catch(IllegalArgumentException ex){
+			return ex.getMessage();
+		}
+	}
+}
@@ -0,0 +1,140 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.mvn.pm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Test;
+
+import de.vandermeer.skb.mvn.PmConstants;
+import de.vandermeer.skb.mvn.ProjectFiles;
+import de.vandermeer.skb.mvn.pm.model.Model_ManagedProject;
+import de.vandermeer.skb.mvn.pm.model.PM_Model;
+
+/**
+ * Tests for the project watcher: projects affected by changes in PM directories and in shared plugin and profile files, and lookup of projects by base directory.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+public class Test_ProjectWatcher_PM {
+
+	@Test(expected=IllegalArgumentException.class)
+	public void test_NegativeDebounce(){
+		new ProjectWatcher(new File("."), new Callable<ProjectManager>() {
+			@Override
+			public ProjectManager call() throws Exception {
+				return null;
+			}
+		}, -1, new SystemStreamLog());
+	}
+
+	@Test
+	public void test_Affected() throws IOException{
+		final SyntheticWorkspace ws = SyntheticWorkspace.temporary(10).create();
+		final File work = Files.createTempDirectory("pm-work").toFile();
+		ProjectWatcher watcher = new ProjectWatcher(ws.getConfigDir(), new Callable<ProjectManager>() {
+			@Override
+			public ProjectManager call() throws Exception {
+				ProjectManager ret = new ProjectManager(ws.getConfigDir(), PmConstants.PROJECT_PM_PATH);
+				ret.setWorkDir(work);
+				return ret;
+			}
+		}, 0, new SystemStreamLog());
+		try{
+			watcher.ws = FileSystems.getDefault().newWatchService();
+			watcher.fullReload = true;
+			watcher.process(Collections.<Path>emptySet());
+			PM_Model model = watcher.pm.getModel();
+			assertEquals(10, watcher.pmDirs.size());
+
+			//project property file: only the project, coordinates did not change
+			Model_ManagedProject p3 = model.getManagedProject("p3");
+			File pf = new File(p3.getPmDir(), ProjectFiles.MANAGED_PROJECT_PROPERTIES.getFileName());
+			FileUtils.writeStringToFile(pf, FileUtils.readFileToString(pf, "UTF-8").replace("number 3,", "number three,"), "UTF-8");
+			Set<Path> changed = this.paths(pf);
+			assertEquals(new TreeSet<>(Arrays.asList("p3")), this.ids(watcher.reloadChanged(changed)));
+			assertNotSame(p3, model.getManagedProject("p3"));
+			watcher.process(changed);
+			assertSame(model.getManagedProject("p3"), watcher.pmDirs.get(watcher.normalize(p3.getPmDir())));
+
+			//own plugin file in a PM directory, shared plugin and profile files, unrelated file
+			assertEquals(new TreeSet<>(Arrays.asList("p5")), this.ids(watcher.reloadChanged(this.paths(new File(model.getManagedProject("p5").getPmDir(), "plugin-own.pm")))));
+			assertEquals(10, watcher.reloadChanged(this.paths(new File(ws.getRoot(), SyntheticWorkspace.COMMON_DIR + "/plugins.pm"))).size());
+			assertEquals(10, watcher.reloadChanged(this.paths(new File(ws.getRoot(), SyntheticWorkspace.COMMON_DIR + "/profiles.pm"))).size());
+			assertEquals(0, watcher.reloadChanged(this.paths(new File(ws.getRoot(), "unrelated.txt"))).size());
+
+			//lookup by base directory
+			Model_ManagedProject p7 = model.getManagedProject("p7");
+			assertSame(p7, model.getManagedProject(new File(p7.getBaseDir(), "../p7/.")));
+			assertSame(p7, model.getManagedProject(p7.getBaseDir().getAbsoluteFile()));
+			assertSame(model.getManagedProject("p3"), model.getManagedProject(p3.getBaseDir()));
+			assertNull(model.getManagedProject(ws.getRoot()));
+		}
+		finally{
+			if(watcher.ws!=null){
+				watcher.ws.close();
+			}
+			ws.delete();
+			FileUtils.deleteQuietly(work);
+		}
+	}
+
+	/**
+	 * Returns changed files as normalized paths, as reported by the watch service.
+	 * @param files the changed files
+	 * @return normalized paths
+	 */
+	protected Set<Path> paths(File ... files){
+		Set<Path> ret = new LinkedHashSet<>();
+		for(File f : files){
+			ret.add(f.getAbsoluteFile().toPath().normalize());
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns the PM identifiers of projects.
+	 * @param mps the projects
+	 * @return PM identifiers
+	 */
+	protected Set<String> ids(Collection<Model_ManagedProject> mps){
+		Set<String> ret = new TreeSet<>();
+		for(Model_ManagedProject mp : mps){
+			ret.add(mp.getPmId());
+		}
+		return ret;
+	}
+}
@@ -0,0 +1,140 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.mvn.pm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.util.Properties;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import de.vandermeer.skb.mvn.pm.SyntheticWorkspace.Mode;
+
+/**
+ * End-to-end scaling tests, loading and writing synthetic workspaces of growing size against stored time and heap budgets.
+ *
+ * Every size is tested with the full model and in streaming mode.
+ * The tests with 100 projects run always, but only test the loaded and written projects.
+ * Time and heap budgets depend on the machine and its load, they are only tested if the system property {@link #SIZE_PROPERTY} is set,
+ * larger tests run only if it is set to at least their size, for instance <code>-Dpm.scaling=10000</code>.
+ * Budgets are stored in <code>scaling-budgets.properties</code> next to this class.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+public class Test_Scaling_PM {
+
+	/** System property with the largest workspace size to test. */
+	public static final String SIZE_PROPERTY = "pm.scaling";
+
+	/** Resource with the budgets. */
+	public static final String BUDGET_FILE = "scaling-budgets.properties";
+
+	@Test
+	public void test_100() throws IOException{
+		this.run(100, false);
+	}
+
+	@Test
+	public void test_1000() throws IOException{
+		this.run(1000, false);
+	}
+
+	@Test
+	public void test_10000() throws IOException{
+		this.run(10000, false);
+	}
+
+	@Test
+	public void test_100_Streaming() throws IOException{
+		this.run(100, true);
+	}
+
+	@Test
+	public void test_1000_Streaming() throws IOException{
+		this.run(1000, true);
+	}
+
+	@Test
+	public void test_10000_Streaming() throws IOException{
+		this.run(10000, true);
+	}
+
+	/**
+	 * Creates a workspace, then loads and writes it measuring time and peak heap, and tests both against the budgets if {@link #SIZE_PROPERTY} is set.
+	 * @param size number of projects
+	 * @param streaming true for streaming mode, false for the full model
+	 * @throws IOException if the workspace could not be created
+	 */
+	protected void run(int size, boolean streaming) throws IOException{
+		assumeTrue(size<=100 || size<=Integer.getInteger(SIZE_PROPERTY, 100));
+
+		Properties budgets = new Properties();
+		try(InputStream in = Test_Scaling_PM.class.getResourceAsStream(BUDGET_FILE)){
+			assertNotNull("no scaling budgets found", in);
+			budgets.load(in);
+		}
+		String prefix = size + ((streaming)?".streaming":"");
+		long timeBudget = Long.parseLong(budgets.getProperty(prefix + ".time.ms"));
+		long heapBudget = Long.parseLong(budgets.getProperty(prefix + ".heap.mb"));
+
+		SyntheticWorkspace ws = SyntheticWorkspace.temporary(size).create();
+		File work = Files.createTempDirectory("pm-work").toFile();
+		try{
+			System.gc();
+			for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()){
+				pool.resetPeakUsage();
+			}
+			long start = System.nanoTime();
+
+			ProjectManager pm = (streaming)?ws.load(work, 1, Mode.STREAMING):ws.load(work, 1);
+			String written = pm.writeModel();
+
+			long time = (System.nanoTime() - start) / 1000000;
+			long heap = 0;
+			for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()){
+				if(pool.getType()==MemoryType.HEAP){
+					heap += pool.getPeakUsage().getUsed();
+				}
+			}
+			heap = heap / (1024 * 1024);
+			String measured = prefix + " projects: " + time + " ms (budget " + timeBudget + " ms), peak heap " + heap + " MB (budget " + heapBudget + " MB)";
+
+			assertEquals(size, (streaming)?pm.getIndex().size():pm.getModel().getManagedProjects().size());
+			assertEquals(size, written.split("\n").length);
+			if(System.getProperty(SIZE_PROPERTY)!=null){
+				assertTrue("time budget exceeded for " + measured, time<=timeBudget);
+				assertTrue("heap budget exceeded for " + measured, heap<=heapBudget);
+			}
+		}
+		finally{
+			ws.delete();
+			FileUtils.deleteQuietly(work);
+		}
+	}
+}
@@ -0,0 +1,97 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.mvn.pm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+
+import de.vandermeer.skb.mvn.PmConstants;
+import de.vandermeer.skb.mvn.pm.SyntheticWorkspace.Mode;
+import de.vandermeer.skb.mvn.pm.model.Model_ManagedProject;
+
+/**
+ * Tests for selective regeneration: a changed dependency version selects exactly its direct users, a changed plugin version selects all projects.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+public class Test_Selective_PM {
+
+	@Test
+	public void test_Selective() throws IOException{
+		SyntheticWorkspace ws = SyntheticWorkspace.temporary(30).create();
+		File work = Files.createTempDirectory("pm-work").toFile();
+		try{
+			//first run writes all projects, second run restores the model and selects none
+			ProjectManager pm = ws.load(work, 1, Mode.SELECTIVE);
+			assertFalse(pm.isRestored());
+			assertEquals(30, StringUtils.countMatches(pm.writeModel(), '\n'));
+			assertEquals(-1, pm.getSelected());
+			pm = ws.load(work, 1, Mode.SELECTIVE);
+			assertTrue(pm.isRestored());
+			assertEquals("", pm.writeModel());
+			assertEquals(0, pm.getSelected());
+
+			//changed dependency version: exactly the direct users
+			String key = null;
+			for(String id : pm.getModel().getManagedProjects().iterator().next().getDependencyIds()){
+				if(id.startsWith("ext")){
+					key = id;
+				}
+			}
+			Set<String> users = new TreeSet<>();
+			for(Model_ManagedProject mp : pm.getModel().getManagedProjects()){
+				if(mp.getDependencyIds().contains(key)){
+					users.add(mp.getPmId());
+				}
+			}
+			assertTrue(users.size()<30);
+			SyntheticWorkspace.replace(new File(ws.getConfigDir(), PmConstants.DEPENDENCY_VERSIONS_FILE), key + "=", key + "=org.changed changed 9.9.9\n#");
+			pm = ws.load(work, 1, Mode.SELECTIVE);
+			assertTrue(pm.isRestored());
+			String written = pm.writeModel();
+			assertEquals(users.size(), pm.getSelected());
+			assertEquals(users.size(), StringUtils.countMatches(written, '\n'));
+			for(Model_ManagedProject mp : pm.getModel().getManagedProjects()){
+				assertEquals(mp.getPmId(), users.contains(mp.getPmId()), new String(Files.readAllBytes(new File(mp.getBaseDir(), "pom.xml").toPath()), StandardCharsets.UTF_8).contains("9.9.9"));
+			}
+
+			//changed plugin version: all projects
+			SyntheticWorkspace.replace(new File(ws.getConfigDir(), PmConstants.PLUGIN_VERSIONS_FILE), "maven-jar-plugin=2.6", "maven-jar-plugin=2.7");
+			pm = ws.load(work, 1, Mode.SELECTIVE);
+			assertTrue(pm.isRestored());
+			assertEquals(30, StringUtils.countMatches(pm.writeModel(), '\n'));
+			assertEquals(-1, pm.getSelected());
+		}
+		finally{
+			ws.delete();
+			FileUtils.deleteQuietly(work);
+		}
+	}
+}
@@ -0,0 +1,108 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.mvn.pm;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.junit.Test;
+
+import de.vandermeer.skb.mvn.PmConstants;
+import de.vandermeer.skb.mvn.ProjectFiles;
+import de.vandermeer.skb.mvn.pm.model.FragmentCache;
+
+/**
+ * Tests for the session cache: reuse while no input changed, invalidation on a changed input, and aggregation.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+public class Test_SessionCache_PM {
+
+	@Test
+	public void test_Reuse() throws IOException{
+		SyntheticWorkspace ws = SyntheticWorkspace.temporary(10).create();
+		try{
+			long session = System.nanoTime();
+			SessionCache.Entry entry = SessionCache.get(session, ws.getConfigDir(), PmConstants.PROJECT_PM_PATH);
+			assertNull(entry.get());
+
+			ProjectManager pm = new ProjectManager(ws.getConfigDir(), PmConstants.PROJECT_PM_PATH);
+			pm.loadModel();
+			entry.set(pm);
+			entry.setWritten();
+
+			//same session and configuration, unchanged inputs: same entry and project manager, twice
+			assertSame(entry, SessionCache.get(session, ws.getConfigDir(), PmConstants.PROJECT_PM_PATH));
+			assertSame(pm, entry.get());
+			assertSame(pm, SessionCache.get(session, ws.getConfigDir(), PmConstants.PROJECT_PM_PATH).get());
+			assertTrue(entry.isWritten());
+
+			//reconfiguring a reused project manager keeps its fragment cache
+			FragmentCache fc = pm.getFragmentCache();
+			pm.setFragmentCacheSize(fc.getMaxBytes());
+			assertSame(fc, pm.getFragmentCache());
+			pm.setFragmentCacheSize(fc.getMaxBytes() / 2);
+			assertNotSame(fc, pm.getFragmentCache());
+
+			//changed input: the cached project manager is dropped
+			File pf = new File(ws.getProjects().get(2), PmConstants.PROJECT_PM_PATH + File.separator + ProjectFiles.MANAGED_PROJECT_PROPERTIES.getFileName());
+			Files.write(pf.toPath(), "\n# changed\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+			assertNull(entry.get());
+			assertFalse(entry.isWritten());
+
+			//new session: new entry
+			assertNotSame(entry, SessionCache.get(session + 1, ws.getConfigDir(), PmConstants.PROJECT_PM_PATH));
+		}
+		finally{
+			ws.delete();
+		}
+	}
+
+	@Test
+	public void test_Aggregated(){
+		final boolean[] root = new boolean[1];
+		AbstractProjectManagerMojo mojo = new AbstractProjectManagerMojo(){
+			@Override
+			public void execute() throws MojoExecutionException, MojoFailureException {}
+
+			@Override
+			protected boolean isExecutionRoot(){
+				return root[0];
+			}
+		};
+
+		//a module that is not the execution root only skips with aggregation
+		mojo.aggregate = false;
+		assertFalse(mojo.isAggregated());
+		mojo.aggregate = true;
+		assertTrue(mojo.isAggregated());
+		root[0] = true;
+		assertFalse(mojo.isAggregated());
+	}
+}
@@ -0,0 +1,131 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.mvn.pm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import de.vandermeer.skb.mvn.PmConstants;
+import de.vandermeer.skb.mvn.ProjectFiles;
+import de.vandermeer.skb.mvn.ProjectProperties;
+import de.vandermeer.skb.mvn.pm.SyntheticWorkspace.Mode;
+
+/**
+ * Tests for streaming mode: same POM files as with the full model, and all problems reported before any POM file is written.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+public class Test_Streaming_PM {
+
+	@Test
+	public void test_SameAsModel() throws IOException{
+		SyntheticWorkspace ws = SyntheticWorkspace.temporary(50).create();
+		File work = Files.createTempDirectory("pm-work").toFile();
+		try{
+			ProjectManager pm = ws.load(work, 1, Mode.STREAMING);
+			assertNull(pm.getModel());
+			assertEquals(50, pm.getIndex().size());
+			StringWriter report = new StringWriter();
+			assertEquals(50, pm.writeModel(report));
+			assertEquals(50, report.toString().split("\n").length);
+			List<String> streamed = this.readPoms(ws);
+
+			//full model creates the same POM files
+			this.deletePoms(ws, work);
+			pm = ws.load(work, 1);
+			assertEquals(50, pm.writeModel().split("\n").length);
+			assertEquals(streamed, this.readPoms(ws));
+
+			//nothing to write, with a full model
+			assertEquals(0, ws.load(work, 1, Mode.STREAMING).writeModel(new StringWriter()));
+
+			//parallel streaming creates the same POM files
+			this.deletePoms(ws, work);
+			assertEquals(50, ws.load(work, 4, Mode.STREAMING).writeModel(new StringWriter()));
+			assertEquals(streamed, this.readPoms(ws));
+		}
+		finally{
+			ws.delete();
+			FileUtils.deleteQuietly(work);
+		}
+	}
+
+	@Test
+	public void test_UnknownDependency() throws IOException{
+		SyntheticWorkspace ws = SyntheticWorkspace.temporary(10).create();
+		File work = Files.createTempDirectory("pm-work").toFile();
+		try{
+			File pf = new File(ws.getProjects().get(0), PmConstants.PROJECT_PM_PATH + File.separator + ProjectFiles.MANAGED_PROJECT_PROPERTIES.getFileName());
+			Files.write(pf.toPath(), ("\n" + ProjectProperties.PM_DEPENDENCIES.getPropName() + "=p5 unknown-dependency\n").getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+			try{
+				ws.load(work, 1, Mode.STREAMING);
+				fail("unknown dependency not reported");
+			}
+			catch(IllegalArgumentException ex){
+				assertTrue(ex.getMessage(), ex.getMessage().contains("<unknown-dependency>"));
+			}
+			for(File dir : ws.getProjects()){
+				assertTrue(!new File(dir, "pom.xml").exists());
+			}
+		}
+		finally{
+			ws.delete();
+			FileUtils.deleteQuietly(work);
+		}
+	}
+
+	/**
+	 * Reads the POM files of all projects.
+	 * @param ws the workspace
+	 * @return POM files in the order of the projects
+	 * @throws IOException if any POM file could not be read
+	 */
+	protected List<String> readPoms(SyntheticWorkspace ws) throws IOException{
+		List<String> ret = new ArrayList<>();
+		for(File dir : ws.getProjects()){
+			ret.add(new String(Files.readAllBytes(new File(dir, "pom.xml").toPath()), StandardCharsets.UTF_8));
+		}
+		return ret;
+	}
+
+	/**
+	 * Deletes the POM files of all projects and the work directory.
+	 * @param ws the workspace
+	 * @param work the work directory
+	 */
+	protected void deletePoms(SyntheticWorkspace ws, File work){
+		for(File dir : ws.getProjects()){
+			FileUtils.deleteQuietly(new File(dir, "pom.xml"));
+		}
+		FileUtils.deleteQuietly(work);
+	}
+}
@@ -0,0 +1,167 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.mvn.pm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+/**
+ * Tests for the version stamper: replacement patterns against sample files, excluded and undecodable files, strict build dates, and placeholders without value.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+public class Test_VersionStamper_PM {
+
+	/** Version tag, split so that stamping this repository does not change the samples. */
+	static final String TAG = "@" + "version";
+
+	/** Version constant, split so that stamping this repository does not change the samples. */
+	static final String APP = "public final static String APP_" + "VERSION = ";
+
+	/** Version string for most file types. */
+	static final String VERSION = "v1.2.3 build 170404 (04-Apr-17)";
+
+	@Test
+	public void test_Stamp() throws IOException{
+		File module = Files.createTempDirectory("pm-stamp").toFile();
+		try{
+			this.write(module, "src/main/java/A.java", "/**\n * " + TAG + " old\n * " + TAG + " second\n */\n" + APP + "\"old\";\n");
+			this.write(module, "src/main/java/B.java", "/**\r\n * " + TAG + "\r\n */\r\n");
+			this.write(module, "src/main/resources/a.properties", " # " + TAG + " old\nkey=value\n");
+			this.write(module, "src/main/resources/a.json", "// " + TAG + " old\n{}\n");
+			this.write(module, "src/main/resources/a.stg", "/*\n * " + TAG + " old\n */\n");
+			this.write(module, "src/main/antlr/a.g4", "/*\n * " + TAG + " old\n */\n");
+			this.write(module, "src/bin/a.sh", "#!/bin/sh\n## " + TAG + " old\n");
+			this.write(module, "src/tasks/set-versions.sh", "## " + TAG + " old\n");
+			this.write(module, "src/main/java/Unchanged.java", "class Unchanged {}\n");
+			this.write(module, "src/main/resources/a.txt", " # " + TAG + " old\n");
+			File latin = new File(module, "src/main/java/Latin.java");
+			Files.write(latin.toPath(), (" * " + TAG + " \u00e4\n").getBytes(StandardCharsets.ISO_8859_1));
+
+			VersionStamper vs = new VersionStamper(this.versions(), StandardCharsets.UTF_8);
+			vs.setThreads(2);
+			assertEquals(7, vs.stamp(module).size());
+			assertEquals(9, vs.getScanned().size());
+			assertEquals(Arrays.asList(latin), vs.getSkipped());
+
+			//first match only, APP_VERSION
+			assertEquals("/**\n * " + TAG + "    " + VERSION + " for Java 1.8\n * " + TAG + " second\n */\n" + APP + "\"" + VERSION + " for Java 1.8\";\n", this.read(module, "src/main/java/A.java"));
+			//line terminators are kept
+			assertEquals("/**\r\n * " + TAG + "    " + VERSION + " for Java 1.8\r\n */\r\n", this.read(module, "src/main/java/B.java"));
+			assertEquals(" # " + TAG + "    " + VERSION + "\nkey=value\n", this.read(module, "src/main/resources/a.properties"));
+			assertEquals("// " + TAG + "    " + VERSION + "\n{}\n", this.read(module, "src/main/resources/a.json"));
+			assertEquals("/*\n * " + TAG + "    " + VERSION + "\n */\n", this.read(module, "src/main/resources/a.stg"));
+			assertEquals("/*\n * " + TAG + "    " + VERSION + " for for ANTLR 4.5\n */\n", this.read(module, "src/main/antlr/a.g4"));
+			assertEquals("#!/bin/sh\n## " + TAG + "    " + VERSION + "\n", this.read(module, "src/bin/a.sh"));
+
+			//not stamped: excluded script, unknown extension, undecodable file
+			assertEquals("## " + TAG + " old\n", this.read(module, "src/tasks/set-versions.sh"));
+			assertEquals(" # " + TAG + " old\n", this.read(module, "src/main/resources/a.txt"));
+			assertEquals(" * " + TAG + " \u00e4\n", new String(Files.readAllBytes(latin.toPath()), StandardCharsets.ISO_8859_1));
+
+			//second run changes nothing
+			vs.setThreads(1);
+			assertEquals(0, vs.stamp(module).size());
+			assertEquals(9, vs.getScanned().size());
+		}
+		finally{
+			FileUtils.deleteQuietly(module);
+		}
+	}
+
+	@Test
+	public void test_MissingValue() throws IOException{
+		Map<String, String> values = new HashMap<>();
+		values.put(VersionStamper.MODULE_VERSION, "1.2.3");
+		values.put(VersionStamper.TARGET_VERSION, null);
+		values.put(VersionStamper.BUILT_6D, "170404");
+		try{
+			VersionStamper.loadVersions(null, values);
+			fail("placeholders without value not reported");
+		}
+		catch(IllegalArgumentException ex){
+			assertTrue(ex.getMessage(), ex.getMessage().contains("[" + VersionStamper.BUILT_2D3C4D + ", " + VersionStamper.TARGET_VERSION + "]"));
+		}
+	}
+
+	@Test
+	public void test_ParseDate(){
+		assertEquals("170404", new SimpleDateFormat("yyMMdd").format(VersionStamper.parseDate("170404")));
+		for(String date : Arrays.asList("171304", "170431", "1704041", "17044", "17-04-04", "")){
+			try{
+				VersionStamper.parseDate(date);
+				fail("invalid build date <" + date + ">");
+			}
+			catch(IllegalArgumentException ex){
+				assertTrue(ex.getMessage(), ex.getMessage().contains("<" + date + ">"));
+			}
+		}
+	}
+
+	/**
+	 * Returns the built-in version strings for module version 1.2.3, build date 170404, and Java 1.8.
+	 * @return version strings
+	 * @throws IOException if the built-in file could not be read
+	 */
+	protected Properties versions() throws IOException{
+		Map<String, String> values = new HashMap<>();
+		values.put(VersionStamper.MODULE_VERSION, "1.2.3");
+		values.put(VersionStamper.TARGET_VERSION, "1.8");
+		values.put(VersionStamper.BUILT_6D, "170404");
+		values.put(VersionStamper.BUILT_2D3C4D, "04-Apr-17");
+		return VersionStamper.loadVersions(null, values);
+	}
+
+	/**
+	 * Writes a sample file in a module.
+	 * @param module the module directory
+	 * @param path the relative path of the file
+	 * @param content the file content
+	 * @throws IOException if the file could not be written
+	 */
+	protected void write(File module, String path, String content) throws IOException{
+		File f = new File(module, path);
+		f.getParentFile().mkdirs();
+		Files.write(f.toPath(), content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Reads a sample file in a module.
+	 * @param module the module directory
+	 * @param path the relative path of the file
+	 * @return the file content
+	 * @throws IOException if the file could not be read
+	 */
+	protected String read(File module, String path) throws IOException{
+		return new String(Files.readAllBytes(new File(module, path).toPath()), StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,147 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.mvn.pm.model;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import de.vandermeer.skb.mvn.pm.ProjectManager;
+import de.vandermeer.skb.mvn.pm.SyntheticWorkspace;
+
+/**
+ * Tests for the comparing writer: line terminators CR, LF, and CRLF on both sides, a missing final line terminator, and unchanged POM files not being written.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+public class Test_ComparingWriter_PM {
+
+	@Test
+	public void test_LineTerminators() throws IOException{
+		for(int chunk : new int[]{1, 2, 100}){
+			assertFalse(this.differs("a\nb\n", "a\nb\n", chunk));
+			assertFalse(this.differs("a\r\nb\r\n", "a\nb\n", chunk));
+			assertFalse(this.differs("a\nb\n", "a\r\nb\r\n", chunk));
+			assertFalse(this.differs("a\rb\r", "a\nb\n", chunk));
+			assertFalse(this.differs("a\nb\n", "a\rb\r", chunk));
+			assertFalse(this.differs("a\rb\r\nc", "a\r\nb\rc", chunk));
+			assertFalse(this.differs("a\r\r\nb", "a\n\nb", chunk));
+			assertTrue(this.differs("a\r\nb", "a\n\nb", chunk));
+			assertTrue(this.differs("a\n\nb", "a\r\nb", chunk));
+			assertTrue(this.differs("ab", "a\rb", chunk));
+
+			//missing final line terminator on either side, but not more
+			assertFalse(this.differs("a\nb", "a\nb\r", chunk));
+			assertFalse(this.differs("a\nb\r", "a\nb", chunk));
+			assertTrue(this.differs("a\nb\r\r", "a\nb", chunk));
+			assertTrue(this.differs("a\nb", "a\nb\r\r", chunk));
+		}
+
+		ComparingWriter cw = this.compare("a\nb\n", "a\nb\n", 3);
+		assertTrue(cw.isIdentical());
+		cw = this.compare("a\rb\n", "a\nb\n", 3);
+		assertFalse(cw.differs());
+		assertFalse(cw.isIdentical());
+		assertTrue(this.compare("a\n", null, 1).differs());
+	}
+
+	@Test
+	public void test_Unchanged() throws IOException{
+		SyntheticWorkspace ws = SyntheticWorkspace.temporary(10).create();
+		File work = Files.createTempDirectory("pm-work").toFile();
+		try{
+			ProjectManager pm = ws.load(work, 1);
+			assertEquals(10, pm.writeModel().split("\n").length);
+			assertEquals("", ws.load(work, 1).writeModel());
+
+			//existing POM files with other line terminators are unchanged and not written
+			File[] poms = new File[3];
+			byte[][] content = new byte[3][];
+			String[] eol = new String[]{"\r\n", "\r", "\n"};
+			for(int i=0; i<poms.length; i++){
+				poms[i] = new File(ws.getProjects().get(i), "pom.xml");
+				String text = new String(Files.readAllBytes(poms[i].toPath()), StandardCharsets.UTF_8);
+				text = text.replace("\n", eol[i]);
+				if(i==2){
+					//missing final line terminator
+					text = text.substring(0, text.length() - 1);
+				}
+				content[i] = text.getBytes(StandardCharsets.UTF_8);
+				Files.write(poms[i].toPath(), content[i]);
+				Files.setLastModifiedTime(poms[i].toPath(), FileTime.fromMillis(System.currentTimeMillis() - 3600000));
+			}
+			pm = ws.load(work, 1);
+			assertEquals(0, pm.checkModel(new StringWriter()).size());
+			assertEquals("", pm.writeModel());
+			for(int i=0; i<poms.length; i++){
+				assertArrayEquals(content[i], Files.readAllBytes(poms[i].toPath()));
+			}
+		}
+		finally{
+			ws.delete();
+			FileUtils.deleteQuietly(work);
+		}
+	}
+
+	/**
+	 * Compares output with existing content.
+	 * @param out the output
+	 * @param existing the existing content, null for none
+	 * @param chunk number of characters written at once
+	 * @return true if the output differs, false otherwise
+	 * @throws IOException if writing failed
+	 */
+	protected boolean differs(String out, String existing, int chunk) throws IOException{
+		boolean ret = this.compare(out, existing, chunk).differs();
+		assertEquals("other direction", ret, this.compare(existing, out, chunk).differs());
+		return ret;
+	}
+
+	/**
+	 * Compares output with existing content and finishes the writer.
+	 * @param out the output
+	 * @param existing the existing content, null for none
+	 * @param chunk number of characters written at once
+	 * @return the finished writer
+	 * @throws IOException if writing failed
+	 */
+	protected ComparingWriter compare(String out, String existing, int chunk) throws IOException{
+		StringWriter target = new StringWriter();
+		ComparingWriter ret = new ComparingWriter(target, (existing==null)?null:new StringReader(existing));
+		try(Writer writer = ret){
+			for(int i=0; i<out.length(); i+=chunk){
+				writer.write(out, i, Math.min(chunk, out.length() - i));
+			}
+		}
+		assertEquals(out, target.toString());
+		return ret;
+	}
+}
@@ -0,0 +1,171 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.mvn.pm.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import de.vandermeer.skb.mvn.pm.SyntheticWorkspace;
+
+/**
+ * Tests for the dependency graph: topological levels of disconnected components, reverse edges, and cycles including a self-loop.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+public class Test_DependencyGraph_PM {
+
+	@Test
+	public void test_Levels() throws IOException{
+		SyntheticWorkspace ws = SyntheticWorkspace.temporary(8).setFanOut(1, 0).create();
+		try{
+			//components {p0, p1, p2, p3, p4}, {p5, p6}, {p7}
+			ws.setDependencies(1, "p0");
+			ws.setDependencies(2, "ext1 p0/test");
+			ws.setDependencies(3, "p1 p2");
+			ws.setDependencies(4, "p3/test");
+			ws.setDependencies(6, "p5");
+			PM_DependencyGraph graph = ws.createModel().getDependencyGraph();
+
+			assertEquals(8, graph.size());
+			assertEquals(6, graph.getEdgeCount());
+			assertFalse(graph.hasCycles());
+			assertEquals("", graph.getCycleDescription());
+
+			List<List<String>> levels = new ArrayList<>();
+			for(List<Model_ManagedProject> level : graph.getLevels()){
+				levels.add(this.ids(level));
+			}
+			assertEquals(Arrays.asList(Arrays.asList("p0", "p5", "p7"), Arrays.asList("p1", "p2", "p6"), Arrays.asList("p3"), Arrays.asList("p4")), levels);
+			assertEquals(3, graph.getLevel(graph.getOrdinal("p4")));
+			assertEquals(0, graph.getLevel(graph.getOrdinal("p7")));
+			assertEquals(-1, graph.getOrdinal("ext1"));
+
+			//every edge in both directions
+			int rdeps = 0;
+			for(int i=0; i<graph.size(); i++){
+				for(int d : graph.getDependencies(i)){
+					assertTrue(this.contains(graph.getDependents(d), i));
+				}
+				for(int d : graph.getDependents(i)){
+					assertTrue(this.contains(graph.getDependencies(d), i));
+				}
+				rdeps += graph.getDependents(i).length;
+			}
+			assertEquals(graph.getEdgeCount(), rdeps);
+			assertEquals(new TreeSet<>(Arrays.asList("p1", "p2")), this.ids(graph, graph.getDependents(graph.getOrdinal("p0"))));
+			assertEquals(new TreeSet<>(Arrays.asList("p1", "p2")), this.ids(graph, graph.getDependencies(graph.getOrdinal("p3"))));
+			assertEquals(0, graph.getDependents(graph.getOrdinal("p4")).length);
+			assertEquals(0, graph.getDependents(graph.getOrdinal("p7")).length);
+		}
+		finally{
+			ws.delete();
+		}
+	}
+
+	@Test
+	public void test_Cycles() throws IOException{
+		SyntheticWorkspace ws = SyntheticWorkspace.temporary(6).setFanOut(1, 0).create();
+		try{
+			//self-loop p1, cycle p2 -> p3 -> p4 -> p2, p5 depends on the cycle
+			ws.setDependencies(1, "p1");
+			ws.setDependencies(2, "p3");
+			ws.setDependencies(3, "p4/test");
+			ws.setDependencies(4, "p2");
+			ws.setDependencies(5, "p2 p0");
+			PM_DependencyGraph graph = ws.createModel().getDependencyGraph();
+
+			assertTrue(graph.hasCycles());
+			Set<Set<String>> cycles = new HashSet<>();
+			for(List<Model_ManagedProject> cycle : graph.getCycles()){
+				cycles.add(new TreeSet<>(this.ids(cycle)));
+			}
+			Set<Set<String>> expected = new HashSet<>();
+			expected.add(new TreeSet<>(Arrays.asList("p1")));
+			expected.add(new TreeSet<>(Arrays.asList("p2", "p3", "p4")));
+			assertEquals(expected, cycles);
+			assertTrue(graph.getCycleDescription(), graph.getCycleDescription().contains("<p1>"));
+			assertTrue(this.contains(graph.getDependents(graph.getOrdinal("p1")), graph.getOrdinal("p1")));
+
+			try{
+				graph.getLevels();
+				fail("no levels for a graph with cycles");
+			}
+			catch(IllegalArgumentException ex){
+				assertTrue(ex.getMessage(), ex.getMessage().contains("dependency cycle"));
+			}
+		}
+		finally{
+			ws.delete();
+		}
+	}
+
+	/**
+	 * Returns the PM identifiers of projects.
+	 * @param mps the projects
+	 * @return PM identifiers, in the order of the projects
+	 */
+	protected List<String> ids(Collection<Model_ManagedProject> mps){
+		List<String> ret = new ArrayList<>();
+		for(Model_ManagedProject mp : mps){
+			ret.add(mp.getPmId());
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns the PM identifiers of projects in a graph.
+	 * @param graph the graph
+	 * @param ords the ordinals of the projects
+	 * @return PM identifiers
+	 */
+	protected Set<String> ids(PM_DependencyGraph graph, int[] ords){
+		Set<String> ret = new TreeSet<>();
+		for(int o : ords){
+			ret.add(graph.getProject(o).getPmId());
+		}
+		return ret;
+	}
+
+	/**
+	 * Tests if an array of ordinals contains an ordinal.
+	 * @param ords the ordinals
+	 * @param ord the ordinal to look for
+	 * @return true if the ordinal is contained, false otherwise
+	 */
+	protected boolean contains(int[] ords, int ord){
+		for(int o : ords){
+			if(o==ord){
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,159 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.mvn.pm.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+/**
+ * Tests for the fragment cache: files with the same content share one string, least recently used files are evicted, and the memory bound is kept.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+public class Test_FragmentCache_PM {
+
+	@Test
+	public void test_SameContent() throws IOException{
+		File dir = Files.createTempDirectory("pm-fragments").toFile();
+		try{
+			File a = this.write(dir, "a.pm", "<plugin/>\n");
+			File b = this.write(dir, "b.pm", "<plugin/>\n");
+			File c = this.write(dir, "c.pm", "<profile/>\n");
+			FragmentCache fc = new FragmentCache(1024);
+
+			PM_Metrics metrics = new PM_Metrics();
+			PM_Metrics.Span span = metrics.startPhase(PM_Metrics.PHASE_WRITE);
+			String text = fc.get(a, metrics);
+			assertEquals("<plugin/>\n", text);
+			assertSame(text, fc.get(b, metrics));
+			assertSame(text, fc.get(a, metrics));
+			span.stop();
+			assertEquals(20, metrics.getPhases().get(PM_Metrics.PHASE_WRITE).getRead());
+			assertEquals(2, fc.size());
+			assertEquals(1, fc.getContentCount());
+			assertEquals(20, fc.getBytes());
+			assertEquals(2, fc.getMisses());
+			assertEquals(1, fc.getHits());
+
+			assertEquals("<profile/>\n", fc.get(c, null));
+			assertEquals(2, fc.getContentCount());
+			assertEquals(42, fc.getBytes());
+
+			//same file with other content is read again
+			this.write(dir, "a.pm", "<plugins/>\n");
+			assertEquals("<plugins/>\n", fc.get(a, null));
+			assertEquals(4, fc.getMisses());
+		}
+		finally{
+			FileUtils.deleteQuietly(dir);
+		}
+	}
+
+	@Test
+	public void test_Eviction() throws IOException{
+		File dir = Files.createTempDirectory("pm-fragments").toFile();
+		try{
+			File[] f = new File[4];
+			for(int i=0; i<f.length; i++){
+				f[i] = this.write(dir, "f" + i + ".pm", "fragment " + i);
+			}
+			FragmentCache fc = new FragmentCache(60);
+			fc.get(f[0], null);
+			fc.get(f[1], null);
+			fc.get(f[2], null);
+			assertEquals(60, fc.getBytes());
+
+			//f0 is used again, so f1 is the least recently used file
+			fc.get(f[0], null);
+			fc.get(f[3], null);
+			assertEquals(1, fc.getEvictions());
+			assertEquals(3, fc.size());
+			assertEquals(60, fc.getBytes());
+			long hits = fc.getHits();
+			fc.get(f[0], null);
+			assertEquals(hits + 1, fc.getHits());
+			long misses = fc.getMisses();
+			fc.get(f[1], null);
+			assertEquals(misses + 1, fc.getMisses());
+			assertEquals(2, fc.getEvictions());
+		}
+		finally{
+			FileUtils.deleteQuietly(dir);
+		}
+	}
+
+	@Test
+	public void test_MemoryBound() throws IOException{
+		File dir = Files.createTempDirectory("pm-fragments").toFile();
+		try{
+			//a and b share a content, which is only released once both are evicted
+			File a = this.write(dir, "a.pm", "fragment x");
+			File b = this.write(dir, "b.pm", "fragment x");
+			File c = this.write(dir, "c.pm", "fragment y");
+			File d = this.write(dir, "d.pm", "fragment z");
+			File large = this.write(dir, "large.pm", "a fragment larger than the bound");
+			FragmentCache fc = new FragmentCache(40);
+			for(File file : new File[]{a, b, c}){
+				fc.get(file, null);
+				assertTrue(fc.getBytes()<=fc.getMaxBytes());
+			}
+			assertEquals(40, fc.getBytes());
+			fc.get(d, null);
+			assertEquals(2, fc.getEvictions());
+			assertEquals(2, fc.size());
+			assertEquals(2, fc.getContentCount());
+			assertEquals(40, fc.getBytes());
+
+			//read but not cached
+			assertEquals("a fragment larger than the bound", fc.get(large, null));
+			assertEquals(2, fc.size());
+			assertEquals(40, fc.getBytes());
+
+			FragmentCache none = new FragmentCache(0);
+			assertEquals("fragment x", none.get(a, null));
+			assertEquals(0, none.size());
+			assertEquals(0, none.getBytes());
+		}
+		finally{
+			FileUtils.deleteQuietly(dir);
+		}
+	}
+
+	/**
+	 * Writes a fragment file.
+	 * @param dir the directory
+	 * @param name the file name
+	 * @param content the file content
+	 * @return the file
+	 * @throws IOException if the file could not be written
+	 */
+	protected File write(File dir, String name, String content) throws IOException{
+		File ret = new File(dir, name);
+		Files.write(ret.toPath(), content.getBytes(StandardCharsets.UTF_8));
+		return ret;
+	}
+}
@@ -0,0 +1,113 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.mvn.pm.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import de.vandermeer.skb.mvn.pm.SyntheticWorkspace;
+
+/**
+ * Tests for the reverse-dependency index: direct users and transitive impact against a naive scan over all projects.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+public class Test_ImpactIndex_PM {
+
+	@Test
+	public void test_Impact() throws IOException{
+		SyntheticWorkspace ws = SyntheticWorkspace.temporary(40).create();
+		try{
+			//cycle p10 -> p25 -> p10, p39 is a leaf (projects only depend on projects created before), p0 uses no managed project
+			ws.setDependencies(10, "ext1 p3 p25/test");
+			ws.setDependencies(25, "p10");
+			PM_Model model = ws.createModel();
+			assertTrue(model.getDependencyGraph().hasCycles());
+			PM_ImpactIndex index = model.getImpactIndex();
+
+			Set<String> keys = new TreeSet<>(index.getKeys());
+			for(Model_ManagedProject mp : model.getManagedProjects()){
+				keys.add(mp.getPmId());
+			}
+			keys.add("unknown");
+			for(String key : keys){
+				assertEquals("users of <" + key + ">", this.users(model, Collections.singleton(key), false), this.ids(index.getUsers(key)));
+				assertEquals("impact of <" + key + ">", this.users(model, Collections.singleton(key), true), this.ids(index.getImpact(key)));
+			}
+
+			assertEquals(Collections.<String>emptySet(), this.ids(index.getImpact("p39")));
+			assertTrue(this.ids(index.getImpact("p10")).containsAll(Arrays.asList("p10", "p25")));
+			assertTrue(this.ids(index.getImpact("p25")).containsAll(Arrays.asList("p10", "p25")));
+
+			Collection<String> several = Arrays.asList("p0", "p39", "ext1");
+			assertEquals(this.users(model, several, true), this.ids(index.getImpact(several)));
+			assertEquals(this.users(model, several, false), this.ids(index.getUsers(several)));
+		}
+		finally{
+			ws.delete();
+		}
+	}
+
+	/**
+	 * Scans all projects for users of dependency identifiers, repeating the scan until no more users are found for the impact.
+	 * @param model the model
+	 * @param keys the dependency identifiers
+	 * @param transitive true for the impact (users of users), false for direct users only
+	 * @return PM identifiers of the users
+	 */
+	protected Set<String> users(PM_Model model, Collection<String> keys, boolean transitive){
+		Set<String> used = new TreeSet<>(keys);
+		Set<String> ret = new TreeSet<>();
+		boolean found = true;
+		while(found){
+			found = false;
+			for(Model_ManagedProject mp : model.getManagedProjects()){
+				if(!ret.contains(mp.getPmId()) && !Collections.disjoint(used, mp.getDependencyIds())){
+					ret.add(mp.getPmId());
+					found = transitive;
+				}
+			}
+			if(transitive){
+				used.addAll(ret);
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns the PM identifiers of projects.
+	 * @param mps the projects
+	 * @return PM identifiers
+	 */
+	protected Set<String> ids(Collection<Model_ManagedProject> mps){
+		Set<String> ret = new TreeSet<>();
+		for(Model_ManagedProject mp : mps){
+			ret.add(mp.getPmId());
+		}
+		return ret;
+	}
+}
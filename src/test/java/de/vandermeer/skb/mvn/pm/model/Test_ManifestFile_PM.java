@@ -0,0 +1,77 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.mvn.pm.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+/**
+ * Tests for manifest files: keys and values survive a save and load, the file is replaced through a temporary file.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+public class Test_ManifestFile_PM {
+
+	@Test
+	public void test_RoundTrip() throws IOException{
+		File dir = Files.createTempDirectory("pm-manifest").toFile();
+		try{
+			Map<String, String> entries = new LinkedHashMap<>();
+			entries.put("plain", "de.vandermeer 1.0.0");
+			entries.put("non-ascii", "M\u00fcller \u20ac \u4e2d");
+			entries.put("back\\slash", "C:\\path\\to\\file");
+			entries.put("sep=ar:ated key", "a=b:c");
+			entries.put("#comment", "!bang #hash");
+			entries.put("spaces", "  leading and trailing  ");
+			entries.put("lines", "a\nb\r\nc\td\fe");
+			entries.put("empty", "");
+
+			File file = new File(dir, "sub/manifest.pm");
+			ManifestFile mf = new ManifestFile(file, "test manifest");
+			for(Entry<String, String> e : entries.entrySet()){
+				mf.put(e.getKey(), e.getValue());
+			}
+			mf.save();
+			assertFalse(new File(file.getPath() + ".tmp").exists());
+
+			ManifestFile loaded = new ManifestFile(file, "test manifest");
+			assertEquals(entries.size(), loaded.getKeys().size());
+			for(Entry<String, String> e : entries.entrySet()){
+				assertEquals(e.getKey(), e.getValue(), loaded.get(e.getKey()));
+			}
+
+			//saved again without changes: same file
+			byte[] saved = Files.readAllBytes(file.toPath());
+			loaded.save();
+			assertEquals(new String(saved, "UTF-8"), new String(Files.readAllBytes(file.toPath()), "UTF-8"));
+		}
+		finally{
+			FileUtils.deleteQuietly(dir);
+		}
+	}
+}
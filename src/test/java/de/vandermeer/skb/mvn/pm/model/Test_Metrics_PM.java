@@ -0,0 +1,77 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.mvn.pm.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Properties;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+/**
+ * Tests for metrics: bytes read from files and the JSON report.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+public class Test_Metrics_PM {
+
+	@Test
+	public void test_Read() throws IOException{
+		File f = File.createTempFile("pm-metrics", ".properties");
+		try{
+			Files.write(f.toPath(), "key=value\u00e4\n".getBytes(StandardCharsets.UTF_8));
+			PM_Metrics metrics = new PM_Metrics();
+			PM_Metrics.Span span = metrics.startPhase(PM_Metrics.PHASE_LOAD);
+			Reader reader = metrics.newReader(f);
+			new Properties().load(reader);
+
+			//closed twice, counted once; opened and closed without reading, nothing counted
+			reader.close();
+			reader.close();
+			metrics.newReader(f).close();
+			span.stop();
+			assertEquals(f.length(), metrics.getPhases().get(PM_Metrics.PHASE_LOAD).getRead());
+		}
+		finally{
+			FileUtils.deleteQuietly(f);
+		}
+	}
+
+	@Test
+	public void test_Json(){
+		PM_Metrics metrics = new PM_Metrics();
+		PM_Metrics.Span span = metrics.startPhase("load \"all\"");
+		metrics.startProject("render\\", "p1\n/x").stop();
+		span.stop();
+
+		String json = metrics.toJson();
+		assertTrue(json, json.contains("{\"name\": \"load \\\"all\\\"\", "));
+		assertTrue(json, json.contains("{\"pmId\": \"p1\\n\\/x\", "));
+		assertTrue(json, json.contains("\"stages\": {\"render\\\\\": {"));
+
+		//no line breaks inside strings: one line for the phase and one for the project
+		assertEquals(json, 8, json.split("\n").length);
+	}
+}
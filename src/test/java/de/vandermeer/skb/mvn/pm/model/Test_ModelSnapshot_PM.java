@@ -0,0 +1,157 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.mvn.pm.model;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import de.vandermeer.skb.mvn.pm.SyntheticWorkspace;
+
+/**
+ * Tests for the model snapshot: round trip, corrupted snapshot, and stale inputs inside and outside the racy window.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+public class Test_ModelSnapshot_PM {
+
+	@Test
+	public void test_RoundTrip() throws IOException{
+		SyntheticWorkspace ws = SyntheticWorkspace.temporary(20).create();
+		File file = new File(ws.getRoot(), "snapshot.bin");
+		try{
+			PM_Model model = ws.createModel();
+			ModelSnapshot ms = new ModelSnapshot(file);
+			long written = ms.write(model, ws.getConfigDir(), this.folders(ws));
+			assertEquals(file.length(), written);
+			long checksum = ms.getChecksum();
+			assertTrue(checksum!=0);
+
+			PM_Model restored = new ModelSnapshot(file).read(ws.createContext(), ws.getConfigDir(), this.folders(ws));
+			assertNotNull(restored);
+			assertEquals(model.getManagedProjects().size(), restored.getManagedProjects().size());
+			Iterator<Model_ManagedProject> it = restored.getManagedProjects().iterator();
+			for(Model_ManagedProject mp : model.getManagedProjects()){
+				Model_ManagedProject rp = it.next();
+				assertEquals(mp.getPmId(), rp.getPmId());
+				assertEquals(mp.getBaseDir(), rp.getBaseDir());
+				assertEquals(mp.getPmDir(), rp.getPmDir());
+				assertEquals(mp.getProjectPropertyFile(), rp.getProjectPropertyFile());
+				assertArrayEquals(mp.properties.getValues(), rp.properties.getValues());
+				assertEquals(mp.properties.getFlags(), rp.properties.getFlags());
+				assertEquals(mp.getOtherProjectFiles(), rp.getOtherProjectFiles());
+				assertEquals(mp.getLicenses(), rp.getLicenses());
+			}
+
+			//other configuration
+			assertNull(new ModelSnapshot(file).read(ws.createContext(), ws.getConfigDir(), new ArrayList<Object>(ws.getProjects().subList(1, 20))));
+		}
+		finally{
+			ws.delete();
+		}
+	}
+
+	@Test
+	public void test_Corrupted() throws IOException{
+		SyntheticWorkspace ws = SyntheticWorkspace.temporary(5).create();
+		File file = new File(ws.getRoot(), "snapshot.bin");
+		try{
+			new ModelSnapshot(file).write(ws.createModel(), ws.getConfigDir(), this.folders(ws));
+			byte[] b = Files.readAllBytes(file.toPath());
+
+			//one flipped bit in the payload fails the checksum
+			b[b.length - 3] ^= 0x10;
+			Files.write(file.toPath(), b);
+			ModelSnapshot ms = new ModelSnapshot(file);
+			assertNull(ms.read(ws.createContext(), ws.getConfigDir(), this.folders(ws)));
+			assertEquals(0, ms.getChecksum());
+
+			//truncated
+			Files.write(file.toPath(), new byte[]{0x50, 0x4d});
+			assertNull(ms.read(ws.createContext(), ws.getConfigDir(), this.folders(ws)));
+		}
+		finally{
+			ws.delete();
+		}
+	}
+
+	@Test
+	public void test_Stale() throws IOException{
+		SyntheticWorkspace ws = SyntheticWorkspace.temporary(5).create();
+		File file = new File(ws.getRoot(), "snapshot.bin");
+		try{
+			PM_Model model = ws.createModel();
+			File pf = model.getManagedProjects().iterator().next().getProjectPropertyFile();
+			ModelSnapshot ms = new ModelSnapshot(file);
+			ms.write(model, ws.getConfigDir(), this.folders(ws));
+			assertNotNull(ms.read(ws.createContext(), ws.getConfigDir(), this.folders(ws)));
+
+			//changed content with same size and modification time, inside the racy window
+			FileTime time = Files.getLastModifiedTime(pf.toPath());
+			SyntheticWorkspace.replace(pf, "Synthetic", "Syntactic");
+			Files.setLastModifiedTime(pf.toPath(), time);
+			assertNull(ms.read(ws.createContext(), ws.getConfigDir(), this.folders(ws)));
+
+			//same change outside the racy window is not detected, size and modification time are trusted
+			SyntheticWorkspace.replace(pf, "Syntactic", "Synthetic");
+			time = FileTime.fromMillis(System.currentTimeMillis() - 3600000);
+			Files.setLastModifiedTime(pf.toPath(), time);
+			ms.write(model, ws.getConfigDir(), this.folders(ws));
+			SyntheticWorkspace.replace(pf, "Synthetic", "Syntactic");
+			Files.setLastModifiedTime(pf.toPath(), time);
+			assertNotNull(ms.read(ws.createContext(), ws.getConfigDir(), this.folders(ws)));
+
+			//changed size, changed modification time, removed file
+			SyntheticWorkspace.replace(pf, "Syntactic", "Synthetic!");
+			Files.setLastModifiedTime(pf.toPath(), time);
+			assertNull(ms.read(ws.createContext(), ws.getConfigDir(), this.folders(ws)));
+			SyntheticWorkspace.replace(pf, "Synthetic!", "Syntactic");
+			Files.setLastModifiedTime(pf.toPath(), FileTime.fromMillis(time.toMillis() + 1000));
+			assertNull(ms.read(ws.createContext(), ws.getConfigDir(), this.folders(ws)));
+			Files.setLastModifiedTime(pf.toPath(), time);
+			assertNotNull(ms.read(ws.createContext(), ws.getConfigDir(), this.folders(ws)));
+			FileUtils.deleteQuietly(pf);
+			assertNull(ms.read(ws.createContext(), ws.getConfigDir(), this.folders(ws)));
+		}
+		finally{
+			ws.delete();
+		}
+	}
+
+	/**
+	 * Returns the project folders of a workspace, as given in the projects file.
+	 * @param ws the workspace
+	 * @return project folders
+	 */
+	protected Collection<Object> folders(SyntheticWorkspace ws){
+		return new ArrayList<Object>(ws.getProjects());
+	}
+}
@@ -0,0 +1,162 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.mvn.pm.model;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+import de.vandermeer.skb.mvn.PmConstants;
+import de.vandermeer.skb.mvn.ProjectFiles;
+import de.vandermeer.skb.mvn.ProjectProperties;
+import de.vandermeer.skb.mvn.pm.SyntheticWorkspace;
+
+/**
+ * Conformance tests for POM renderers: every renderer must create the same output, byte by byte, as the POM template.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+public class Test_PomRenderer_PM {
+
+	@Test
+	public void test_Synthetic() throws IOException{
+		SyntheticWorkspace ws = SyntheticWorkspace.temporary(60).create();
+		try{
+			this.assertConformance(ws.createModel());
+		}
+		finally{
+			ws.delete();
+		}
+	}
+
+	@Test
+	public void test_EdgeCases() throws IOException{
+		SyntheticWorkspace ws = SyntheticWorkspace.temporary(8).setFanOut(2, 2).create();
+		try{
+			//values with line breaks, organization without URL
+			this.properties(ws, 1,
+					ProjectProperties.MVN_DESCRIPTION.getPropName() + "=first line\\nsecond line\\r\\nthird line",
+					ProjectProperties.MVN_URL.getPropName() + "=http://example.org\\r",
+					ProjectProperties.MVN_SCM_URL.getPropName() + "=\\nhttp://example.org",
+					ProjectProperties.MVN_ORGANIZATION_NAME.getPropName() + "=Org\\nName",
+					ProjectProperties.MVN_ORGANIZATION_URL.getPropName() + "="
+			);
+			//organization with empty name
+			this.properties(ws, 6,
+					ProjectProperties.MVN_ORGANIZATION_NAME.getPropName() + "=",
+					ProjectProperties.MVN_ORGANIZATION_URL.getPropName() + "=http://example.org"
+			);
+			//fragments with CRLF, blank lines, no final line break, only whitespace, only a line break
+			this.fragment(ws, 2, ProjectFiles.CONTRIBUTORS, "<contributor>\r\n\t<name>CR LF</name>\r\n\r\n</contributor>\r\n");
+			this.fragment(ws, 2, ProjectFiles.MODULES, "<module>a</module>");
+			this.fragment(ws, 2, ProjectFiles.REPORTING, "\n");
+			this.fragment(ws, 2, ProjectFiles.PROPERTIES, "   \n\t<indented>yes</indented>\n\n");
+			this.fragment(ws, 3, ProjectFiles.DEPENDENCIES, "\r");
+			this.fragment(ws, 3, ProjectFiles.PROFILES, "<profile>\n\t<id>own</id>\n</profile>");
+			this.fragment(ws, 4, ProjectFiles.DEVELOPERS, " ");
+			//no coordinated dependencies, no plugin or profile files
+			this.properties(ws, 5,
+					ProjectProperties.PM_DEPENDENCIES.getPropName() + "=",
+					ProjectProperties.PM_PLUGINS.getPropName() + "=",
+					ProjectProperties.PM_PROFILES.getPropName() + "="
+			);
+			this.assertConformance(ws.createModel());
+
+			//no plugin versions
+			Files.write(new File(ws.getConfigDir(), PmConstants.PLUGIN_VERSIONS_FILE).toPath(), new byte[0]);
+			this.assertConformance(ws.createModel());
+		}
+		finally{
+			ws.delete();
+		}
+	}
+
+	/**
+	 * Tests that all projects of a model are rendered the same by all renderers.
+	 * @param model the loaded model
+	 * @throws IOException if rendering failed
+	 */
+	protected void assertConformance(PM_Model model) throws IOException{
+		PomWriter pw = new PomWriter();
+		PomRenderer st = new StPomRenderer();
+		st.load();
+		PomRenderer direct = new DirectPomRenderer();
+		direct.load();
+		for(Model_ManagedProject mp : model.getManagedProjects()){
+			assertEquals("project <" + mp.getPmId() + ">", this.render(st, pw, mp), this.render(direct, pw, mp));
+		}
+	}
+
+	/**
+	 * Renders the POM file of a project.
+	 * @param renderer the renderer
+	 * @param pw the POM writer for the fragments
+	 * @param mp the project
+	 * @return the rendered POM
+	 * @throws IOException if rendering failed
+	 */
+	protected String render(PomRenderer renderer, PomWriter pw, Model_ManagedProject mp) throws IOException{
+		StringWriter ret = new StringWriter();
+		renderer.render(mp, pw.createFragments(mp), ret);
+		return ret.toString();
+	}
+
+	/**
+	 * Appends properties to the property file of a project, overwriting earlier values.
+	 * @param ws the workspace
+	 * @param i the project number
+	 * @param lines property lines
+	 * @throws IOException if the file could not be written
+	 */
+	protected void properties(SyntheticWorkspace ws, int i, String ... lines) throws IOException{
+		File f = new File(this.pmDir(ws, i), ProjectFiles.MANAGED_PROJECT_PROPERTIES.getFileName());
+		StringBuilder sb = new StringBuilder(new String(Files.readAllBytes(f.toPath()), StandardCharsets.UTF_8));
+		for(String line : lines){
+			sb.append(line).append('\n');
+		}
+		Files.write(f.toPath(), sb.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Writes a fragment file of a project.
+	 * @param ws the workspace
+	 * @param i the project number
+	 * @param pf the project file
+	 * @param content the content
+	 * @throws IOException if the file could not be written
+	 */
+	protected void fragment(SyntheticWorkspace ws, int i, ProjectFiles pf, String content) throws IOException{
+		Files.write(new File(this.pmDir(ws, i), pf.getFileName()).toPath(), content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Returns the PM directory of a project.
+	 * @param ws the workspace
+	 * @param i the project number
+	 * @return PM directory
+	 */
+	protected File pmDir(SyntheticWorkspace ws, int i){
+		return new File(ws.getProjects().get(i), PmConstants.PROJECT_PM_PATH);
+	}
+}
@@ -0,0 +1,221 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.mvn.pm.model;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+
+import de.vandermeer.skb.mvn.PmConstants;
+import de.vandermeer.skb.mvn.ProjectFiles;
+import de.vandermeer.skb.mvn.pm.ProjectManager;
+import de.vandermeer.skb.mvn.pm.SyntheticWorkspace;
+import de.vandermeer.skb.mvn.pm.SyntheticWorkspace.Mode;
+
+/**
+ * Tests for the POM writer: changed and missing POM files are replaced through a temporary file, stale temporary files are removed, POM files that cannot be replaced are reported as warnings, hand edits right after a run are found, and incremental mode.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+public class Test_PomWriter_PM {
+
+	@Test
+	public void test_Changed() throws IOException{
+		for(Mode[] modes : new Mode[][]{{}, {Mode.FSYNC}}){
+			SyntheticWorkspace ws = SyntheticWorkspace.temporary(6).create();
+			File work = Files.createTempDirectory("pm-work").toFile();
+			try{
+				ws.load(work, 1, modes).writeModel();
+				File[] poms = new File[6];
+				byte[][] content = new byte[6][];
+				for(int i=0; i<poms.length; i++){
+					poms[i] = new File(ws.getProjects().get(i), "pom.xml");
+					content[i] = Files.readAllBytes(poms[i].toPath());
+				}
+
+				//changed POM file, missing POM file, stale temporary files of an interrupted run
+				Files.write(poms[0].toPath(), "<project/>\n".getBytes(StandardCharsets.UTF_8));
+				FileUtils.deleteQuietly(poms[3]);
+				Files.write(this.tmp(poms[1]).toPath(), "stale".getBytes(StandardCharsets.UTF_8));
+				Files.write(this.tmp(poms[3]).toPath(), "stale".getBytes(StandardCharsets.UTF_8));
+
+				String written = ws.load(work, 1, modes).writeModel();
+				assertEquals("writing new pom file: " + poms[0] + "\nwriting new pom file: " + poms[3] + "\n", written.replace("\r\n", "\n"));
+				for(int i=0; i<poms.length; i++){
+					assertArrayEquals(content[i], Files.readAllBytes(poms[i].toPath()));
+					assertFalse(this.tmp(poms[i]).exists());
+				}
+				assertEquals("", ws.load(work, 1, modes).writeModel());
+			}
+			finally{
+				ws.delete();
+				FileUtils.deleteQuietly(work);
+			}
+		}
+	}
+
+	@Test
+	public void test_Incremental() throws IOException{
+		SyntheticWorkspace ws = SyntheticWorkspace.temporary(6).create();
+		File work = Files.createTempDirectory("pm-work").toFile();
+		try{
+			assertEquals(6, StringUtils.countMatches(ws.load(work, 1, Mode.INCREMENTAL).writeModel(), "writing new pom file: "));
+			File[] poms = new File[6];
+			for(int i=0; i<poms.length; i++){
+				poms[i] = new File(ws.getProjects().get(i), "pom.xml");
+				//older than the racy window, so the manifest entries of the next run are trusted
+				Files.setLastModifiedTime(poms[i].toPath(), FileTime.fromMillis(System.currentTimeMillis() - 3600000));
+			}
+			assertEquals("", ws.load(work, 1, Mode.INCREMENTAL).writeModel());
+
+			//nothing changed: no POM file is rendered, each input file is read once, shared fragments included
+			ProjectManager pm = ws.load(work, 1, Mode.INCREMENTAL);
+			assertEquals("", pm.writeModel());
+			Set<File> inputs = new HashSet<>();
+			for(Model_ManagedProject mp : pm.getModel().getManagedProjects()){
+				inputs.add(mp.projectPropertyFile.getCanonicalFile());
+				for(File f : mp.getOtherProjectFiles().values()){
+					inputs.add(f.getCanonicalFile());
+				}
+				for(File f : mp.getPlugins()){
+					inputs.add(f.getCanonicalFile());
+				}
+				for(File f : mp.getProfiles()){
+					inputs.add(f.getCanonicalFile());
+				}
+			}
+			long read = 0;
+			for(File f : inputs){
+				read += f.length();
+			}
+			assertEquals(read, pm.getMetrics().getPhases().get(PM_Metrics.PHASE_WRITE).getRead());
+			assertEquals(0, pm.getMetrics().getPhases().get(PM_Metrics.PHASE_WRITE).getWritten());
+
+			//changed project properties: only that POM file
+			File pf = new File(ws.getProjects().get(3), PmConstants.PROJECT_PM_PATH + "/" + ProjectFiles.MANAGED_PROJECT_PROPERTIES.getFileName());
+			SyntheticWorkspace.replace(pf, "number 3,", "number three,");
+			assertEquals("writing new pom file: " + poms[3] + "\n", ws.load(work, 1, Mode.INCREMENTAL).writeModel().replace("\r\n", "\n"));
+
+			//hand-edited POM file: regenerated
+			byte[] content = Files.readAllBytes(poms[2].toPath());
+			Files.write(poms[2].toPath(), "<project/>\n".getBytes(StandardCharsets.UTF_8));
+			assertEquals("writing new pom file: " + poms[2] + "\n", ws.load(work, 1, Mode.INCREMENTAL).writeModel().replace("\r\n", "\n"));
+			assertArrayEquals(content, Files.readAllBytes(poms[2].toPath()));
+
+			//hand edit right after the run, same size and same modification time: regenerated
+			FileTime modified = Files.getLastModifiedTime(poms[2].toPath());
+			Files.write(poms[2].toPath(), new String(content, StandardCharsets.UTF_8).replaceFirst("<modelVersion>", "<modelVersioN>").getBytes(StandardCharsets.UTF_8));
+			Files.setLastModifiedTime(poms[2].toPath(), modified);
+			assertEquals("writing new pom file: " + poms[2] + "\n", ws.load(work, 1, Mode.INCREMENTAL).writeModel().replace("\r\n", "\n"));
+			assertArrayEquals(content, Files.readAllBytes(poms[2].toPath()));
+		}
+		finally{
+			ws.delete();
+			FileUtils.deleteQuietly(work);
+		}
+	}
+
+	@Test
+	public void test_Racy() throws IOException{
+		SyntheticWorkspace ws = SyntheticWorkspace.temporary(3).create();
+		File work = Files.createTempDirectory("pm-work").toFile();
+		try{
+			ws.load(work, 1).writeModel();
+			File pom = new File(ws.getProjects().get(1), "pom.xml");
+			byte[] content = Files.readAllBytes(pom.toPath());
+			FileTime modified = Files.getLastModifiedTime(pom.toPath());
+
+			//hand edit right after the digest was recorded, same size and same modification time
+			String text = new String(content, StandardCharsets.UTF_8);
+			Files.write(pom.toPath(), text.replaceFirst("<modelVersion>", "<modelVersioN>").getBytes(StandardCharsets.UTF_8));
+			Files.setLastModifiedTime(pom.toPath(), modified);
+			assertEquals("writing new pom file: " + pom + "\n", ws.load(work, 1).writeModel().replace("\r\n", "\n"));
+			assertArrayEquals(content, Files.readAllBytes(pom.toPath()));
+		}
+		finally{
+			ws.delete();
+			FileUtils.deleteQuietly(work);
+		}
+	}
+
+	@Test
+	public void test_Failures() throws IOException{
+		for(boolean fsync : new boolean[]{false, true}){
+			SyntheticWorkspace ws = SyntheticWorkspace.temporary(6).create();
+			File work = Files.createTempDirectory("pm-work").toFile();
+			try{
+				//a directory in place of the POM file cannot be replaced, in sync mode the temporary POM file of p4 cannot be synced
+				File[] poms = new File[6];
+				for(int i=0; i<poms.length; i++){
+					poms[i] = new File(ws.getProjects().get(i), "pom.xml");
+				}
+				assertTrue(new File(poms[1], "keep").mkdirs());
+				PomWriter pw = new PomWriter(){
+					@Override
+					protected void sync(File f, StandardOpenOption option) throws IOException{
+						if(f.getName().endsWith(TMP_SUFFIX) && f.getParentFile().getName().equals("p4")){
+							throw new IOException("not synced");
+						}
+						super.sync(f, option);
+					}
+				};
+				pw.setWorkDir(work);
+				pw.setFsync(fsync);
+				pw.setThreads(2);
+				String written = pw.writePoms(ws.createModel().getManagedProjects()).replace("\r\n", "\n");
+
+				assertEquals(fsync?4:5, StringUtils.countMatches(written, "writing new pom file: "));
+				assertFalse(written.contains(poms[1].toString()));
+				assertEquals(fsync?2:1, pw.getWarnings().size());
+				assertTrue(pw.getWarnings().get(0), pw.getWarnings().get(0).startsWith(fsync?"could not sync POM file <" + this.tmp(poms[4]):"could not write POM file <" + poms[1]));
+				assertTrue(poms[1].isDirectory());
+				assertEquals(!fsync, poms[4].isFile());
+				for(int i=0; i<poms.length; i++){
+					assertFalse(this.tmp(poms[i]).exists());
+				}
+			}
+			finally{
+				ws.delete();
+				FileUtils.deleteQuietly(work);
+			}
+		}
+	}
+
+	/**
+	 * Returns the temporary file of a POM file.
+	 * @param pom the POM file
+	 * @return temporary file
+	 */
+	protected File tmp(File pom){
+		return new File(pom.getPath() + PomWriter.TMP_SUFFIX);
+	}
+}
@@ -0,0 +1,183 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.mvn.pm.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import de.vandermeer.skb.mvn.PmConstants;
+import de.vandermeer.skb.mvn.ProjectFiles;
+import de.vandermeer.skb.mvn.pm.ProjectManager;
+import de.vandermeer.skb.mvn.pm.SyntheticWorkspace;
+
+/**
+ * Tests for the discovery of managed projects: pruning, revalidation from the index, an index that cannot be written, and loading a model without projects file.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+public class Test_ProjectDiscovery_PM {
+
+	@Test
+	public void test_Discover() throws IOException{
+		SyntheticWorkspace ws = SyntheticWorkspace.temporary(30).create();
+		try{
+			File root = ws.getRoot();
+			File nested = new File(root, "group/nested");
+			this.project(nested);
+			this.project(new File(root, "p0/target/copy"));
+			this.project(new File(root, "node_modules/module"));
+			this.project(new File(root, ".git/copy"));
+
+			SortedSet<File> expected = new TreeSet<>(ws.getProjects());
+			expected.add(nested);
+			ProjectDiscovery pd = new ProjectDiscovery(Arrays.asList(root), ProjectDiscovery.DEFAULT_PRUNE);
+			pd.setThreads(4);
+			assertEquals(expected, pd.discover(PmConstants.PROJECT_PM_PATH));
+
+			//relative path pattern and directory name pattern
+			pd = new ProjectDiscovery(Arrays.asList(root), "target/, .git/, node_modules/, p29/src, gr*");
+			expected.remove(nested);
+			expected.remove(new File(root, "p29"));
+			assertEquals(expected, pd.discover(PmConstants.PROJECT_PM_PATH));
+
+			//no projects file required
+			Files.delete(new File(ws.getConfigDir(), PmConstants.PROJECTS_FILE).toPath());
+			ProjectManager pm = new ProjectManager(ws.getConfigDir(), PmConstants.PROJECT_PM_PATH, pd);
+			pm.loadModel();
+			assertEquals(29, pm.getModel().getManagedProjects().size());
+		}
+		finally{
+			ws.delete();
+		}
+	}
+
+	@Test
+	public void test_Index() throws IOException{
+		SyntheticWorkspace ws = SyntheticWorkspace.temporary(20).create();
+		File index = Files.createTempFile("pm-discovery", ".bin").toFile();
+		try{
+			File root = ws.getRoot();
+			this.setOld(root.toPath());
+			ProjectDiscovery pd = new ProjectDiscovery(Arrays.asList(root), ProjectDiscovery.DEFAULT_PRUNE);
+			pd.setIndexFile(index);
+			SortedSet<File> expected = new TreeSet<>(ws.getProjects());
+			assertEquals(expected, pd.discover(PmConstants.PROJECT_PM_PATH));
+			int dirs = pd.getListed();
+			assertEquals(0, pd.getRevalidated());
+
+			//unchanged, no directory listed
+			assertEquals(expected, pd.discover(PmConstants.PROJECT_PM_PATH));
+			assertEquals(0, pd.getListed());
+			assertEquals(dirs, pd.getRevalidated());
+
+			//new project, only the root and the new directories are listed
+			File added = new File(root, "added");
+			this.project(added);
+			expected.add(added);
+			assertEquals(expected, pd.discover(PmConstants.PROJECT_PM_PATH));
+			assertEquals(4, pd.getListed());
+
+			//removed project property file
+			File removed = ws.getProjects().get(3);
+			Files.delete(new File(removed, PmConstants.PROJECT_PM_PATH + "/" + ProjectFiles.MANAGED_PROJECT_PROPERTIES.getFileName()).toPath());
+			expected.remove(removed);
+			assertEquals(expected, pd.discover(PmConstants.PROJECT_PM_PATH));
+
+			//changed configuration, index not used
+			pd = new ProjectDiscovery(Arrays.asList(root), "target/");
+			pd.setIndexFile(index);
+			assertEquals(expected, pd.discover(PmConstants.PROJECT_PM_PATH));
+			assertEquals(0, pd.getRevalidated());
+			assertFalse(pd.getListed()==0);
+		}
+		finally{
+			ws.delete();
+			FileUtils.deleteQuietly(index);
+		}
+	}
+
+	@Test
+	public void test_IndexNotWritten() throws IOException{
+		SyntheticWorkspace ws = SyntheticWorkspace.temporary(5).create();
+		File file = Files.createTempFile("pm-discovery", ".bin").toFile();
+		try{
+			//parent of the index file is a file
+			File index = new File(file, PmConstants.DISCOVERY_INDEX_FILE);
+			ProjectDiscovery pd = new ProjectDiscovery(Arrays.asList(ws.getRoot()), ProjectDiscovery.DEFAULT_PRUNE);
+			pd.setIndexFile(index);
+			assertEquals(new TreeSet<>(ws.getProjects()), pd.discover(PmConstants.PROJECT_PM_PATH));
+			assertTrue(pd.getWarning(), pd.getWarning().startsWith("could not write discovery index <" + index + ">"));
+
+			ProjectManager pm = new ProjectManager(ws.getConfigDir(), PmConstants.PROJECT_PM_PATH, pd);
+			pm.loadModel();
+			assertEquals(5, pm.getModel().getManagedProjects().size());
+			assertEquals(Arrays.asList(pd.getWarning()), pm.getWarnings());
+
+			pd.setIndexFile(null);
+			pd.discover(PmConstants.PROJECT_PM_PATH);
+			assertNull(pd.getWarning());
+		}
+		finally{
+			ws.delete();
+			FileUtils.deleteQuietly(file);
+		}
+	}
+
+	/**
+	 * Creates a minimal project, with an empty project property file.
+	 * @param baseDir the project base directory
+	 * @throws IOException if the project could not be created
+	 */
+	protected void project(File baseDir) throws IOException{
+		File pmDir = new File(baseDir, PmConstants.PROJECT_PM_PATH);
+		assertTrue(pmDir.mkdirs());
+		Files.createFile(new File(pmDir, ProjectFiles.MANAGED_PROJECT_PROPERTIES.getFileName()).toPath());
+	}
+
+	/**
+	 * Sets the modification time of all directories to one hour ago, so that the discovery index trusts them.
+	 * @param root the root directory
+	 * @throws IOException if any modification time could not be set
+	 */
+	protected void setOld(Path root) throws IOException{
+		final FileTime old = FileTime.fromMillis(System.currentTimeMillis() - 3600000);
+		Files.walkFileTree(root, new SimpleFileVisitor<Path>(){
+			@Override
+			public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException{
+				Files.setLastModifiedTime(dir, old);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+}
@@ -0,0 +1,100 @@
+/* Copyright 2016 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.mvn.pm.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+/**
+ * Tests for unified diffs: insert, delete, empty files, CRLF line terminators, and a missing final line terminator.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.0.3 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.0.4
+ */
+public class Test_UnifiedDiff_PM {
+
+	/** Header of all diffs. */
+	static final String HEADER = "--- a/pom.xml\n+++ b/pom.xml\n";
+
+	@Test
+	public void test_InsertDelete() throws IOException{
+		assertEquals(HEADER + "@@ -1,3 +1,4 @@\n a\n b\n+x\n c\n", this.diff("a\nb\nc\n", "a\nb\nx\nc\n", 1));
+		assertEquals(HEADER + "@@ -1,3 +1,2 @@\n a\n-b\n c\n", this.diff("a\nb\nc\n", "a\nc\n", 1));
+		assertEquals(HEADER + "@@ -1,3 +1,3 @@\n a\n-b\n+x\n c\n", this.diff("a\nb\nc\n", "a\nx\nc\n", 2));
+
+		//distant changes in separate hunks, one context line
+		assertEquals(HEADER + "@@ -1,2 +1,2 @@\n-1\n+x\n 2\n@@ -7,2 +7,2 @@\n 7\n-8\n+y\n",
+				this.diff("1\n2\n3\n4\n5\n6\n7\n8\n", "x\n2\n3\n4\n5\n6\n7\ny\n", 4, 1));
+	}
+
+	@Test
+	public void test_Empty() throws IOException{
+		assertEquals(HEADER + "@@ -0,0 +1,2 @@\n+a\n+b\n", this.diff("", "a\nb\n", 2));
+		assertEquals(HEADER + "@@ -1,2 +0,0 @@\n-a\n-b\n", this.diff("a\nb\n", "", 2));
+		assertEquals("", this.diff("", "", 0));
+	}
+
+	@Test
+	public void test_LineTerminators() throws IOException{
+		//CRLF lines are written with CRLF
+		assertEquals(HEADER + "@@ -1,3 +1,3 @@\n a\r\n-b\r\n+x\r\n c\r\n", this.diff("a\r\nb\r\nc\r\n", "a\r\nx\r\nc\r\n", 2));
+		assertEquals(HEADER + "@@ -1,2 +1,2 @@\n a\r\n-b\r\n+x\n", this.diff("a\r\nb\r\n", "a\nx\n", 2));
+
+		//only line terminators changed: no difference
+		assertEquals("", this.diff("a\r\nb\rc\n", "a\nb\nc\n", 0));
+
+		//missing final line terminator
+		assertEquals(HEADER + "@@ -1,2 +1,2 @@\n a\n-b\n\\ No newline at end of file\n+c\n\\ No newline at end of file\n", this.diff("a\nb", "a\nc", 2));
+		assertEquals(HEADER + "@@ -1,2 +1,2 @@\n a\n-b\n\\ No newline at end of file\n+b\n", this.diff("a\nb", "a\nb\n", 2));
+		assertEquals(HEADER + "@@ -1 +1,2 @@\n-a\n\\ No newline at end of file\n+a\n+b\n", this.diff("a", "a\nb\n", 3));
+	}
+
+	/**
+	 * Computes and writes a diff with three context lines.
+	 * @param oldText the old text
+	 * @param newText the new text
+	 * @param changes expected number of changed lines
+	 * @return the written diff
+	 * @throws IOException if writing failed
+	 */
+	protected String diff(String oldText, String newText, int changes) throws IOException{
+		return this.diff(oldText, newText, changes, UnifiedDiff.DEFAULT_CONTEXT);
+	}
+
+	/**
+	 * Computes and writes a diff.
+	 * @param oldText the old text
+	 * @param newText the new text
+	 * @param changes expected number of changed lines
+	 * @param context number of context lines
+	 * @return the written diff
+	 * @throws IOException if writing failed
+	 */
+	protected String diff(String oldText, String newText, int changes, int context) throws IOException{
+		UnifiedDiff diff = new UnifiedDiff(oldText, newText);
+		assertEquals(changes, diff.getChanges());
+		assertTrue(diff.isEmpty()==(changes==0));
+		StringWriter ret = new StringWriter();
+		diff.write(ret, "a/pom.xml", "b/pom.xml", context);
+		return ret.toString();
+	}
+}